@@ -35,6 +35,9 @@ import java.util.Collections;
  * #L%
  */
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
@@ -114,6 +117,59 @@ public class SpanUtils {
 		return mergedSpans;
 	}
 
+	/**
+	 * Computes the union of the input spans in a single sort-then-sweep pass. Overlapping and
+	 * abutting spans are merged, as in {@link #mergeSpans(List, List)}, but the cost is
+	 * O(n log n) rather than quadratic in the number of spans.
+	 * 
+	 * @param spans
+	 * @return the sorted, non-overlapping spans that cover exactly the input spans
+	 */
+	public static ArrayList<Span> unionSpans(Collection<Span> spans) {
+		int[] starts = new int[spans.size()];
+		int[] ends = new int[spans.size()];
+		int count = 0;
+		for (Span span : spans) {
+			starts[count] = span.getSpanStart();
+			ends[count++] = span.getSpanEnd();
+		}
+		return unionSpans(starts, ends, count);
+	}
+
+	/**
+	 * Computes the union of the spans whose offsets are stored in the first <code>count</code>
+	 * elements of the input arrays, where span i runs from <code>starts[i]</code> to
+	 * <code>ends[i]</code>. The start and end offsets are sorted independently: once both arrays are
+	 * sorted, a gap in the union lies between <code>ends[i]</code> and <code>starts[i + 1]</code>
+	 * exactly when <code>starts[i + 1] &gt; ends[i]</code>, so one linear sweep produces the
+	 * merged spans. Note that the input arrays are sorted in place.
+	 * 
+	 * @param starts
+	 *            span start offsets
+	 * @param ends
+	 *            span end offsets
+	 * @param count
+	 *            the number of spans stored in the arrays
+	 * @return the sorted, non-overlapping spans that cover exactly the input spans
+	 */
+	public static ArrayList<Span> unionSpans(int[] starts, int[] ends, int count) {
+		ArrayList<Span> mergedSpans = new ArrayList<Span>();
+		if (count == 0) {
+			return mergedSpans;
+		}
+		Arrays.sort(starts, 0, count);
+		Arrays.sort(ends, 0, count);
+		int mergedStart = starts[0];
+		for (int i = 0; i < count - 1; i++) {
+			if (starts[i + 1] > ends[i]) {
+				mergedSpans.add(new Span(mergedStart, ends[i]));
+				mergedStart = starts[i + 1];
+			}
+		}
+		mergedSpans.add(new Span(mergedStart, ends[count - 1]));
+		return mergedSpans;
+	}
+
 	public static List<Span> mergeSpan(List<Span> spans, Span newSpan) {
 		LinkedList<Span> lowSpans = new LinkedList<Span>();
 		Span s;
@@ -131,14 +131,22 @@ public class TextAnnotationUtil {
 		return documentID2AnnotationsMap;
 	}
 
-	private static TextAnnotation getAnnotationFromLine(String line) {
-		String[] toks = line.split("\\|");
+	/**
+	 * Parses a single line of the annotation file format described in
+	 * {@link #loadAnnotationsFromFile(File, CharacterEncoding)}
+	 * 
+	 * @param line
+	 * @return the {@link TextAnnotation} represented by the line, or null if the line does not
+	 *         contain at least five fields
+	 */
+	public static TextAnnotation getAnnotationFromLine(String line) {
+		String[] toks = splitOnDelimiter(line, '|');
 		if (toks.length > 4) {
 			String documentID = toks[0];
 			String annotatorID = toks[1];
 			String annotationType = toks[3];
 
-			String[] spanToks = toks[2].split(" ");
+			String[] spanToks = splitOnDelimiter(toks[2], ' ');
 			int spanStart = Integer.parseInt(spanToks[0]);
 			int spanEnd = Integer.parseInt(spanToks[1]);
 			String coveredText = toks[4];
@@ -163,13 +171,12 @@ public class TextAnnotationUtil {
 				/* get the slot mention values */
 				for (int i = 5; i < toks.length; i += 2) {
 					String slotName = toks[i];
-					String[] slotValues = toks[i + 1].split(",");
+					String[] slotValues = splitOnDelimiter(toks[i + 1], ',');
 					PrimitiveSlotMention sm = DefaultPrimitiveSlotMentionFactory
 							.createPrimitiveSlotMentionFromStringValue(slotName, slotValues[0]);
 					// SlotMention sm = new SlotMention(slotName);
 					for (int k = 1; k < slotValues.length; k++) {
 						// for (String slotValue : slotValues) {
-						System.err.println("solValues[k]: " + slotValues[k] + " sm class: " + sm.getClass().getName());
 						sm.addSlotValueAsString(slotValues[k]);
 					}
 					cm.addPrimitiveSlotMention(sm);
@@ -184,6 +191,35 @@ public class TextAnnotationUtil {
 		return null;
 	}
 
+	/**
+	 * Splits the input on a single delimiter character. The result is identical to that of
+	 * {@link String#split(String)} with the (escaped) delimiter as the regular expression, i.e.
+	 * trailing empty tokens are discarded, but no regular expression is compiled or matched.
+	 * 
+	 * @param str
+	 * @param delimiter
+	 * @return the tokens of the input string
+	 */
+	static String[] splitOnDelimiter(String str, char delimiter) {
+		int index = str.indexOf(delimiter);
+		if (index == -1) {
+			return new String[] { str };
+		}
+		List<String> tokens = new ArrayList<String>();
+		int start = 0;
+		while (index != -1) {
+			tokens.add(str.substring(start, index));
+			start = index + 1;
+			index = str.indexOf(delimiter, start);
+		}
+		tokens.add(str.substring(start));
+		int size = tokens.size();
+		while (size > 0 && tokens.get(size - 1).isEmpty()) {
+			size--;
+		}
+		return tokens.subList(0, size).toArray(new String[size]);
+	}
+
 	public static String printAnnotationToLine(TextAnnotation ta) {
 		StringBuffer outputStr = new StringBuffer();
 
@@ -0,0 +1,349 @@
+package edu.ucdenver.ccp.nlp.core.annotation.serialization;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's nlp module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import edu.ucdenver.ccp.common.file.CharacterEncoding;
+import edu.ucdenver.ccp.common.file.FileReaderUtil;
+import edu.ucdenver.ccp.common.file.FileWriterUtil;
+import edu.ucdenver.ccp.common.file.FileWriterUtil.FileSuffixEnforcement;
+import edu.ucdenver.ccp.common.file.FileWriterUtil.WriteMode;
+import edu.ucdenver.ccp.nlp.core.annotation.TextAnnotation;
+import edu.ucdenver.ccp.nlp.core.annotation.TextAnnotationUtil;
+
+/**
+ * Provides on-demand access to the annotations for individual documents in a file created by
+ * {@link AnnotationToFileOutput}. A single scan of the annotation file records the byte ranges
+ * occupied by the lines of each document. The resulting index is persisted next to the annotation
+ * file (with the {@link #INDEX_FILE_SUFFIX} suffix) and reused as long as the annotation file is
+ * unchanged. Annotations are parsed only when requested for a particular document, so the
+ * annotation file is never held in memory in its entirety.
+ * <p>
+ * The annotation file is scanned byte by byte for the pipe and newline delimiters, so only
+ * encodings in which those bytes can never occur inside another character are supported, i.e.
+ * UTF-8 and single-byte encodings that are a superset of US-ASCII.
+ * 
+ * @author Colorado Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ */
+public class AnnotationFileIndex implements Closeable {
+	private static Logger logger = LogManager.getLogger(AnnotationFileIndex.class);
+
+	/**
+	 * suffix appended to the annotation file name to form the name of the persisted index
+	 */
+	public static final String INDEX_FILE_SUFFIX = ".index";
+
+	private static final String INDEX_HEADER_PREFIX = "#";
+
+	private final File annotationFile;
+
+	private final CharacterEncoding encoding;
+
+	private final Charset charset;
+
+	/**
+	 * maps document identifier to the byte ranges ({offset, length}) of its lines in the
+	 * annotation file; consecutive lines for a document are merged into a single range
+	 */
+	private final Map<String, List<long[]>> documentIdToByteRangesMap;
+
+	private RandomAccessFile annotationFileAccess;
+
+	/**
+	 * Loads the persisted index for the annotation file if one exists and is current, otherwise
+	 * scans the annotation file and persists a new index.
+	 * 
+	 * @param annotationFile
+	 * @param encoding
+	 * @throws IOException
+	 * @throws IllegalArgumentException
+	 *             if the encoding is not ASCII-compatible
+	 */
+	public AnnotationFileIndex(File annotationFile, CharacterEncoding encoding) throws IOException {
+		this.annotationFile = annotationFile;
+		this.encoding = encoding;
+		this.charset = Charset.forName(encoding.getCharacterSetName());
+		if (!isAsciiCompatible(charset)) {
+			throw new IllegalArgumentException("Unsupported encoding for annotation file index: " + encoding
+					+ ". The annotation file must use UTF-8 or a single-byte, ASCII-compatible encoding.");
+		}
+		File indexFile = getIndexFile(annotationFile);
+		Map<String, List<long[]>> ranges = loadIndex(indexFile);
+		if (ranges == null) {
+			ranges = scanAnnotationFile();
+			persistIndex(ranges, indexFile);
+		}
+		this.documentIdToByteRangesMap = ranges;
+	}
+
+	/**
+	 * @param charset
+	 * @return true if the document identifier delimiter and line terminator are encoded as their
+	 *         US-ASCII bytes and those bytes cannot occur within the encoding of any other character
+	 */
+	private static boolean isAsciiCompatible(Charset charset) {
+		if (charset.equals(StandardCharsets.UTF_8)) {
+			return true;
+		}
+		if (!charset.canEncode() || charset.newEncoder().maxBytesPerChar() > 1) {
+			return false;
+		}
+		String delimiters = "|\n";
+		return Arrays.equals(delimiters.getBytes(StandardCharsets.US_ASCII), delimiters.getBytes(charset));
+	}
+
+	/**
+	 * @param annotationFile
+	 * @return the file where the index for the specified annotation file is persisted
+	 */
+	public static File getIndexFile(File annotationFile) {
+		return new File(annotationFile.getPath() + INDEX_FILE_SUFFIX);
+	}
+
+	/**
+	 * @return the identifiers of the documents in the index
+	 */
+	public Set<String> getDocumentIds() {
+		return Collections.unmodifiableSet(documentIdToByteRangesMap.keySet());
+	}
+
+	/**
+	 * @param documentId
+	 * @return true if the index contains annotations for the specified document
+	 */
+	public boolean containsDocument(String documentId) {
+		return documentIdToByteRangesMap.containsKey(documentId);
+	}
+
+	/**
+	 * Reads and parses the lines for the specified document
+	 * 
+	 * @param documentId
+	 * @return the annotations for the specified document in the order they appear in the
+	 *         annotation file; an empty list if the document is not in the index
+	 * @throws IOException
+	 */
+	public List<TextAnnotation> getAnnotations(String documentId) throws IOException {
+		List<long[]> ranges = documentIdToByteRangesMap.get(documentId);
+		if (ranges == null) {
+			return Collections.emptyList();
+		}
+		if (annotationFileAccess == null) {
+			annotationFileAccess = new RandomAccessFile(annotationFile, "r");
+		}
+		List<TextAnnotation> annotations = new ArrayList<TextAnnotation>();
+		for (long[] range : ranges) {
+			byte[] bytes = new byte[(int) range[1]];
+			annotationFileAccess.seek(range[0]);
+			annotationFileAccess.readFully(bytes);
+			BufferedReader reader = new BufferedReader(new StringReader(new String(bytes, charset)));
+			String line;
+			while ((line = reader.readLine()) != null) {
+				TextAnnotation ta = TextAnnotationUtil.getAnnotationFromLine(line);
+				if (ta != null) {
+					annotations.add(ta);
+				}
+			}
+		}
+		return annotations;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (annotationFileAccess != null) {
+			try {
+				annotationFileAccess.close();
+			} finally {
+				annotationFileAccess = null;
+			}
+		}
+	}
+
+	/**
+	 * Scans the annotation file once, recording the byte range of each line under the document
+	 * identifier (the text preceding the first pipe) found on that line
+	 * 
+	 * @return the document identifier to byte range map
+	 * @throws IOException
+	 */
+	private Map<String, List<long[]>> scanAnnotationFile() throws IOException {
+		logger.info("Indexing annotation file: " + annotationFile.getAbsolutePath());
+		Map<String, List<long[]>> ranges = new LinkedHashMap<String, List<long[]>>();
+		byte[] buffer = new byte[64 * 1024];
+		byte[] idBytes = new byte[256];
+		int idLength = 0;
+		boolean inDocumentId = true;
+		long position = 0;
+		long lineStart = 0;
+		String previousDocumentId = null;
+		long[] previousRange = null;
+		try (InputStream is = new BufferedInputStream(new FileInputStream(annotationFile))) {
+			int read;
+			while ((read = is.read(buffer)) != -1) {
+				for (int i = 0; i < read; i++, position++) {
+					byte b = buffer[i];
+					if (b == '\n') {
+						if (!inDocumentId) {
+							String documentId = new String(idBytes, 0, idLength, charset);
+							previousRange = addRange(ranges, documentId, lineStart, position + 1, previousDocumentId,
+									previousRange);
+							previousDocumentId = documentId;
+						}
+						lineStart = position + 1;
+						idLength = 0;
+						inDocumentId = true;
+					} else if (inDocumentId) {
+						if (b == '|') {
+							inDocumentId = false;
+						} else {
+							if (idLength == idBytes.length) {
+								idBytes = Arrays.copyOf(idBytes, idLength * 2);
+							}
+							idBytes[idLength++] = b;
+						}
+					}
+				}
+			}
+		}
+		/* the final line may not be terminated */
+		if (!inDocumentId && position > lineStart) {
+			addRange(ranges, new String(idBytes, 0, idLength, charset), lineStart, position, previousDocumentId,
+					previousRange);
+		}
+		logger.info("Indexed " + ranges.size() + " documents in annotation file: " + annotationFile.getAbsolutePath());
+		return ranges;
+	}
+
+	/**
+	 * Adds the line spanning [start, end) to the ranges for the document, extending the previous
+	 * range if the line immediately follows it
+	 * 
+	 * @return the range that now includes the line
+	 */
+	private static long[] addRange(Map<String, List<long[]>> ranges, String documentId, long start, long end,
+			String previousDocumentId, long[] previousRange) {
+		if (previousRange != null && documentId.equals(previousDocumentId)
+				&& previousRange[0] + previousRange[1] == start) {
+			previousRange[1] = end - previousRange[0];
+			return previousRange;
+		}
+		long[] range = new long[] { start, end - start };
+		List<long[]> documentRanges = ranges.get(documentId);
+		if (documentRanges == null) {
+			documentRanges = new ArrayList<long[]>(1);
+			ranges.put(documentId, documentRanges);
+		}
+		documentRanges.add(range);
+		return range;
+	}
+
+	/**
+	 * @param indexFile
+	 * @return the persisted index, or null if it does not exist or was created for a different
+	 *         version of the annotation file
+	 * @throws IOException
+	 */
+	private Map<String, List<long[]>> loadIndex(File indexFile) throws IOException {
+		if (!indexFile.exists() || indexFile.lastModified() < annotationFile.lastModified()) {
+			return null;
+		}
+		Map<String, List<long[]>> ranges = new LinkedHashMap<String, List<long[]>>();
+		try (BufferedReader reader = FileReaderUtil.initBufferedReader(indexFile, encoding)) {
+			String header = reader.readLine();
+			if (header == null || !header.equals(INDEX_HEADER_PREFIX + annotationFile.length())) {
+				return null;
+			}
+			String line;
+			while ((line = reader.readLine()) != null) {
+				int secondTab = line.lastIndexOf('\t');
+				int firstTab = line.lastIndexOf('\t', secondTab - 1);
+				String documentId = line.substring(0, firstTab);
+				long offset = Long.parseLong(line.substring(firstTab + 1, secondTab));
+				long length = Long.parseLong(line.substring(secondTab + 1));
+				List<long[]> documentRanges = ranges.get(documentId);
+				if (documentRanges == null) {
+					documentRanges = new ArrayList<long[]>(1);
+					ranges.put(documentId, documentRanges);
+				}
+				documentRanges.add(new long[] { offset, length });
+			}
+		}
+		logger.info("Loaded index for " + ranges.size() + " documents from: " + indexFile.getAbsolutePath());
+		return ranges;
+	}
+
+	/**
+	 * Writes the index next to the annotation file. Failure to do so is not fatal; the index will
+	 * simply be recomputed the next time.
+	 */
+	private void persistIndex(Map<String, List<long[]>> ranges, File indexFile) {
+		try (BufferedWriter writer = FileWriterUtil.initBufferedWriter(indexFile, encoding, WriteMode.OVERWRITE,
+				FileSuffixEnforcement.OFF)) {
+			writer.write(INDEX_HEADER_PREFIX + annotationFile.length());
+			writer.newLine();
+			for (Entry<String, List<long[]>> entry : ranges.entrySet()) {
+				for (long[] range : entry.getValue()) {
+					writer.write(entry.getKey() + "\t" + range[0] + "\t" + range[1]);
+					writer.newLine();
+				}
+			}
+		} catch (IOException e) {
+			logger.warn("Unable to persist annotation file index to: " + indexFile.getAbsolutePath(), e);
+		}
+	}
+
+}
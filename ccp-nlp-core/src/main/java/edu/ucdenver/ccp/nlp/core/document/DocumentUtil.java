@@ -33,9 +33,9 @@ package edu.ucdenver.ccp.nlp.core.document;
  * #L%
  */
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
 
 import edu.ucdenver.ccp.nlp.core.annotation.Span;
@@ -80,26 +80,48 @@ public class DocumentUtil {
 		return usedSpans(doc.getAnnotations());
 	}
 
+	/**
+	 * @param annotations
+	 * @return the union of the spans of all input annotations, excluding token annotations
+	 */
 	public static List<Span> usedSpans(Collection<TextAnnotation> annotations) {
-		List<Span> mergedSpans = new LinkedList<Span>();
-		for (TextAnnotation a : annotations) {
-			if (a.getClassMention().getMentionName() != "token") {
-				mergedSpans = SpanUtils.mergeSpans(mergedSpans, a.getSpans());
-			}
-		}
-		return mergedSpans;
+		return unionSpans(annotations, true);
 	}
 
 	public static List<Span> identifiedSpans(GenericDocument doc) {
 		return identifiedSpans(doc.getAnnotations());
 	}
 
+	/**
+	 * @param annotations
+	 * @return the union of the spans of all input annotations
+	 */
 	public static List<Span> identifiedSpans(Collection<TextAnnotation> annotations) {
-		List<Span> mergedSpans = new LinkedList<Span>();
+		return unionSpans(annotations, false);
+	}
+
+	/**
+	 * Collects the span offsets of the annotations into primitive arrays and merges them with a
+	 * single sort-then-sweep pass (see {@link SpanUtils#unionSpans(int[], int[], int)})
+	 */
+	private static List<Span> unionSpans(Collection<TextAnnotation> annotations, boolean excludeTokens) {
+		int[] starts = new int[annotations.size()];
+		int[] ends = new int[annotations.size()];
+		int count = 0;
 		for (TextAnnotation a : annotations) {
-			mergedSpans = SpanUtils.mergeSpans(mergedSpans, a.getSpans());
+			if (excludeTokens && "token".equals(a.getClassMention().getMentionName())) {
+				continue;
+			}
+			for (Span span : a.getSpans()) {
+				if (count == starts.length) {
+					starts = Arrays.copyOf(starts, count * 2 + 1);
+					ends = Arrays.copyOf(ends, count * 2 + 1);
+				}
+				starts[count] = span.getSpanStart();
+				ends[count++] = span.getSpanEnd();
+			}
 		}
-		return mergedSpans;
+		return SpanUtils.unionSpans(starts, ends, count);
 	}
 
 }
@@ -33,7 +33,15 @@ package edu.ucdenver.ccp.nlp.core.util;
  * #L%
  */
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
 
 import edu.ucdenver.ccp.common.collections.CollectionsUtil;
 
@@ -62,22 +70,227 @@ public class StopWordUtil {
 			"between", "however", "without", "overall", "obtained", "although", "therefore", "regarding", "especially",
 			"significantly");
 
+	private static final Set<String> STOPWORD_SET = Collections.unmodifiableSet(new HashSet<String>(STOPWORDS));
+
+	/**
+	 * Open-addressing table of the stop words, used for allocation-free lookups of character
+	 * ranges. The table size is a power of two at least four times the number of stop words so
+	 * that probe sequences stay short.
+	 */
+	private static final String[] STOPWORD_TABLE = createStopWordTable();
+
+	/**
+	 * length of the longest stop word; longer ranges are rejected without hashing
+	 */
+	private static final int MAX_STOPWORD_LENGTH = getMaxStopWordLength();
+
+	/**
+	 * index of each stop word in {@link #STOPWORDS}, i.e. the order in which they were removed by
+	 * the original per-stop-word regular expressions
+	 */
+	private static final Map<String, Integer> STOPWORD_INDEX = createStopWordIndex();
+
+	/**
+	 * per-thread buffer used when removing stop words
+	 */
+	private static final ThreadLocal<StringBuilder> BUILDER = new ThreadLocal<StringBuilder>() {
+		@Override
+		protected StringBuilder initialValue() {
+			return new StringBuilder(256);
+		}
+	};
+
 	/**
 	 * Removes stop words from the input text string. Stop words list taken from PUBMED.
+	 * <p>
+	 * Tokens are delimited by single spaces and stop words are matched case-sensitively. A stop
+	 * word surrounded by spaces is removed along with one of the spaces; a stop word at the start
+	 * or end of the input is removed, leaving the adjacent space in place; an input consisting of
+	 * only a stop word becomes a single space. The input is scanned once. The rare inputs in which
+	 * a stop word repeats within a run of stop words (where the removal order matters) are handled
+	 * by applying the original stop word patterns, in list order, to only the stop words present.
 	 * 
-	 * @param queryStr
+	 * @param inputStr
 	 *            the string to be processed
 	 * @return the input string without stop words
 	 */
 	public static String removeStopWords(String inputStr) {
+		int length = inputStr.length();
+		StringBuilder sb = BUILDER.get();
+		sb.setLength(0);
+		/* stop words in the current run of consecutive stop word tokens */
+		Set<String> run = null;
+		boolean needsSeparator = false;
+		boolean removedAny = false;
+		int tokenStart = 0;
+		while (tokenStart <= length) {
+			int tokenEnd = inputStr.indexOf(' ', tokenStart);
+			if (tokenEnd < 0) {
+				tokenEnd = length;
+			}
+			boolean isFirst = tokenStart == 0;
+			boolean isLast = tokenEnd == length;
+			String stopword = getStopWord(inputStr, tokenStart, tokenEnd);
+			if (stopword == null) {
+				if (needsSeparator) {
+					sb.append(' ');
+				}
+				sb.append(inputStr, tokenStart, tokenEnd);
+				needsSeparator = true;
+				if (tokenEnd > tokenStart && run != null) {
+					run.clear();
+				}
+			} else {
+				if (run == null) {
+					run = new HashSet<String>();
+				}
+				if (!run.add(stopword)) {
+					return removeStopWordsInOrder(inputStr);
+				}
+				removedAny = true;
+				if (isFirst && isLast) {
+					/* " " replaces the entire input */
+					sb.append(' ');
+				} else if (isFirst || isLast) {
+					/* the token is removed but its neighboring space is retained */
+					if (needsSeparator) {
+						sb.append(' ');
+					}
+					needsSeparator = true;
+				}
+				/* else the token is removed along with one of its surrounding spaces */
+			}
+			tokenStart = tokenEnd + 1;
+		}
+		return (removedAny) ? sb.toString() : inputStr;
+	}
+
+	/**
+	 * Removes each stop word present in the input using its regular expression, in
+	 * {@link #STOPWORDS} order. This reproduces the original results in the cases where removing one
+	 * stop word brings two occurrences of another together.
+	 */
+	private static String removeStopWordsInOrder(String inputStr) {
+		List<String> presentStopWords = new ArrayList<String>();
+		for (String token : inputStr.split(" ")) {
+			if (STOPWORD_SET.contains(token) && !presentStopWords.contains(token)) {
+				presentStopWords.add(token);
+			}
+		}
+		Collections.sort(presentStopWords, new Comparator<String>() {
+			@Override
+			public int compare(String s1, String s2) {
+				return STOPWORD_INDEX.get(s1).compareTo(STOPWORD_INDEX.get(s2));
+			}
+		});
 		String alteredInputStr = inputStr;
-		for (String stopword : STOPWORDS)
-			alteredInputStr = alteredInputStr.replaceAll(("(^| )(" + stopword + ")($| )"), " ");
+		for (String stopword : presentStopWords) {
+			alteredInputStr = Pattern.compile("(^| )(" + stopword + ")($| )").matcher(alteredInputStr)
+					.replaceAll(" ");
+		}
 		return alteredInputStr;
 	}
 
+	/**
+	 * @param word
+	 * @return true if the input is a stop word (case-insensitive)
+	 */
 	public static boolean isStopWord(String word) {
-		return STOPWORDS.contains(word.toLowerCase());
+		return STOPWORD_SET.contains(word.toLowerCase());
+	}
+
+	/**
+	 * Allocation-free variant of {@link #isStopWord(String)} for a range of characters
+	 * 
+	 * @param text
+	 * @param start
+	 *            the index of the first character of the word
+	 * @param end
+	 *            the index following the last character of the word
+	 * @return true if the characters from start to end form a stop word (case-insensitive)
+	 */
+	public static boolean isStopWord(CharSequence text, int start, int end) {
+		return lookup(text, start, end, true) != null;
+	}
+
+	/**
+	 * @return the (case-sensitive) stop word matching the characters from start to end, or null if
+	 *         they do not form a stop word
+	 */
+	private static String getStopWord(CharSequence text, int start, int end) {
+		return lookup(text, start, end, false);
+	}
+
+	/**
+	 * Hashes the characters in the range the same way {@link String#hashCode()} does (after
+	 * lower-casing if requested) and probes the stop word table
+	 */
+	private static String lookup(CharSequence text, int start, int end, boolean ignoreCase) {
+		int length = end - start;
+		if (length == 0 || length > MAX_STOPWORD_LENGTH) {
+			return null;
+		}
+		int hash = 0;
+		for (int i = start; i < end; i++) {
+			char c = text.charAt(i);
+			hash = 31 * hash + ((ignoreCase) ? Character.toLowerCase(c) : c);
+		}
+		int mask = STOPWORD_TABLE.length - 1;
+		for (int index = spread(hash) & mask;; index = (index + 1) & mask) {
+			String candidate = STOPWORD_TABLE[index];
+			if (candidate == null) {
+				return null;
+			}
+			if (candidate.length() == length && matches(candidate, text, start, ignoreCase)) {
+				return candidate;
+			}
+		}
+	}
+
+	private static boolean matches(String stopword, CharSequence text, int start, boolean ignoreCase) {
+		for (int i = 0; i < stopword.length(); i++) {
+			char c = text.charAt(start + i);
+			if (stopword.charAt(i) != ((ignoreCase) ? Character.toLowerCase(c) : c)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static int spread(int hash) {
+		return hash ^ (hash >>> 16);
+	}
+
+	private static String[] createStopWordTable() {
+		int size = 1;
+		while (size < STOPWORDS.size() * 4) {
+			size <<= 1;
+		}
+		String[] table = new String[size];
+		for (String stopword : STOPWORD_SET) {
+			int index = spread(stopword.hashCode()) & (size - 1);
+			while (table[index] != null) {
+				index = (index + 1) & (size - 1);
+			}
+			table[index] = stopword;
+		}
+		return table;
+	}
+
+	private static int getMaxStopWordLength() {
+		int max = 0;
+		for (String stopword : STOPWORD_SET) {
+			max = Math.max(max, stopword.length());
+		}
+		return max;
+	}
+
+	private static Map<String, Integer> createStopWordIndex() {
+		Map<String, Integer> index = new HashMap<String, Integer>();
+		for (int i = STOPWORDS.size() - 1; i >= 0; i--) {
+			index.put(STOPWORDS.get(i), i);
+		}
+		return index;
 	}
 
 }
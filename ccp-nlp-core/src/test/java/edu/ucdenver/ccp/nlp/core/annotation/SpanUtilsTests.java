@@ -35,12 +35,16 @@ package edu.ucdenver.ccp.nlp.core.annotation;
 
 import static org.junit.Assert.assertEquals;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Random;
 
 import org.junit.Test;
 
 import edu.ucdenver.ccp.common.collections.CollectionsUtil;
+import edu.ucdenver.ccp.nlp.core.annotation.comparison.StrictSpanComparator;
 
 /**
  * @author Colorado Computational Pharmacology, UC Denver;
@@ -301,4 +305,48 @@ public class SpanUtilsTests {
 		assertEquals(15, mergeSpan.getSpanEnd());
 	}
 
+	@Test
+	public void testUnionSpans() throws Exception {
+		List<Span> union = SpanUtils.unionSpans(CollectionsUtil.createList(new Span(13, 15), new Span(3, 5),
+				new Span(7, 10), new Span(4, 8), new Span(20, 22), new Span(15, 18)));
+		assertEquals(CollectionsUtil.createList(new Span(3, 10), new Span(13, 18), new Span(20, 22)), union);
+
+		assertEquals(CollectionsUtil.createList(new Span(2, 10)),
+				SpanUtils.unionSpans(CollectionsUtil.createList(new Span(3, 5), new Span(2, 10), new Span(4, 8))));
+		assertEquals(0, SpanUtils.unionSpans(new ArrayList<Span>()).size());
+	}
+
+	@Test
+	public void testUnionSpans_RandomSpans() throws Exception {
+		Random random = new Random(42);
+		for (int i = 0; i < 1000; i++) {
+			List<Span> spans = new ArrayList<Span>();
+			int spanCount = random.nextInt(30);
+			for (int j = 0; j < spanCount; j++) {
+				int start = random.nextInt(200);
+				spans.add(new Span(start, start + random.nextInt(15)));
+			}
+			assertEquals(unionSpansByStart(spans), SpanUtils.unionSpans(spans));
+		}
+	}
+
+	/**
+	 * Reference union: sort spans by start offset and extend the current span while the next
+	 * span starts at or before its end
+	 */
+	private static List<Span> unionSpansByStart(List<Span> spans) {
+		List<Span> sortedSpans = new ArrayList<Span>(spans);
+		Collections.sort(sortedSpans, new StrictSpanComparator());
+		List<Span> union = new ArrayList<Span>();
+		for (Span span : sortedSpans) {
+			if (!union.isEmpty() && span.getSpanStart() <= union.get(union.size() - 1).getSpanEnd()) {
+				Span last = union.remove(union.size() - 1);
+				union.add(new Span(last.getSpanStart(), Math.max(last.getSpanEnd(), span.getSpanEnd())));
+			} else {
+				union.add(span);
+			}
+		}
+		return union;
+	}
+
 }
@@ -33,6 +33,7 @@ package edu.ucdenver.ccp.nlp.core.annotation;
  * #L%
  */
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
@@ -137,4 +138,15 @@ public class TextAnnotationUtilTest {
 		assertEquals(4, redundantAnnotations.size());
 
 	}
+
+	@Test
+	public void testSplitOnDelimiter() {
+		String[] inputs = new String[] { "", "|", "||", "a", "a|b", "|a|b", "a||b", "a|b|", "a|b||", "|||a|||",
+				"doc1|99|0 5|protein|abc-1|slot|v1,v2" };
+		for (String input : inputs) {
+			assertArrayEquals(input, input.split("\\|"), TextAnnotationUtil.splitOnDelimiter(input, '|'));
+		}
+		assertArrayEquals(new String[] { "0", "5" }, TextAnnotationUtil.splitOnDelimiter("0 5", ' '));
+		assertArrayEquals(new String[] { "v1", "", "v2" }, TextAnnotationUtil.splitOnDelimiter("v1,,v2,", ','));
+	}
 }
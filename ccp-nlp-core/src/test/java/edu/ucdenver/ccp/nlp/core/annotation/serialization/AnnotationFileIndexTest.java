@@ -0,0 +1,109 @@
+package edu.ucdenver.ccp.nlp.core.annotation.serialization;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's nlp module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import edu.ucdenver.ccp.common.collections.CollectionsUtil;
+import edu.ucdenver.ccp.common.file.CharacterEncoding;
+import edu.ucdenver.ccp.common.file.FileWriterUtil;
+import edu.ucdenver.ccp.common.file.FileWriterUtil.FileSuffixEnforcement;
+import edu.ucdenver.ccp.common.file.FileWriterUtil.WriteMode;
+import edu.ucdenver.ccp.common.test.DefaultTestCase;
+import edu.ucdenver.ccp.nlp.core.annotation.TextAnnotation;
+import edu.ucdenver.ccp.nlp.core.annotation.TextAnnotationUtil;
+
+/**
+ * @author Colorado Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class AnnotationFileIndexTest extends DefaultTestCase {
+
+	private File createAnnotationFile() throws IOException {
+		File annotationFile = folder.newFile("annotations.utf8");
+		FileWriterUtil.printLines(CollectionsUtil.createList("doc1|99|0 5|protein|abc-1",
+				"doc1|99|10 15|protein|naïve|has Entrez Gene ID|123,456", "doc2|33|3 7|gene|def2",
+				"doc1|99|20 25|protein|ghi-3"), annotationFile, CharacterEncoding.UTF_8, WriteMode.OVERWRITE,
+				FileSuffixEnforcement.OFF);
+		return annotationFile;
+	}
+
+	@Test
+	public void testGetAnnotations() throws IOException {
+		File annotationFile = createAnnotationFile();
+		Map<String, List<TextAnnotation>> expectedAnnotations = TextAnnotationUtil.loadAnnotationsFromFile(
+				annotationFile, CharacterEncoding.UTF_8);
+
+		try (AnnotationFileIndex index = new AnnotationFileIndex(annotationFile, CharacterEncoding.UTF_8)) {
+			assertEquals(CollectionsUtil.createSet("doc1", "doc2"), index.getDocumentIds());
+			assertEquals(expectedAnnotations.get("doc1"), index.getAnnotations("doc1"));
+			assertEquals(expectedAnnotations.get("doc2"), index.getAnnotations("doc2"));
+			assertTrue(index.getAnnotations("doc3").isEmpty());
+
+			assertTrue(index.containsDocument("doc1"));
+			assertTrue(index.containsDocument("doc2"));
+			assertFalse(index.containsDocument("doc3"));
+		}
+		assertTrue(AnnotationFileIndex.getIndexFile(annotationFile).exists());
+
+		/* the second index is loaded from the persisted index file */
+		try (AnnotationFileIndex index = new AnnotationFileIndex(annotationFile, CharacterEncoding.UTF_8)) {
+			assertEquals(expectedAnnotations.get("doc1"), index.getAnnotations("doc1"));
+			assertEquals(expectedAnnotations.get("doc2"), index.getAnnotations("doc2"));
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRejectsEncodingThatIsNotAsciiCompatible() throws IOException {
+		new AnnotationFileIndex(createAnnotationFile(), CharacterEncoding.UTF_16);
+	}
+
+	@Test
+	public void testAcceptsAsciiCompatibleEncoding() throws IOException {
+		File annotationFile = createAnnotationFile();
+		try (AnnotationFileIndex index = new AnnotationFileIndex(annotationFile, CharacterEncoding.US_ASCII)) {
+			assertEquals(CollectionsUtil.createSet("doc1", "doc2"), index.getDocumentIds());
+		}
+	}
+
+}
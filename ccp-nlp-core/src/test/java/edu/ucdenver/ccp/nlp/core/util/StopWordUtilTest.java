@@ -34,6 +34,10 @@ package edu.ucdenver.ccp.nlp.core.util;
  */
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
 
 import org.junit.Test;
 
@@ -58,4 +62,72 @@ public class StopWordUtilTest {
 
 	}
 
+	/**
+	 * The original regular-expression based stop word removal, used as the reference
+	 * implementation
+	 */
+	private static String removeStopWordsWithRegex(String inputStr) {
+		String alteredInputStr = inputStr;
+		for (String stopword : StopWordUtil.STOPWORDS) {
+			alteredInputStr = alteredInputStr.replaceAll("(^| )(" + stopword + ")($| )", " ");
+		}
+		return alteredInputStr;
+	}
+
+	@Test
+	public void testRemoveStopWords_MatchesRegexImplementation() throws Exception {
+		String[] corpus = new String[] { "", " ", "  ", "the", " the", "the ", " the ", "cat", "the cat",
+				"the cat sat", "cat the", "cat the dog", "cat  the  dog", " cat the dog ", "the of the",
+				"the the", "the the the", "cat the the dog", "a a a a", "of the of the", "x of the of y",
+				"the  the", "The cat", "THE", "cat The dog", "thecat", "the-cat", "cat\tthe dog",
+				"significantly between the", "in vitro and in vivo", "theirs their them then",
+				"the effect of the drug on the liver of mice" };
+		for (String text : corpus) {
+			assertEquals("Mismatch for input: '" + text + "'", removeStopWordsWithRegex(text),
+					StopWordUtil.removeStopWords(text));
+		}
+	}
+
+	@Test
+	public void testRemoveStopWords_MatchesRegexImplementation_RandomCorpus() throws Exception {
+		String[] vocabulary = new String[] { "", "the", "of", "a", "and", "in", "cat", "dog", "liver", "The",
+				"significantly", "x", "theirs", "them" };
+		Random random = new Random(12345);
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 20000; i++) {
+			sb.setLength(0);
+			int tokenCount = random.nextInt(8);
+			for (int j = 0; j < tokenCount; j++) {
+				if (j > 0) {
+					sb.append(' ');
+				}
+				sb.append(vocabulary[random.nextInt(vocabulary.length)]);
+			}
+			String text = sb.toString();
+			assertEquals("Mismatch for input: '" + text + "'", removeStopWordsWithRegex(text),
+					StopWordUtil.removeStopWords(text));
+		}
+	}
+
+	@Test
+	public void testIsStopWord() throws Exception {
+		assertTrue(StopWordUtil.isStopWord("the"));
+		assertTrue(StopWordUtil.isStopWord("The"));
+		assertFalse(StopWordUtil.isStopWord("cat"));
+
+		String text = "The cat sat ON the Significantly";
+		assertTrue(StopWordUtil.isStopWord(text, 0, 3));
+		assertFalse(StopWordUtil.isStopWord(text, 4, 7));
+		assertFalse(StopWordUtil.isStopWord(text, 0, 2));
+		assertTrue(StopWordUtil.isStopWord(text, 12, 14));
+		assertTrue(StopWordUtil.isStopWord(text, 15, 18));
+		assertTrue(StopWordUtil.isStopWord(text, 19, 32));
+		assertFalse(StopWordUtil.isStopWord(text, 0, 0));
+		for (String stopword : StopWordUtil.STOPWORDS) {
+			assertTrue(stopword, StopWordUtil.isStopWord(stopword, 0, stopword.length()));
+			assertTrue(stopword, StopWordUtil.isStopWord(new StringBuilder(stopword.toUpperCase()), 0,
+					stopword.length()));
+		}
+	}
+
 }
@@ -90,6 +90,11 @@ public class PmcDocumentConverterAE extends JCasAnnotator_ImplBase {
 	@ConfigurationParameter(mandatory = false, description = "The name of the CAS View containing the XML to parse", defaultValue = "xmlView")
 	private String xmlViewName;
 
+	/**
+	 * The annotator assigned to all annotations imported from the PMC XML
+	 */
+	private static final Annotator PMC_XML_ANNOTATOR = new Annotator("-1", "PMC XML", "");
+
 	private Logger logger;
 
 	@Override
@@ -150,8 +155,7 @@ public class PmcDocumentConverterAE extends JCasAnnotator_ImplBase {
 	private void importAnnotationIntoCas(Annotation annot, JCas jCas) {
 		CCPTextAnnotation ccpTa = UIMA_Annotation_Util.createCCPTextAnnotation(annot.getType().name(), annot.getStart(),
 				annot.getEnd(), jCas);
-		Annotator annotator = new Annotator("-1", "PMC XML", "");
-		UIMA_Annotation_Util.setAnnotator(ccpTa, annotator, jCas);
+		UIMA_Annotation_Util.setAnnotator(ccpTa, PMC_XML_ANNOTATOR, jCas);
 	}
 
 	public static AnalysisEngineDescription getDescription(TypeSystemDescription tsd)
@@ -50,6 +50,8 @@ import org.apache.uima.util.Logger;
 import edu.ucdenver.ccp.common.reflection.ConstructorUtil;
 import edu.ucdenver.ccp.nlp.core.annotation.TextAnnotation;
 import edu.ucdenver.ccp.nlp.uima.shims.ShimDefaults;
+import edu.ucdenver.ccp.nlp.uima.shims.annotation.impl.CcpAnnotationDataExtractor;
+import edu.ucdenver.ccp.nlp.uima.util.MentionNameIndex;
 import edu.ucdenver.ccp.nlp.uima.util.UIMA_Util;
 import edu.ucdenver.ccp.uima.shims.annotation.AnnotationDataExtractor;
 
@@ -110,15 +112,10 @@ public abstract class SentenceAnnotationProcessor extends JCasAnnotator_ImplBase
 		 */
 		List<TextAnnotation> annotationsToPutInCas = new ArrayList<TextAnnotation>();
 		int sentenceCount = 0;
-		for (FSIterator<Annotation> annotIter = jCas.getJFSIndexRepository().getAnnotationIndex().iterator(); annotIter
-				.hasNext();) {
-			Annotation annot = annotIter.next();
-			String type = annotationDataExtractor.getAnnotationType(annot);
-			if (type != null && type.toLowerCase().endsWith(sentenceAnnotationName)) {
-				sentenceCount++;
-				annotationsToPutInCas.addAll(processSentence(annot.getCoveredText().replaceAll("\\n", " "),
-						annot.getBegin(), jCas));
-			}
+		for (Annotation annot : getSentenceAnnotations(jCas)) {
+			sentenceCount++;
+			annotationsToPutInCas.addAll(processSentence(annot.getCoveredText().replaceAll("\\n", " "),
+					annot.getBegin(), jCas));
 		}
 		if (sentenceCount == 0) {
 			logger.log(Level.INFO, "No sentences in CAS, processing document text as a whole...");
@@ -129,6 +126,36 @@ public abstract class SentenceAnnotationProcessor extends JCasAnnotator_ImplBase
 
 	}
 
+	/**
+	 * @param jCas
+	 * @return the sentence annotations in the CAS in annotation index order. When the CCP type
+	 *         system is in use, sentences are retrieved by mention name from a
+	 *         {@link MentionNameIndex} so that the type of each annotation in the CAS need not be
+	 *         extracted and compared.
+	 */
+	private List<Annotation> getSentenceAnnotations(JCas jCas) {
+		if (annotationDataExtractor instanceof CcpAnnotationDataExtractor) {
+			MentionNameIndex mentionNameIndex = new MentionNameIndex(jCas);
+			List<String> sentenceMentionNames = new ArrayList<String>();
+			for (String mentionName : mentionNameIndex.getMentionNames()) {
+				if (mentionName.toLowerCase().endsWith(sentenceAnnotationName)) {
+					sentenceMentionNames.add(mentionName);
+				}
+			}
+			return new ArrayList<Annotation>(mentionNameIndex.getAnnotations(sentenceMentionNames));
+		}
+		List<Annotation> sentenceAnnotations = new ArrayList<Annotation>();
+		for (FSIterator<Annotation> annotIter = jCas.getJFSIndexRepository().getAnnotationIndex().iterator(); annotIter
+				.hasNext();) {
+			Annotation annot = annotIter.next();
+			String type = annotationDataExtractor.getAnnotationType(annot);
+			if (type != null && type.toLowerCase().endsWith(sentenceAnnotationName)) {
+				sentenceAnnotations.add(annot);
+			}
+		}
+		return sentenceAnnotations;
+	}
+
 	protected abstract List<TextAnnotation> processSentence(String sentenceText, int sentenceStartOffset, JCas jCas);
 
 }
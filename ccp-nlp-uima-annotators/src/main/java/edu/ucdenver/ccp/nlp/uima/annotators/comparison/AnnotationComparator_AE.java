@@ -110,6 +110,7 @@ import edu.ucdenver.ccp.nlp.core.uima.annotation.metadata.EvaluationResultProper
 import edu.ucdenver.ccp.nlp.core.uima.annotation.metadata.FalseNegativeProperty;
 import edu.ucdenver.ccp.nlp.core.uima.annotation.metadata.FalsePositiveProperty;
 import edu.ucdenver.ccp.nlp.core.uima.annotation.metadata.TruePositiveProperty;
+import edu.ucdenver.ccp.nlp.uima.annotation.impl.CCPTextAnnotationViewCache;
 import edu.ucdenver.ccp.nlp.uima.util.UIMA_Util;
 
 /**
@@ -630,9 +631,12 @@ public class AnnotationComparator_AE extends JCasAnnotator_ImplBase {
 	private Map<Integer, Collection<TextAnnotation>> createComparisonGroupID2MemberTextAnnotationsMap(JCas jcas) {
 		Map<Integer, Collection<TextAnnotation>> comparisonGroupID2MemberTextAnnotationsMap = new HashMap<Integer, Collection<TextAnnotation>>();
 
-		/* get the TextAnnotations out of the CAS and put them in the proper comparison group(s) */
-		// UIMA_Util uimaUtil = new UIMA_Util();
-		List<TextAnnotation> annotations = UIMA_Util.getAnnotationsFromCas(jcas);
+		/*
+		 * get the TextAnnotations out of the CAS and put them in the proper comparison group(s).
+		 * Read-only cached views are used so that repeated comparisons of the same annotation do
+		 * not re-wrap its class mention and slots.
+		 */
+		List<TextAnnotation> annotations = new CCPTextAnnotationViewCache(jcas).getAnnotations();
 
 		/* Initialize a new list of TextAnnotation objects for each ComparisonGroup */
 		for (ComparisonGroup cg : comparisonGroupID2GroupMap.values()) {
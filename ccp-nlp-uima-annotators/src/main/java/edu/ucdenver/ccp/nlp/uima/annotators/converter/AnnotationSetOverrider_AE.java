@@ -70,6 +70,9 @@ import org.apache.uima.resource.metadata.TypeSystemDescription;
 
 import edu.ucdenver.ccp.nlp.core.uima.annotation.CCPAnnotationSet;
 import edu.ucdenver.ccp.nlp.core.uima.annotation.CCPTextAnnotation;
+import edu.ucdenver.ccp.nlp.uima.util.AnnotationSetMembershipIndex;
+import edu.ucdenver.ccp.nlp.uima.util.AnnotatorRegistry;
+import edu.ucdenver.ccp.nlp.uima.util.UIMA_Util;
 
 /**
  * A simple utility Analysis Engine that enables the user to change the annotation set assigned to
@@ -118,45 +121,46 @@ public class AnnotationSetOverrider_AE extends JCasAnnotator_ImplBase {
 	public void process(JCas jcas) throws AnalysisEngineProcessException {
 
 		/* create an annotation set list */
-		CCPAnnotationSet ccpAnnotationSet = new CCPAnnotationSet(jcas);
-		ccpAnnotationSet.setAnnotationSetID(setID);
-		ccpAnnotationSet.setAnnotationSetName(setName);
-		ccpAnnotationSet.setAnnotationSetDescription(setDescription);
+		CCPAnnotationSet ccpAnnotationSet = AnnotatorRegistry.getRegistry(jcas).getCCPAnnotationSet(setID, setName,
+				setDescription);
 		FSArray annotationSets = new FSArray(jcas, 1);
 		annotationSets.set(0, ccpAnnotationSet);
 
+		AnnotationSetMembershipIndex membershipIndex = UIMA_Util.getAnnotationSetMembershipIndex(jcas);
 		FSIterator annotIter = jcas.getJFSIndexRepository().getAnnotationIndex(CCPTextAnnotation.type).iterator();
 
+		boolean annotationSetsChanged = false;
 		while (annotIter.hasNext()) {
 			Object possibleAnnot = annotIter.next();
 			if (possibleAnnot instanceof CCPTextAnnotation) {
 				CCPTextAnnotation ccpTA = (CCPTextAnnotation) possibleAnnot;
-				boolean ignore = checkForIgnoreBasedOnAnnotationSet(ccpTA);
+				boolean ignore = checkForIgnoreBasedOnAnnotationSet(ccpTA, membershipIndex);
 
 				if (!ignore) {
 					ccpTA.setAnnotationSets(annotationSets);
+					annotationSetsChanged = true;
 				}
 			} else {
 				System.err.println("WARNING -- AnnotationSetValidator_AE: CCPTextAnnotation expected but instead got "
 						+ possibleAnnot.getClass().getName());
 			}
 		}
+		if (annotationSetsChanged) {
+			/* annotation set memberships have been changed in place */
+			AnnotationSetMembershipIndex.invalidate(jcas);
+		}
 
 	}
 
-	protected boolean checkForIgnoreBasedOnAnnotationSet(CCPTextAnnotation ccpTA) {
-		boolean ignore = false;
-		FSArray annotationSets = ccpTA.getAnnotationSets();
-		if (annotationSets != null & annotationSetsToIgnore != null) {
-			for (int i = 0; i < annotationSets.size(); i++) {
-				CCPAnnotationSet aSet = (CCPAnnotationSet) annotationSets.get(i);
-				if (annotationSetsToIgnore.contains(aSet.getAnnotationSetID())) {
-					ignore = true;
-					break;
-				}
-			}
-		}
-		return ignore;
+	/**
+	 * @param ccpTA
+	 * @param membershipIndex
+	 *            the annotation set membership index for the CAS being processed
+	 * @return true if the annotation is a member of one of the annotation sets to ignore
+	 */
+	protected boolean checkForIgnoreBasedOnAnnotationSet(CCPTextAnnotation ccpTA,
+			AnnotationSetMembershipIndex membershipIndex) {
+		return membershipIndex.isMemberOfAny(ccpTA, annotationSetsToIgnore);
 	}
 
 	public static AnalysisEngineDescription createAnalysisEngineDescription(TypeSystemDescription tsd, int setId,
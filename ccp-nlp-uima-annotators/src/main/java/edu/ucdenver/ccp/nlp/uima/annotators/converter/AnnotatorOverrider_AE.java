@@ -69,6 +69,8 @@ import org.apache.uima.resource.metadata.TypeSystemDescription;
 
 import edu.ucdenver.ccp.nlp.core.uima.annotation.CCPAnnotator;
 import edu.ucdenver.ccp.nlp.core.uima.annotation.CCPTextAnnotation;
+import edu.ucdenver.ccp.nlp.uima.util.AnnotationSetMembershipIndex;
+import edu.ucdenver.ccp.nlp.uima.util.AnnotatorRegistry;
 import edu.ucdenver.ccp.nlp.uima.util.UIMA_Util;
 
 /**
@@ -121,17 +123,16 @@ public class AnnotatorOverrider_AE extends JCasAnnotator_ImplBase {
 	public void process(JCas jcas) throws AnalysisEngineProcessException {
 
 		/* create an annotation set list */
-		CCPAnnotator ccpAnnotator = new CCPAnnotator(jcas);
-		ccpAnnotator.setAnnotatorID(annotatorID);
-		ccpAnnotator.setAffiliation(affiliation);
-		ccpAnnotator.setName(annotatorName);
+		CCPAnnotator ccpAnnotator = AnnotatorRegistry.getRegistry(jcas).getCCPAnnotator(annotatorID, annotatorName,
+				affiliation);
 
+		AnnotationSetMembershipIndex membershipIndex = UIMA_Util.getAnnotationSetMembershipIndex(jcas);
 		FSIterator<Annotation> annotIter = jcas.getJFSIndexRepository().getAnnotationIndex(CCPTextAnnotation.type)
 				.iterator();
 		while (annotIter.hasNext()) {
 			CCPTextAnnotation ccpTA = (CCPTextAnnotation) annotIter.next();
 
-			if (!ignoreAnnotationBasedOnAnnotationSets(ccpTA)) {
+			if (!membershipIndex.isMemberOfAny(ccpTA, annotationSetIDsToIgnore)) {
 
 				CCPAnnotator currentAnnotator = ccpTA.getAnnotator();
 
@@ -151,22 +152,6 @@ public class AnnotatorOverrider_AE extends JCasAnnotator_ImplBase {
 
 	}
 
-	/**
-	 * @param ccpTA
-	 * @return true if the annotation is a member of one of the annotation sets
-	 *         to ignore
-	 */
-	private boolean ignoreAnnotationBasedOnAnnotationSets(CCPTextAnnotation ccpTA) {
-		if (annotationSetIDsToIgnore != null && annotationSetIDsToIgnore.size() > 0) {
-			for (int setIdToIgnore : annotationSetIDsToIgnore) {
-				if (UIMA_Util.hasAnnotationSet(ccpTA, setIdToIgnore)) {
-					return true;
-				}
-			}
-		}
-		return false;
-	}
-
 	public static AnalysisEngineDescription createAnalysisEngineDescription(TypeSystemDescription tsd, String annotatorId,
 			String annotatorName, String affiliation, int[] ignoreAnnotatorIds)
 			throws ResourceInitializationException {
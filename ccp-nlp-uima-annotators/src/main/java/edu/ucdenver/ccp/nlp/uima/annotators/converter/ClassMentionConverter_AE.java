@@ -33,8 +33,11 @@ package edu.ucdenver.ccp.nlp.uima.annotators.converter;
  * #L%
  */
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -55,6 +58,8 @@ import org.apache.uima.resource.metadata.TypeSystemDescription;
 
 import edu.ucdenver.ccp.nlp.core.uima.annotation.CCPTextAnnotation;
 import edu.ucdenver.ccp.nlp.core.uima.mention.CCPClassMention;
+import edu.ucdenver.ccp.nlp.uima.util.AnnotationSetMembershipIndex;
+import edu.ucdenver.ccp.nlp.uima.util.MentionNameTransformer;
 import edu.ucdenver.ccp.nlp.uima.util.UIMA_Util;
 
 /**
@@ -83,6 +88,11 @@ import edu.ucdenver.ccp.nlp.uima.util.UIMA_Util;
  * If the AE detects the $1 syntax in the ToMentionType, it checks to make sure the user has
  * provided sufficient grouping-paren-pairs in the MentionTypesToConvert param.
  * 
+ * The patterns are applied in the order they were configured, each to the name produced by the
+ * previous patterns, so the rewrites chain. Because the same mention names recur throughout a CAS,
+ * the result of rewriting each distinct name is memoized in a bounded
+ * {@link MentionNameTransformer}, making the conversion of most annotations a single hash lookup.
+ * 
  * !! NOTE THAT IN THE INCREDIBLY UNLIKELY EVENT THAT YOU WANT A CLASSNAME CONVERTED TO A STRING
  * THAT INCLUDES AN ACTUAL "$" SYMBOL IN IT, THIS AE WILL BREAK. !!
  * 
@@ -101,11 +111,33 @@ public class ClassMentionConverter_AE extends JCasAnnotator_ImplBase {
 	@ConfigurationParameter()
 	private int[] annotationSetIdsToIgnore;
 
+	/**
+	 * The maximum number of distinct mention names whose rewritten names are cached
+	 */
+	public static final String PARAM_REWRITE_CACHE_SIZE = "rewriteCacheSize";
+	@ConfigurationParameter(mandatory = false, description = "The maximum number of distinct mention names whose rewritten names are cached.", defaultValue = "10000")
+	private int rewriteCacheSize;
+
 	private String targetMentionType = null;
 	private Set<String> mentionTypesToConvert;
-	private Set<Pattern> mentionTypePatterns;
 
-	private boolean handleGroupVars = false;
+	/**
+	 * the user-supplied patterns in configuration order
+	 */
+	private List<Pattern> mentionTypePatterns;
+
+	/**
+	 * the target mention type split into literal text and $n group references (stored as
+	 * Integers)
+	 */
+	private List<Object> targetTemplate;
+
+	/**
+	 * memoizes the rewritten mention name for each recently seen mention name
+	 */
+	private MentionNameTransformer mentionNameTransformer;
+
+	private static final Pattern GROUP_VARIABLE_PATTERN = Pattern.compile("\\$([0-9])");
 
 	@Override
 	public void initialize(UimaContext uc) throws ResourceInitializationException {
@@ -116,8 +148,9 @@ public class ClassMentionConverter_AE extends JCasAnnotator_ImplBase {
 		/* read in input parameters */
 		targetMentionType = (String) uc.getConfigParameterValue(PARAM_TARGET_MENTION);
 
-		mentionTypesToConvert = new HashSet<String>(Arrays.asList((String[]) uc
-				.getConfigParameterValue(PARAM_MENTION_TYPES_TO_CONVERT)));
+		List<String> mentionTypeRegexes = Arrays.asList((String[]) uc
+				.getConfigParameterValue(PARAM_MENTION_TYPES_TO_CONVERT));
+		mentionTypesToConvert = new HashSet<String>(mentionTypeRegexes);
 
 		// check syntax of user=provided parameters; if grouping syntax has been provided in
 		// either the TargetMention or the MentionTypesToConvert, make sure there is
@@ -140,10 +173,18 @@ public class ClassMentionConverter_AE extends JCasAnnotator_ImplBase {
 			type = type.toLowerCase();
 		}
 
-		mentionTypePatterns = new HashSet<Pattern>();
-		for (String mentionType : mentionTypesToConvert) {
+		mentionTypePatterns = new ArrayList<Pattern>();
+		for (String mentionType : new LinkedHashSet<String>(mentionTypeRegexes)) {
 			mentionTypePatterns.add(Pattern.compile(mentionType));
 		}
+		targetTemplate = compileTemplate(targetMentionType);
+		mentionNameTransformer = new MentionNameTransformer(ClassMentionConverter_AE.class.getSimpleName(),
+				new MentionNameTransformer.Transformation() {
+					@Override
+					public String transform(String mentionName) {
+						return rewrite(mentionName);
+					}
+				}, rewriteCacheSize);
 
 		logger.info("Initialized ClassMentionConverter: " + mentionTypesToConvert + " --> " + targetMentionType);
 
@@ -153,65 +194,98 @@ public class ClassMentionConverter_AE extends JCasAnnotator_ImplBase {
 	 * cycle through all annotations and change the mention if appropriate
 	 */
 	public void process(JCas jcas) throws AnalysisEngineProcessException {
+		AnnotationSetMembershipIndex membershipIndex = UIMA_Util.getAnnotationSetMembershipIndex(jcas);
 		FSIterator<Annotation> annotIter = jcas.getJFSIndexRepository().getAnnotationIndex(CCPTextAnnotation.type)
 				.iterator();
 		while (annotIter.hasNext()) {
 			CCPTextAnnotation ccpTA = (CCPTextAnnotation) annotIter.next();
-			if (!ignoreAnnotation(ccpTA)) {
-				for (Pattern p : mentionTypePatterns) {
+			if (!membershipIndex.isMemberOfAny(ccpTA, annotationSetIdsToIgnore)) {
+				CCPClassMention cm = ccpTA.getClassMention();
+				if (cm == null) {
+					throw new AnalysisEngineProcessException(new RuntimeException(
+							"no class mention on annotation for span:" + ccpTA.getCoveredText()));
+				}
+				String name = cm.getMentionName();
+				if (name == null) {
+					throw new AnalysisEngineProcessException(new RuntimeException(
+							"null class mention name on annotation for span:" + ccpTA.getCoveredText()));
+				}
+				mentionNameTransformer.transform(cm);
+			}
+		}
+	}
 
-					CCPClassMention cm = ccpTA.getClassMention();
-					if (cm == null) {
-						throw new AnalysisEngineProcessException(new RuntimeException(
-								"no class mention on annotation for span:" + ccpTA.getCoveredText()));
-					}
-					String name = cm.getMentionName();
-					if (name == null) {
-						throw new AnalysisEngineProcessException(new RuntimeException(
-								"null class mention name on annotation for span:" + ccpTA.getCoveredText()));
-					}
-					Matcher m = p.matcher(ccpTA.getClassMention().getMentionName());
-					if (m.matches()) {
-						int groupCount = m.groupCount();
-						// logger.debug("groupCount: " + groupCount);
-						if (groupCount == 0) {
-							// no capturing groups, only the full pattern matched.
-							// TODO: VERIFY there are no $1 dohickeys in the targetMentionType
-							// logger.debug("GroupCount is 0. No capturing groups found.");
-							ccpTA.getClassMention().setMentionName(targetMentionType);
-						} else {
-							// one or more capturing groups found (1 is most likely scenario)
-							// logger.debug("GroupCount is greater than 0.");
-							String newTargetMentionType = targetMentionType;
-							for (int i = 1; i <= m.groupCount(); i++) {
-								String s = "$" + i;
-								newTargetMentionType = newTargetMentionType.replace(s, m.group(i));
-								// logger.debug("NewTargetMentionType: <" + newTargetMentionType +
-								// ">");
-							}
-							// logger.debug("Replacing old targetMentionType <" + targetMentionType
-							// + "> with newTargetMentiontype <" + newTargetMentionType + ">");
-							ccpTA.getClassMention().setMentionName(newTargetMentionType);
-						}
+	@Override
+	public void collectionProcessComplete() throws AnalysisEngineProcessException {
+		super.collectionProcessComplete();
+		mentionNameTransformer.logStatistics(getContext().getLogger());
+	}
+
+	/**
+	 * Applies each mention-type pattern in turn to the name produced by the previous patterns
+	 * 
+	 * @param name
+	 * @return the name after every matching pattern has replaced it with the target mention type
+	 *         (with any $n group references filled in); the input name if no pattern matches
+	 */
+	private String rewrite(String name) {
+		String rewrittenName = name;
+		for (Pattern p : mentionTypePatterns) {
+			Matcher m = p.matcher(rewrittenName);
+			if (m.matches()) {
+				rewrittenName = fillTemplate(m);
+			}
+		}
+		return rewrittenName;
+	}
+
+	/**
+	 * @param m
+	 *            the matcher that matched the mention name
+	 * @return the target mention type with the $n references replaced by the matched groups.
+	 *         References to groups the pattern does not have are left as is.
+	 */
+	private String fillTemplate(Matcher m) {
+		if (targetTemplate.size() == 1 && targetTemplate.get(0) instanceof String) {
+			return (String) targetTemplate.get(0);
+		}
+		StringBuilder sb = new StringBuilder();
+		for (Object segment : targetTemplate) {
+			if (segment instanceof Integer) {
+				int group = (Integer) segment;
+				if (group <= m.groupCount()) {
+					String groupValue = m.group(group);
+					if (groupValue != null) {
+						sb.append(groupValue);
 					}
+				} else {
+					sb.append('$').append(group);
 				}
+			} else {
+				sb.append((String) segment);
 			}
 		}
+		return sb.toString();
 	}
 
 	/**
-	 * @param ccpTA
-	 * @return true if the annotation is a member of one of the annotation sets to ignore
+	 * Splits the target mention type into literal text and $n group references
 	 */
-	private boolean ignoreAnnotation(CCPTextAnnotation ccpTa) {
-		if (annotationSetIdsToIgnore != null && annotationSetIdsToIgnore.length > 0) {
-			for (int setIdToIgnore : annotationSetIdsToIgnore) {
-				if (UIMA_Util.hasAnnotationSet(ccpTa, setIdToIgnore)) {
-					return true;
-				}
+	private static List<Object> compileTemplate(String template) {
+		List<Object> segments = new ArrayList<Object>();
+		Matcher m = GROUP_VARIABLE_PATTERN.matcher(template);
+		int literalStart = 0;
+		while (m.find()) {
+			if (m.start() > literalStart) {
+				segments.add(template.substring(literalStart, m.start()));
 			}
+			segments.add(Integer.valueOf(m.group(1)));
+			literalStart = m.end();
+		}
+		if (literalStart < template.length() || segments.isEmpty()) {
+			segments.add(template.substring(literalStart));
 		}
-		return false;
+		return segments;
 	}
 
 	/**
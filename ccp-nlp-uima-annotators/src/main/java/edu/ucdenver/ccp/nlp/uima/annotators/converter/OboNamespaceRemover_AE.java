@@ -35,6 +35,7 @@ package edu.ucdenver.ccp.nlp.uima.annotators.converter;
 
 import java.util.Iterator;
 
+import org.apache.uima.UimaContext;
 import org.apache.uima.analysis_engine.AnalysisEngineDescription;
 import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
 import org.apache.uima.fit.component.JCasAnnotator_ImplBase;
@@ -45,36 +46,67 @@ import org.apache.uima.resource.ResourceInitializationException;
 
 import edu.ucdenver.ccp.common.string.StringUtil;
 import edu.ucdenver.ccp.nlp.core.uima.annotation.CCPTextAnnotation;
+import edu.ucdenver.ccp.nlp.uima.util.MentionNameTransformer;
 import edu.ucdenver.ccp.nlp.uima.util.TypeSystemUtil;
 
 /**
  * If the type of an annotation starts with the OBO namespace, then remove it
- * and replace the underscore with a colon
+ * and replace the underscore with a colon. The stripped name is computed once
+ * per distinct mention name using a {@link MentionNameTransformer}.
  */
 public class OboNamespaceRemover_AE extends JCasAnnotator_ImplBase {
 
 	private static final String OBO_NAMESPACE = "http://purl.obolibrary.org/obo/";
 
+	private MentionNameTransformer mentionNameTransformer;
+
+	@Override
+	public void initialize(UimaContext context) throws ResourceInitializationException {
+		super.initialize(context);
+		mentionNameTransformer = new MentionNameTransformer(OboNamespaceRemover_AE.class.getSimpleName(),
+				new MentionNameTransformer.Transformation() {
+					@Override
+					public String transform(String mentionName) {
+						return removeOboNamespace(mentionName);
+					}
+				});
+	}
+
 	@Override
 	public void process(JCas jCas) throws AnalysisEngineProcessException {
 
 		for (Iterator<CCPTextAnnotation> annotIter = JCasUtil.iterator(jCas, CCPTextAnnotation.class); annotIter
 				.hasNext();) {
 			CCPTextAnnotation ccpTa = annotIter.next();
-			String mentionName = ccpTa.getClassMention().getMentionName();
-			if (mentionName.startsWith(OBO_NAMESPACE)) {
-				mentionName = StringUtil.removePrefix(mentionName, OBO_NAMESPACE);
-				if (!mentionName.contains("_EXT")) {
-					mentionName = mentionName.replace("_", ":");
-				} else {
-					mentionName = mentionName.replace("#_", ":");
-				}
-				ccpTa.getClassMention().setMentionName(mentionName);
-			}
+			mentionNameTransformer.transform(ccpTa.getClassMention());
 		}
 
 	}
 
+	@Override
+	public void collectionProcessComplete() throws AnalysisEngineProcessException {
+		super.collectionProcessComplete();
+		mentionNameTransformer.logStatistics(getContext().getLogger());
+	}
+
+	/**
+	 * @param mentionName
+	 * @return the mention name with the OBO namespace removed, or null if the mention name does not
+	 *         start with the OBO namespace
+	 */
+	private static String removeOboNamespace(String mentionName) {
+		if (mentionName.startsWith(OBO_NAMESPACE)) {
+			mentionName = StringUtil.removePrefix(mentionName, OBO_NAMESPACE);
+			if (!mentionName.contains("_EXT")) {
+				mentionName = mentionName.replace("_", ":");
+			} else {
+				mentionName = mentionName.replace("#_", ":");
+			}
+			return mentionName;
+		}
+		return null;
+	}
+
 	public static AnalysisEngineDescription getDescription() throws ResourceInitializationException {
 		return AnalysisEngineFactory.createEngineDescription(OboNamespaceRemover_AE.class,
 				TypeSystemUtil.getCcpTypeSystem());
@@ -34,8 +34,11 @@ package edu.ucdenver.ccp.nlp.uima.annotators.converter;
  */
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
 
 import org.apache.log4j.Logger;
 import org.apache.uima.UimaContext;
@@ -46,13 +49,24 @@ import org.apache.uima.fit.component.JCasAnnotator_ImplBase;
 import org.apache.uima.fit.descriptor.ConfigurationParameter;
 import org.apache.uima.fit.factory.AnalysisEngineFactory;
 import org.apache.uima.jcas.JCas;
+import org.apache.uima.jcas.cas.DoubleArray;
+import org.apache.uima.jcas.cas.FSArray;
+import org.apache.uima.jcas.cas.FloatArray;
+import org.apache.uima.jcas.cas.IntegerArray;
+import org.apache.uima.jcas.cas.StringArray;
 import org.apache.uima.resource.ResourceInitializationException;
 import org.apache.uima.resource.metadata.TypeSystemDescription;
 
-import edu.ucdenver.ccp.nlp.core.mention.PrimitiveSlotMention;
+import edu.ucdenver.ccp.nlp.core.uima.annotation.CCPSpan;
 import edu.ucdenver.ccp.nlp.core.uima.annotation.CCPTextAnnotation;
+import edu.ucdenver.ccp.nlp.core.uima.mention.CCPBooleanSlotMention;
 import edu.ucdenver.ccp.nlp.core.uima.mention.CCPClassMention;
-import edu.ucdenver.ccp.nlp.uima.annotation.impl.WrappedCCPTextAnnotation;
+import edu.ucdenver.ccp.nlp.core.uima.mention.CCPDoubleSlotMention;
+import edu.ucdenver.ccp.nlp.core.uima.mention.CCPFloatSlotMention;
+import edu.ucdenver.ccp.nlp.core.uima.mention.CCPIntegerSlotMention;
+import edu.ucdenver.ccp.nlp.core.uima.mention.CCPPrimitiveSlotMention;
+import edu.ucdenver.ccp.nlp.core.uima.mention.CCPStringSlotMention;
+import edu.ucdenver.ccp.nlp.uima.util.AnnotationSetMembershipIndex;
 import edu.ucdenver.ccp.nlp.uima.util.UIMA_Util;
 
 /**
@@ -60,6 +74,13 @@ import edu.ucdenver.ccp.nlp.uima.util.UIMA_Util;
  * have annotations of type "protein" with slots containing a protein identifier and you instead
  * would like annotations where the type is the identifier. This AE allows the identifier to be
  * promoted up to be the annotation type.
+ * <p>
+ * Slot values are read directly from the slot mention value arrays. A promoted annotation shares
+ * the span, annotation set and metadata feature structures of the annotation it was promoted from
+ * (as a clone produced by {@link UIMA_Util#cloneAnnotation(CCPTextAnnotation, JCas)} would), and a
+ * slot value is promoted only once for any given span. New annotations are added to, and source
+ * annotations removed from, the CAS indexes in a single pass once all annotations have been
+ * processed.
  * 
  * @author Colorado Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
  * 
@@ -87,9 +108,12 @@ public class SlotValueToClassMentionPromoter_AE extends JCasAnnotator_ImplBase {
 	@ConfigurationParameter(description = "If true, then the annotation that contains the slot value being promoted is removed from the CAS after the slot value has been promoted. Note that all annotations with a type that matches the mentionTypeRegexString will be deleted if this parameter is set to true, regardless of whether or not they contained a slot value that got promoted.", defaultValue = "false")
 	private boolean deleteSourceAnnotation;
 
+	private Pattern mentionTypePattern;
+
 	@Override
 	public void initialize(UimaContext uc) throws ResourceInitializationException {
 		super.initialize(uc);
+		mentionTypePattern = Pattern.compile(mentionTypeRegexString);
 		logger.info("Initialized to promote values from slot <" + slotNameToPromote + "> of classMentionType <"
 				+ mentionTypeRegexString + "> to class mention status.");
 	}
@@ -102,23 +126,30 @@ public class SlotValueToClassMentionPromoter_AE extends JCasAnnotator_ImplBase {
 	public void process(JCas jcas) throws AnalysisEngineProcessException {
 		List<CCPTextAnnotation> annotationsToAddToJcas = new ArrayList<CCPTextAnnotation>();
 		List<CCPTextAnnotation> annotationsToDeleteFromJcas = new ArrayList<CCPTextAnnotation>();
+		/*
+		 * promoted annotations keyed by a combination of the promoted mention name and the span
+		 * offsets; used to avoid promoting the same value for the same span more than once
+		 */
+		Map<Long, List<CCPTextAnnotation>> keyToPromotedAnnotationsMap = new HashMap<Long, List<CCPTextAnnotation>>();
 		try {
 			for (Iterator<CCPTextAnnotation> annotIter = UIMA_Util.getTextAnnotationIterator(jcas); annotIter.hasNext();) {
 				CCPTextAnnotation ccpTa = annotIter.next();
-				if (ccpTa.getClassMention().getMentionName().matches(mentionTypeRegexString)) {
-					List<String> slotValuesToPromote = getSlotValuesOfInterest(ccpTa);
-					if (slotValuesToPromote.size() > 0) {
-						for (String slotValue : slotValuesToPromote) {
+				CCPClassMention ccpCm = ccpTa.getClassMention();
+				if (mentionTypePattern.matcher(ccpCm.getMentionName()).matches()) {
+					CCPPrimitiveSlotMention slot = UIMA_Util.getPrimitiveSlotMentionByName(ccpCm, slotNameToPromote);
+					if (slot != null) {
+						for (String slotValue : getSlotValues(slot)) {
 							String newMentionName = slotValuePrefixToAdd + slotValue;
-							CCPTextAnnotation newCCPTA = UIMA_Util.cloneAnnotation(ccpTa, jcas);
-							if (transferSlotValues) {
-								newCCPTA.getClassMention().setMentionName(newMentionName);
-							} else {
-								CCPClassMention cm = new CCPClassMention(jcas);
-								cm.setMentionName(newMentionName);
-								cm.setCcpTextAnnotation(newCCPTA);
-								newCCPTA.setClassMention(cm);
+							long key = getPromotionKey(newMentionName, ccpTa);
+							List<CCPTextAnnotation> promotedAnnotations = keyToPromotedAnnotationsMap.get(key);
+							if (promotedAnnotations == null) {
+								promotedAnnotations = new ArrayList<CCPTextAnnotation>(1);
+								keyToPromotedAnnotationsMap.put(key, promotedAnnotations);
+							} else if (isAlreadyPromoted(newMentionName, ccpTa, promotedAnnotations)) {
+								continue;
 							}
+							CCPTextAnnotation newCCPTA = promote(ccpTa, newMentionName, jcas);
+							promotedAnnotations.add(newCCPTA);
 							annotationsToAddToJcas.add(newCCPTA);
 						}
 					}
@@ -131,33 +162,134 @@ public class SlotValueToClassMentionPromoter_AE extends JCasAnnotator_ImplBase {
 			throw new AnalysisEngineProcessException(ce);
 		}
 
+		for (CCPTextAnnotation ta : annotationsToDeleteFromJcas) {
+			ta.removeFromIndexes();
+		}
 		for (CCPTextAnnotation ta : annotationsToAddToJcas) {
 			ta.addToIndexes();
 		}
+		if (!annotationsToAddToJcas.isEmpty() || !annotationsToDeleteFromJcas.isEmpty()) {
+			AnnotationSetMembershipIndex.invalidate(jcas);
+		}
+	}
 
-		for (CCPTextAnnotation ta : annotationsToDeleteFromJcas) {
-			ta.removeFromIndexes();
-			ta = null;
+	/**
+	 * @param ccpTa
+	 * @param newMentionName
+	 * @param jcas
+	 * @return a new (unindexed) annotation with the specified mention name that shares the span,
+	 *         annotation set and metadata feature structures of the input annotation
+	 * @throws CASException
+	 */
+	private CCPTextAnnotation promote(CCPTextAnnotation ccpTa, String newMentionName, JCas jcas)
+			throws CASException {
+		CCPTextAnnotation newCCPTA = new CCPTextAnnotation(jcas, ccpTa.getBegin(), ccpTa.getEnd());
+		newCCPTA.setAnnotationID(ccpTa.getAnnotationID());
+		newCCPTA.setAnnotationSets(ccpTa.getAnnotationSets());
+		newCCPTA.setAnnotator(ccpTa.getAnnotator());
+		newCCPTA.setAnnotationMetadata(ccpTa.getAnnotationMetadata());
+		newCCPTA.setSpans(ccpTa.getSpans());
+		newCCPTA.setNumberOfSpans(ccpTa.getNumberOfSpans());
+		newCCPTA.setDocumentSectionID(ccpTa.getDocumentSectionID());
+
+		CCPClassMention cm = new CCPClassMention(jcas);
+		if (transferSlotValues) {
+			UIMA_Util.swapClassMentionInfo(ccpTa.getClassMention(), cm);
 		}
+		cm.setMentionName(newMentionName);
+		cm.setCcpTextAnnotation(newCCPTA);
+		newCCPTA.setClassMention(cm);
+		return newCCPTA;
 	}
 
 	/**
-	 * @param slotType
-	 *            is the SlotType name that, when found, a SlotValue will be extracted and returned.
-	 * @return ArrayList<String> of slotValue to promote, or an ArrayList of size 0 if no slots were
-	 *         found.
-	 * 
+	 * @param slot
+	 * @return the values of the input slot mention as strings, read directly from its value array
 	 */
-	private List<String> getSlotValuesOfInterest(CCPTextAnnotation ccpTa) {
-		List<String> slotValues = new ArrayList<String>();
-		WrappedCCPTextAnnotation wrappedTa = new WrappedCCPTextAnnotation(ccpTa);
-		PrimitiveSlotMention<?> slot = wrappedTa.getClassMention().getPrimitiveSlotMentionByName(slotNameToPromote);
-		if (slot != null) {
-			for (Object slotValue : slot.getSlotValues()) {
-				slotValues.add(slotValue.toString());
+	private static String[] getSlotValues(CCPPrimitiveSlotMention slot) {
+		if (slot instanceof CCPStringSlotMention) {
+			StringArray values = ((CCPStringSlotMention) slot).getSlotValues();
+			return (values == null) ? new String[0] : values.toArray();
+		}
+		if (slot instanceof CCPIntegerSlotMention) {
+			IntegerArray values = ((CCPIntegerSlotMention) slot).getSlotValues();
+			String[] slotValues = new String[(values == null) ? 0 : values.size()];
+			for (int i = 0; i < slotValues.length; i++) {
+				slotValues[i] = Integer.toString(values.get(i));
+			}
+			return slotValues;
+		}
+		if (slot instanceof CCPFloatSlotMention) {
+			FloatArray values = ((CCPFloatSlotMention) slot).getSlotValues();
+			String[] slotValues = new String[(values == null) ? 0 : values.size()];
+			for (int i = 0; i < slotValues.length; i++) {
+				slotValues[i] = Float.toString(values.get(i));
+			}
+			return slotValues;
+		}
+		if (slot instanceof CCPDoubleSlotMention) {
+			DoubleArray values = ((CCPDoubleSlotMention) slot).getSlotValues();
+			String[] slotValues = new String[(values == null) ? 0 : values.size()];
+			for (int i = 0; i < slotValues.length; i++) {
+				slotValues[i] = Double.toString(values.get(i));
+			}
+			return slotValues;
+		}
+		if (slot instanceof CCPBooleanSlotMention) {
+			return new String[] { Boolean.toString(((CCPBooleanSlotMention) slot).getSlotValue()) };
+		}
+		return new String[0];
+	}
+
+	/**
+	 * @param mentionName
+	 * @param ccpTa
+	 * @return a key combining the mention name with the begin and end offsets of the annotation.
+	 *         Distinct mention name/span combinations may share a key, so annotations found under a
+	 *         key must still be compared using
+	 *         {@link #isAlreadyPromoted(String, CCPTextAnnotation, List)}
+	 */
+	private static long getPromotionKey(String mentionName, CCPTextAnnotation ccpTa) {
+		long spanKey = ((long) ccpTa.getBegin() << 32) | (ccpTa.getEnd() & 0xffffffffL);
+		return spanKey * 31 + mentionName.hashCode();
+	}
+
+	/**
+	 * @param mentionName
+	 * @param ccpTa
+	 * @param promotedAnnotations
+	 * @return true if one of the promoted annotations has the specified mention name and the same
+	 *         span(s) as the input annotation
+	 */
+	private static boolean isAlreadyPromoted(String mentionName, CCPTextAnnotation ccpTa,
+			List<CCPTextAnnotation> promotedAnnotations) {
+		for (CCPTextAnnotation promotedTa : promotedAnnotations) {
+			if (promotedTa.getBegin() == ccpTa.getBegin() && promotedTa.getEnd() == ccpTa.getEnd()
+					&& promotedTa.getClassMention().getMentionName().equals(mentionName)
+					&& hasSameSpans(promotedTa.getSpans(), ccpTa.getSpans())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean hasSameSpans(FSArray spans1, FSArray spans2) {
+		if (spans1 == spans2) {
+			return true;
+		}
+		int size1 = (spans1 == null) ? 0 : spans1.size();
+		int size2 = (spans2 == null) ? 0 : spans2.size();
+		if (size1 != size2) {
+			return false;
+		}
+		for (int i = 0; i < size1; i++) {
+			CCPSpan span1 = (CCPSpan) spans1.get(i);
+			CCPSpan span2 = (CCPSpan) spans2.get(i);
+			if (span1.getSpanStart() != span2.getSpanStart() || span1.getSpanEnd() != span2.getSpanEnd()) {
+				return false;
 			}
 		}
-		return slotValues;
+		return true;
 	}
 
 	/**
@@ -37,10 +37,20 @@ package edu.ucdenver.ccp.nlp.uima.annotators.filter;
  */
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
 
+import org.apache.log4j.Logger;
 import org.apache.uima.UimaContext;
 import org.apache.uima.analysis_engine.AnalysisEngineDescription;
 import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
@@ -55,6 +65,10 @@ import org.apache.uima.resource.metadata.TypeSystemDescription;
 import org.semanticweb.owlapi.model.OWLClass;
 import org.semanticweb.owlapi.model.OWLOntologyCreationException;
 
+import edu.ucdenver.ccp.common.file.CharacterEncoding;
+import edu.ucdenver.ccp.common.file.FileReaderUtil;
+import edu.ucdenver.ccp.common.file.FileUtil;
+import edu.ucdenver.ccp.common.file.FileWriterUtil;
 import edu.ucdenver.ccp.common.reflection.ConstructorUtil;
 import edu.ucdenver.ccp.datasource.fileparsers.obo.OntologyUtil;
 import edu.ucdenver.ccp.uima.shims.annotation.AnnotationDataExtractor;
@@ -62,7 +76,15 @@ import edu.ucdenver.ccp.uima.shims.annotation.AnnotationDataExtractor;
 /**
  * Given an input ontology (OBO or OWL file) and the identifier for a term in
  * that ontology, all annotations to the specified term or subclasses of that
- * term are removed from the CAS.
+ * term are removed from the CAS. Annotations to obsolete terms and to concepts
+ * that are not in the ontology are also removed.
+ * <p>
+ * The set of ontology classes that are retained is computed once during
+ * initialization so that processing requires a single hash lookup per
+ * annotation. If a closure cache directory is specified, the retained set is
+ * written to (and on subsequent runs read from) a file keyed by the checksum of
+ * the ontology file, in which case the ontology does not need to be loaded at
+ * all.
  * 
  * @author Colorado Computational Pharmacology, UC Denver;
  *         ccpsupport@ucdenver.edu
@@ -115,33 +137,162 @@ public class OntologyClassRemovalFilter_AE extends JCasAnnotator_ImplBase {
 	@ConfigurationParameter(mandatory = true, description = "identifer for the term to remove from the CAS. All subclasses of this term will also be removed.")
 	private String termIdToRemove;
 
-	private OntologyUtil ontUtil;
+	/* ==== Closure cache configuration ==== */
+	/**
+	 * Optional directory where the precomputed set of retained ontology
+	 * classes is cached. Cache files are keyed by the checksum of the ontology
+	 * file and the term to remove so that a stale cache is never used.
+	 */
+	public static final String PARAM_CLOSURE_CACHE_DIRECTORY = "closureCacheDirectory";
+
+	@ConfigurationParameter(mandatory = false, description = "optional directory in which to cache the set of ontology classes that are not removed by this filter. If set, the ontology file is only loaded when no cache file exists for its checksum.")
+	private File closureCacheDirectory;
+
+	private static final Logger logger = Logger.getLogger(OntologyClassRemovalFilter_AE.class);
+
+	private static final CharacterEncoding CACHE_ENCODING = CharacterEncoding.UTF_8;
+
+	/**
+	 * The IRIs of all ontology classes that are neither the term to remove, nor
+	 * one of its descendants, nor obsolete. Any annotation whose type does not
+	 * map to a member of this set is removed, which also covers concepts that
+	 * are not in the ontology.
+	 */
+	private Set<String> retainedClassIds;
+
+	/**
+	 * Caches the removal decision for each distinct annotation type observed
+	 * so that the IRI for a given annotation type is only constructed once
+	 */
+	private Map<String, Boolean> annotationTypeToRemoveMap;
 
 	@Override
 	public void initialize(UimaContext context) throws ResourceInitializationException {
 		super.initialize(context);
 		try {
-			ontUtil = new OntologyUtil(ontologyFile);
-
-			/*
-			 * check that the term to remove is in the ontology -- if it is not,
-			 * it could be a format issue
-			 */
-			OWLClass cls = ontUtil.getOWLClassFromId(termIdToRemove);
-			if (cls == null) {
-				String errorMessage = "Ontology term ID selected for removal is not in the given ontology. "
-						+ "This could be a formatting issue. Term selected for removal: " + termIdToRemove
-						+ " Example term ID from the ontology: " + ontUtil.getClassIterator().next().toStringID();
-				throw new ResourceInitializationException(new IllegalArgumentException(errorMessage));
+			File cacheFile = (closureCacheDirectory == null) ? null : getClosureCacheFile();
+			if (cacheFile != null && cacheFile.exists()) {
+				logger.info("Loading ontology closure from cache file: " + cacheFile.getAbsolutePath());
+				retainedClassIds = new HashSet<String>(FileReaderUtil.loadLinesFromFile(cacheFile, CACHE_ENCODING));
+			} else {
+				retainedClassIds = computeRetainedClassIds();
+				if (cacheFile != null) {
+					FileUtil.mkdir(closureCacheDirectory);
+					FileWriterUtil.printLines(new ArrayList<String>(retainedClassIds), cacheFile, CACHE_ENCODING);
+				}
 			}
-
-		} catch (OWLOntologyCreationException e) {
+		} catch (IOException e) {
 			throw new ResourceInitializationException(e);
 		}
+		annotationTypeToRemoveMap = new HashMap<String, Boolean>();
 		annotationDataExtractor = (AnnotationDataExtractor) ConstructorUtil
 				.invokeConstructor(annotationDataExtractorClassName);
 	}
 
+	/**
+	 * Loads the ontology and computes the IRIs of all classes that should not be
+	 * removed, i.e. all classes that are not the term to remove, not a
+	 * descendant of the term to remove, and not obsolete.
+	 * 
+	 * @return the set of retained class IRIs
+	 * @throws ResourceInitializationException
+	 */
+	private Set<String> computeRetainedClassIds() throws ResourceInitializationException {
+		OntologyUtil ontUtil;
+		try {
+			ontUtil = new OntologyUtil(ontologyFile);
+		} catch (OWLOntologyCreationException e) {
+			throw new ResourceInitializationException(e);
+		}
+
+		/*
+		 * check that the term to remove is in the ontology -- if it is not, it
+		 * could be a format issue
+		 */
+		OWLClass cls = ontUtil.getOWLClassFromId(termIdToRemove);
+		if (cls == null) {
+			String errorMessage = "Ontology term ID selected for removal is not in the given ontology. "
+					+ "This could be a formatting issue. Term selected for removal: " + termIdToRemove
+					+ " Example term ID from the ontology: " + ontUtil.getClassIterator().next().toStringID();
+			throw new ResourceInitializationException(new IllegalArgumentException(errorMessage));
+		}
+
+		OWLClass clsToRemove = ontUtil.getOWLClassFromId(getClassIri(termIdToRemove));
+		Set<String> retainedIds = new HashSet<String>();
+		for (Iterator<OWLClass> clsIter = ontUtil.getClassIterator(); clsIter.hasNext();) {
+			OWLClass owlClass = clsIter.next();
+			if (owlClass.equals(clsToRemove) || ontUtil.isObsolete(owlClass)
+					|| (clsToRemove != null && ontUtil.isDescendent(owlClass, clsToRemove))) {
+				continue;
+			}
+			retainedIds.add(owlClass.toStringID());
+		}
+		return retainedIds;
+	}
+
+	/**
+	 * @return the file used to cache the retained class IRIs. The file name
+	 *         includes a checksum of the ontology file and of the term to
+	 *         remove so that changes to either invalidate the cache.
+	 * @throws IOException
+	 */
+	private File getClosureCacheFile() throws IOException {
+		MessageDigest ontologyDigest = getMd5Digest();
+		byte[] buffer = new byte[8192];
+		try (InputStream is = new FileInputStream(ontologyFile)) {
+			for (int read = is.read(buffer); read != -1; read = is.read(buffer)) {
+				ontologyDigest.update(buffer, 0, read);
+			}
+		}
+		MessageDigest termDigest = getMd5Digest();
+		termDigest.update((ontologyNamespace + "|" + termIdToRemove).getBytes(CACHE_ENCODING.getCharacterSetName()));
+		return new File(closureCacheDirectory, ontologyFile.getName() + "." + toHex(ontologyDigest.digest()) + "."
+				+ toHex(termDigest.digest()) + ".retained");
+	}
+
+	private static MessageDigest getMd5Digest() {
+		try {
+			return MessageDigest.getInstance("MD5");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("MD5 digest algorithm not available.", e);
+		}
+	}
+
+	private static String toHex(byte[] bytes) {
+		StringBuilder sb = new StringBuilder(bytes.length * 2);
+		for (byte b : bytes) {
+			sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * @param annotationType
+	 * @return the ontology class IRI corresponding to the specified annotation
+	 *         type
+	 */
+	private String getClassIri(String annotationType) {
+		return ontologyNamespace + annotationType.replace(":", "_");
+	}
+
+	/**
+	 * @param annotationType
+	 * @return true if annotations of the specified type should be removed
+	 */
+	private boolean isTypeToRemove(String annotationType) {
+		Boolean remove = annotationTypeToRemoveMap.get(annotationType);
+		if (remove == null) {
+			/*
+			 * if the concept isn't in the ontology, e.g. independent_continuant,
+			 * then the annotation is removed
+			 */
+			remove = annotationType.equals(termIdToRemove)
+					|| !retainedClassIds.contains(getClassIri(annotationType));
+			annotationTypeToRemoveMap.put(annotationType, remove);
+		}
+		return remove;
+	}
+
 	/**
 	 * Cycles through all annotations in the CAS, removing any that match the
 	 * specified termIdToRemove or that are subclasses of that term identifier
@@ -152,17 +303,8 @@ public class OntologyClassRemovalFilter_AE extends JCasAnnotator_ImplBase {
 		for (Iterator<Annotation> annotIter = JCasUtil.iterator(jCas, Annotation.class); annotIter.hasNext();) {
 			Annotation annotation = annotIter.next();
 			String annotationType = annotationDataExtractor.getAnnotationType(annotation);
-			if (annotationType != null) {
-				if (annotationType.equals(termIdToRemove)
-						/* if the concept isn't in the ontology, e.g. independent_continuant, then remove the annotation */
-						|| ontUtil.getOWLClassFromId(ontologyNamespace + annotationType.replace(":", "_")) == null
-						|| ontUtil.isDescendent(
-								ontUtil.getOWLClassFromId(ontologyNamespace + annotationType.replace(":", "_")),
-								ontUtil.getOWLClassFromId(ontologyNamespace + termIdToRemove.replace(":", "_")))
-						|| ontUtil.isObsolete(
-								ontUtil.getOWLClassFromId(ontologyNamespace + annotationType.replace(":", "_")))) {
-					annotationsToRemove.add(annotation);
-				}
+			if (annotationType != null && isTypeToRemove(annotationType)) {
+				annotationsToRemove.add(annotation);
 			}
 		}
 
@@ -180,4 +322,14 @@ public class OntologyClassRemovalFilter_AE extends JCasAnnotator_ImplBase {
 				PARAM_ONT_NAMESPACE, ontologyNamespace);
 	}
 
+	public static AnalysisEngineDescription getDescription(TypeSystemDescription tsd,
+			Class<? extends AnnotationDataExtractor> annotationDataExtractorClass, String idToRemove, File oboFile,
+			String ontologyNamespace, File closureCacheDirectory) throws ResourceInitializationException {
+		return AnalysisEngineFactory.createEngineDescription(OntologyClassRemovalFilter_AE.class, tsd,
+				PARAM_ANNOTATION_DATA_EXTRACTOR_CLASS, annotationDataExtractorClass.getName(),
+				PARAM_ANNOTATION_TYPE_OF_INTEREST, idToRemove, PARAM_OBO_FILE, oboFile.getAbsolutePath(),
+				PARAM_ONT_NAMESPACE, ontologyNamespace, PARAM_CLOSURE_CACHE_DIRECTORY,
+				closureCacheDirectory.getAbsolutePath());
+	}
+
 }
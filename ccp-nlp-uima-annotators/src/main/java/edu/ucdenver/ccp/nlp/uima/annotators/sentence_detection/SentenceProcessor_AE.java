@@ -53,7 +53,9 @@ package edu.ucdenver.ccp.nlp.uima.annotators.sentence_detection;
  * #L%
  */
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 
 import org.apache.uima.UimaContext;
 import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
@@ -67,6 +69,8 @@ import org.apache.uima.resource.ResourceInitializationException;
 import org.apache.uima.util.Logger;
 
 import edu.ucdenver.ccp.common.reflection.ConstructorUtil;
+import edu.ucdenver.ccp.nlp.uima.shims.annotation.impl.CcpAnnotationDataExtractor;
+import edu.ucdenver.ccp.nlp.uima.util.MentionNameIndex;
 import edu.ucdenver.ccp.uima.shims.annotation.AnnotationDataExtractor;
 
 /**
@@ -97,17 +101,45 @@ public abstract class SentenceProcessor_AE extends JCasAnnotator_ImplBase {
 
 	@Override
 	public void process(JCas jCas) throws AnalysisEngineProcessException {
+		/*
+		 * the sentences are collected before processing begins so that annotations added to the CAS
+		 * by processSentence() do not interfere with the iteration
+		 */
+		for (Annotation annotation : getSentenceAnnotations(jCas)) {
+			try {
+				processSentence(jCas, annotation);
+			} catch (CASException e) {
+				throw new AnalysisEngineProcessException(e);
+			}
+		}
+	}
+
+	/**
+	 * @param jCas
+	 * @return the sentence annotations in the CAS in annotation index order. When the CCP type
+	 *         system is in use, sentences are looked up by mention name using a
+	 *         {@link MentionNameIndex}.
+	 */
+	private List<Annotation> getSentenceAnnotations(JCas jCas) {
+		if (sentenceDataExtractor instanceof CcpAnnotationDataExtractor) {
+			MentionNameIndex mentionNameIndex = new MentionNameIndex(jCas);
+			List<String> sentenceMentionNames = new ArrayList<String>();
+			for (String mentionName : mentionNameIndex.getMentionNames()) {
+				if (mentionName.equalsIgnoreCase("sentence")) {
+					sentenceMentionNames.add(mentionName);
+				}
+			}
+			return new ArrayList<Annotation>(mentionNameIndex.getAnnotations(sentenceMentionNames));
+		}
+		List<Annotation> sentenceAnnotations = new ArrayList<Annotation>();
 		for (Iterator<Annotation> annotIter = JCasUtil.iterator(jCas, Annotation.class); annotIter.hasNext();) {
 			Annotation annotation = annotIter.next();
 			String type = sentenceDataExtractor.getAnnotationType(annotation);
 			if (type != null && type.equalsIgnoreCase("sentence")) {
-				try {
-					processSentence(jCas, annotation);
-				} catch (CASException e) {
-					throw new AnalysisEngineProcessException(e);
-				}
+				sentenceAnnotations.add(annotation);
 			}
 		}
+		return sentenceAnnotations;
 	}
 
 	protected abstract void processSentence(JCas jCas, Annotation sentenceAnnotation) throws CASException;
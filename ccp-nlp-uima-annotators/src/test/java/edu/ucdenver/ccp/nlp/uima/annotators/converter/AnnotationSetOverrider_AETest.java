@@ -0,0 +1,115 @@
+package edu.ucdenver.ccp.nlp.uima.annotators.converter;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's nlp module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.uima.UIMAException;
+import org.apache.uima.analysis_engine.AnalysisEngine;
+import org.apache.uima.fit.factory.AnalysisEngineFactory;
+import org.junit.Test;
+
+import edu.ucdenver.ccp.nlp.core.uima.annotation.CCPTextAnnotation;
+import edu.ucdenver.ccp.nlp.uima.test.DefaultUIMATestCase;
+import edu.ucdenver.ccp.nlp.uima.util.AnnotationSetMembershipIndex;
+import edu.ucdenver.ccp.nlp.uima.util.AnnotatorRegistry;
+import edu.ucdenver.ccp.nlp.uima.util.UIMA_Util;
+
+/**
+ * @author Colorado Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class AnnotationSetOverrider_AETest extends DefaultUIMATestCase {
+
+	private static final int GOLD = AnnotationSetOverrider_AE.GOLD_ANNOTATION_SET_ID;
+	private static final int EVAL = AnnotationSetOverrider_AE.EVAL_ANNOTATION_SET_ID;
+
+	private CCPTextAnnotation protein;
+	private CCPTextAnnotation goldProtein;
+
+	@Override
+	protected void initJCas() throws UIMAException {
+		jcas.setDocumentText("ABC1 and DEF2 are proteins.");
+		protein = addTextAnnotationToJCas(0, 4, "protein");
+		goldProtein = addTextAnnotationToJCas(9, 13, "protein");
+		UIMA_Util.removeAnnotationSet(goldProtein, -1, jcas);
+		UIMA_Util.addAnnotationSet(goldProtein,
+				AnnotatorRegistry.getRegistry(jcas).getCCPAnnotationSet(GOLD, "gold set", ""), jcas);
+	}
+
+	@Test
+	public void testMembershipIndexIsSharedByAnnotatorsInSequence() throws UIMAException {
+		AnnotationSetMembershipIndex index = UIMA_Util.getAnnotationSetMembershipIndex(jcas);
+		assertTrue(index.isMember(goldProtein, GOLD));
+
+		AnalysisEngine classMentionConverter = AnalysisEngineFactory.createPrimitive(ClassMentionConverter_AE
+				.createAnalysisEngineDescription(getTypeSystem(), "gene_product", new String[] { "protein" },
+						new int[] { GOLD }));
+		AnalysisEngine annotatorOverrider = AnalysisEngineFactory.createPrimitive(AnnotatorOverrider_AE
+				.createEvalAnnotatorIgnoringGoldSetDescription(getTypeSystem()));
+		classMentionConverter.process(jcas);
+		annotatorOverrider.process(jcas);
+
+		assertSame(index, UIMA_Util.getAnnotationSetMembershipIndex(jcas));
+		assertEquals("gene_product", protein.getClassMention().getMentionName());
+		assertEquals("protein", goldProtein.getClassMention().getMentionName());
+		assertEquals(AnnotatorOverrider_AE.EVAL_ANNOTATOR_ID, protein.getAnnotator().getAnnotatorID());
+	}
+
+	@Test
+	public void testOverriddenSetsAreVisibleToLaterAnnotators() throws UIMAException {
+		AnnotationSetMembershipIndex index = UIMA_Util.getAnnotationSetMembershipIndex(jcas);
+		assertTrue(index.isMember(protein, -1));
+
+		AnalysisEngine setOverrider = AnalysisEngineFactory.createPrimitive(AnnotationSetOverrider_AE
+				.createEvalSetOverriderDescription(getTypeSystem()));
+		AnalysisEngine classMentionConverter = AnalysisEngineFactory.createPrimitive(ClassMentionConverter_AE
+				.createAnalysisEngineDescription(getTypeSystem(), "gene_product", new String[] { "protein" },
+						new int[] { EVAL }));
+		setOverrider.process(jcas);
+
+		assertTrue(index.isMember(protein, EVAL));
+		assertFalse(index.isMember(protein, -1));
+		assertTrue(index.isMember(goldProtein, GOLD));
+		assertFalse(index.isMember(goldProtein, EVAL));
+
+		classMentionConverter.process(jcas);
+		assertEquals("protein", protein.getClassMention().getMentionName());
+		assertEquals("gene_product", goldProtein.getClassMention().getMentionName());
+	}
+
+}
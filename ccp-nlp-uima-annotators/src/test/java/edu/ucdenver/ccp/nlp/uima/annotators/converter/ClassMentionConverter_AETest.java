@@ -0,0 +1,122 @@
+package edu.ucdenver.ccp.nlp.uima.annotators.converter;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's nlp module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.uima.UIMAException;
+import org.apache.uima.analysis_engine.AnalysisEngine;
+import org.apache.uima.fit.factory.AnalysisEngineFactory;
+import org.junit.Test;
+
+import edu.ucdenver.ccp.common.collections.CollectionsUtil;
+import edu.ucdenver.ccp.nlp.core.uima.annotation.CCPTextAnnotation;
+import edu.ucdenver.ccp.nlp.uima.test.DefaultUIMATestCase;
+import edu.ucdenver.ccp.nlp.uima.util.UIMA_Util;
+
+/**
+ * @author Colorado Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class ClassMentionConverter_AETest extends DefaultUIMATestCase {
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see edu.ucdenver.ccp.nlp.core.uima.test.DefaultUIMATestCase#initJCas()
+	 */
+	@Override
+	protected void initJCas() throws UIMAException {
+		addTextAnnotationToJCas(0, 5, "GO:0008150");
+		addTextAnnotationToJCas(6, 10, "CHEBI:15377");
+		addTextAnnotationToJCas(11, 15, "GO:0008150");
+		addTextAnnotationToJCas(16, 20, "protein");
+		addTextAnnotationToJCas(21, 25, "CHEBI:15377");
+	}
+
+	@Test
+	public void testConversion_NoGroups() throws Exception {
+		AnalysisEngine ae = AnalysisEngineFactory.createPrimitive(ClassMentionConverter_AE
+				.createAnalysisEngineDescription(getTypeSystem(), "ontology_term", new String[] { "GO:.*",
+						"CHEBI:.*" }));
+		ae.process(jcas);
+		assertEquals(CollectionsUtil.createList("ontology_term", "ontology_term", "ontology_term", "protein",
+				"ontology_term"), getMentionNames());
+	}
+
+	@Test
+	public void testConversion_Groups() throws Exception {
+		AnalysisEngine ae = AnalysisEngineFactory.createPrimitive(ClassMentionConverter_AE
+				.createAnalysisEngineDescription(getTypeSystem(), "$1_$2", new String[] { "(GO):(\\d+)",
+						"(CHEBI):(\\d+)" }));
+		ae.process(jcas);
+		assertEquals(CollectionsUtil.createList("GO_0008150", "CHEBI_15377", "GO_0008150", "protein",
+				"CHEBI_15377"), getMentionNames());
+
+		/* the memoized results are reused for the next CAS */
+		jcas.reset();
+		jcas.setDocumentText("GO term");
+		addTextAnnotationToJCas(0, 2, "GO:0005575");
+		addTextAnnotationToJCas(3, 7, "GO:0008150");
+		ae.process(jcas);
+		assertEquals(CollectionsUtil.createList("GO_0005575", "GO_0008150"), getMentionNames());
+	}
+
+	@Test
+	public void testConversion_ChainedPatterns() throws Exception {
+		/*
+		 * each pattern is applied to the name produced by the previous pattern, so the GO names
+		 * rewritten by the first pattern are rewritten again by the second
+		 */
+		AnalysisEngine ae = AnalysisEngineFactory.createPrimitive(ClassMentionConverter_AE
+				.createAnalysisEngineDescription(getTypeSystem(), "$1_$2", new String[] { "(GO|CHEBI):(\\d+)",
+						"(GO_\\d{3})(\\d+)" }));
+		ae.process(jcas);
+		assertEquals(CollectionsUtil.createList("GO_000_8150", "CHEBI_15377", "GO_000_8150", "protein",
+				"CHEBI_15377"), getMentionNames());
+	}
+
+	private List<String> getMentionNames() {
+		List<String> mentionNames = new ArrayList<String>();
+		for (Iterator<CCPTextAnnotation> annotIter = UIMA_Util.getTextAnnotationIterator(jcas); annotIter.hasNext();) {
+			mentionNames.add(annotIter.next().getClassMention().getMentionName());
+		}
+		return mentionNames;
+	}
+
+}
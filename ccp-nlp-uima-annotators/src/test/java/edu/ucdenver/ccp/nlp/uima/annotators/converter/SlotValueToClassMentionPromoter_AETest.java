@@ -35,6 +35,8 @@ package edu.ucdenver.ccp.nlp.uima.annotators.converter;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.util.Iterator;
@@ -49,6 +51,7 @@ import org.junit.Test;
 
 import edu.ucdenver.ccp.nlp.core.mention.ClassMentionType;
 import edu.ucdenver.ccp.nlp.core.uima.annotation.CCPTextAnnotation;
+import edu.ucdenver.ccp.nlp.core.uima.mention.CCPStringSlotMention;
 import edu.ucdenver.ccp.nlp.uima.test.DefaultUIMATestCase;
 import edu.ucdenver.ccp.nlp.uima.util.UIMA_Util;
 
@@ -180,4 +183,60 @@ public class SlotValueToClassMentionPromoter_AETest extends DefaultUIMATestCase
 		assertTrue(hasEgIdAnnot && hasGeneAnnot);
 	}
 
+	@Test
+	public void testSlotValuePromotion_TransferSlotValues() throws ResourceInitializationException,
+			AnalysisEngineProcessException {
+		boolean transferSlotValues = true;
+		boolean deleteSourceAnnotation = false;
+		AnalysisEngineDescription aeDesc = SlotValueToClassMentionPromoter_AE.createAnalysisEngineDescription(
+				getTypeSystem(), HAS_ENTREZ_GENE_ID_SLOT_NAME, ClassMentionType.GENE.typeName(), transferSlotValues,
+				deleteSourceAnnotation, "EG:");
+		AnalysisEngine ae = AnalysisEngineFactory.createPrimitive(aeDesc);
+		ae.process(jcas);
+
+		CCPTextAnnotation geneAnnot = null;
+		CCPTextAnnotation egIdAnnot = null;
+		for (Iterator<CCPTextAnnotation> annotIter = UIMA_Util.getTextAnnotationIterator(jcas); annotIter.hasNext();) {
+			CCPTextAnnotation ccpTa = annotIter.next();
+			String mentionName = ccpTa.getClassMention().getMentionName();
+			if (mentionName.equals(ClassMentionType.GENE.typeName())) {
+				geneAnnot = ccpTa;
+			}
+			if (mentionName.equals("EG:12345")) {
+				egIdAnnot = ccpTa;
+			}
+		}
+		assertNotNull(geneAnnot);
+		assertNotNull(egIdAnnot);
+		assertSame(geneAnnot.getSpans(), egIdAnnot.getSpans());
+		assertSame(egIdAnnot, egIdAnnot.getClassMention().getCcpTextAnnotation());
+		CCPStringSlotMention slot = (CCPStringSlotMention) UIMA_Util.getPrimitiveSlotMentionByName(
+				egIdAnnot.getClassMention(), HAS_ENTREZ_GENE_ID_SLOT_NAME);
+		assertEquals("12345", UIMA_Util.getFirstSlotValue(slot));
+	}
+
+	@Test
+	public void testSlotValuePromotion_DuplicateSlotValues() throws UIMAException {
+		boolean transferSlotValues = false;
+		boolean deleteSourceAnnotation = true;
+		AnalysisEngineDescription aeDesc = SlotValueToClassMentionPromoter_AE.createAnalysisEngineDescription(
+				getTypeSystem(), HAS_ENTREZ_GENE_ID_SLOT_NAME, ClassMentionType.GENE.typeName(), transferSlotValues,
+				deleteSourceAnnotation, "");
+		AnalysisEngine ae = AnalysisEngineFactory.createPrimitive(aeDesc);
+
+		/* same span and id as the gene annotation added in initJCas() */
+		addGeneAnnotationToJCas(0, 10, EG_ID);
+		/* same id but a different span */
+		addGeneAnnotationToJCas(11, 15, EG_ID);
+		ae.process(jcas);
+
+		int annotCount = 0;
+		for (Iterator<CCPTextAnnotation> annotIter = UIMA_Util.getTextAnnotationIterator(jcas); annotIter.hasNext();) {
+			CCPTextAnnotation ccpTa = annotIter.next();
+			assertEquals("12345", ccpTa.getClassMention().getMentionName());
+			annotCount++;
+		}
+		assertEquals(2, annotCount);
+	}
+
 }
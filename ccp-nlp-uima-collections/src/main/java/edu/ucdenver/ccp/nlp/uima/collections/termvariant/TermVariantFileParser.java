@@ -81,6 +81,13 @@ public class TermVariantFileParser {
 	private static final String COMMENT_LINE_INDICATOR = "//";
 	private static final String DOCUMENT_TITLE_INDICATOR = "#";
 
+	/**
+	 * All term variant annotations share the same annotator and annotation set; these instances
+	 * are shared and should not be modified.
+	 */
+	private static final Annotator TERM_VARIANT_ANNOTATOR = new Annotator("1212", "TermVariantAnnotator", "CCP");
+	private static final AnnotationSet DEFAULT_ANNOTATION_SET = new AnnotationSet();
+
 	/**
 	 * private constructor, this class should not be instantiated
 	 */
@@ -239,9 +246,8 @@ public class TermVariantFileParser {
 	 */
 	protected static TextAnnotation createAnnotation(String classMentionName, String coveredText, Span span,
 			int documentCollectionID, String documentID) {
-		Annotator annotator = new Annotator("1212", "TermVariantAnnotator", "CCP");
-		return new DefaultTextAnnotation(span.getSpanStart(), span.getSpanEnd(), coveredText, annotator,
-				new AnnotationSet(), "-1", documentCollectionID, documentID, -1,
+		return new DefaultTextAnnotation(span.getSpanStart(), span.getSpanEnd(), coveredText, TERM_VARIANT_ANNOTATOR,
+				DEFAULT_ANNOTATION_SET, "-1", documentCollectionID, documentID, -1,
 				new DefaultClassMention(classMentionName));
 	}
 
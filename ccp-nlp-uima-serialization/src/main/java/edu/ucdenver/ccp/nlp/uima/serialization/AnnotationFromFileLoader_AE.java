@@ -38,6 +38,7 @@ import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 
+import org.apache.log4j.Logger;
 import org.apache.uima.UimaContext;
 import org.apache.uima.analysis_component.JCasAnnotator_ImplBase;
 import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
@@ -47,6 +48,7 @@ import org.apache.uima.resource.ResourceInitializationException;
 import edu.ucdenver.ccp.common.file.CharacterEncoding;
 import edu.ucdenver.ccp.nlp.core.annotation.TextAnnotation;
 import edu.ucdenver.ccp.nlp.core.annotation.TextAnnotationUtil;
+import edu.ucdenver.ccp.nlp.core.annotation.serialization.AnnotationFileIndex;
 import edu.ucdenver.ccp.nlp.uima.util.UIMA_Util;
 
 /**
@@ -55,32 +57,56 @@ import edu.ucdenver.ccp.nlp.uima.util.UIMA_Util;
  * file is one annotation per line: <br>
  * <br>
  * documentID|annotatorID|spanStart spanEnd|classMentionName|coveredText
+ * <p>
+ * By default the entire file is loaded during initialization. If the {@link #PARAM_USE_INDEX}
+ * parameter is set to true, an {@link AnnotationFileIndex} is used instead and only the lines for
+ * the document being processed are read and parsed. In either mode, the annotations for a document
+ * remain available after they have been added to the CAS, so documents that share an identifier
+ * each receive the same annotations.
  * 
  * @author Colorado Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
  * 
  */
 public class AnnotationFromFileLoader_AE extends JCasAnnotator_ImplBase {
 
+	private static final Logger logger = Logger.getLogger(AnnotationFromFileLoader_AE.class);
+
 	public static final String PARAM_ANNOTATION_FILE = "AnnotationFile";
 
+	/**
+	 * Optional boolean parameter. If true, the annotation file is accessed through a persisted
+	 * document-to-byte-range index instead of being loaded into memory.
+	 */
+	public static final String PARAM_USE_INDEX = "UseIndex";
+
 	private Map<String, List<TextAnnotation>> documentID2AnnotationsMap;
 
+	private AnnotationFileIndex annotationFileIndex;
+
+	private final UIMA_Util uimaUtil = new UIMA_Util();
+
 	/**
-	 * Initialize the AnnotationFromFileLoader_AE by loading the annotations from file into a hash.
+	 * Initialize the AnnotationFromFileLoader_AE by loading the annotations from file into a hash,
+	 * or by loading (or computing) the annotation file index if indexed access was requested.
 	 */
 	@Override
 	public void initialize(UimaContext context) throws ResourceInitializationException {
 
 		String annotationsFile;
 		annotationsFile = (String) context.getConfigParameterValue(PARAM_ANNOTATION_FILE);
+		Boolean useIndex = (Boolean) context.getConfigParameterValue(PARAM_USE_INDEX);
 
 		/* load documentid to annotation map */
 		try {
-			System.err.println("Initializing AnnotationFromFileLoader: Loading annotations from: " + annotationsFile);
-			documentID2AnnotationsMap = TextAnnotationUtil.loadAnnotationsFromFile(new File(annotationsFile),
-					CharacterEncoding.UTF_8);
+			logger.info("Initializing AnnotationFromFileLoader: Loading annotations from: " + annotationsFile);
+			if (useIndex != null && useIndex) {
+				annotationFileIndex = new AnnotationFileIndex(new File(annotationsFile), CharacterEncoding.UTF_8);
+			} else {
+				documentID2AnnotationsMap = TextAnnotationUtil.loadAnnotationsFromFile(new File(annotationsFile),
+						CharacterEncoding.UTF_8);
+			}
 		} catch (IOException e) {
-			e.printStackTrace();
+			throw new ResourceInitializationException(e);
 		}
 
 		super.initialize(context);
@@ -88,7 +114,7 @@ public class AnnotationFromFileLoader_AE extends JCasAnnotator_ImplBase {
 
 	/**
 	 * For each CAS, lookup the document ID and insert any annotations associated with that document
-	 * ID from the hash.
+	 * ID from the hash (or the annotation file index).
 	 */
 	@Override
 	public void process(JCas jcas) throws AnalysisEngineProcessException {
@@ -100,13 +126,32 @@ public class AnnotationFromFileLoader_AE extends JCasAnnotator_ImplBase {
 		// documentID = docInfo.getDocumentID();
 		// }
 
-		if (documentID2AnnotationsMap.containsKey(documentID)) {
+		if (annotationFileIndex != null) {
+			if (annotationFileIndex.containsDocument(documentID)) {
+				try {
+					uimaUtil.putTextAnnotationsIntoJCas(jcas, annotationFileIndex.getAnnotations(documentID));
+				} catch (IOException e) {
+					throw new AnalysisEngineProcessException(e);
+				}
+			}
+		} else if (documentID2AnnotationsMap.containsKey(documentID)) {
 			List<TextAnnotation> taList = documentID2AnnotationsMap.get(documentID);
-			UIMA_Util uimaUtil = new UIMA_Util();
 			uimaUtil.putTextAnnotationsIntoJCas(jcas, taList);
 		} else {
 			// warn("DocumentID not detected in annotationfile: " + documentID);
 		}
 	}
 
+	@Override
+	public void destroy() {
+		if (annotationFileIndex != null) {
+			try {
+				annotationFileIndex.close();
+			} catch (IOException e) {
+				logger.error("Error while closing annotation file index.", e);
+			}
+		}
+		super.destroy();
+	}
+
 }
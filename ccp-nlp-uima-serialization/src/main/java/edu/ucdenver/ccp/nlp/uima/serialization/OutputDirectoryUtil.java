@@ -0,0 +1,86 @@
+package edu.ucdenver.ccp.nlp.uima.serialization;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's nlp module
+ * %%
+ * Copyright (C) 2012 - 2017 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.io.File;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import edu.ucdenver.ccp.common.file.FileUtil;
+
+/**
+ * Utility for serializers that write one file per document. Output directories are created once
+ * and remembered, so that the file system is not queried for every document.
+ * 
+ * @author Colorado Computational Pharmacology, UC Denver;
+ *         ccpsupport@ucdenver.edu
+ * 
+ */
+public class OutputDirectoryUtil {
+
+	/**
+	 * When output is written next to the source documents there can be many output directories,
+	 * so only the most recently used directories are remembered.
+	 */
+	private static final int MAX_REMEMBERED_DIRECTORIES = 1024;
+
+	@SuppressWarnings("serial")
+	private static final Set<File> createdDirectories = Collections.newSetFromMap(Collections
+			.synchronizedMap(new LinkedHashMap<File, Boolean>(16, 0.75f, true) {
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<File, Boolean> eldest) {
+					return size() > MAX_REMEMBERED_DIRECTORIES;
+				}
+			}));
+
+	private OutputDirectoryUtil() {
+		// utility class
+	}
+
+	/**
+	 * Creates the input directory (and any parent directories) unless it has already been created
+	 * by this method
+	 * 
+	 * @param directory
+	 */
+	public static void mkdir(File directory) {
+		if (!createdDirectories.contains(directory)) {
+			FileUtil.mkdir(directory);
+			createdDirectories.add(directory);
+		}
+	}
+
+}
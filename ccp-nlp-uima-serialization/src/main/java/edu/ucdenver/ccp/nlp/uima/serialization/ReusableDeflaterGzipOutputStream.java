@@ -0,0 +1,103 @@
+package edu.ucdenver.ccp.nlp.uima.serialization;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's nlp module
+ * %%
+ * Copyright (C) 2012 - 2017 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes gzip-formatted output using a caller-supplied {@link Deflater}. Unlike
+ * {@link GZIPOutputStream}, which allocates (and later ends) a new native
+ * {@link Deflater} for every stream, this class allows a single
+ * {@link Deflater} to be reused for many output files. The {@link Deflater}
+ * must be created with <code>nowrap = true</code>; it is reset when the stream
+ * is constructed and is not ended when the stream is closed. With the default
+ * compression level the compressed data are identical to those written by
+ * {@link GZIPOutputStream}.
+ * 
+ * @author Colorado Computational Pharmacology, UC Denver;
+ *         ccpsupport@ucdenver.edu
+ * 
+ */
+public class ReusableDeflaterGzipOutputStream extends DeflaterOutputStream {
+
+	private static final byte[] GZIP_HEADER = new byte[] { (byte) 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0,
+			0, 0 };
+
+	private final CRC32 crc = new CRC32();
+
+	private boolean trailerWritten = false;
+
+	/**
+	 * @param out
+	 * @param deflater
+	 *            a {@link Deflater} created with <code>nowrap = true</code>
+	 * @param bufferSize
+	 *            the size of the compressed output buffer
+	 * @throws IOException
+	 */
+	public ReusableDeflaterGzipOutputStream(OutputStream out, Deflater deflater, int bufferSize) throws IOException {
+		super(out, deflater, bufferSize);
+		deflater.reset();
+		out.write(GZIP_HEADER);
+	}
+
+	@Override
+	public synchronized void write(byte[] b, int off, int len) throws IOException {
+		super.write(b, off, len);
+		crc.update(b, off, len);
+	}
+
+	@Override
+	public void finish() throws IOException {
+		if (!trailerWritten) {
+			super.finish();
+			writeIntLE((int) crc.getValue());
+			writeIntLE((int) def.getBytesRead());
+			trailerWritten = true;
+		}
+	}
+
+	private void writeIntLE(int i) throws IOException {
+		out.write(i & 0xff);
+		out.write((i >> 8) & 0xff);
+		out.write((i >> 16) & 0xff);
+		out.write((i >> 24) & 0xff);
+	}
+
+}
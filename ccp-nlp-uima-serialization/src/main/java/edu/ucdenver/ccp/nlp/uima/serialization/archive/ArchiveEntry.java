@@ -0,0 +1,93 @@
+package edu.ucdenver.ccp.nlp.uima.serialization.archive;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's nlp module
+ * %%
+ * Copyright (C) 2012 - 2017 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.io.File;
+
+/**
+ * The location of a single document within a shard file written by a {@link ShardedArchiveWriter}
+ * 
+ * @author Colorado Computational Pharmacology, UC Denver;
+ *         ccpsupport@ucdenver.edu
+ * 
+ */
+public class ArchiveEntry {
+
+	private final String documentId;
+	private final File shardFile;
+	private final long offset;
+	private final int length;
+
+	public ArchiveEntry(String documentId, File shardFile, long offset, int length) {
+		this.documentId = documentId;
+		this.shardFile = shardFile;
+		this.offset = offset;
+		this.length = length;
+	}
+
+	public String getDocumentId() {
+		return documentId;
+	}
+
+	/**
+	 * @return the shard file containing the document
+	 */
+	public File getShardFile() {
+		return shardFile;
+	}
+
+	/**
+	 * @return the byte offset of the document within the shard file
+	 */
+	public long getOffset() {
+		return offset;
+	}
+
+	/**
+	 * @return the number of bytes occupied by the document in the shard file
+	 */
+	public int getLength() {
+		return length;
+	}
+
+	/**
+	 * @return a string of the form [shard-file-path]#[offset]+[length] suitable for logging the
+	 *         location of the document
+	 */
+	@Override
+	public String toString() {
+		return shardFile.getAbsolutePath() + "#" + offset + "+" + length;
+	}
+
+}
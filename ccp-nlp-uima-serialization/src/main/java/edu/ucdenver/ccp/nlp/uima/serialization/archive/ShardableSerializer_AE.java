@@ -0,0 +1,189 @@
+package edu.ucdenver.ccp.nlp.uima.serialization.archive;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's nlp module
+ * %%
+ * Copyright (C) 2012 - 2017 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.apache.log4j.Logger;
+import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
+import org.apache.uima.fit.component.JCasAnnotator_ImplBase;
+import org.apache.uima.fit.descriptor.ConfigurationParameter;
+import org.apache.uima.resource.ResourceInitializationException;
+
+/**
+ * This abstract class is the foundation for serializers that can append their
+ * per-document output to rolling shard files (see {@link ShardedArchiveWriter})
+ * instead of writing a file per document. It declares the sharding
+ * configuration parameters and manages the shared {@link ShardedArchiveWriter},
+ * which is released when collection processing completes or the annotator is
+ * destroyed. Documents are serialized into a buffer that is reused for every
+ * document processed by the annotator (an annotator instance is only used by
+ * one thread at a time), so that the shared archive is held only while the
+ * serialized bytes are appended and not while the document is serialized.
+ * 
+ * @author Colorado Computational Pharmacology, UC Denver;
+ *         ccpsupport@ucdenver.edu
+ * 
+ */
+public abstract class ShardableSerializer_AE extends JCasAnnotator_ImplBase {
+
+	private static final Logger logger = Logger.getLogger(ShardableSerializer_AE.class);
+
+	/**
+	 * If true, the output for each document is appended to rolling shard files
+	 * in the output directory instead of being written to a file per document
+	 */
+	public static final String PARAM_SHARDED_OUTPUT_FLAG = "shardedOutput";
+	@ConfigurationParameter(mandatory = false, description = "If true, documents are appended to rolling shard files instead of being written to individual files", defaultValue = "false")
+	private boolean shardedOutput;
+
+	public static final String PARAM_MAX_DOCUMENTS_PER_SHARD = "maxDocumentsPerShard";
+	@ConfigurationParameter(mandatory = false, description = "The maximum number of documents stored in a single shard file", defaultValue = ShardedArchiveWriter.DEFAULT_MAX_DOCUMENTS_PER_SHARD)
+	private int maxDocumentsPerShard;
+
+	public static final String PARAM_MAX_SHARD_SIZE_MB = "maxShardSizeMb";
+	@ConfigurationParameter(mandatory = false, description = "The maximum size (in megabytes) of a single shard file", defaultValue = ShardedArchiveWriter.DEFAULT_MAX_SHARD_SIZE_MB)
+	private int maxShardSizeMb;
+
+	private ShardedArchiveWriter archiveWriter;
+
+	private DocumentBuffer documentBuffer;
+
+	/**
+	 * @return true if sharded output is enabled
+	 */
+	protected boolean isShardedOutput() {
+		return shardedOutput;
+	}
+
+	/**
+	 * @param outputDirectory
+	 * @throws ResourceInitializationException
+	 *             if sharded output is enabled but the output directory has not
+	 *             been specified
+	 */
+	protected void checkShardedOutputDirectory(File outputDirectory) throws ResourceInitializationException {
+		if (shardedOutput && outputDirectory == null) {
+			throw new ResourceInitializationException(new IllegalArgumentException(
+					"The output directory must be specified when sharded output is enabled."));
+		}
+	}
+
+	/**
+	 * @return the archive writer for the specified location, obtained on first
+	 *         use from {@link ShardedArchiveWriter#getInstance} using the
+	 *         configured shard limits
+	 * @throws IOException
+	 */
+	protected ShardedArchiveWriter getArchiveWriter(File directory, String name, String suffix, boolean compress)
+			throws IOException {
+		if (archiveWriter == null) {
+			archiveWriter = ShardedArchiveWriter.getInstance(directory, name, suffix, compress,
+					maxShardSizeMb * 1024L * 1024L, maxDocumentsPerShard);
+		}
+		return archiveWriter;
+	}
+
+	/**
+	 * @return an empty buffer to serialize the next document into; see
+	 *         {@link #archiveDocumentBuffer(ShardedArchiveWriter, String)}
+	 */
+	protected OutputStream openDocumentBuffer() {
+		if (documentBuffer == null) {
+			documentBuffer = new DocumentBuffer();
+		}
+		documentBuffer.reset();
+		return documentBuffer;
+	}
+
+	/**
+	 * Appends the content of the buffer returned by the last call to
+	 * {@link #openDocumentBuffer()} to the archive. Nothing is written if the
+	 * document could not be serialized, as this method is then never called.
+	 * 
+	 * @return the location of the document in the archive
+	 * @throws IOException
+	 */
+	protected ArchiveEntry archiveDocumentBuffer(ShardedArchiveWriter archiveWriter, String documentId)
+			throws IOException {
+		return documentBuffer.writeTo(archiveWriter, documentId);
+	}
+
+	@Override
+	public void collectionProcessComplete() throws AnalysisEngineProcessException {
+		super.collectionProcessComplete();
+		releaseArchiveWriter();
+	}
+
+	@Override
+	public void destroy() {
+		try {
+			releaseArchiveWriter();
+		} catch (AnalysisEngineProcessException e) {
+			logger.error("Error while closing archive shard.", e);
+		}
+		super.destroy();
+	}
+
+	private void releaseArchiveWriter() throws AnalysisEngineProcessException {
+		if (archiveWriter != null) {
+			try {
+				archiveWriter.release();
+			} catch (IOException e) {
+				throw new AnalysisEngineProcessException(e);
+			} finally {
+				archiveWriter = null;
+			}
+		}
+	}
+
+	/**
+	 * Exposes its internal array so that the buffered document can be
+	 * appended to the archive without being copied
+	 */
+	private static class DocumentBuffer extends ByteArrayOutputStream {
+		public DocumentBuffer() {
+			super(64 * 1024);
+		}
+
+		public synchronized ArchiveEntry writeTo(ShardedArchiveWriter archiveWriter, String documentId)
+				throws IOException {
+			return archiveWriter.write(documentId, buf, 0, count);
+		}
+	}
+
+}
@@ -0,0 +1,187 @@
+package edu.ucdenver.ccp.nlp.uima.serialization.archive;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's nlp module
+ * %%
+ * Copyright (C) 2012 - 2017 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Provides random access, by document identifier, to the documents stored in an archive written
+ * by {@link ShardedArchiveWriter}. The shard index files are loaded on construction; each
+ * subsequent read seeks directly to the byte range occupied by the requested document.
+ * <p>
+ * Documents in shards whose names end in <code>.gz</code> are decompressed when read.
+ * <p>
+ * If a document identifier appears more than once in the archive, the entry in the highest
+ * numbered shard is used. Index entries that extend beyond the end of their shard (e.g. because the
+ * writer was interrupted) are ignored.
+ * 
+ * @author Colorado Computational Pharmacology, UC Denver;
+ *         ccpsupport@ucdenver.edu
+ * 
+ */
+public class ShardedArchiveReader {
+
+	private static final Logger logger = Logger.getLogger(ShardedArchiveReader.class);
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private final Map<String, ArchiveEntry> documentIdToEntryMap = new LinkedHashMap<String, ArchiveEntry>();
+
+	/**
+	 * @param directory
+	 *            the directory containing the archive
+	 * @param name
+	 *            the base name of the archive shard files
+	 * @throws IOException
+	 *             if an index file cannot be read
+	 */
+	public ShardedArchiveReader(File directory, String name) throws IOException {
+		Pattern indexFilePattern = ShardedArchiveWriter.getIndexFilePattern(name);
+		String[] fileNames = directory.list();
+		if (fileNames == null) {
+			throw new IOException("Archive directory does not exist: " + directory.getAbsolutePath());
+		}
+		/* shard numbers are zero-padded, so lexical order is shard order */
+		Arrays.sort(fileNames);
+		for (String fileName : fileNames) {
+			if (indexFilePattern.matcher(fileName).matches()) {
+				File shardFile = new File(directory, fileName.substring(0,
+						fileName.length() - ShardedArchiveWriter.INDEX_FILE_SUFFIX.length()));
+				loadIndex(new File(directory, fileName), shardFile);
+			}
+		}
+	}
+
+	private void loadIndex(File indexFile, File shardFile) throws IOException {
+		long shardLength = shardFile.length();
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(indexFile), UTF_8))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				String[] toks = line.split("\\t");
+				if (toks.length != 3) {
+					logger.warn("Ignoring malformed line in archive index " + indexFile.getAbsolutePath() + ": " + line);
+					continue;
+				}
+				long offset = Long.parseLong(toks[1]);
+				int length = Integer.parseInt(toks[2]);
+				if (offset + length > shardLength) {
+					logger.warn("Ignoring truncated archive entry for document " + toks[0] + " in "
+							+ shardFile.getAbsolutePath());
+					continue;
+				}
+				documentIdToEntryMap.put(toks[0], new ArchiveEntry(toks[0], shardFile, offset, length));
+			}
+		}
+	}
+
+	/**
+	 * @return the identifiers of the documents in the archive, in the order in which they were
+	 *         first written
+	 */
+	public Set<String> getDocumentIds() {
+		return Collections.unmodifiableSet(documentIdToEntryMap.keySet());
+	}
+
+	/**
+	 * @param documentId
+	 * @return the location of the specified document in the archive, or null if the archive does
+	 *         not contain the document
+	 */
+	public ArchiveEntry getEntry(String documentId) {
+		return documentIdToEntryMap.get(documentId);
+	}
+
+	/**
+	 * @param documentId
+	 * @return the (decompressed) content of the specified document, or null if the archive does
+	 *         not contain the document
+	 * @throws IOException
+	 */
+	public byte[] read(String documentId) throws IOException {
+		ArchiveEntry entry = documentIdToEntryMap.get(documentId);
+		if (entry == null) {
+			return null;
+		}
+		byte[] bytes = new byte[entry.getLength()];
+		try (RandomAccessFile shard = new RandomAccessFile(entry.getShardFile(), "r")) {
+			shard.seek(entry.getOffset());
+			shard.readFully(bytes);
+		}
+		if (entry.getShardFile().getName().endsWith(".gz")) {
+			return gunzip(bytes);
+		}
+		return bytes;
+	}
+
+	/**
+	 * @param documentId
+	 * @return the content of the specified document decoded as UTF-8, or null if the archive does
+	 *         not contain the document
+	 * @throws IOException
+	 */
+	public String readString(String documentId) throws IOException {
+		byte[] bytes = read(documentId);
+		return (bytes == null) ? null : new String(bytes, UTF_8);
+	}
+
+	private static byte[] gunzip(byte[] bytes) throws IOException {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream(bytes.length * 4);
+		try (GZIPInputStream gzipStream = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+			byte[] buffer = new byte[8192];
+			int read;
+			while ((read = gzipStream.read(buffer)) != -1) {
+				baos.write(buffer, 0, read);
+			}
+		}
+		return baos.toByteArray();
+	}
+
+}
@@ -0,0 +1,533 @@
+package edu.ucdenver.ccp.nlp.uima.serialization.archive;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's nlp module
+ * %%
+ * Copyright (C) 2012 - 2017 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.log4j.Logger;
+
+import edu.ucdenver.ccp.common.file.FileUtil;
+
+/**
+ * Output sink that appends serialized documents to a rolling series of shard files instead of
+ * writing one file per document. Each shard is accompanied by an index file that maps document
+ * identifiers to the byte range occupied by the document in the shard, allowing a
+ * {@link ShardedArchiveReader} to retrieve a single document without scanning the shard.
+ * <p>
+ * Shards are named [name]-[5-digit shard number][suffix], e.g. <code>text-00003.txt.gz</code>, and
+ * the corresponding index file carries an additional <code>.index</code> suffix. Each index line
+ * consists of the tab-separated document identifier, byte offset and byte length. A new shard is
+ * started once the current shard reaches the configured maximum size or document count. If
+ * compression is enabled, each document is written as a separate gzip member, so that a shard is
+ * itself a valid gzip file whose decompressed content is the concatenation of its documents, and
+ * so that each document can be decompressed on its own.
+ * <p>
+ * Documents can be written in one call, or streamed using {@link #openDocument(String)}. The index
+ * entry for a document is flushed, along with the shard, as soon as the document is complete.
+ * <p>
+ * Writes are synchronized, so a single instance may be shared by multiple processing threads. A
+ * streamed document holds the archive exclusively until it is closed or aborted, so streaming is
+ * intended for a single writer; concurrent writers should serialize each document into their own
+ * buffer and append it with {@link #write(String, byte[], int, int)}, which only holds the archive
+ * while the bytes are copied.
+ * {@link #getInstance(File, String, String, boolean, long, int)} returns such a shared instance for
+ * a given output location; each caller must {@link #release()} the instance when finished, and the
+ * shard and index files are closed once the last caller has released it. Shards that already exist
+ * in the output directory (e.g. from a previous run) are never modified; numbering continues after
+ * the highest existing shard.
+ * 
+ * @author Colorado Computational Pharmacology, UC Denver;
+ *         ccpsupport@ucdenver.edu
+ * 
+ */
+public class ShardedArchiveWriter implements Closeable {
+
+	private static final Logger logger = Logger.getLogger(ShardedArchiveWriter.class);
+
+	public static final String INDEX_FILE_SUFFIX = ".index";
+
+	/**
+	 * Default shard limits, as strings for use as configuration parameter defaults
+	 */
+	public static final String DEFAULT_MAX_DOCUMENTS_PER_SHARD = "10000";
+	public static final String DEFAULT_MAX_SHARD_SIZE_MB = "1024";
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private static final Map<String, ShardedArchiveWriter> sharedWriters = new HashMap<String, ShardedArchiveWriter>();
+
+	private final File directory;
+	private final String name;
+	private final String suffix;
+	private final boolean compress;
+	private final long maxShardBytes;
+	private final int maxDocumentsPerShard;
+
+	/**
+	 * the key under which this writer is registered as a shared instance, or null if it is not
+	 * shared
+	 */
+	private String sharedKey;
+	private int referenceCount;
+
+	private int shardNumber;
+	private File shardFile;
+	private OutputStream shardStream;
+
+	/**
+	 * the unbuffered stream underlying {@link #shardStream}, used to truncate aborted documents
+	 */
+	private FileOutputStream shardFileStream;
+	private Writer indexWriter;
+	private long shardOffset;
+	private int shardDocumentCount;
+	private volatile boolean closed;
+
+	/**
+	 * true while a document opened with {@link #openDocument(String)} has not been closed
+	 */
+	private boolean documentOpen;
+
+	/**
+	 * @param directory
+	 *            the directory where shard and index files are written
+	 * @param name
+	 *            the base name for shard files
+	 * @param suffix
+	 *            the suffix for shard files, e.g. ".txt.gz"
+	 * @param compress
+	 *            if true, each document is written as a separate gzip member and ".gz" is appended
+	 *            to the suffix if not already present
+	 * @param maxShardBytes
+	 *            a new shard is started before a document would cause the current shard to exceed
+	 *            this number of bytes (a shard always holds at least one document)
+	 * @param maxDocumentsPerShard
+	 *            a new shard is started once the current shard holds this number of documents
+	 */
+	public ShardedArchiveWriter(File directory, String name, String suffix, boolean compress, long maxShardBytes,
+			int maxDocumentsPerShard) {
+		if (maxShardBytes < 1 || maxDocumentsPerShard < 1) {
+			throw new IllegalArgumentException("Maximum shard size and document count must be positive. Observed: "
+					+ maxShardBytes + " bytes, " + maxDocumentsPerShard + " documents.");
+		}
+		this.directory = directory;
+		this.name = name;
+		this.suffix = (compress && !suffix.endsWith(".gz")) ? suffix + ".gz" : suffix;
+		this.compress = compress;
+		this.maxShardBytes = maxShardBytes;
+		this.maxDocumentsPerShard = maxDocumentsPerShard;
+		FileUtil.mkdir(directory);
+		this.shardNumber = getNextShardNumber(directory, name);
+	}
+
+	/**
+	 * Returns a writer for the specified location that is shared by all callers requesting the
+	 * same directory, name and suffix. Each call must be balanced by a call to {@link #release()}.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if a writer for the location is already in use with different compression or
+	 *             shard limits
+	 */
+	public static ShardedArchiveWriter getInstance(File directory, String name, String suffix, boolean compress,
+			long maxShardBytes, int maxDocumentsPerShard) throws IOException {
+		String key = new File(directory.getCanonicalFile(), name + "-" + suffix).getPath();
+		synchronized (sharedWriters) {
+			ShardedArchiveWriter writer = sharedWriters.get(key);
+			if (writer == null) {
+				writer = new ShardedArchiveWriter(directory, name, suffix, compress, maxShardBytes,
+						maxDocumentsPerShard);
+				writer.sharedKey = key;
+				sharedWriters.put(key, writer);
+			} else if (writer.compress != compress || writer.maxShardBytes != maxShardBytes
+					|| writer.maxDocumentsPerShard != maxDocumentsPerShard) {
+				throw new IllegalArgumentException("Archive " + key + " is already in use with different settings. "
+						+ "In use: compress=" + writer.compress + ", " + writer.maxShardBytes + " bytes, "
+						+ writer.maxDocumentsPerShard + " documents per shard. Requested: compress=" + compress + ", "
+						+ maxShardBytes + " bytes, " + maxDocumentsPerShard + " documents per shard.");
+			}
+			writer.referenceCount++;
+			return writer;
+		}
+	}
+
+	/**
+	 * Releases a writer obtained from
+	 * {@link #getInstance(File, String, String, boolean, long, int)}. The writer is closed once it
+	 * has been released by all callers. For writers that are not shared, this is equivalent to
+	 * {@link #close()}.
+	 */
+	public void release() throws IOException {
+		if (sharedKey == null) {
+			close();
+			return;
+		}
+		synchronized (sharedWriters) {
+			if (--referenceCount > 0) {
+				return;
+			}
+			sharedWriters.remove(sharedKey);
+		}
+		close();
+	}
+
+	/**
+	 * Appends the input text, encoded as UTF-8, to the archive
+	 * 
+	 * @return the location of the document in the archive
+	 */
+	public ArchiveEntry write(String documentId, String content) throws IOException {
+		return write(documentId, content.getBytes(UTF_8));
+	}
+
+	/**
+	 * Appends the input content to the archive
+	 * 
+	 * @return the location of the document in the archive
+	 */
+	public ArchiveEntry write(String documentId, byte[] content) throws IOException {
+		return write(documentId, content, 0, content.length);
+	}
+
+	/**
+	 * Appends len bytes of the input content, starting at off, to the archive
+	 * 
+	 * @return the location of the document in the archive
+	 */
+	public ArchiveEntry write(String documentId, byte[] content, int off, int len) throws IOException {
+		checkDocumentId(documentId);
+		/* compression is done outside of the lock so that threads can compress concurrently */
+		byte[] bytes = (compress) ? gzip(content, off, len) : content;
+		int bytesOffset = (compress) ? 0 : off;
+		int length = (compress) ? bytes.length : len;
+		synchronized (this) {
+			awaitDocumentClosed(documentId);
+			if (shardStream == null || (shardDocumentCount > 0
+					&& (shardDocumentCount >= maxDocumentsPerShard || shardOffset + length > maxShardBytes))) {
+				openNextShard();
+			}
+			long offset = shardOffset;
+			shardStream.write(bytes, bytesOffset, length);
+			shardOffset += length;
+			return addIndexEntry(documentId, offset, length);
+		}
+	}
+
+	/**
+	 * Opens a stream that appends a document to the archive without buffering it in memory. The
+	 * document is complete, and its index entry written, once the stream is closed; until then,
+	 * other writes to this archive wait, so this should only be used by a single writer. If the
+	 * document cannot be completed, {@link DocumentOutputStream#abort()} must be called before the
+	 * stream is closed so that the partial content is discarded. As the size of the document is not known in advance, a new
+	 * shard is started if the current shard has already reached the maximum size, so a shard may
+	 * exceed the maximum size by up to one document.
+	 * 
+	 * @return a stream for the content of the document, which is compressed if the archive is
+	 *         compressed
+	 */
+	public DocumentOutputStream openDocument(String documentId) throws IOException {
+		checkDocumentId(documentId);
+		synchronized (this) {
+			awaitDocumentClosed(documentId);
+			if (shardStream == null || (shardDocumentCount > 0
+					&& (shardDocumentCount >= maxDocumentsPerShard || shardOffset >= maxShardBytes))) {
+				openNextShard();
+			}
+			documentOpen = true;
+			try {
+				return new DocumentOutputStream(documentId);
+			} catch (IOException e) {
+				documentOpen = false;
+				notifyAll();
+				throw e;
+			}
+		}
+	}
+
+	private static void checkDocumentId(String documentId) {
+		if (documentId.indexOf('\t') != -1 || documentId.indexOf('\n') != -1 || documentId.indexOf('\r') != -1) {
+			throw new IllegalArgumentException("Document identifiers cannot contain tabs or line breaks: "
+					+ documentId);
+		}
+	}
+
+	/**
+	 * Waits until no document is open for streaming; must be called while holding the lock
+	 */
+	private void awaitDocumentClosed(String documentId) throws IOException {
+		while (documentOpen && !closed) {
+			try {
+				wait();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while waiting to write document " + documentId);
+			}
+		}
+		if (closed) {
+			throw new IOException("Cannot write document " + documentId + ". Archive " + name + " in "
+					+ directory.getAbsolutePath() + " has been closed.");
+		}
+	}
+
+	/**
+	 * Records a document that has been written to the current shard. The shard and index are
+	 * flushed so that the index never refers to content that has not been written.
+	 */
+	private ArchiveEntry addIndexEntry(String documentId, long offset, int length) throws IOException {
+		shardDocumentCount++;
+		shardStream.flush();
+		indexWriter.write(documentId + "\t" + offset + "\t" + length + "\n");
+		indexWriter.flush();
+		return new ArchiveEntry(documentId, shardFile, offset, length);
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		if (!closed) {
+			closed = true;
+			/* wake threads waiting for a streamed document so that they fail */
+			notifyAll();
+			closeShard();
+		}
+	}
+
+	private void openNextShard() throws IOException {
+		closeShard();
+		shardFile = new File(directory, String.format("%s-%05d%s", name, shardNumber++, suffix));
+		shardFileStream = new FileOutputStream(shardFile);
+		shardStream = new BufferedOutputStream(shardFileStream);
+		indexWriter = new BufferedWriter(new OutputStreamWriter(
+				new FileOutputStream(new File(shardFile.getPath() + INDEX_FILE_SUFFIX)), UTF_8));
+		shardOffset = 0;
+		shardDocumentCount = 0;
+		logger.info("Opened archive shard: " + shardFile.getAbsolutePath());
+	}
+
+	private void closeShard() throws IOException {
+		if (shardStream != null) {
+			try {
+				shardStream.close();
+			} finally {
+				indexWriter.close();
+			}
+			shardStream = null;
+			shardFileStream = null;
+			indexWriter = null;
+		}
+	}
+
+	/**
+	 * Stream for a single document, obtained from {@link #openDocument(String)}. The content is
+	 * written directly to the current shard. Callers should use the following pattern so that a
+	 * failed document is never indexed:
+	 * 
+	 * <pre>
+	 * DocumentOutputStream documentStream = archiveWriter.openDocument(documentId);
+	 * try {
+	 * 	// write the document
+	 * } catch (IOException e) {
+	 * 	documentStream.abort();
+	 * 	throw e;
+	 * } finally {
+	 * 	documentStream.close();
+	 * }
+	 * </pre>
+	 */
+	public class DocumentOutputStream extends OutputStream {
+
+		private final String documentId;
+		private final long offset;
+		private final OutputStream out;
+		private long length;
+		private boolean finished;
+		private ArchiveEntry entry;
+
+		private DocumentOutputStream(String documentId) throws IOException {
+			this.documentId = documentId;
+			this.offset = shardOffset;
+			final OutputStream shard = shardStream;
+			OutputStream shardOut = new OutputStream() {
+				@Override
+				public void write(int b) throws IOException {
+					shard.write(b);
+					length++;
+				}
+
+				@Override
+				public void write(byte[] b, int off, int len) throws IOException {
+					shard.write(b, off, len);
+					length += len;
+				}
+
+				@Override
+				public void close() {
+					/* the shard remains open for subsequent documents */
+				}
+			};
+			this.out = (compress) ? new GZIPOutputStream(shardOut) : shardOut;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			checkOpen();
+			out.write(b);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			checkOpen();
+			out.write(b, off, len);
+		}
+
+		/**
+		 * Completes the document and adds it to the shard index. Has no effect if the document has
+		 * been aborted.
+		 */
+		@Override
+		public void close() throws IOException {
+			if (finished) {
+				return;
+			}
+			finished = true;
+			synchronized (ShardedArchiveWriter.this) {
+				try {
+					checkArchiveOpen();
+					out.close();
+					shardOffset += length;
+					if (length > Integer.MAX_VALUE) {
+						throw new IOException("Document " + documentId + " exceeds the maximum archive entry size.");
+					}
+					entry = addIndexEntry(documentId, offset, (int) length);
+				} finally {
+					documentOpen = false;
+					ShardedArchiveWriter.this.notifyAll();
+				}
+			}
+		}
+
+		/**
+		 * Discards the document: the shard is truncated to the length it had before the document
+		 * was opened and no index entry is written. Has no effect if the document has already been
+		 * closed.
+		 */
+		public void abort() throws IOException {
+			if (finished) {
+				return;
+			}
+			finished = true;
+			synchronized (ShardedArchiveWriter.this) {
+				try {
+					if (!closed) {
+						/* releases the compressor; the trailer it writes is truncated below */
+						out.close();
+						shardStream.flush();
+						shardFileStream.getChannel().truncate(offset);
+					}
+				} finally {
+					documentOpen = false;
+					ShardedArchiveWriter.this.notifyAll();
+				}
+			}
+		}
+
+		/**
+		 * @return the location of the document in the archive, or null if the stream has not been
+		 *         closed or the document was aborted
+		 */
+		public ArchiveEntry getEntry() {
+			return entry;
+		}
+
+		private void checkOpen() throws IOException {
+			if (finished) {
+				throw new IOException("Document " + documentId + " has already been closed.");
+			}
+			checkArchiveOpen();
+		}
+
+		private void checkArchiveOpen() throws IOException {
+			if (closed) {
+				throw new IOException("Cannot write document " + documentId + ". Archive " + name + " in "
+						+ directory.getAbsolutePath() + " has been closed.");
+			}
+		}
+	}
+
+	private static byte[] gzip(byte[] content, int off, int len) throws IOException {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream(len / 3 + 64);
+		try (GZIPOutputStream gzipStream = new GZIPOutputStream(baos)) {
+			gzipStream.write(content, off, len);
+		}
+		return baos.toByteArray();
+	}
+
+	/**
+	 * @return a pattern matching the index files of the archive with the specified name; group 1
+	 *         captures the shard number
+	 */
+	static Pattern getIndexFilePattern(String name) {
+		return Pattern.compile(Pattern.quote(name) + "-(\\d{5}).*" + Pattern.quote(INDEX_FILE_SUFFIX));
+	}
+
+	private static int getNextShardNumber(File directory, String name) {
+		Pattern indexFilePattern = getIndexFilePattern(name);
+		int nextShardNumber = 0;
+		String[] fileNames = directory.list();
+		if (fileNames != null) {
+			for (String fileName : fileNames) {
+				Matcher m = indexFilePattern.matcher(fileName);
+				if (m.matches()) {
+					nextShardNumber = Math.max(nextShardNumber, Integer.parseInt(m.group(1)) + 1);
+				}
+			}
+		}
+		return nextShardNumber;
+	}
+
+}
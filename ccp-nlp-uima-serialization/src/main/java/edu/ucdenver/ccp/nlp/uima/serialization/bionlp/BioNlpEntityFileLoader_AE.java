@@ -37,26 +37,31 @@ package edu.ucdenver.ccp.nlp.uima.serialization.bionlp;
  */
 
 import java.io.File;
-import java.util.List;
+import java.io.IOException;
 
+import org.apache.log4j.Logger;
+import org.apache.uima.UimaContext;
 import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
 import org.apache.uima.fit.component.JCasAnnotator_ImplBase;
 import org.apache.uima.fit.descriptor.ConfigurationParameter;
 import org.apache.uima.jcas.JCas;
+import org.apache.uima.resource.ResourceInitializationException;
 
-import edu.ucdenver.ccp.common.collections.CollectionsUtil;
 import edu.ucdenver.ccp.common.file.CharacterEncoding;
-import edu.ucdenver.ccp.nlp.core.annotation.TextAnnotation;
-import edu.ucdenver.ccp.nlp.core.uima.annotation.CCPTextAnnotation;
-import edu.ucdenver.ccp.nlp.uima.serialization.bionlp.parser.BioNlpThemeIterator;
+import edu.ucdenver.ccp.nlp.uima.serialization.bionlp.parser.BioNlpAnnotationFile;
+import edu.ucdenver.ccp.nlp.uima.serialization.bionlp.parser.BioNlpCasLoader;
 import edu.ucdenver.ccp.nlp.uima.util.UIMA_Util;
 
 /**
+ * Loads the entities in a document's BioNLP .a1 file into the CAS as CCPTextAnnotations
+ * 
  * @author Center for Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
  * 
  */
 public class BioNlpEntityFileLoader_AE extends JCasAnnotator_ImplBase {
 
+	private static final Logger logger = Logger.getLogger(BioNlpEntityFileLoader_AE.class);
+
 	public static final String PARAM_ENTITY_FILES_DIRECTORY = "entityFilesDirectory";
 
 	@ConfigurationParameter(mandatory = true, description = "The directory where the entity files are to be found")
@@ -67,6 +72,31 @@ public class BioNlpEntityFileLoader_AE extends JCasAnnotator_ImplBase {
 	@ConfigurationParameter(mandatory = true, defaultValue = "UTF_8", description = "The encoding to use when reading the entity files")
 	private CharacterEncoding entityFilesEncoding;
 
+	/**
+	 * If true, the entity file for the next document (in file name order) is read and parsed on a
+	 * background thread while the current document is processed
+	 */
+	public static final String PARAM_PREFETCH_NEXT_DOCUMENT = "prefetchNextDocument";
+
+	@ConfigurationParameter(mandatory = false, defaultValue = "false", description = "If true, the entity file for the next document (in file name order) is loaded on a background thread")
+	private boolean prefetchNextDocument;
+
+	private BioNlpFilePrefetcher<BioNlpAnnotationFile> prefetcher;
+
+	@Override
+	public void initialize(UimaContext context) throws ResourceInitializationException {
+		super.initialize(context);
+		if (prefetchNextDocument) {
+			prefetcher = new BioNlpFilePrefetcher<BioNlpAnnotationFile>(entityFilesDirectory, ".a1",
+					new BioNlpFilePrefetcher.Loader<BioNlpAnnotationFile>() {
+						@Override
+						public BioNlpAnnotationFile load(String documentIdPrefix) throws IOException {
+							return loadEntityFile(documentIdPrefix);
+						}
+					});
+		}
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -77,20 +107,27 @@ public class BioNlpEntityFileLoader_AE extends JCasAnnotator_ImplBase {
 	public void process(JCas jcas) throws AnalysisEngineProcessException {
 		String documentId = UIMA_Util.getDocumentID(jcas);
 		String documentIdPrefix = documentId.substring(0, documentId.lastIndexOf("."));
-		File entityFile = new File(entityFilesDirectory, documentIdPrefix + ".a1");
-		UIMA_Util uimaUtil = new UIMA_Util();
-
-		System.out.println("# annotations before: "
-				+ jcas.getJFSIndexRepository().getAnnotationIndex(CCPTextAnnotation.type).size());
+		try {
+			BioNlpAnnotationFile entityFile = (prefetcher == null) ? loadEntityFile(documentIdPrefix)
+					: prefetcher.get(documentIdPrefix);
+			int annotationCount = BioNlpCasLoader.load(jcas, entityFile, null);
+			logger.debug("Loaded " + annotationCount + " entity annotations for document " + documentId);
+		} catch (IOException e) {
+			throw new AnalysisEngineProcessException(e);
+		}
+	}
 
-		BioNlpThemeIterator entityIterator = new BioNlpThemeIterator(entityFile, entityFilesEncoding);
-		List<TextAnnotation> taList = CollectionsUtil.createList(entityIterator);
-		System.out.println("# entity annotations: " + taList.size());
-		// for (TextAnnotation ta : taList)
-		// System.out.println(ta.toString());
+	private BioNlpAnnotationFile loadEntityFile(String documentIdPrefix) throws IOException {
+		return BioNlpAnnotationFile.parse(new File(entityFilesDirectory, documentIdPrefix + ".a1"),
+				entityFilesEncoding);
+	}
 
-		uimaUtil.putTextAnnotationsIntoJCas(jcas, taList);
-		System.out.println("# annotations after: "
-				+ jcas.getJFSIndexRepository().getAnnotationIndex(CCPTextAnnotation.type).size());
+	@Override
+	public void destroy() {
+		if (prefetcher != null) {
+			prefetcher.close();
+			prefetcher = null;
+		}
+		super.destroy();
 	}
 }
@@ -37,27 +37,32 @@ package edu.ucdenver.ccp.nlp.uima.serialization.bionlp;
  */
 
 import java.io.File;
-import java.util.List;
+import java.io.IOException;
 
+import org.apache.log4j.Logger;
+import org.apache.uima.UimaContext;
 import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
 import org.apache.uima.fit.component.JCasAnnotator_ImplBase;
 import org.apache.uima.fit.descriptor.ConfigurationParameter;
 import org.apache.uima.jcas.JCas;
+import org.apache.uima.resource.ResourceInitializationException;
 
-import edu.ucdenver.ccp.common.collections.CollectionsUtil;
 import edu.ucdenver.ccp.common.file.CharacterEncoding;
-import edu.ucdenver.ccp.nlp.core.annotation.TextAnnotation;
-import edu.ucdenver.ccp.nlp.core.uima.annotation.CCPTextAnnotation;
-import edu.ucdenver.ccp.nlp.uima.serialization.bionlp.parser.BioNlpEventIterator;
-import edu.ucdenver.ccp.nlp.uima.serialization.bionlp.parser.BioNlpThemeIterator;
+import edu.ucdenver.ccp.nlp.uima.serialization.bionlp.parser.BioNlpAnnotationFile;
+import edu.ucdenver.ccp.nlp.uima.serialization.bionlp.parser.BioNlpCasLoader;
 import edu.ucdenver.ccp.nlp.uima.util.UIMA_Util;
 
 /**
+ * Loads the entities in a document's BioNLP .a1 file and the events in its .a2 file into the CAS
+ * as CCPTextAnnotations. Event themes and causes are stored as complex slots.
+ * 
  * @author Center for Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
  * 
  */
 public class BioNlpEventFileLoader_AE extends JCasAnnotator_ImplBase {
 
+	private static final Logger logger = Logger.getLogger(BioNlpEventFileLoader_AE.class);
+
 	public static final String PARAM_ENTITY_FILES_DIRECTORY = "entityFilesDirectory";
 
 	@ConfigurationParameter(mandatory = true, description = "The directory where the entity files are to be found")
@@ -73,6 +78,31 @@ public class BioNlpEventFileLoader_AE extends JCasAnnotator_ImplBase {
 	@ConfigurationParameter(mandatory = true, defaultValue = "UTF_8", description = "The encoding to use when reading the entity and event files")
 	private CharacterEncoding characterEncoding;
 
+	/**
+	 * If true, the entity and event files for the next document (in file name order) are read and
+	 * parsed on a background thread while the current document is processed
+	 */
+	public static final String PARAM_PREFETCH_NEXT_DOCUMENT = "prefetchNextDocument";
+
+	@ConfigurationParameter(mandatory = false, defaultValue = "false", description = "If true, the entity and event files for the next document (in file name order) are loaded on a background thread")
+	private boolean prefetchNextDocument;
+
+	private BioNlpFilePrefetcher<BioNlpAnnotationFile[]> prefetcher;
+
+	@Override
+	public void initialize(UimaContext context) throws ResourceInitializationException {
+		super.initialize(context);
+		if (prefetchNextDocument) {
+			prefetcher = new BioNlpFilePrefetcher<BioNlpAnnotationFile[]>(entityFilesDirectory, ".a1",
+					new BioNlpFilePrefetcher.Loader<BioNlpAnnotationFile[]>() {
+						@Override
+						public BioNlpAnnotationFile[] load(String documentIdPrefix) throws IOException {
+							return loadFiles(documentIdPrefix);
+						}
+					});
+		}
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -83,25 +113,32 @@ public class BioNlpEventFileLoader_AE extends JCasAnnotator_ImplBase {
 	public void process(JCas jcas) throws AnalysisEngineProcessException {
 		String documentId = UIMA_Util.getDocumentID(jcas);
 		String documentIdPrefix = documentId.substring(0, documentId.lastIndexOf("."));
+		try {
+			BioNlpAnnotationFile[] files = (prefetcher == null) ? loadFiles(documentIdPrefix)
+					: prefetcher.get(documentIdPrefix);
+			int annotationCount = BioNlpCasLoader.load(jcas, files[0], files[1]);
+			logger.debug("Loaded " + annotationCount + " entity + event annotations for document " + documentId);
+		} catch (IOException e) {
+			throw new AnalysisEngineProcessException(e);
+		}
+	}
+
+	/**
+	 * @return the parsed entity (.a1) and event (.a2) files
+	 */
+	private BioNlpAnnotationFile[] loadFiles(String documentIdPrefix) throws IOException {
 		File entityFile = new File(entityFilesDirectory, documentIdPrefix + ".a1");
 		File eventFile = new File(eventFilesDirectory, documentIdPrefix + ".a2");
+		return new BioNlpAnnotationFile[] { BioNlpAnnotationFile.parse(entityFile, characterEncoding),
+				BioNlpAnnotationFile.parse(eventFile, characterEncoding) };
+	}
 
-		UIMA_Util uimaUtil = new UIMA_Util();
-
-		System.out.println("# annotations before: "
-				+ jcas.getJFSIndexRepository().getAnnotationIndex(CCPTextAnnotation.type).size());
-
-		BioNlpThemeIterator entityIterator = new BioNlpThemeIterator(entityFile, characterEncoding);
-		List<TextAnnotation> taList = CollectionsUtil.createList(entityIterator);
-		BioNlpEventIterator eventIterator = new BioNlpEventIterator(eventFile, entityFile, characterEncoding);
-		taList.addAll(CollectionsUtil.createList(eventIterator));
-
-		System.out.println("# entity + event annotations: " + taList.size());
-		// for (TextAnnotation ta : taList)
-		// System.out.println(ta.toString());
-
-		uimaUtil.putTextAnnotationsIntoJCas(jcas, taList);
-		System.out.println("# entity + event annotations after: "
-				+ jcas.getJFSIndexRepository().getAnnotationIndex(CCPTextAnnotation.type).size());
+	@Override
+	public void destroy() {
+		if (prefetcher != null) {
+			prefetcher.close();
+			prefetcher = null;
+		}
+		super.destroy();
 	}
 }
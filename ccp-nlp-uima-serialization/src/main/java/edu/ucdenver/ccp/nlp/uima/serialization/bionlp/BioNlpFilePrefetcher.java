@@ -0,0 +1,164 @@
+/**
+ * 
+ */
+package edu.ucdenver.ccp.nlp.uima.serialization.bionlp;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's nlp module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Loads the BioNLP files for the document that is expected to be processed next on a background
+ * thread. Documents are assumed to be processed in the (sorted) order of their file names in the
+ * entity file directory, which is the order in which directory-based collection readers typically
+ * return them. If a different document is requested, the prefetched files are discarded and the
+ * requested files are loaded on the calling thread.
+ * 
+ * @author Colorado Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ * @param <T>
+ *            the type of the loaded (parsed) files
+ */
+class BioNlpFilePrefetcher<T> {
+
+	/**
+	 * loads the files for the document with the given document ID prefix
+	 */
+	interface Loader<T> {
+		T load(String documentIdPrefix) throws IOException;
+	}
+
+	private final Loader<T> loader;
+	private final List<String> documentIdPrefixes;
+	private final ExecutorService executor;
+
+	private String prefetchedDocumentIdPrefix;
+	private Future<T> prefetchedFiles;
+
+	/**
+	 * @param directory
+	 *            the directory whose file names determine the order of the documents
+	 * @param fileSuffix
+	 *            the suffix of the files in the directory, e.g. ".a1"
+	 * @param loader
+	 */
+	BioNlpFilePrefetcher(File directory, final String fileSuffix, Loader<T> loader) {
+		this.loader = loader;
+		documentIdPrefixes = new ArrayList<String>();
+		String[] fileNames = directory.list(new FilenameFilter() {
+			@Override
+			public boolean accept(File dir, String name) {
+				return name.endsWith(fileSuffix);
+			}
+		});
+		if (fileNames != null) {
+			for (String fileName : fileNames) {
+				documentIdPrefixes.add(fileName.substring(0, fileName.length() - fileSuffix.length()));
+			}
+		}
+		Collections.sort(documentIdPrefixes);
+		executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "bionlp-prefetch");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * @param documentIdPrefix
+	 * @return the loaded files for the requested document. Loading of the files for the following
+	 *         document is started before returning.
+	 * @throws IOException
+	 */
+	T get(String documentIdPrefix) throws IOException {
+		T files = null;
+		if (documentIdPrefix.equals(prefetchedDocumentIdPrefix)) {
+			files = getPrefetchedFiles();
+		} else if (prefetchedFiles != null) {
+			prefetchedFiles.cancel(true);
+		}
+		prefetchedFiles = null;
+		prefetchedDocumentIdPrefix = null;
+		prefetchNext(documentIdPrefix);
+		return (files == null) ? loader.load(documentIdPrefix) : files;
+	}
+
+	/**
+	 * @return the prefetched files, or null if they could not be loaded in the background, in
+	 *         which case they are loaded again on the calling thread so that any error is reported
+	 *         for the current document
+	 */
+	private T getPrefetchedFiles() throws IOException {
+		try {
+			return prefetchedFiles.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException(e);
+		} catch (ExecutionException e) {
+			return null;
+		}
+	}
+
+	private void prefetchNext(String documentIdPrefix) {
+		int index = Collections.binarySearch(documentIdPrefixes, documentIdPrefix);
+		if (index >= 0 && index + 1 < documentIdPrefixes.size()) {
+			final String nextDocumentIdPrefix = documentIdPrefixes.get(index + 1);
+			prefetchedDocumentIdPrefix = nextDocumentIdPrefix;
+			prefetchedFiles = executor.submit(new Callable<T>() {
+				@Override
+				public T call() throws Exception {
+					return loader.load(nextDocumentIdPrefix);
+				}
+			});
+		}
+	}
+
+	void close() {
+		executor.shutdownNow();
+	}
+
+}
@@ -34,10 +34,17 @@ package edu.ucdenver.ccp.nlp.uima.serialization.bionlp;
  */
 
 import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.Charset;
 import java.util.HashMap;
-import java.util.regex.Matcher;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.regex.Pattern;
 
 import org.apache.log4j.Logger;
@@ -45,22 +52,20 @@ import org.apache.uima.UimaContext;
 import org.apache.uima.analysis_engine.AnalysisEngineDescription;
 import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
 import org.apache.uima.cas.FSIterator;
-import org.apache.uima.fit.component.JCasAnnotator_ImplBase;
 import org.apache.uima.fit.descriptor.ConfigurationParameter;
 import org.apache.uima.fit.factory.AnalysisEngineFactory;
 import org.apache.uima.jcas.JCas;
 import org.apache.uima.resource.ResourceInitializationException;
 import org.apache.uima.resource.metadata.TypeSystemDescription;
 
-import edu.ucdenver.ccp.common.collections.CollectionsUtil;
 import edu.ucdenver.ccp.common.file.CharacterEncoding;
-import edu.ucdenver.ccp.common.file.FileWriterUtil;
-import edu.ucdenver.ccp.common.file.FileWriterUtil.FileSuffixEnforcement;
-import edu.ucdenver.ccp.common.file.FileWriterUtil.WriteMode;
 import edu.ucdenver.ccp.nlp.core.mention.SlotMentionType;
 import edu.ucdenver.ccp.nlp.core.uima.annotation.CCPTextAnnotation;
 import edu.ucdenver.ccp.nlp.core.uima.mention.CCPSlotMention;
 import edu.ucdenver.ccp.nlp.core.uima.mention.CCPStringSlotMention;
+import edu.ucdenver.ccp.nlp.uima.serialization.OutputDirectoryUtil;
+import edu.ucdenver.ccp.nlp.uima.serialization.archive.ShardableSerializer_AE;
+import edu.ucdenver.ccp.nlp.uima.serialization.archive.ShardedArchiveWriter;
 import edu.ucdenver.ccp.nlp.uima.util.UIMA_Util;
 
 /**
@@ -74,8 +79,12 @@ import edu.ucdenver.ccp.nlp.uima.util.UIMA_Util;
  * subOntology coded into the id, that gets used. If not, it's benign. If the GO
  * ids are like GO:CC_0001234 instead of GO:0001234, the CC, the sub-ontology
  * abbreviation is used in the mapping.
+ * 
+ * If sharded output is enabled, the a1 entries for many documents are appended
+ * to rolling shard files in the output path (see {@link ShardedArchiveWriter})
+ * instead of being written to a file per document.
  **/
-public class BionlpFormatPrinter_AE extends JCasAnnotator_ImplBase {
+public class BionlpFormatPrinter_AE extends ShardableSerializer_AE {
 
 	public final static String PARAM_OUTPUT_PATH = "outputPath";
 	@ConfigurationParameter(mandatory = false, defaultValue = "output/entity", description = "The path (relatvie or absolute) to where the output files should be created.")
@@ -85,10 +94,53 @@ public class BionlpFormatPrinter_AE extends JCasAnnotator_ImplBase {
 	@ConfigurationParameter(mandatory = false, defaultValue = "false", description = "True if you want the Nx rows that show the normalization ouput.")
 	boolean addNormalization;
 
+	/**
+	 * The base name of the shard files written when sharded output is enabled
+	 */
+	public static final String SHARD_NAME = "entities";
+
+	private static final String ENTITY_FILE_SUFFIX = ".a1";
+
+	/**
+	 * the maximum number of mention names whose BioNLP class is remembered
+	 */
+	private static final int MAX_CACHED_MENTION_NAMES = 10000;
+
+	/**
+	 * matches the line separator used by {@link BufferedWriter#newLine()}
+	 */
+	private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+
+	// Patterns to match UniProt identifiers
+	private static final Pattern UNIPROT_ACCESSION_PATTERN = Pattern.compile("[A-Z][0-9][0-9A-Z]{3}[0-9]");
+	private static final Pattern UNIPROT_LONG_NAME_PATTERN = Pattern.compile("[A-Z0-9]+_[A-Z]+");
+
 	private static Logger logger = Logger.getLogger(BionlpFormatPrinter_AE.class);
-	private BufferedWriter entityWriter;
 	int entityCount = 0;
 
+	/**
+	 * caches the BioNLP class for recently seen mention names
+	 */
+	private final Map<String, String> mentionNameToEntityClassMap = new LinkedHashMap<String, String>(16, 0.75f,
+			true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Entry<String, String> eldest) {
+			return size() > MAX_CACHED_MENTION_NAMES;
+		}
+	};
+
+	/**
+	 * the a1 content for the current document is assembled here and then
+	 * encoded using the documentWriter; both are reused across documents
+	 */
+	private final StringBuilder documentBuilder = new StringBuilder();
+	private char[] documentChars = new char[8192];
+	private final ByteArrayOutputStream documentBytes = new ByteArrayOutputStream(8192);
+	private final BufferedWriter documentWriter = new BufferedWriter(new OutputStreamWriter(documentBytes,
+			Charset.forName(CharacterEncoding.UTF_8.getCharacterSetName())));
+
 	public void initialize(UimaContext context) throws ResourceInitializationException {
 		super.initialize(context);
 		logger.info("Initializing BionlpFormatPrinter_AE ...");
@@ -100,22 +152,20 @@ public class BionlpFormatPrinter_AE extends JCasAnnotator_ImplBase {
 	@Override
 	public void process(JCas jcas) throws AnalysisEngineProcessException {
 		String filename = UIMA_Util.getDocumentID(jcas);
-		logger.info("Processing BionlpFormatPrinter_AE " + filename);
+		logger.debug("Processing BionlpFormatPrinter_AE " + filename);
 		try {
-			initializeOutputWriters(filename);
 			entityCount = 0;
+			documentBuilder.setLength(0);
 			if (addNormalization) {
 				printNormalizedEntityAnnotations(jcas);
-				System.out.println("DOING NORMALIZED");
 			} else {
-				System.out.println("--not-- DOING NORMALIZED" + addNormalization);
 				printEntityAnnotations(jcas);
 			}
-			entityWriter.close();
+			writeDocument(getFileId(filename));
 		} catch (IOException ioe) {
 			throw new AnalysisEngineProcessException(ioe);
 		}
-		logger.info("Processed BionlpFormatPrinter_AE " + entityCount + " entities for file " + filename);
+		logger.debug("Processed BionlpFormatPrinter_AE " + entityCount + " entities for file " + filename);
 	}
 
 	private final static HashMap<String, String> ontologyIdToClassNameMap = new HashMap<String, String>() {
@@ -146,7 +196,21 @@ public class BionlpFormatPrinter_AE extends JCasAnnotator_ImplBase {
 		}
 	};
 
+	/**
+	 * @param mentionName
+	 * @return the BioNLP class for the mention name, consulting the cache of
+	 *         recently seen mention names first
+	 */
 	private String mapUimaToBionlp(String mentionName) {
+		String entityClassName = mentionNameToEntityClassMap.get(mentionName);
+		if (entityClassName == null) {
+			entityClassName = getBionlpClassName(mentionName);
+			mentionNameToEntityClassMap.put(mentionName, entityClassName);
+		}
+		return entityClassName;
+	}
+
+	static String getBionlpClassName(String mentionName) {
 		// UIMA analaysis engines produce (at least) two kinds of annotations
 		// for entities:
 		// - class names like protein or gene
@@ -159,7 +223,7 @@ public class BionlpFormatPrinter_AE extends JCasAnnotator_ImplBase {
 		// with some additional code to deal with GO. (see below)
 
 		String prefix = mentionName;
-		int colonIndex = mentionName.indexOf(":");
+		int colonIndex = mentionName.indexOf(':');
 		if (colonIndex != -1) {
 			prefix = mentionName.substring(0, colonIndex);
 		}
@@ -167,24 +231,18 @@ public class BionlpFormatPrinter_AE extends JCasAnnotator_ImplBase {
 		// Check to see if the GO id's have the sub-onotology embedded in them.
 		// You might get GO:0001234 or GO:CC_0001234
 		// If the latter, use the sub-ontology instead.
-		if (prefix.equals("GO") && colonIndex != -1) {
-			String suffix = mentionName.substring(colonIndex + 1);
-			int underIndex = suffix.indexOf("_");
+		if (colonIndex != -1 && prefix.equals("GO")) {
+			int underIndex = mentionName.indexOf('_', colonIndex + 1);
 			if (underIndex != -1) {
-				prefix = suffix.substring(0, underIndex);
+				prefix = mentionName.substring(colonIndex + 1, underIndex);
 			}
-
 		}
 
-		// Patterns to match UniProt identifiers
-		Pattern accession = Pattern.compile("[A-Z][0-9][0-9A-Z]{3}[0-9]");
-		Pattern longName = Pattern.compile("[A-Z0-9]+_[A-Z]+");
-		Matcher m_accession = accession.matcher(mentionName);
-		Matcher m_longName = longName.matcher(mentionName);
-
-		if (ontologyIdToClassNameMap.containsKey(prefix)) {
-			return ontologyIdToClassNameMap.get(prefix);
-		} else if (m_accession.find() || m_longName.find()) {
+		String className = ontologyIdToClassNameMap.get(prefix);
+		if (className != null) {
+			return className;
+		} else if (UNIPROT_ACCESSION_PATTERN.matcher(mentionName).find()
+				|| UNIPROT_LONG_NAME_PATTERN.matcher(mentionName).find()) {
 			return "protein_UniProt";
 		} else {
 			return "ontology_term";
@@ -201,23 +259,16 @@ public class BionlpFormatPrinter_AE extends JCasAnnotator_ImplBase {
 	 *
 	 * Ex. T1 Protein 21 29 P41
 	 */
-	private void printEntityAnnotations(JCas jcas) throws IOException {
+	private void printEntityAnnotations(JCas jcas) {
 		FSIterator taIterator = jcas.getAnnotationIndex(CCPTextAnnotation.type).iterator();
 		while (taIterator.hasNext()) {
 			CCPTextAnnotation ta = (CCPTextAnnotation) taIterator.next();
 			entityCount++;
 			String mentionName = ta.getClassMention().getMentionName();
 			String entityClassName = mapUimaToBionlp(mentionName);
-			if (entityClassName != null) {
-				// T1<tab>class-name 21 29<tab>covered text
-				String entityStr = "T" + entityCount + "\t" + entityClassName + " " + ta.getBegin() + " " + ta.getEnd()
-						+ "\t" + ta.getCoveredText().replaceAll("\\n", " ").trim();
-				logger.debug("[" + ta.getBegin() + ".." + ta.getEnd() + "] " + entityClassName + " " + entityCount
-						+ " from mentioname: " + mentionName);
-				FileWriterUtil.printLines(CollectionsUtil.createList(entityStr), entityWriter);
-			} else {
-				logger.warn("No mapping for class mention name: " + mentionName);
-			}
+			// T1<tab>class-name 21 29<tab>covered text
+			appendEntityLine(ta, entityClassName, ta.getCoveredText().replace('\n', ' ').trim());
+			logEntity(ta, entityClassName, mentionName);
 		}
 
 	}
@@ -232,7 +283,7 @@ public class BionlpFormatPrinter_AE extends JCasAnnotator_ImplBase {
 	 * Ex. T1 cellular-component 21 29 ECM N1 Reference T1 GO:xxxxxx
 	 * extracellular matrix
 	 */
-	private void printNormalizedEntityAnnotations(JCas jcas) throws IOException {
+	private void printNormalizedEntityAnnotations(JCas jcas) {
 		FSIterator taIterator = jcas.getAnnotationIndex(CCPTextAnnotation.type).iterator();
 		while (taIterator.hasNext()) {
 			CCPTextAnnotation ta = (CCPTextAnnotation) taIterator.next();
@@ -246,36 +297,63 @@ public class BionlpFormatPrinter_AE extends JCasAnnotator_ImplBase {
 			if (canonicalNameSlot != null && canonicalNameSlot.getSlotValues() != null) {
 				canonicalName = canonicalNameSlot.getSlotValues().get(0);
 			}
-			if (entityClassName != null) {
-
-				// T1<tab>entity-class-name 21 29<tab>covered text
-				String entityStr = "T" + entityCount + "\t" + entityClassName + " " + ta.getBegin() + " " + ta.getEnd()
-						+ "\t" + ta.getCoveredText().trim();
-				logger.debug("[" + ta.getBegin() + ".." + ta.getEnd() + "] " + entityClassName + " " + entityCount
-						+ " from mentioname: " + mentionName);
-				FileWriterUtil.printLines(CollectionsUtil.createList(entityStr), entityWriter);
-
-				// N1<tab>Reference T1 GO:xxxxxx<tab>protein_name
-				String refStr = "N" + entityCount + "\tReference T" + entityCount + " " + mentionName + "\t"
-						+ canonicalName;
-				FileWriterUtil.printLines(CollectionsUtil.createList(refStr), entityWriter);
-			} else {
-				logger.warn("No mapping for class mention name: " + mentionName);
-			}
+			// T1<tab>entity-class-name 21 29<tab>covered text
+			appendEntityLine(ta, entityClassName, ta.getCoveredText().trim());
+			logEntity(ta, entityClassName, mentionName);
+
+			// N1<tab>Reference T1 GO:xxxxxx<tab>protein_name
+			documentBuilder.append('N').append(entityCount).append("\tReference T").append(entityCount).append(' ')
+					.append(mentionName).append('\t').append(canonicalName).append(LINE_SEPARATOR);
 		}
 
 	}
 
-	private void initializeOutputWriters(String filename) throws IOException {
-		String fileID = filename;
-		if (filename.lastIndexOf(".") != -1) {
-			fileID = filename.substring(0, filename.lastIndexOf("."));
+	private void appendEntityLine(CCPTextAnnotation ta, String entityClassName, String coveredText) {
+		documentBuilder.append('T').append(entityCount).append('\t').append(entityClassName).append(' ')
+				.append(ta.getBegin()).append(' ').append(ta.getEnd()).append('\t').append(coveredText)
+				.append(LINE_SEPARATOR);
+	}
+
+	private void logEntity(CCPTextAnnotation ta, String entityClassName, String mentionName) {
+		if (logger.isDebugEnabled()) {
+			logger.debug("[" + ta.getBegin() + ".." + ta.getEnd() + "] " + entityClassName + " " + entityCount
+					+ " from mentioname: " + mentionName);
 		}
-		String entityFileSuffix = ".a1";
+	}
 
-		File entityFile = new File(outputPath + "/" + fileID + entityFileSuffix);
-		entityWriter = FileWriterUtil.initBufferedWriter(entityFile, CharacterEncoding.UTF_8, WriteMode.OVERWRITE,
-				FileSuffixEnforcement.OFF);
+	/**
+	 * Encodes the a1 content assembled for the current document and writes it
+	 * either to its own file or to the current shard
+	 * 
+	 * @param fileID
+	 * @throws IOException
+	 */
+	private void writeDocument(String fileID) throws IOException {
+		int length = documentBuilder.length();
+		if (documentChars.length < length) {
+			documentChars = new char[Math.max(length, documentChars.length * 2)];
+		}
+		documentBuilder.getChars(0, length, documentChars, 0);
+		documentBytes.reset();
+		documentWriter.write(documentChars, 0, length);
+		documentWriter.flush();
+
+		if (isShardedOutput()) {
+			getArchiveWriter(new File(outputPath), SHARD_NAME, ENTITY_FILE_SUFFIX, false).write(fileID,
+					documentBytes.toByteArray());
+		} else {
+			File outputDirectory = new File(outputPath);
+			OutputDirectoryUtil.mkdir(outputDirectory);
+			try (OutputStream entityStream = new FileOutputStream(new File(outputDirectory, fileID
+					+ ENTITY_FILE_SUFFIX))) {
+				documentBytes.writeTo(entityStream);
+			}
+		}
+	}
+
+	private static String getFileId(String filename) {
+		int dotIndex = filename.lastIndexOf('.');
+		return (dotIndex != -1) ? filename.substring(0, dotIndex) : filename;
 	}
 
 	public static AnalysisEngineDescription createAnalysisEngineDescription(TypeSystemDescription tsd,
@@ -294,6 +372,19 @@ public class BionlpFormatPrinter_AE extends JCasAnnotator_ImplBase {
 		return desc;
 	}
 
+	/**
+	 * @return a description for an engine that appends the a1 entries for each
+	 *         document to rolling shard files in the output directory
+	 */
+	public static AnalysisEngineDescription createAnalysisEngineDescription_Sharded(TypeSystemDescription tsd,
+			File outputDirectory, boolean addNormalization, int maxDocumentsPerShard, int maxShardSizeMb)
+			throws ResourceInitializationException {
+		return AnalysisEngineFactory.createPrimitiveDescription(BionlpFormatPrinter_AE.class, tsd, PARAM_OUTPUT_PATH,
+				outputDirectory.getAbsolutePath(), PARAM_ADD_NORMALIZATION, addNormalization,
+				PARAM_SHARDED_OUTPUT_FLAG, true, PARAM_MAX_DOCUMENTS_PER_SHARD, maxDocumentsPerShard,
+				PARAM_MAX_SHARD_SIZE_MB, maxShardSizeMb);
+	}
+
 	public static AnalysisEngineDescription createAnalysisEngineDescription(TypeSystemDescription tsd)
 			throws ResourceInitializationException {
 		return AnalysisEngineFactory.createPrimitiveDescription(BionlpFormatPrinter_AE.class, tsd,
@@ -0,0 +1,226 @@
+/**
+ * 
+ */
+package edu.ucdenver.ccp.nlp.uima.serialization.bionlp.parser;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's nlp module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import edu.ucdenver.ccp.common.file.CharacterEncoding;
+import edu.ucdenver.ccp.common.file.FileReaderUtil;
+
+/**
+ * The entities (lines starting with "T") and events (lines starting with "E") of a BioNLP .a1 or
+ * .a2 file, parsed into compact records. Other lines are ignored. Type names are lowercased, as
+ * they are by {@link BioNlpThemeFactory} and {@link BioNlpEventFactory}.
+ * 
+ * @author Colorado Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class BioNlpAnnotationFile {
+
+	private static final Pattern WHITESPACE_PATTERN = Pattern.compile("\\p{Space}+");
+	private static final Pattern THEME_PATTERN = Pattern.compile("Theme:([ET]\\d+)");
+	private static final Pattern CAUSE_PATTERN = Pattern.compile("Cause:([ET]\\d+)");
+
+	private final List<Entity> entities;
+	private final List<Event> events;
+
+	private BioNlpAnnotationFile(List<Entity> entities, List<Event> events) {
+		this.entities = Collections.unmodifiableList(entities);
+		this.events = Collections.unmodifiableList(events);
+	}
+
+	/**
+	 * @return the entities in the order they appear in the file
+	 */
+	public List<Entity> getEntities() {
+		return entities;
+	}
+
+	/**
+	 * @return the events in the order they appear in the file
+	 */
+	public List<Event> getEvents() {
+		return events;
+	}
+
+	/**
+	 * Parses the entity and event lines of the input file
+	 * 
+	 * @param file
+	 * @param encoding
+	 * @return
+	 * @throws IOException
+	 */
+	public static BioNlpAnnotationFile parse(File file, CharacterEncoding encoding) throws IOException {
+		List<Entity> entities = new ArrayList<Entity>();
+		List<Event> events = new ArrayList<Event>();
+		try (BufferedReader reader = FileReaderUtil.initBufferedReader(file, encoding)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.startsWith("T")) {
+					entities.add(parseEntity(line));
+				} else if (line.startsWith("E")) {
+					events.add(parseEvent(line));
+				}
+			}
+		}
+		return new BioNlpAnnotationFile(entities, events);
+	}
+
+	/**
+	 * @param line
+	 *            e.g. T3 Protein 81 90 TGF-beta1
+	 * @return
+	 */
+	static Entity parseEntity(String line) {
+		String[] toks = WHITESPACE_PATTERN.split(line);
+		return new Entity(toks[0], toks[1].toLowerCase(), Integer.parseInt(toks[2]), Integer.parseInt(toks[3]));
+	}
+
+	/**
+	 * @param line
+	 *            e.g. E13 Positive_regulation:T36 Theme:E1 Cause:T5
+	 * @return
+	 */
+	static Event parseEvent(String line) {
+		String[] toks = WHITESPACE_PATTERN.split(line);
+		String eventTypePlusTrigger = toks[1];
+		int colonIndex = eventTypePlusTrigger.indexOf(':');
+		String eventType = eventTypePlusTrigger.substring(0, colonIndex).toLowerCase();
+		int triggerEnd = eventTypePlusTrigger.indexOf(':', colonIndex + 1);
+		String triggerId = eventTypePlusTrigger.substring(colonIndex + 1,
+				(triggerEnd < 0) ? eventTypePlusTrigger.length() : triggerEnd);
+
+		/* duplicate theme references are collapsed, as in BioNlpEventFactory */
+		Set<String> themeIds = new LinkedHashSet<String>();
+		Matcher themeMatcher = THEME_PATTERN.matcher(line);
+		while (themeMatcher.find()) {
+			themeIds.add(themeMatcher.group(1));
+		}
+		Matcher causeMatcher = CAUSE_PATTERN.matcher(line);
+		String causeId = (causeMatcher.find()) ? causeMatcher.group(1) : null;
+
+		return new Event(toks[0], eventType, triggerId, themeIds.toArray(new String[themeIds.size()]), causeId);
+	}
+
+	/**
+	 * A BioNLP entity, e.g. a protein or an event trigger
+	 */
+	public static final class Entity {
+		private final String id;
+		private final String type;
+		private final int spanStart;
+		private final int spanEnd;
+
+		Entity(String id, String type, int spanStart, int spanEnd) {
+			this.id = id;
+			this.type = type;
+			this.spanStart = spanStart;
+			this.spanEnd = spanEnd;
+		}
+
+		public String getId() {
+			return id;
+		}
+
+		public String getType() {
+			return type;
+		}
+
+		public int getSpanStart() {
+			return spanStart;
+		}
+
+		public int getSpanEnd() {
+			return spanEnd;
+		}
+	}
+
+	/**
+	 * A BioNLP event; the trigger, theme and cause are referenced by their BioNLP IDs
+	 */
+	public static final class Event {
+		private final String id;
+		private final String type;
+		private final String triggerId;
+		private final String[] themeIds;
+		private final String causeId;
+
+		Event(String id, String type, String triggerId, String[] themeIds, String causeId) {
+			this.id = id;
+			this.type = type;
+			this.triggerId = triggerId;
+			this.themeIds = themeIds;
+			this.causeId = causeId;
+		}
+
+		public String getId() {
+			return id;
+		}
+
+		public String getType() {
+			return type;
+		}
+
+		public String getTriggerId() {
+			return triggerId;
+		}
+
+		/**
+		 * @return the theme IDs in the order in which they first appear on the line
+		 */
+		public String[] getThemeIds() {
+			return themeIds;
+		}
+
+		/**
+		 * @return the cause ID, or null if the event has no cause
+		 */
+		public String getCauseId() {
+			return causeId;
+		}
+	}
+
+}
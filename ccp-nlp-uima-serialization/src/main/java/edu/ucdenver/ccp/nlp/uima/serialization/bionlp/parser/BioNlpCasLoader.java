@@ -0,0 +1,254 @@
+/**
+ * 
+ */
+package edu.ucdenver.ccp.nlp.uima.serialization.bionlp.parser;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's nlp module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.jcas.cas.FSArray;
+import org.apache.uima.jcas.cas.StringArray;
+
+import edu.ucdenver.ccp.nlp.core.annotation.AnnotationSet;
+import edu.ucdenver.ccp.nlp.core.uima.annotation.CCPAnnotationSet;
+import edu.ucdenver.ccp.nlp.core.uima.annotation.CCPAnnotator;
+import edu.ucdenver.ccp.nlp.core.uima.annotation.CCPSpan;
+import edu.ucdenver.ccp.nlp.core.uima.annotation.CCPTextAnnotation;
+import edu.ucdenver.ccp.nlp.core.uima.mention.CCPClassMention;
+import edu.ucdenver.ccp.nlp.core.uima.mention.CCPComplexSlotMention;
+import edu.ucdenver.ccp.nlp.core.uima.mention.CCPStringSlotMention;
+import edu.ucdenver.ccp.nlp.uima.serialization.bionlp.parser.BioNlpAnnotationFile.Entity;
+import edu.ucdenver.ccp.nlp.uima.serialization.bionlp.parser.BioNlpAnnotationFile.Event;
+import edu.ucdenver.ccp.nlp.uima.util.AnnotatorRegistry;
+
+/**
+ * Creates {@link CCPTextAnnotation}s for parsed BioNLP entity and event files directly in the CAS.
+ * The annotations (including the "entity ID", "event ID", "has theme" and "has cause" slots) are
+ * the same as those produced by loading the {@link BioNlpThemeIterator} and
+ * {@link BioNlpEventIterator} output with
+ * {@link edu.ucdenver.ccp.nlp.uima.util.UIMA_Util#putTextAnnotationsIntoJCas(JCas, java.util.Collection)}
+ * , however no intermediate annotation objects are created. Theme, cause and trigger references are
+ * resolved through a map keyed by BioNLP ID, so events may also reference events that appear later
+ * in the file.
+ * 
+ * @author Colorado Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class BioNlpCasLoader {
+
+	private final JCas jcas;
+	private final CCPAnnotator ccpAnnotator;
+	private final CCPAnnotationSet ccpAnnotationSet;
+
+	/* all entities, and the events, by BioNLP ID */
+	private final Map<String, Entity> idToEntityMap = new HashMap<String, Entity>();
+	private final Map<String, Event> idToEventMap = new HashMap<String, Event>();
+
+	/* the annotations created so far, by BioNLP ID */
+	private final Map<String, CCPTextAnnotation> idToAnnotationMap = new HashMap<String, CCPTextAnnotation>();
+	private final List<CCPTextAnnotation> annotations = new ArrayList<CCPTextAnnotation>();
+
+	private BioNlpCasLoader(JCas jcas) {
+		this.jcas = jcas;
+		AnnotatorRegistry registry = AnnotatorRegistry.getRegistry(jcas);
+		ccpAnnotator = registry.getCCPAnnotator(BioNlpThemeFactory.ANNOTATOR);
+		ccpAnnotationSet = registry.getCCPAnnotationSet(new AnnotationSet());
+	}
+
+	/**
+	 * Adds an annotation to the CAS for each entity in the input entity file, and for each event in
+	 * the input event file. Entities in the event file (i.e. event triggers) are added only if they
+	 * are referenced as the theme or cause of an event.
+	 * 
+	 * @param jcas
+	 * @param entityFile
+	 *            the parsed .a1 file
+	 * @param eventFile
+	 *            the parsed .a2 file, may be null if only entities are to be loaded
+	 * @return the number of annotations added to the CAS
+	 */
+	public static int load(JCas jcas, BioNlpAnnotationFile entityFile, BioNlpAnnotationFile eventFile) {
+		BioNlpCasLoader loader = new BioNlpCasLoader(jcas);
+		loader.index(entityFile);
+		if (eventFile != null) {
+			loader.index(eventFile);
+		}
+		for (Entity entity : entityFile.getEntities()) {
+			loader.getEntityAnnotation(entity);
+		}
+		if (eventFile != null) {
+			for (Event event : eventFile.getEvents()) {
+				loader.getEventAnnotation(event);
+			}
+		}
+		for (CCPTextAnnotation annotation : loader.annotations) {
+			annotation.addToIndexes();
+		}
+		return loader.annotations.size();
+	}
+
+	private void index(BioNlpAnnotationFile file) {
+		for (Entity entity : file.getEntities()) {
+			idToEntityMap.put(entity.getId(), entity);
+		}
+		for (Event event : file.getEvents()) {
+			idToEventMap.put(event.getId(), event);
+		}
+	}
+
+	/**
+	 * @return the annotation for the entity or event with the input BioNLP ID, creating it if
+	 *         necessary
+	 */
+	private CCPTextAnnotation getAnnotation(String id) {
+		CCPTextAnnotation annotation = idToAnnotationMap.get(id);
+		if (annotation != null) {
+			return annotation;
+		}
+		Entity entity = idToEntityMap.get(id);
+		if (entity != null) {
+			return getEntityAnnotation(entity);
+		}
+		Event event = idToEventMap.get(id);
+		if (event != null) {
+			return getEventAnnotation(event);
+		}
+		throw new IllegalArgumentException(String.format(
+				"Expected annotation ID (%s) missing from input IdToAnnotation map.", id));
+	}
+
+	private CCPTextAnnotation getEntityAnnotation(Entity entity) {
+		CCPTextAnnotation annotation = idToAnnotationMap.get(entity.getId());
+		if (annotation == null) {
+			annotation = createAnnotation(entity.getId(), entity.getType(), entity.getSpanStart(),
+					entity.getSpanEnd());
+			FSArray slotMentions = new FSArray(jcas, 1);
+			slotMentions.set(0, createStringSlotMention(BioNlpThemeFactory.THEME_ID_SLOT_NAME, entity.getId()));
+			annotation.getClassMention().setSlotMentions(slotMentions);
+		}
+		return annotation;
+	}
+
+	private CCPTextAnnotation getEventAnnotation(Event event) {
+		CCPTextAnnotation annotation = idToAnnotationMap.get(event.getId());
+		if (annotation == null) {
+			Entity trigger = idToEntityMap.get(event.getTriggerId());
+			if (trigger == null) {
+				throw new IllegalArgumentException(String.format(
+						"Expected trigger annotation (%s) missing from input IdToAnnotation map.",
+						event.getTriggerId()));
+			}
+			/*
+			 * the annotation is registered before its slots are filled so that circular event
+			 * references terminate
+			 */
+			annotation = createAnnotation(event.getId(), event.getType(), trigger.getSpanStart(),
+					trigger.getSpanEnd());
+
+			String[] themeIds = event.getThemeIds();
+			boolean hasThemes = themeIds.length > 0;
+			boolean hasCause = event.getCauseId() != null;
+			FSArray slotMentions = new FSArray(jcas, 1 + (hasThemes ? 1 : 0) + (hasCause ? 1 : 0));
+			int index = 0;
+			if (hasThemes) {
+				FSArray themeMentions = new FSArray(jcas, themeIds.length);
+				for (int i = 0; i < themeIds.length; i++) {
+					themeMentions.set(i, getAnnotation(themeIds[i]).getClassMention());
+				}
+				slotMentions.set(index++, createComplexSlotMention(BioNlpEventFactory.THEME_SLOT_NAME, themeMentions));
+			}
+			if (hasCause) {
+				FSArray causeMentions = new FSArray(jcas, 1);
+				causeMentions.set(0, getAnnotation(event.getCauseId()).getClassMention());
+				slotMentions.set(index++, createComplexSlotMention(BioNlpEventFactory.CAUSE_SLOT_NAME, causeMentions));
+			}
+			slotMentions.set(index, createStringSlotMention(BioNlpEventFactory.EVENT_ID_SLOT_NAME, event.getId()));
+			annotation.getClassMention().setSlotMentions(slotMentions);
+		}
+		return annotation;
+	}
+
+	/**
+	 * Creates a single-span annotation (not yet indexed) and its class mention, and registers it
+	 * under the input BioNLP ID
+	 */
+	private CCPTextAnnotation createAnnotation(String id, String type, int spanStart, int spanEnd) {
+		CCPTextAnnotation ccpTA = new CCPTextAnnotation(jcas);
+		ccpTA.setAnnotationID("-1");
+		ccpTA.setBegin(spanStart);
+		ccpTA.setEnd(spanEnd);
+		ccpTA.setNumberOfSpans(1);
+		FSArray spans = new FSArray(jcas, 1);
+		CCPSpan ccpSpan = new CCPSpan(jcas);
+		ccpSpan.setSpanStart(spanStart);
+		ccpSpan.setSpanEnd(spanEnd);
+		spans.set(0, ccpSpan);
+		ccpTA.setSpans(spans);
+		ccpTA.setAnnotator(ccpAnnotator);
+		FSArray annotationSets = new FSArray(jcas, 1);
+		annotationSets.set(0, ccpAnnotationSet);
+		ccpTA.setAnnotationSets(annotationSets);
+		ccpTA.setDocumentSectionID(-1);
+
+		CCPClassMention ccpCM = new CCPClassMention(jcas);
+		ccpCM.setMentionName(type);
+		ccpCM.setCcpTextAnnotation(ccpTA);
+		ccpTA.setClassMention(ccpCM);
+
+		idToAnnotationMap.put(id, ccpTA);
+		annotations.add(ccpTA);
+		return ccpTA;
+	}
+
+	private CCPStringSlotMention createStringSlotMention(String slotName, String slotValue) {
+		CCPStringSlotMention ccpSSM = new CCPStringSlotMention(jcas);
+		ccpSSM.setMentionName(slotName);
+		StringArray slotValues = new StringArray(jcas, 1);
+		slotValues.set(0, slotValue);
+		ccpSSM.setSlotValues(slotValues);
+		return ccpSSM;
+	}
+
+	private CCPComplexSlotMention createComplexSlotMention(String slotName, FSArray classMentions) {
+		CCPComplexSlotMention ccpCSM = new CCPComplexSlotMention(jcas);
+		ccpCSM.setMentionName(slotName);
+		ccpCSM.setClassMentions(classMentions);
+		return ccpCSM;
+	}
+
+}
@@ -52,7 +52,7 @@ public class BioNlpThemeFactory {
 
 	public static final String THEME_ID_SLOT_NAME = "entity ID";
 	
-	private static final Annotator ANNOTATOR = new Annotator("291514121", "BioNLP", "Unknown");
+	static final Annotator ANNOTATOR = new Annotator("291514121", "BioNLP", "Unknown");
 	
 	/**
 	 * Parses a BioNLP entity line and returns a {@link TextAnnotation} for the represented entity
@@ -39,10 +39,7 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.Iterator;
-import java.util.List;
-import java.util.Map;
 
 import org.apache.log4j.Logger;
 import org.apache.uima.UimaContext;
@@ -59,7 +56,6 @@ import org.apache.uima.jcas.JCas;
 import org.apache.uima.resource.ResourceInitializationException;
 import org.apache.uima.resource.metadata.TypeSystemDescription;
 
-import edu.ucdenver.ccp.common.collections.CollectionsUtil;
 import edu.ucdenver.ccp.common.file.CharacterEncoding;
 import edu.ucdenver.ccp.common.file.FileWriterUtil;
 import edu.ucdenver.ccp.common.file.FileWriterUtil.FileSuffixEnforcement;
@@ -146,6 +142,12 @@ public class InlinePrinter extends JCasAnnotator_ImplBase {
 	 */
 	private Collection<InlineTagExtractor> inlineTagExtractors;
 
+	/**
+	 * true if a subclass overrides {@link #processDocumentCharacter(char)}; if not, runs of
+	 * document text can be written without per-character processing
+	 */
+	private boolean processesDocumentCharacters;
+
 	/**
 	 * This initialize method extracts the configuration parameters then initializes a
 	 * {@link DocumentMetaDataExtractor} and one or more {@link InlineTagExtractor} implementations.
@@ -157,6 +159,7 @@ public class InlinePrinter extends JCasAnnotator_ImplBase {
 		super.initialize(context);
 		initializeMetaDataExtractor();
 		initializeInlineAnnotationExtractors();
+		processesDocumentCharacters = overridesProcessDocumentCharacter(getClass());
 	}
 
 	/**
@@ -191,8 +194,8 @@ public class InlinePrinter extends JCasAnnotator_ImplBase {
 		try {
 			JCas viewToProcess = jCas.getView(viewNameToProcess);
 			writer = initializeOutputFileWriter(viewToProcess);
-			Map<Integer, Collection<InlineTag>> characterOffsetToTagMap = computeCharacterOffsetToTagMap(viewToProcess);
-			outputAnnotationsInline(characterOffsetToTagMap, viewToProcess.getDocumentText(), writer, jCas);
+			InlineTagSequence tagSequence = computeInlineTagSequence(viewToProcess);
+			outputAnnotationsInline(tagSequence, viewToProcess.getDocumentText(), writer, jCas);
 		} catch (IOException ioe) {
 			throw new AnalysisEngineProcessException(ioe);
 		} catch (CASException e) {
@@ -209,38 +212,41 @@ public class InlinePrinter extends JCasAnnotator_ImplBase {
 
 	/**
 	 * Obtains {@link InlineTag} instances for each of the {@link InlineTagExtractor}
-	 * implementations being used. The tags are put into a map according the the character offset
-	 * where they should reside (when displayed inline with the text)
+	 * implementations being used. Each tag is recorded as an event at the character offset where
+	 * it should reside (when displayed inline with the text) and the events are sorted once so that
+	 * they can be written in a single pass over the document text.
 	 * 
 	 * @param viewToProcess
-	 * @return
+	 * @return the sorted {@link InlineTagSequence} for the view
 	 */
-	private Map<Integer, Collection<InlineTag>> computeCharacterOffsetToTagMap(JCas viewToProcess) {
-		Map<Integer, Collection<InlineTag>> offsetToTagMap = CollectionsUtil.initHashMap();
+	private InlineTagSequence computeInlineTagSequence(JCas viewToProcess) {
+		InlineTagSequence tagSequence = new InlineTagSequence();
 		for (InlineTagExtractor extractor : inlineTagExtractors) {
 			for (Iterator<InlineTag> tagIterator = extractor.getInlineTagIterator(viewToProcess); tagIterator.hasNext();) {
 				InlineTag tag = tagIterator.next();
 				if (tag instanceof InlinePrefixTag)
-					CollectionsUtil.addToOne2ManyMap(tag.getAnnotationSpan().getSpanStart(), tag, offsetToTagMap);
+					tagSequence.add(tag.getAnnotationSpan().getSpanStart(), InlineTagSequence.PREFIX, tag);
 				else if (tag instanceof InlinePostfixTag)
-					CollectionsUtil.addToOne2ManyMap(tag.getAnnotationSpan().getSpanEnd(), tag, offsetToTagMap);
+					tagSequence.add(tag.getAnnotationSpan().getSpanEnd(), InlineTagSequence.POSTFIX, tag);
 				else
 					throw new IllegalStateException("Unknown type of InlineTag: " + tag.getClass().getName());
 			}
 		}
-		logger.info("offsetToTagMap: " + offsetToTagMap.toString());
-		return offsetToTagMap;
+		tagSequence.sort();
+		if (logger.isDebugEnabled())
+			logger.debug("Inline tag count: " + tagSequence.size());
+		return tagSequence;
 	}
 
 	/**
-	 * Outputs the document text including the inline annotations to the output file
+	 * Outputs the document text including the inline annotations to the output file. Text between
+	 * consecutive tag offsets is written as a single run. Tags anchored at or beyond the end of the
+	 * document text are not printed, consistent with the original per-character implementation.
 	 * 
-	 * @param characterOffsetToTagMap
-	 *            a {@link Map<Integer, Collection<InlineTag>>} containing mappings from character
-	 *            offset position to tags that need to be printed at that particular offset
-	 *            position.
-	 * @param viewToProcess
-	 *            the JCas view to use when extracting annotations and the document text
+	 * @param tagSequence
+	 *            the sorted {@link InlineTagSequence} containing the tags to print
+	 * @param documentText
+	 *            the document text
 	 * @param writer
 	 *            the writer to use when printing to the output file
 	 * @param jCas
@@ -248,29 +254,80 @@ public class InlinePrinter extends JCasAnnotator_ImplBase {
 	 * @throws IOException
 	 *             if an error occurs while writing to the output file
 	 */
-	private void outputAnnotationsInline(Map<Integer, Collection<InlineTag>> characterOffsetToTagMap,
-			String documentText, BufferedWriter writer, JCas jCas) throws IOException {
+	private void outputAnnotationsInline(InlineTagSequence tagSequence, String documentText, BufferedWriter writer,
+			JCas jCas) throws IOException {
 		insertOutputFileHeader(writer, documentMetadataHandler.extractDocumentEncoding(jCas));
 		char[] charArray = documentText.toCharArray();
-		Character previousCharacter = null;
-		for (int i = 0; i < charArray.length; i++) {
-			printInlinePostfixTags(i, characterOffsetToTagMap, writer);
-			printInlinePrefixTags(i, characterOffsetToTagMap, writer);
+		int textOffset = 0;
+		for (int i = 0; i < tagSequence.size(); i++) {
+			int tagOffset = tagSequence.getOffset(i);
+			if (tagOffset < 0)
+				continue;
+			if (tagOffset >= charArray.length)
+				break;
+			if (tagOffset > textOffset) {
+				writeDocumentText(charArray, textOffset, tagOffset, writer);
+				textOffset = tagOffset;
+			}
+			writer.write(tagSequence.getTag(i).getTagContents());
+		}
+		writeDocumentText(charArray, textOffset, charArray.length, writer);
+	}
+
+	/**
+	 * Writes the document characters in the range [start, end). If {@link #processDocumentCharacter(char)}
+	 * has not been overridden the range is written directly, otherwise each character is passed
+	 * through the hook.
+	 * 
+	 * @param charArray
+	 *            the document text
+	 * @param start
+	 *            the offset of the first character to write
+	 * @param end
+	 *            the offset after the last character to write
+	 * @param writer
+	 *            the writer to use when printing to the output file
+	 * @throws IOException
+	 *             if an error occurs while writing to the output file
+	 */
+	private void writeDocumentText(char[] charArray, int start, int end, BufferedWriter writer) throws IOException {
+		if (!processesDocumentCharacters) {
+			writer.write(charArray, start, end - start);
+			return;
+		}
+		for (int i = start; i < end; i++) {
 			char c = charArray[i];
-			String cStr = Character.toString(c);
 			/*
 			 * If the previous character is a "high surrogate" then the current character is its
 			 * low-surrogate pair. This pair of characters is treated as a single unit and for
 			 * simplicity we will not process either character in the pair. I'm not sure if this is
 			 * necessary as the high-surrogate and low-surrogates each have distinct ranges, but
 			 * we'll leave it in just in case (high-surrogates range, (\uD800-\uDBFF), the second
-			 * from the low-surrogates range (\uDC00-\uDFFF)).
+			 * from the low-surrogates range (\uDC00-\uDFFF)). The first character of the document
+			 * has never been passed through processDocumentCharacter() and still is not.
 			 */
-			if (previousCharacter != null && !Character.isHighSurrogate(previousCharacter))
-				cStr = processDocumentCharacter(c);
-			writer.append(cStr);
-			previousCharacter = c;
+			if (i > 0 && !Character.isHighSurrogate(charArray[i - 1]))
+				writer.write(processDocumentCharacter(c));
+			else
+				writer.write(c);
+		}
+	}
+
+	/**
+	 * @param inlinePrinterClass
+	 * @return true if the specified class (or one of its ancestors below {@link InlinePrinter})
+	 *         overrides {@link #processDocumentCharacter(char)}
+	 */
+	private static boolean overridesProcessDocumentCharacter(Class<?> inlinePrinterClass) {
+		for (Class<?> cls = inlinePrinterClass; cls != null && cls != InlinePrinter.class; cls = cls.getSuperclass()) {
+			try {
+				cls.getDeclaredMethod("processDocumentCharacter", char.class);
+				return true;
+			} catch (NoSuchMethodException e) {
+				// keep looking in the superclass
+			}
 		}
+		return false;
 	}
 
 	/**
@@ -304,79 +361,6 @@ public class InlinePrinter extends JCasAnnotator_ImplBase {
 		// output file
 	}
 
-	/**
-	 * Prints the {@InlinePrefixTag} instances at the current character offset in
-	 * a reproducible order
-	 * 
-	 * @param offset
-	 *            the offset into the document text where the tags need to be printed
-	 * @param characterOffsetToTagMap
-	 *            a {@link Map<Integer, Collection<InlineTag>>} containing mappings from character
-	 *            offset position to tags that need to be printed at that particular offset
-	 *            position.
-	 * @param writer
-	 *            the writer to use when printing to output
-	 * @throws IOException
-	 *             if an error occurs while writing the tags to the output file
-	 */
-	private void printInlinePrefixTags(int offset, Map<Integer, Collection<InlineTag>> characterOffsetToTagMap,
-			BufferedWriter writer) throws IOException {
-		if (!characterOffsetToTagMap.containsKey(offset))
-			return;
-		List<InlinePrefixTag> prefixTags = isolateTagType(characterOffsetToTagMap.get(offset), InlinePrefixTag.class);
-		Collections.sort(prefixTags, InlineTag.getInlinePrefixTagComparator());
-		for (InlinePrefixTag prefixTag : prefixTags)
-			writer.append(prefixTag.getTagContents());
-	}
-
-	/**
-	 * Prints the {@InlinePostfixTag} instances at the current character offset
-	 * in a reproducible order
-	 * 
-	 * @param offset
-	 *            the offset into the document text where the tags need to be printed
-	 * @param characterOffsetToTagMap
-	 *            a {@link Map<Integer, Collection<InlineTag>>} containing mappings from character
-	 *            offset position to tags that need to be printed at that particular offset
-	 *            position.
-	 * @param writer
-	 *            the writer to use when printing to output
-	 * @throws IOException
-	 *             if an error occurs while writing the tags to the output file
-	 */
-	private void printInlinePostfixTags(int offset, Map<Integer, Collection<InlineTag>> characterOffsetToTagMap,
-			BufferedWriter writer) throws IOException {
-		if (!characterOffsetToTagMap.containsKey(offset))
-			return;
-		List<InlinePostfixTag> prefixTags = isolateTagType(characterOffsetToTagMap.get(offset), InlinePostfixTag.class);
-		Collections.sort(prefixTags, InlineTag.getInlinePostfixTagComparator());
-		for (InlinePostfixTag prefixTag : prefixTags)
-			writer.append(prefixTag.getTagContents());
-	}
-
-	/**
-	 * Given the input collection of {@link InlineTag} instances, this method returns only those
-	 * instances of the specified class.
-	 * 
-	 * @param <T>
-	 *            the class type of interest (either InlinePrefixTag.class or InlinePostfixTag.class
-	 *            in this case)
-	 * @param a
-	 *            collection containing both {@link InlinePrefixTag} and {@link InlinePostfixTag}
-	 *            instances
-	 * @param tagClassOfInterest
-	 *            the class type of interest (either InlinePrefixTag.class or InlinePostfixTag.class
-	 *            in this case)
-	 * @return a {@link List} containing only the class type of interest
-	 */
-	private <T extends InlineTag> List<T> isolateTagType(Collection<InlineTag> tags, Class<T> tagClassOfInterest) {
-		List<T> tagsOfInterest = new ArrayList<T>();
-		for (InlineTag tag : tags)
-			if (tagClassOfInterest.isInstance(tag))
-				tagsOfInterest.add(tagClassOfInterest.cast(tag));
-		return tagsOfInterest;
-	}
-
 	/**
 	 * Initializes a new {@link BufferedWriter} to write to an output file for a particular
 	 * {@link JCas}. The output file name is composed of the document identifier (extracted from the
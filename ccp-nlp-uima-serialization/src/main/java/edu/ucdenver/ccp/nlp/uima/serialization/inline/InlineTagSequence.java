@@ -0,0 +1,158 @@
+package edu.ucdenver.ccp.nlp.uima.serialization.inline;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's nlp module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+import edu.ucdenver.ccp.nlp.uima.serialization.inline.InlineTag.InlinePostfixTag;
+import edu.ucdenver.ccp.nlp.uima.serialization.inline.InlineTag.InlinePrefixTag;
+
+/**
+ * An array-backed sequence of {@link InlineTag} events used by the {@link InlinePrinter}. Each
+ * event is stored as a character offset, a kind ({@link #POSTFIX} or {@link #PREFIX}) and the tag
+ * itself. After a single call to {@link #sort()} the events are ordered by offset, with postfix
+ * tags preceding prefix tags at the same offset. Tags of the same kind at the same offset are
+ * ordered using {@link InlineTag#getInlinePostfixTagComparator()} and
+ * {@link InlineTag#getInlinePrefixTagComparator()} respectively, and otherwise retain the order in
+ * which they were added.
+ * 
+ * @author Colorado Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+class InlineTagSequence {
+
+	/**
+	 * event kind for {@link InlinePostfixTag} instances; these sort first at a given offset
+	 */
+	static final int POSTFIX = 0;
+
+	/**
+	 * event kind for {@link InlinePrefixTag} instances
+	 */
+	static final int PREFIX = 1;
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static final Comparator<InlineTag> POSTFIX_TAG_COMPARATOR = (Comparator) InlineTag
+			.getInlinePostfixTagComparator();
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static final Comparator<InlineTag> PREFIX_TAG_COMPARATOR = (Comparator) InlineTag
+			.getInlinePrefixTagComparator();
+
+	/**
+	 * sort keys; the upper 32 bits hold the offset, bit 31 holds the kind and the lower 31 bits
+	 * hold the insertion index
+	 */
+	private long[] keys = new long[256];
+
+	private InlineTag[] tags = new InlineTag[256];
+
+	private int[] offsets;
+
+	private int size = 0;
+
+	/**
+	 * @param offset
+	 *            the character offset where the tag should be printed
+	 * @param kind
+	 *            either {@link #POSTFIX} or {@link #PREFIX}
+	 * @param tag
+	 */
+	void add(int offset, int kind, InlineTag tag) {
+		if (size == keys.length) {
+			keys = Arrays.copyOf(keys, size * 2);
+			tags = Arrays.copyOf(tags, size * 2);
+		}
+		keys[size] = ((long) offset << 32) | ((long) kind << 31) | size;
+		tags[size] = tag;
+		size++;
+		offsets = null;
+	}
+
+	/**
+	 * Sorts the events. This must be called before {@link #getOffset(int)} or
+	 * {@link #getTag(int)}.
+	 */
+	void sort() {
+		Arrays.sort(keys, 0, size);
+		InlineTag[] sortedTags = new InlineTag[keys.length];
+		offsets = new int[size];
+		for (int i = 0; i < size; i++) {
+			sortedTags[i] = tags[(int) (keys[i] & Integer.MAX_VALUE)];
+			offsets[i] = (int) (keys[i] >> 32);
+		}
+		tags = sortedTags;
+		/* order runs of same-kind tags at the same offset using the nesting comparators */
+		int runStart = 0;
+		for (int i = 1; i <= size; i++) {
+			if (i == size || (keys[i] >> 31) != (keys[runStart] >> 31)) {
+				if (i - runStart > 1)
+					Arrays.sort(tags, runStart, i, (((keys[runStart] >> 31) & 1) == PREFIX) ? PREFIX_TAG_COMPARATOR
+							: POSTFIX_TAG_COMPARATOR);
+				runStart = i;
+			}
+		}
+		for (int i = 0; i < size; i++)
+			keys[i] = ((long) offsets[i] << 32) | (keys[i] & (1L << 31)) | i;
+	}
+
+	/**
+	 * @return the number of events in this sequence
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * @param index
+	 * @return the character offset of the event at the specified index of the sorted sequence
+	 */
+	int getOffset(int index) {
+		if (offsets == null)
+			throw new IllegalStateException("InlineTagSequence must be sorted prior to access.");
+		return offsets[index];
+	}
+
+	/**
+	 * @param index
+	 * @return the tag of the event at the specified index of the sorted sequence
+	 */
+	InlineTag getTag(int index) {
+		if (offsets == null)
+			throw new IllegalStateException("InlineTagSequence must be sorted prior to access.");
+		return tags[index];
+	}
+
+}
@@ -0,0 +1,102 @@
+package edu.ucdenver.ccp.nlp.uima.serialization.rdf;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's nlp module
+ * %%
+ * Copyright (C) 2012 - 2017 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import org.apache.uima.jcas.tcas.Annotation;
+import org.openrdf.model.URI;
+
+import edu.ucdenver.ccp.uima.shims.annotation.AnnotationDataExtractor;
+
+/**
+ * Decorates a {@link UriFactory} whose resource URI depends only on the
+ * annotation type (i.e. the concept identifier) returned by the
+ * {@link AnnotationDataExtractor}. The URI for each concept is obtained from
+ * the decorated factory once and then served from a bounded {@link UriCache},
+ * so that annotations of the same concept share a single {@link URI} instance.
+ * Annotations without a concept identifier are passed to the decorated factory
+ * on every call.
+ * 
+ * @author Colorado Computational Pharmacology, UC Denver;
+ *         ccpsupport@ucdenver.edu
+ * 
+ */
+public class CachingUriFactory implements UriFactory {
+
+	private final UriFactory uriFactory;
+
+	private final UriCache uriCache;
+
+	/**
+	 * @param uriFactory
+	 *            the factory creating the URI for each concept
+	 */
+	public CachingUriFactory(UriFactory uriFactory) {
+		this(uriFactory, UriCache.DEFAULT_MAX_SIZE);
+	}
+
+	/**
+	 * @param uriFactory
+	 *            the factory creating the URI for each concept
+	 * @param maxCachedUris
+	 *            the maximum number of concept URIs to retain
+	 */
+	public CachingUriFactory(UriFactory uriFactory, int maxCachedUris) {
+		this.uriFactory = uriFactory;
+		this.uriCache = new UriCache(maxCachedUris);
+	}
+
+	@Override
+	public URI getResourceUri(AnnotationDataExtractor annotationDataExtractor, Annotation annotation) {
+		String conceptId = annotationDataExtractor.getAnnotationType(annotation);
+		if (conceptId == null) {
+			return uriFactory.getResourceUri(annotationDataExtractor, annotation);
+		}
+		URI uri = uriCache.get(conceptId);
+		if (uri == null) {
+			uri = uriFactory.getResourceUri(annotationDataExtractor, annotation);
+			if (uri != null) {
+				uriCache.put(conceptId, uri);
+			}
+		}
+		return uri;
+	}
+
+	/**
+	 * @return the number of concept URIs currently cached
+	 */
+	public int getCachedUriCount() {
+		return uriCache.size();
+	}
+
+}
@@ -77,4 +77,24 @@ public interface DocumentRdfGenerator {
 	 */
 	public Collection<Statement> generateRdf(JCas jCas, DocumentMetadataHandler documentMetadataHandler);
 
+	/**
+	 * Variant of {@link #generateRdf(JCas, DocumentMetadataHandler)} for
+	 * callers that have already computed the document URI. Implementations
+	 * that need the document URI should override this method to avoid
+	 * computing it a second time.
+	 * 
+	 * @param jCas
+	 * @param documentMetadataHandler
+	 * @param documentUri
+	 *            the URI returned by
+	 *            {@link #getDocumentUri(JCas, DocumentMetadataHandler)} for the
+	 *            input {@link JCas}
+	 * @return a collection of RDF statements for the document represented by
+	 *         the input {@link JCas}
+	 */
+	public default Collection<Statement> generateRdf(JCas jCas, DocumentMetadataHandler documentMetadataHandler,
+			URI documentUri) {
+		return generateRdf(jCas, documentMetadataHandler);
+	}
+
 }
@@ -0,0 +1,190 @@
+package edu.ucdenver.ccp.nlp.uima.serialization.rdf;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's nlp module
+ * %%
+ * Copyright (C) 2012 - 2017 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.io.Writer;
+
+import org.openrdf.model.BNode;
+import org.openrdf.model.Literal;
+import org.openrdf.model.Resource;
+import org.openrdf.model.Statement;
+import org.openrdf.model.URI;
+import org.openrdf.model.Value;
+import org.openrdf.rio.RDFHandler;
+import org.openrdf.rio.RDFHandlerException;
+import org.openrdf.rio.ntriples.NTriplesUtil;
+
+/**
+ * Lightweight {@link RDFHandler} that writes statements as N-Triples (or, if contexts are
+ * enabled, N-Quads) directly to a {@link Writer}. Values are appended to the writer piecewise
+ * instead of being rendered to intermediate strings, and the (comparatively expensive) escaping
+ * provided by {@link NTriplesUtil} is only invoked for values that contain characters requiring
+ * escaping. The output is identical to that produced by the Sesame N-Triples and N-Quads writers.
+ * <p>
+ * The writer is not closed by {@link #endRDF()}; it is flushed only.
+ * 
+ * @author Colorado Computational Pharmacology, UC Denver;
+ *         ccpsupport@ucdenver.edu
+ * 
+ */
+public class FastNTriplesWriter implements RDFHandler {
+
+	private final Writer writer;
+	private final boolean writeContexts;
+
+	/**
+	 * @param writer
+	 *            the writer to which statements are written
+	 * @param writeContexts
+	 *            if true, statement contexts are written (N-Quads), otherwise they are ignored
+	 *            (N-Triples)
+	 */
+	public FastNTriplesWriter(Writer writer, boolean writeContexts) {
+		this.writer = writer;
+		this.writeContexts = writeContexts;
+	}
+
+	@Override
+	public void startRDF() throws RDFHandlerException {
+		/* nothing to write */
+	}
+
+	@Override
+	public void endRDF() throws RDFHandlerException {
+		try {
+			writer.flush();
+		} catch (IOException e) {
+			throw new RDFHandlerException(e);
+		}
+	}
+
+	@Override
+	public void handleNamespace(String prefix, String uri) throws RDFHandlerException {
+		/* N-Triples does not support namespace declarations */
+	}
+
+	@Override
+	public void handleComment(String comment) throws RDFHandlerException {
+		try {
+			writer.write("# ");
+			writer.write(comment);
+			writer.write('\n');
+		} catch (IOException e) {
+			throw new RDFHandlerException(e);
+		}
+	}
+
+	@Override
+	public void handleStatement(Statement st) throws RDFHandlerException {
+		try {
+			writeResource(st.getSubject());
+			writer.write(' ');
+			writeUri(st.getPredicate());
+			writer.write(' ');
+			writeValue(st.getObject());
+			Resource context = st.getContext();
+			if (writeContexts && context != null) {
+				writer.write(' ');
+				writeResource(context);
+			}
+			writer.write(" .\n");
+		} catch (IOException e) {
+			throw new RDFHandlerException(e);
+		}
+	}
+
+	private void writeValue(Value value) throws IOException {
+		if (value instanceof Literal) {
+			writeLiteral((Literal) value);
+		} else {
+			writeResource((Resource) value);
+		}
+	}
+
+	private void writeResource(Resource resource) throws IOException {
+		if (resource instanceof URI) {
+			writeUri((URI) resource);
+		} else {
+			writer.write("_:");
+			writer.write(((BNode) resource).getID());
+		}
+	}
+
+	private void writeUri(URI uri) throws IOException {
+		writer.write('<');
+		writeEscaped(uri.toString());
+		writer.write('>');
+	}
+
+	private void writeLiteral(Literal literal) throws IOException {
+		writer.write('"');
+		writeEscaped(literal.getLabel());
+		writer.write('"');
+		if (literal.getLanguage() != null) {
+			writer.write('@');
+			writer.write(literal.getLanguage());
+		} else if (literal.getDatatype() != null) {
+			writer.write("^^");
+			writeUri(literal.getDatatype());
+		}
+	}
+
+	/**
+	 * Writes the input string, escaping it using {@link NTriplesUtil#escapeString(String)} only if
+	 * it contains characters that require escaping
+	 */
+	private void writeEscaped(String s) throws IOException {
+		if (requiresEscaping(s)) {
+			writer.write(NTriplesUtil.escapeString(s));
+		} else {
+			writer.write(s);
+		}
+	}
+
+	/**
+	 * @return true if the input contains a character outside of printable ASCII, or a character
+	 *         that N-Triples requires to be escaped
+	 */
+	static boolean requiresEscaping(String s) {
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (c < 0x20 || c > 0x7E || c == '"' || c == '\\') {
+				return true;
+			}
+		}
+		return false;
+	}
+
+}
@@ -39,6 +39,8 @@ import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
 import java.util.Collection;
 import java.util.zip.GZIPOutputStream;
 
@@ -46,7 +48,6 @@ import org.apache.uima.UimaContext;
 import org.apache.uima.analysis_engine.AnalysisEngineDescription;
 import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
 import org.apache.uima.cas.CASException;
-import org.apache.uima.fit.component.JCasAnnotator_ImplBase;
 import org.apache.uima.fit.descriptor.ConfigurationParameter;
 import org.apache.uima.fit.factory.AnalysisEngineFactory;
 import org.apache.uima.fit.util.JCasUtil;
@@ -57,19 +58,22 @@ import org.apache.uima.resource.metadata.TypeSystemDescription;
 import org.apache.uima.util.Logger;
 import org.openrdf.model.Statement;
 import org.openrdf.model.URI;
+import org.openrdf.rio.RDFHandler;
 import org.openrdf.rio.RDFHandlerException;
-import org.openrdf.rio.RDFWriter;
 
 import edu.ucdenver.ccp.common.file.FileUtil;
 import edu.ucdenver.ccp.common.file.FileWriterUtil;
 import edu.ucdenver.ccp.common.reflection.ConstructorUtil;
 import edu.ucdenver.ccp.datasource.rdfizer.rdf.ice.RdfUtil.RdfFormat;
+import edu.ucdenver.ccp.nlp.uima.serialization.OutputDirectoryUtil;
+import edu.ucdenver.ccp.nlp.uima.serialization.archive.ShardableSerializer_AE;
+import edu.ucdenver.ccp.nlp.uima.serialization.archive.ShardedArchiveWriter;
 import edu.ucdenver.ccp.nlp.uima.shims.ShimDefaults;
 import edu.ucdenver.ccp.nlp.uima.util.View_Util;
 import edu.ucdenver.ccp.uima.shims.annotation.AnnotationDataExtractor;
 import edu.ucdenver.ccp.uima.shims.document.DocumentMetadataHandler;
 
-public class RdfSerialization_AE extends JCasAnnotator_ImplBase {
+public class RdfSerialization_AE extends ShardableSerializer_AE {
 
 	/**
 	 * Parameter name used in the UIMA descriptor file for the document metadata
@@ -129,6 +133,16 @@ public class RdfSerialization_AE extends JCasAnnotator_ImplBase {
 	private String uriFactoryClassName;
 	private UriFactory uriFactory;
 
+	/**
+	 * The maximum number of concept URIs cached by the {@link CachingUriFactory}
+	 * that wraps the configured {@link UriFactory}. The configured factory must
+	 * then create the resource URI from the annotation type alone. A value of 0
+	 * disables the cache.
+	 */
+	public static final String PARAM_URI_CACHE_SIZE = "uriCacheSize";
+	@ConfigurationParameter(mandatory = false, description = "The maximum number of concept URIs to cache; 0 disables the cache", defaultValue = "10000")
+	private int uriCacheSize;
+
 	public static final String PARAM_OUTPUT_DIRECTORY = "outputDirectory";
 	@ConfigurationParameter(mandatory = false, description = "")
 	private File outputDirectory;
@@ -167,6 +181,17 @@ public class RdfSerialization_AE extends JCasAnnotator_ImplBase {
 	@ConfigurationParameter(mandatory = true, description = "This string specifies the RDF format to use")
 	private RdfFormat rdfFormat;
 
+	/**
+	 * If true (the default), N-Triples and N-Quads output is written using the
+	 * {@link FastNTriplesWriter} instead of the writer supplied by the
+	 * {@link RdfFormat}
+	 */
+	public final static String PARAM_USE_FAST_NTRIPLES_WRITER = "useFastNTriplesWriter";
+	@ConfigurationParameter(mandatory = false, description = "If true, N-Triples and N-Quads output is written using a lightweight writer", defaultValue = "true")
+	private boolean useFastNTriplesWriter;
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
 	private Logger logger;
 
 	@Override
@@ -192,10 +217,36 @@ public class RdfSerialization_AE extends JCasAnnotator_ImplBase {
 				.invokeConstructor(annotationRdfGeneratorClassName);
 
 		uriFactory = (UriFactory) ConstructorUtil.invokeConstructor(uriFactoryClassName);
+		if (uriCacheSize > 0) {
+			uriFactory = new CachingUriFactory(uriFactory, uriCacheSize);
+		}
 
+		checkShardedOutputDirectory(outputDirectory);
+		if (outputDirectory != null) {
+			FileUtil.mkdir(outputDirectory);
+		}
+
+	}
+
+	/**
+	 * @param writer
+	 * @return the {@link RDFHandler} that will write statements in the
+	 *         configured RDF format to the input writer
+	 */
+	private RDFHandler createRdfHandler(Writer writer) {
+		if (useFastNTriplesWriter) {
+			String extension = rdfFormat.defaultFileExtension();
+			if (extension.equals("nt")) {
+				return new FastNTriplesWriter(writer, false);
+			}
+			if (extension.equals("nq")) {
+				return new FastNTriplesWriter(writer, true);
+			}
+		}
+		return rdfFormat.createWriter(writer);
 	}
 
-	private void writeStatements(Collection<? extends Statement> stmts, RDFWriter writer) {
+	private void writeStatements(Collection<? extends Statement> stmts, RDFHandler writer) {
 		for (Statement s : stmts) {
 			try {
 				writer.handleStatement(s);
@@ -238,7 +289,7 @@ public class RdfSerialization_AE extends JCasAnnotator_ImplBase {
 			throw new AnalysisEngineProcessException(
 					"Unable to determine output directory for document text serialization.", null);
 		}
-		FileUtil.mkdir(outputFile.getParentFile());
+		OutputDirectoryUtil.mkdir(outputFile.getParentFile());
 		return outputFile;
 	}
 
@@ -246,35 +297,24 @@ public class RdfSerialization_AE extends JCasAnnotator_ImplBase {
 	public void process(JCas jcas) throws AnalysisEngineProcessException {
 
 		String documentId = documentMetadataHandler.extractDocumentId(jcas);
-		File outputFile = getOutputFile(jcas, documentId);
-
-		try (BufferedWriter writer = (compressOutput)
-				? new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(new FileOutputStream(outputFile))))
-				: FileWriterUtil.initBufferedWriter(outputFile)) {
-			RDFWriter rdfWriter = rdfFormat.createWriter(writer);
-			rdfWriter.startRDF();
-
-			JCas view = View_Util.getView(jcas, outputViewName);
-			/* Write the document RDF */
-			Collection<Statement> documentStmts = documentRdfGenerator.generateRdf(jcas, documentMetadataHandler);
-			writeStatements(documentStmts, rdfWriter);
-
-			/* Write the annotation RDF */
-			URI documentUri = documentRdfGenerator.getDocumentUri(view, documentMetadataHandler);
-			for (Annotation annot : JCasUtil.select(view, Annotation.class)) {
-				/*
-				 * by checking for a null type here we are checking that the
-				 * annotation is handled by the AnnotationDataExtractor
-				 * implementation.
-				 */
-				String type = annotationDataExtractor.getAnnotationType(annot);
-				if (type != null) {
-					Collection<? extends Statement> stmts = annotationRdfGenerator.generateRdf(annotationDataExtractor,
-							annot, uriFactory, documentUri, view.getDocumentText());
-					writeStatements(stmts, rdfWriter);
+
+		try {
+			if (isShardedOutput()) {
+				ShardedArchiveWriter archiveWriter = getArchiveWriter(outputDirectory, outputFileInfix + "-annots",
+						"." + rdfFormat.defaultFileExtension(), compressOutput);
+				try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(openDocumentBuffer(), UTF_8))) {
+					writeRdf(jcas, writer);
+				}
+				archiveDocumentBuffer(archiveWriter, documentId);
+			} else {
+				File outputFile = getOutputFile(jcas, documentId);
+				try (BufferedWriter writer = (compressOutput)
+						? new BufferedWriter(
+								new OutputStreamWriter(new GZIPOutputStream(new FileOutputStream(outputFile))))
+						: FileWriterUtil.initBufferedWriter(outputFile)) {
+					writeRdf(jcas, writer);
 				}
 			}
-			rdfWriter.endRDF();
 		} catch (FileNotFoundException e) {
 			throw new AnalysisEngineProcessException(e);
 		} catch (IOException e) {
@@ -287,6 +327,52 @@ public class RdfSerialization_AE extends JCasAnnotator_ImplBase {
 
 	}
 
+	/**
+	 * Writes the document and annotation RDF for the input {@link JCas} to the
+	 * input writer
+	 */
+	private void writeRdf(JCas jcas, Writer writer) throws RDFHandlerException, CASException {
+		RDFHandler rdfWriter = createRdfHandler(writer);
+		rdfWriter.startRDF();
+
+		JCas view = View_Util.getView(jcas, outputViewName);
+		/*
+		 * the document URI is computed once per CAS and shared by the
+		 * document RDF and all annotation RDF
+		 */
+		URI documentUri = documentRdfGenerator.getDocumentUri(view, documentMetadataHandler);
+
+		/* Write the document RDF */
+		Collection<Statement> documentStmts = (view == jcas)
+				? documentRdfGenerator.generateRdf(jcas, documentMetadataHandler, documentUri)
+				: documentRdfGenerator.generateRdf(jcas, documentMetadataHandler);
+		writeStatements(documentStmts, rdfWriter);
+
+		/* Write the annotation RDF */
+		String documentText = view.getDocumentText();
+		StreamingAnnotationRdfGenerator streamingGenerator = (annotationRdfGenerator instanceof StreamingAnnotationRdfGenerator)
+				? (StreamingAnnotationRdfGenerator) annotationRdfGenerator : null;
+		for (Annotation annot : JCasUtil.select(view, Annotation.class)) {
+			/*
+			 * by checking for a null type here we are checking that the
+			 * annotation is handled by the AnnotationDataExtractor
+			 * implementation.
+			 */
+			String type = annotationDataExtractor.getAnnotationType(annot);
+			if (type != null) {
+				if (streamingGenerator != null) {
+					streamingGenerator.generateRdf(annotationDataExtractor, annot, uriFactory, documentUri,
+							documentText, rdfWriter);
+				} else {
+					Collection<? extends Statement> stmts = annotationRdfGenerator.generateRdf(annotationDataExtractor,
+							annot, uriFactory, documentUri, documentText);
+					writeStatements(stmts, rdfWriter);
+				}
+			}
+		}
+		rdfWriter.endRDF();
+	}
+
 	public static AnalysisEngineDescription createDescription(TypeSystemDescription tsd, File outputDirectory,
 			String outputFileInfix, RdfFormat format, boolean compressOutput,
 			Class<? extends DocumentMetadataHandler> documentMetaDataExtractorClass,
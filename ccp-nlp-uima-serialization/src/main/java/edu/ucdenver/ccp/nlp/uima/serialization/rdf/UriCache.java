@@ -0,0 +1,97 @@
+package edu.ucdenver.ccp.nlp.uima.serialization.rdf;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's nlp module
+ * %%
+ * Copyright (C) 2012 - 2017 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.openrdf.model.URI;
+
+/**
+ * A bounded, thread-safe cache of {@link URI} instances. Resource URIs for
+ * concepts recur across annotations and documents, so retaining a single
+ * instance per concept avoids rebuilding the URI string and object for every
+ * annotation. When the cache is full, the least recently used entry is evicted.
+ * 
+ * @author Colorado Computational Pharmacology, UC Denver;
+ *         ccpsupport@ucdenver.edu
+ * 
+ */
+public class UriCache {
+
+	public static final int DEFAULT_MAX_SIZE = 10000;
+
+	private final Map<String, URI> cache;
+
+	public UriCache() {
+		this(DEFAULT_MAX_SIZE);
+	}
+
+	/**
+	 * @param maxSize
+	 *            the maximum number of URIs retained by the cache
+	 */
+	@SuppressWarnings("serial")
+	public UriCache(final int maxSize) {
+		cache = new LinkedHashMap<String, URI>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, URI> eldest) {
+				return size() > maxSize;
+			}
+		};
+	}
+
+	/**
+	 * @param key
+	 * @return the cached {@link URI} for the input key, or null if there is none
+	 */
+	public synchronized URI get(String key) {
+		return cache.get(key);
+	}
+
+	/**
+	 * Caches the {@link URI} for the input key
+	 * 
+	 * @param key
+	 * @param uri
+	 */
+	public synchronized void put(String key, URI uri) {
+		cache.put(key, uri);
+	}
+
+	public synchronized int size() {
+		return cache.size();
+	}
+
+}
@@ -44,13 +44,18 @@ public enum WebAnnotationClass {
 
 	public static final String WEB_ANNOTATION_NAMESPACE = "http://www.w3.org/ns/oa#";
 	private final String propertyName;
+	private final URIImpl uri;
 
 	private WebAnnotationClass(String propertyName) {
 		this.propertyName = propertyName;
+		this.uri = new URIImpl(WEB_ANNOTATION_NAMESPACE + propertyName);
 	}
 
+	/**
+	 * @return the (shared, immutable) URI for this class
+	 */
 	public URIImpl uri() {
-		return new URIImpl(WEB_ANNOTATION_NAMESPACE + propertyName);
+		return uri;
 	}
 
 }
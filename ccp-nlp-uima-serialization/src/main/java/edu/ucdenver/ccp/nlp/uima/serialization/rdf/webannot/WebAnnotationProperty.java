@@ -47,13 +47,18 @@ public enum WebAnnotationProperty {
 	// @formatter:on
 
 	private final String propertyName;
+	private final URIImpl uri;
 
 	private WebAnnotationProperty(String propertyName) {
 		this.propertyName = propertyName;
+		this.uri = new URIImpl(WebAnnotationClass.WEB_ANNOTATION_NAMESPACE + propertyName);
 	}
 
+	/**
+	 * @return the (shared, immutable) URI for this property
+	 */
 	public URIImpl uri() {
-		return new URIImpl(WebAnnotationClass.WEB_ANNOTATION_NAMESPACE + propertyName);
+		return uri;
 	}
 
 }
@@ -33,10 +33,11 @@ package edu.ucdenver.ccp.nlp.uima.serialization.rdf.webannot;
  * #L%
  */
 
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.uima.jcas.tcas.Annotation;
 import org.openrdf.model.Statement;
@@ -44,10 +45,13 @@ import org.openrdf.model.URI;
 import org.openrdf.model.impl.StatementImpl;
 import org.openrdf.model.impl.URIImpl;
 import org.openrdf.model.vocabulary.RDF;
+import org.openrdf.rio.RDFHandler;
+import org.openrdf.rio.RDFHandlerException;
+import org.openrdf.rio.helpers.StatementCollector;
 
-import edu.ucdenver.ccp.common.digest.DigestUtil;
 import edu.ucdenver.ccp.datasource.identifiers.DataSource;
-import edu.ucdenver.ccp.nlp.uima.serialization.rdf.AnnotationRdfGenerator;
+import edu.ucdenver.ccp.nlp.uima.serialization.rdf.Sha1DigestUtil;
+import edu.ucdenver.ccp.nlp.uima.serialization.rdf.StreamingAnnotationRdfGenerator;
 import edu.ucdenver.ccp.nlp.uima.serialization.rdf.UriFactory;
 import edu.ucdenver.ccp.uima.shims.annotation.AnnotationDataExtractor;
 import edu.ucdenver.ccp.uima.shims.annotation.Span;
@@ -55,8 +59,46 @@ import edu.ucdenver.ccp.uima.shims.annotation.Span;
 /**
  * Generates RDF representing annotations using the W3C Web Annotation standard.
  * https://www.w3.org/TR/annotation-model/
+ * <p>
+ * Statements are streamed to an {@link RDFHandler} (see
+ * {@link StreamingAnnotationRdfGenerator}); the collection-based
+ * {@link #generateRdf(AnnotationDataExtractor, Annotation, UriFactory, URI, String)}
+ * is retained for callers that require it.
  */
-public class WebAnnotationRdfGenerator implements AnnotationRdfGenerator {
+public class WebAnnotationRdfGenerator implements StreamingAnnotationRdfGenerator {
+
+	private static final String ANNOTATION_NAMESPACE = DataSource.KABOB.longName() + "lice/A_";
+	private static final String SPECIFIC_RESOURCE_NAMESPACE = DataSource.KABOB.longName() + "lice/SR_";
+
+	/**
+	 * Many annotations share the same spans (e.g. concepts of different types
+	 * matching the same text), so the most recently used selector digests are
+	 * retained
+	 */
+	private static final int MAX_CACHED_SELECTOR_DIGESTS = 1024;
+
+	/**
+	 * per-thread buffer used to assemble the digest keys for each annotation
+	 */
+	private static final ThreadLocal<StringBuilder> KEY_BUILDER = new ThreadLocal<StringBuilder>() {
+		@Override
+		protected StringBuilder initialValue() {
+			return new StringBuilder(256);
+		}
+	};
+
+	@SuppressWarnings("serial")
+	private static final ThreadLocal<Map<String, String>> SELECTOR_DIGEST_CACHE = new ThreadLocal<Map<String, String>>() {
+		@Override
+		protected Map<String, String> initialValue() {
+			return new LinkedHashMap<String, String>(16, 0.75f, true) {
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+					return size() > MAX_CACHED_SELECTOR_DIGESTS;
+				}
+			};
+		}
+	};
 
 	private final WebAnnotationSelectorType selectorType;
 
@@ -67,8 +109,19 @@ public class WebAnnotationRdfGenerator implements AnnotationRdfGenerator {
 	@Override
 	public Collection<? extends Statement> generateRdf(AnnotationDataExtractor annotationDataExtractor,
 			Annotation annotation, UriFactory uriFactory, URI documentUri, String documentText) {
-		List<Statement> stmts = new ArrayList<Statement>();
+		StatementCollector collector = new StatementCollector();
+		try {
+			generateRdf(annotationDataExtractor, annotation, uriFactory, documentUri, documentText, collector);
+		} catch (RDFHandlerException e) {
+			throw new IllegalStateException(e);
+		}
+		return collector.getStatements();
+	}
 
+	@Override
+	public void generateRdf(AnnotationDataExtractor annotationDataExtractor, Annotation annotation,
+			UriFactory uriFactory, URI documentUri, String documentText, RDFHandler rdfHandler)
+			throws RDFHandlerException {
 		URI bodyUri = uriFactory.getResourceUri(annotationDataExtractor, annotation);
 
 		/*
@@ -79,30 +132,50 @@ public class WebAnnotationRdfGenerator implements AnnotationRdfGenerator {
 		if (bodyUri != null) {
 			List<Span> spans = annotationDataExtractor.getAnnotationSpans(annotation);
 			Collections.sort(spans, Span.ASCENDING());
-			String annotationKey = annotationDataExtractor.getAnnotationType(annotation) + "_" + documentUri + "_"
-					+ spans.toString();
-			String annotationDigest = DigestUtil.getBase64Sha1Digest(annotationKey);
 
-			URIImpl annotationUri = new URIImpl(DataSource.KABOB.longName() + "lice/A_" + annotationDigest);
+			/*
+			 * the annotation key is [type]_[documentUri]_[spans] and the
+			 * selector key is [spans], so both are taken from the same buffer
+			 */
+			StringBuilder keyBuilder = KEY_BUILDER.get();
+			keyBuilder.setLength(0);
+			keyBuilder.append(annotationDataExtractor.getAnnotationType(annotation)).append('_').append(documentUri)
+					.append('_');
+			int spansOffset = keyBuilder.length();
+			keyBuilder.append(spans);
+			String annotationDigest = Sha1DigestUtil.getBase64Sha1Digest(keyBuilder.toString());
+			String selectorDigest = getSelectorDigest(keyBuilder.substring(spansOffset));
+
+			URIImpl annotationUri = new URIImpl(ANNOTATION_NAMESPACE + annotationDigest);
 
-			URIImpl targetUri = new URIImpl(DataSource.KABOB.longName() + "lice/SR_" + annotationDigest);
+			URIImpl targetUri = new URIImpl(SPECIFIC_RESOURCE_NAMESPACE + annotationDigest);
 
 			/* annotationInstance --rdf:type--> oa:Annotation */
-			stmts.add(new StatementImpl(annotationUri, RDF.TYPE, WebAnnotationClass.ANNOTATION.uri()));
+			rdfHandler.handleStatement(new StatementImpl(annotationUri, RDF.TYPE, WebAnnotationClass.ANNOTATION.uri()));
 			/* annotationInstance --oa:hasBody--> body */
-			stmts.add(new StatementImpl(annotationUri, WebAnnotationProperty.HAS_BODY.uri(), bodyUri));
+			rdfHandler.handleStatement(new StatementImpl(annotationUri, WebAnnotationProperty.HAS_BODY.uri(), bodyUri));
 			/* annotationInstance --oa:hasTarget--> targetInstance */
-			stmts.add(new StatementImpl(annotationUri, WebAnnotationProperty.HAS_TARGET.uri(), targetUri));
+			rdfHandler.handleStatement(
+					new StatementImpl(annotationUri, WebAnnotationProperty.HAS_TARGET.uri(), targetUri));
 			/* targetInstance --rdf:type--> oa:SpecificResource */
-			stmts.add(new StatementImpl(targetUri, RDF.TYPE, WebAnnotationClass.SPECIFIC_RESOURCE.uri()));
+			rdfHandler.handleStatement(
+					new StatementImpl(targetUri, RDF.TYPE, WebAnnotationClass.SPECIFIC_RESOURCE.uri()));
 			/* targetInstance --oa:hasSource--> documentIri */
-			stmts.add(new StatementImpl(targetUri, WebAnnotationProperty.HAS_SOURCE.uri(), documentUri));
+			rdfHandler.handleStatement(
+					new StatementImpl(targetUri, WebAnnotationProperty.HAS_SOURCE.uri(), documentUri));
 
-			stmts.addAll(selectorType.getStatements(targetUri, documentUri,
-					annotationDataExtractor.getAnnotationSpans(annotation), documentText));
+			selectorType.handleStatements(targetUri, documentUri, spans, selectorDigest, documentText, rdfHandler);
 		}
+	}
 
-		return stmts;
+	private static String getSelectorDigest(String selectorKey) {
+		Map<String, String> cache = SELECTOR_DIGEST_CACHE.get();
+		String digest = cache.get(selectorKey);
+		if (digest == null) {
+			digest = Sha1DigestUtil.getBase64Sha1Digest(selectorKey);
+			cache.put(selectorKey, digest);
+		}
+		return digest;
 	}
 
 	public static class TextPositionWebAnnotationRdfGenerator extends WebAnnotationRdfGenerator {
@@ -33,7 +33,6 @@ package edu.ucdenver.ccp.nlp.uima.serialization.rdf.webannot;
  * #L%
  */
 
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
@@ -43,41 +42,67 @@ import org.openrdf.model.URI;
 import org.openrdf.model.impl.StatementImpl;
 import org.openrdf.model.impl.URIImpl;
 import org.openrdf.model.vocabulary.RDF;
+import org.openrdf.rio.RDFHandler;
+import org.openrdf.rio.RDFHandlerException;
+import org.openrdf.rio.helpers.StatementCollector;
 
-import edu.ucdenver.ccp.common.digest.DigestUtil;
 import edu.ucdenver.ccp.datasource.identifiers.DataSource;
 import edu.ucdenver.ccp.datasource.rdfizer.rdf.ice.RdfUtil;
+import edu.ucdenver.ccp.nlp.uima.serialization.rdf.Sha1DigestUtil;
 import edu.ucdenver.ccp.uima.shims.annotation.Span;
 
 public enum WebAnnotationSelectorType {
 	TEXT_POSITION {
 		@Override
-		public Collection<? extends Statement> getStatements(URIImpl specificResourceUri, URI documentUri,
-				List<Span> spans, String documentText) {
-			List<Statement> stmts = new ArrayList<Statement>();
-
-			Collections.sort(spans, Span.ASCENDING());
-			String selectorKey = spans.toString();
-			String selectorDigest = DigestUtil.getBase64Sha1Digest(selectorKey);
-
+		public void handleStatements(URI specificResourceUri, URI documentUri, List<Span> spans, String selectorDigest,
+				String documentText, RDFHandler rdfHandler) throws RDFHandlerException {
+			URIImpl selectorUri = new URIImpl(SELECTOR_NAMESPACE + selectorDigest);
 			for (Span span : spans) {
-				URIImpl selectorUri = new URIImpl(DataSource.KABOB.longName() + "lice/S_" + selectorDigest);
 				/* selectorInstance --rdf:type--> oa:TextPositionSelector */
-				stmts.add(new StatementImpl(selectorUri, RDF.TYPE, WebAnnotationClass.TEXT_POSITION_SELECTOR.uri()));
+				rdfHandler.handleStatement(
+						new StatementImpl(selectorUri, RDF.TYPE, WebAnnotationClass.TEXT_POSITION_SELECTOR.uri()));
 				/* specificResourceInstance --oa:hasSelector--> selectorInst. */
-				stmts.add(
+				rdfHandler.handleStatement(
 						new StatementImpl(specificResourceUri, WebAnnotationProperty.HAS_SELECTOR.uri(), selectorUri));
 				/* selectorInstance --oa:start--> spanStartOffset */
-				stmts.add(new StatementImpl(selectorUri, WebAnnotationProperty.START.uri(),
+				rdfHandler.handleStatement(new StatementImpl(selectorUri, WebAnnotationProperty.START.uri(),
 						RdfUtil.createLiteral(span.getSpanStart())));
 				/* selectorInstance --oa:end--> spanEndOffset */
-				stmts.add(new StatementImpl(selectorUri, WebAnnotationProperty.END.uri(),
+				rdfHandler.handleStatement(new StatementImpl(selectorUri, WebAnnotationProperty.END.uri(),
 						RdfUtil.createLiteral(span.getSpanEnd())));
 			}
-			return stmts;
 		}
 	};
 
-	public abstract Collection<? extends Statement> getStatements(URIImpl specificResourceUri, URI documentUri,
-			List<Span> spans, String documentText);
+	private static final String SELECTOR_NAMESPACE = DataSource.KABOB.longName() + "lice/S_";
+
+	public Collection<? extends Statement> getStatements(URIImpl specificResourceUri, URI documentUri,
+			List<Span> spans, String documentText) {
+		Collections.sort(spans, Span.ASCENDING());
+		String selectorDigest = Sha1DigestUtil.getBase64Sha1Digest(spans.toString());
+		StatementCollector collector = new StatementCollector();
+		try {
+			handleStatements(specificResourceUri, documentUri, spans, selectorDigest, documentText, collector);
+		} catch (RDFHandlerException e) {
+			throw new IllegalStateException(e);
+		}
+		return collector.getStatements();
+	}
+
+	/**
+	 * Hands the selector statements for the specific resource directly to the input
+	 * {@link RDFHandler}
+	 * 
+	 * @param specificResourceUri
+	 * @param documentUri
+	 * @param spans
+	 *            the annotation spans, sorted using {@link Span#ASCENDING()}
+	 * @param selectorDigest
+	 *            digest of the string representation of the sorted spans
+	 * @param documentText
+	 * @param rdfHandler
+	 * @throws RDFHandlerException
+	 */
+	public abstract void handleStatements(URI specificResourceUri, URI documentUri, List<Span> spans,
+			String selectorDigest, String documentText, RDFHandler rdfHandler) throws RDFHandlerException;
 }
@@ -38,6 +38,8 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.util.Properties;
 import java.util.zip.GZIPOutputStream;
 
@@ -46,7 +48,6 @@ import org.apache.uima.UimaContext;
 import org.apache.uima.analysis_engine.AnalysisEngineDescription;
 import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
 import org.apache.uima.cas.CASException;
-import org.apache.uima.fit.component.JCasAnnotator_ImplBase;
 import org.apache.uima.fit.descriptor.ConfigurationParameter;
 import org.apache.uima.fit.factory.AnalysisEngineFactory;
 import org.apache.uima.fit.util.JCasUtil;
@@ -59,6 +60,10 @@ import edu.ucdenver.ccp.common.file.FileWriterUtil;
 import edu.ucdenver.ccp.common.reflection.ConstructorUtil;
 import edu.ucdenver.ccp.nlp.pipelines.log.ProcessingErrorLog;
 import edu.ucdenver.ccp.nlp.pipelines.log.SerializedFileLog;
+import edu.ucdenver.ccp.nlp.uima.serialization.OutputDirectoryUtil;
+import edu.ucdenver.ccp.nlp.uima.serialization.archive.ArchiveEntry;
+import edu.ucdenver.ccp.nlp.uima.serialization.archive.ShardableSerializer_AE;
+import edu.ucdenver.ccp.nlp.uima.serialization.archive.ShardedArchiveWriter;
 import edu.ucdenver.ccp.nlp.uima.shims.ShimDefaults;
 import edu.ucdenver.ccp.nlp.uima.util.View_Util;
 import edu.ucdenver.ccp.uima.shims.document.DocumentMetadataHandler;
@@ -66,7 +71,7 @@ import edu.ucdenver.ccp.uima.shims.document.DocumentMetadataHandler;
 /**
  * Serializes the CAS document metadata text to a file
  */
-public class DocumentMetaDataSerializerAE extends JCasAnnotator_ImplBase {
+public class DocumentMetaDataSerializerAE extends ShardableSerializer_AE {
 
 	public static final String MONTH_PUBLISHED = "MONTH_PUBLISHED";
 	public static final String YEAR_PUBLISHED = "YEAR_PUBLISHED";
@@ -113,31 +118,75 @@ public class DocumentMetaDataSerializerAE extends JCasAnnotator_ImplBase {
 	private String documentMetadataHandlerClassName;
 	private DocumentMetadataHandler documentMetaDataHandler;
 
+	/**
+	 * The base name of the shard files written when sharded output is enabled
+	 * (see {@link ShardedArchiveWriter})
+	 */
+	public static final String SHARD_NAME = "metadata";
+
+	private static final String METADATA_FILE_SUFFIX = ".meta";
+
 	@Override
 	public void initialize(UimaContext aContext) throws ResourceInitializationException {
 		super.initialize(aContext);
 		documentMetaDataHandler = (DocumentMetadataHandler) ConstructorUtil
 				.invokeConstructor(documentMetadataHandlerClassName);
+		checkShardedOutputDirectory(outputDirectory);
+		if (outputDirectory != null) {
+			FileUtil.mkdir(outputDirectory);
+		}
 	}
 
 	@Override
 	public void process(JCas jCas) throws AnalysisEngineProcessException {
 		/* If an error has been reported, then do not process this CAS. */
 		if (JCasUtil.select(jCas, ProcessingErrorLog.class).isEmpty()) {
-			String documentText = getDocumentTextToSerialize(jCas);
-			File outputFile = getOutputFile(jCas, documentMetaDataHandler, ".meta", outputDirectory, sourceViewName);
-			serializeDocumentMetaData(jCas, documentText, outputFile);
-			logSerializedFile(jCas, outputFile);
+			if (isShardedOutput()) {
+				ArchiveEntry entry = archiveDocumentMetaData(jCas);
+				logSerializedFile(jCas, entry.toString());
+			} else {
+				String documentText = getDocumentTextToSerialize(jCas);
+				File outputFile = getOutputFile(jCas, documentMetaDataHandler, METADATA_FILE_SUFFIX, outputDirectory,
+						sourceViewName);
+				serializeDocumentMetaData(jCas, documentText, outputFile);
+				logSerializedFile(jCas, outputFile.getAbsolutePath());
+			}
 		}
 	}
 
-	private void logSerializedFile(JCas jCas, File outputFile) {
+	private void logSerializedFile(JCas jCas, String serializedFileLocation) {
 		SerializedFileLog sfLog = new SerializedFileLog(jCas);
-		sfLog.setSerializedFile(outputFile.getAbsolutePath());
+		sfLog.setSerializedFile(serializedFileLocation);
 		sfLog.setFileVersion("DOC_META");
 		sfLog.addToIndexes();
 	}
 
+	/**
+	 * Appends the document metadata to the current shard and populates the
+	 * document-metadata-path field with the location of the shard file. The
+	 * document identifier is left unchanged and serves as the key into the
+	 * shard index.
+	 * 
+	 * @param jCas
+	 * @return the location of the document metadata in the archive
+	 * @throws AnalysisEngineProcessException
+	 */
+	private ArchiveEntry archiveDocumentMetaData(JCas jCas) throws AnalysisEngineProcessException {
+		try {
+			StringWriter metadata = new StringWriter();
+			writeDocMetadata(metadata, jCas);
+			ArchiveEntry entry = getArchiveWriter(outputDirectory, SHARD_NAME, METADATA_FILE_SUFFIX, false).write(
+					documentMetaDataHandler.extractDocumentId(jCas), metadata.toString());
+			JCas view = (outputViewName == null) ? jCas : View_Util.getView(jCas, outputViewName);
+			documentMetaDataHandler.setDocumentMetadataPath(view, entry.getShardFile());
+			return entry;
+		} catch (IOException e) {
+			throw new AnalysisEngineProcessException(e);
+		} catch (CASException e) {
+			throw new AnalysisEngineProcessException(e);
+		}
+	}
+
 	/**
 	 * Serializes the document metadata to file and populates the
 	 * source-document-path metadata field with the location of the serialized
@@ -169,7 +218,7 @@ public class DocumentMetaDataSerializerAE extends JCasAnnotator_ImplBase {
 		}
 	}
 
-	private void writeDocMetadata(BufferedWriter writer, JCas jCas) throws IOException {
+	private void writeDocMetadata(Writer writer, JCas jCas) throws IOException {
 		Properties prop = new Properties();
 		prop.setProperty(DOCUMENT_ID, documentMetaDataHandler.extractDocumentId(jCas));
 		prop.setProperty(YEAR_PUBLISHED, Integer.toString(documentMetaDataHandler.getYearPublished(jCas)));
@@ -219,7 +268,7 @@ public class DocumentMetaDataSerializerAE extends JCasAnnotator_ImplBase {
 			throw new AnalysisEngineProcessException(
 					"Unable to determine output directory for document text serialization.", null);
 		}
-		FileUtil.mkdir(outputFile.getParentFile());
+		OutputDirectoryUtil.mkdir(outputFile.getParentFile());
 		return outputFile;
 	}
 
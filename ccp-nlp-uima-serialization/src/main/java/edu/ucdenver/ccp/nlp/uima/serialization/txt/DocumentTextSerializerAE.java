@@ -37,7 +37,21 @@ import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.Deflater;
 import java.util.zip.GZIPOutputStream;
 
 import org.apache.log4j.Logger;
@@ -45,7 +59,6 @@ import org.apache.uima.UimaContext;
 import org.apache.uima.analysis_engine.AnalysisEngineDescription;
 import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
 import org.apache.uima.cas.CASException;
-import org.apache.uima.fit.component.JCasAnnotator_ImplBase;
 import org.apache.uima.fit.descriptor.ConfigurationParameter;
 import org.apache.uima.fit.factory.AnalysisEngineFactory;
 import org.apache.uima.fit.util.JCasUtil;
@@ -58,6 +71,11 @@ import edu.ucdenver.ccp.common.file.FileWriterUtil;
 import edu.ucdenver.ccp.common.reflection.ConstructorUtil;
 import edu.ucdenver.ccp.nlp.pipelines.log.ProcessingErrorLog;
 import edu.ucdenver.ccp.nlp.pipelines.log.SerializedFileLog;
+import edu.ucdenver.ccp.nlp.uima.serialization.OutputDirectoryUtil;
+import edu.ucdenver.ccp.nlp.uima.serialization.ReusableDeflaterGzipOutputStream;
+import edu.ucdenver.ccp.nlp.uima.serialization.archive.ArchiveEntry;
+import edu.ucdenver.ccp.nlp.uima.serialization.archive.ShardableSerializer_AE;
+import edu.ucdenver.ccp.nlp.uima.serialization.archive.ShardedArchiveWriter;
 import edu.ucdenver.ccp.nlp.uima.shims.ShimDefaults;
 import edu.ucdenver.ccp.nlp.uima.util.View_Util;
 import edu.ucdenver.ccp.uima.shims.document.DocumentMetadataHandler;
@@ -65,7 +83,7 @@ import edu.ucdenver.ccp.uima.shims.document.DocumentMetadataHandler;
 /**
  * Serializes the CAS document text to a file
  */
-public class DocumentTextSerializerAE extends JCasAnnotator_ImplBase {
+public class DocumentTextSerializerAE extends ShardableSerializer_AE {
 
 	public static final String PARAM_OUTPUT_DIRECTORY = "outputDirectory";
 	@ConfigurationParameter(mandatory = false, description = "")
@@ -107,11 +125,61 @@ public class DocumentTextSerializerAE extends JCasAnnotator_ImplBase {
 	private String documentMetadataHandlerClassName;
 	private DocumentMetadataHandler documentMetaDataHandler;
 
+	/**
+	 * The base name of the shard files written when sharded output is enabled
+	 * (see {@link ShardedArchiveWriter})
+	 */
+	public static final String SHARD_NAME = "text";
+
+	/**
+	 * If true, per-document output files are written through a
+	 * {@link FileChannel}. The document text is encoded as UTF-8 into a pooled
+	 * buffer using a reusable {@link CharsetEncoder} and, if output compression
+	 * is enabled, compressed using a reusable {@link Deflater}.
+	 */
+	public static final String PARAM_USE_NIO_OUTPUT = "useNioOutput";
+	@ConfigurationParameter(mandatory = false, description = "If true, per-document output files are written as UTF-8 through a FileChannel using pooled buffers", defaultValue = "false")
+	private boolean useNioOutput;
+
+	/**
+	 * The compression level (see {@link Deflater}) used when compressing NIO
+	 * output. Defaults to {@link Deflater#DEFAULT_COMPRESSION}.
+	 */
+	public static final String PARAM_COMPRESSION_LEVEL = "compressionLevel";
+	@ConfigurationParameter(mandatory = false, description = "The compression level (0-9, or -1 for the default level) used when compressing NIO output", defaultValue = "-1")
+	private int compressionLevel;
+
+	/**
+	 * If greater than 0, NIO output files are forced to the storage device
+	 * (fsync) in batches of this many files, and once more when processing
+	 * completes. By default, files are not explicitly synced.
+	 */
+	public static final String PARAM_FSYNC_BATCH_SIZE = "fsyncBatchSize";
+	@ConfigurationParameter(mandatory = false, description = "If greater than 0, NIO output files are synced to disk in batches of this many files", defaultValue = "0")
+	private int fsyncBatchSize;
+
+	private static final int NIO_BUFFER_SIZE = 256 * 1024;
+
+	/* reused by the NIO output path */
+	private CharsetEncoder encoder;
+	private ByteBuffer directBuffer;
+	private ByteBuffer heapBuffer;
+	private Deflater deflater;
+	private final List<File> unsyncedFiles = new ArrayList<File>();
+
 	@Override
 	public void initialize(UimaContext aContext) throws ResourceInitializationException {
 		super.initialize(aContext);
 		documentMetaDataHandler = (DocumentMetadataHandler) ConstructorUtil
 				.invokeConstructor(documentMetadataHandlerClassName);
+		checkShardedOutputDirectory(outputDirectory);
+		if (outputDirectory != null) {
+			FileUtil.mkdir(outputDirectory);
+		}
+		if (useNioOutput) {
+			encoder = StandardCharsets.UTF_8.newEncoder().onMalformedInput(CodingErrorAction.REPLACE)
+					.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		}
 	}
 
 	@Override
@@ -119,20 +187,74 @@ public class DocumentTextSerializerAE extends JCasAnnotator_ImplBase {
 		/* If an error has been reported, then do not process this CAS. */
 		if (JCasUtil.select(jCas, ProcessingErrorLog.class).isEmpty()) {
 			String documentText = getDocumentTextToSerialize(jCas);
-			File outputFile = getOutputFile(jCas, documentMetaDataHandler, compressOutput, outputFileSuffix,
-					outputDirectory, sourceViewName);
-			serializeDocumentText(jCas, documentText, outputFile);
-			logSerializedFile(jCas, outputFile);
+			if (isShardedOutput()) {
+				ArchiveEntry entry = archiveDocumentText(jCas, documentText);
+				logSerializedFile(jCas, entry.toString());
+			} else {
+				File outputFile = getOutputFile(jCas, documentMetaDataHandler, compressOutput, outputFileSuffix,
+						outputDirectory, sourceViewName);
+				serializeDocumentText(jCas, documentText, outputFile);
+				logSerializedFile(jCas, outputFile.getAbsolutePath());
+			}
 		}
 	}
 
-	private void logSerializedFile(JCas jCas, File outputFile) {
+	private void logSerializedFile(JCas jCas, String serializedFileLocation) {
 		SerializedFileLog sfLog = new SerializedFileLog(jCas);
-		sfLog.setSerializedFile(outputFile.getAbsolutePath());
+		sfLog.setSerializedFile(serializedFileLocation);
 		sfLog.setFileVersion("LOCAL_TEXT");
 		sfLog.addToIndexes();
 	}
 
+	/**
+	 * Appends the document text to the current shard and populates the
+	 * source-document-path metadata field with the location of the shard file.
+	 * The document identifier is left unchanged and serves as the key into the
+	 * shard index.
+	 * 
+	 * @param jCas
+	 * @param documentText
+	 * @return the location of the document text in the archive
+	 * @throws AnalysisEngineProcessException
+	 */
+	private ArchiveEntry archiveDocumentText(JCas jCas, String documentText) throws AnalysisEngineProcessException {
+		try {
+			ArchiveEntry entry = getArchiveWriter(outputDirectory, SHARD_NAME, outputFileSuffix, compressOutput)
+					.write(documentMetaDataHandler.extractDocumentId(jCas), documentText);
+			JCas view = (outputViewName == null) ? jCas : View_Util.getView(jCas, outputViewName);
+			documentMetaDataHandler.setSourceDocumentPath(view, entry.getShardFile());
+			return entry;
+		} catch (IOException e) {
+			throw new AnalysisEngineProcessException(e);
+		} catch (CASException e) {
+			throw new AnalysisEngineProcessException(e);
+		}
+	}
+
+	@Override
+	public void collectionProcessComplete() throws AnalysisEngineProcessException {
+		super.collectionProcessComplete();
+		try {
+			syncFiles();
+		} catch (IOException e) {
+			throw new AnalysisEngineProcessException(e);
+		}
+	}
+
+	@Override
+	public void destroy() {
+		try {
+			syncFiles();
+		} catch (IOException e) {
+			logger.error("Error while syncing output files.", e);
+		}
+		if (deflater != null) {
+			deflater.end();
+			deflater = null;
+		}
+		super.destroy();
+	}
+
 	/**
 	 * Serializes the document text to file and populates the
 	 * source-document-path metadata field with the location of the serialized
@@ -145,25 +267,129 @@ public class DocumentTextSerializerAE extends JCasAnnotator_ImplBase {
 	 */
 	private void serializeDocumentText(JCas jCas, String documentText, File outputFile)
 			throws AnalysisEngineProcessException {
-		try (BufferedWriter writer = (compressOutput)
-				? new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(new FileOutputStream(outputFile))))
-				: FileWriterUtil.initBufferedWriter(outputFile)) {
-			writer.write(documentText);
-			if (outputViewName == null) {
-				documentMetaDataHandler.setSourceDocumentPath(jCas, outputFile);
-				documentMetaDataHandler.setDocumentId(jCas, outputFile.getName());
+		try {
+			if (useNioOutput) {
+				writeDocumentText(documentText, outputFile);
 			} else {
-				try {
-					JCas view = View_Util.getView(jCas, outputViewName);
-					documentMetaDataHandler.setSourceDocumentPath(view, outputFile);
-					documentMetaDataHandler.setDocumentId(view, outputFile.getName());
-				} catch (CASException e) {
-					throw new AnalysisEngineProcessException(e);
+				try (BufferedWriter writer = (compressOutput)
+						? new BufferedWriter(
+								new OutputStreamWriter(new GZIPOutputStream(new FileOutputStream(outputFile))))
+						: FileWriterUtil.initBufferedWriter(outputFile)) {
+					writer.write(documentText);
 				}
 			}
 		} catch (IOException e) {
 			throw new AnalysisEngineProcessException(e);
 		}
+		if (outputViewName == null) {
+			documentMetaDataHandler.setSourceDocumentPath(jCas, outputFile);
+			documentMetaDataHandler.setDocumentId(jCas, outputFile.getName());
+		} else {
+			try {
+				JCas view = View_Util.getView(jCas, outputViewName);
+				documentMetaDataHandler.setSourceDocumentPath(view, outputFile);
+				documentMetaDataHandler.setDocumentId(view, outputFile.getName());
+			} catch (CASException e) {
+				throw new AnalysisEngineProcessException(e);
+			}
+		}
+	}
+
+	/**
+	 * Writes the document text, encoded as UTF-8 and optionally compressed,
+	 * through a {@link FileChannel}
+	 * 
+	 * @param documentText
+	 * @param outputFile
+	 * @throws IOException
+	 */
+	private void writeDocumentText(String documentText, File outputFile) throws IOException {
+		try (FileChannel channel = FileChannel.open(outputFile.toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			if (compressOutput) {
+				/*
+				 * the Deflater consumes byte arrays, so the text is encoded into
+				 * a heap buffer
+				 */
+				if (heapBuffer == null) {
+					heapBuffer = ByteBuffer.allocate(NIO_BUFFER_SIZE);
+					deflater = new Deflater(compressionLevel, true);
+				}
+				ReusableDeflaterGzipOutputStream gzipStream = new ReusableDeflaterGzipOutputStream(
+						Channels.newOutputStream(channel), deflater, NIO_BUFFER_SIZE);
+				encode(documentText, heapBuffer, null, gzipStream);
+				gzipStream.finish();
+			} else {
+				if (directBuffer == null) {
+					directBuffer = ByteBuffer.allocateDirect(NIO_BUFFER_SIZE);
+				}
+				encode(documentText, directBuffer, channel, null);
+			}
+		}
+		if (fsyncBatchSize > 0) {
+			unsyncedFiles.add(outputFile);
+			if (unsyncedFiles.size() >= fsyncBatchSize) {
+				syncFiles();
+			}
+		}
+	}
+
+	/**
+	 * Encodes the text into the buffer, writing the buffer contents to either
+	 * the channel or the output stream each time it fills
+	 */
+	private void encode(String text, ByteBuffer buffer, FileChannel channel, OutputStream stream)
+			throws IOException {
+		encoder.reset();
+		buffer.clear();
+		CharBuffer chars = CharBuffer.wrap(text);
+		CoderResult result;
+		do {
+			result = encoder.encode(chars, buffer, true);
+			checkResult(result);
+			drain(buffer, channel, stream);
+		} while (result.isOverflow());
+		do {
+			result = encoder.flush(buffer);
+			checkResult(result);
+			drain(buffer, channel, stream);
+		} while (result.isOverflow());
+	}
+
+	private static void checkResult(CoderResult result) throws CharacterCodingException {
+		if (result.isError()) {
+			result.throwException();
+		}
+	}
+
+	private static void drain(ByteBuffer buffer, FileChannel channel, OutputStream stream) throws IOException {
+		buffer.flip();
+		if (channel != null) {
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+		} else {
+			stream.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+		}
+		buffer.clear();
+	}
+
+	/**
+	 * Forces the contents of the files written since the last sync to the
+	 * storage device
+	 * 
+	 * @throws IOException
+	 */
+	private void syncFiles() throws IOException {
+		try {
+			for (File file : unsyncedFiles) {
+				try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+					channel.force(true);
+				}
+			}
+		} finally {
+			unsyncedFiles.clear();
+		}
 	}
 
 	private static final Logger logger = Logger.getLogger(DocumentTextSerializerAE.class);
@@ -210,7 +436,7 @@ public class DocumentTextSerializerAE extends JCasAnnotator_ImplBase {
 			throw new AnalysisEngineProcessException(
 					"Unable to determine output directory for document text serialization.", null);
 		}
-		FileUtil.mkdir(outputFile.getParentFile());
+		OutputDirectoryUtil.mkdir(outputFile.getParentFile());
 		return outputFile;
 	}
 
@@ -244,6 +470,42 @@ public class DocumentTextSerializerAE extends JCasAnnotator_ImplBase {
 				compressOutput, PARAM_OUTPUT_FILE_SUFFIX, outputFileSuffix);
 	}
 
+	/**
+	 * @return a description for an engine that appends the document text to
+	 *         rolling shard files in the output directory
+	 */
+	public static AnalysisEngineDescription getDescription_Sharded(TypeSystemDescription tsd,
+			Class<? extends DocumentMetadataHandler> documentMetadataHandlerClass, File outputDirectory,
+			String outputViewName, boolean compressOutput, String outputFileSuffix, int maxDocumentsPerShard,
+			int maxShardSizeMb) throws ResourceInitializationException {
+		return AnalysisEngineFactory.createEngineDescription(DocumentTextSerializerAE.class, tsd,
+				PARAM_DOCUMENT_METADATA_HANDLER_CLASS, documentMetadataHandlerClass, PARAM_OUTPUT_DIRECTORY,
+				outputDirectory.getAbsolutePath(), PARAM_OUTPUT_VIEW_NAME, outputViewName, PARAM_COMPRESS_OUTPUT_FLAG,
+				compressOutput, PARAM_OUTPUT_FILE_SUFFIX, outputFileSuffix, PARAM_SHARDED_OUTPUT_FLAG, true,
+				PARAM_MAX_DOCUMENTS_PER_SHARD, maxDocumentsPerShard, PARAM_MAX_SHARD_SIZE_MB, maxShardSizeMb);
+	}
+
+	/**
+	 * @param compressionLevel
+	 *            the {@link Deflater} compression level used if output
+	 *            compression is enabled
+	 * @param fsyncBatchSize
+	 *            if greater than 0, output files are synced to disk in batches
+	 *            of this many files
+	 * @return a description for an engine that writes the document text to a
+	 *         file per document using the NIO output path
+	 */
+	public static AnalysisEngineDescription getDescription_Nio(TypeSystemDescription tsd,
+			Class<? extends DocumentMetadataHandler> documentMetadataHandlerClass, File outputDirectory,
+			String outputViewName, boolean compressOutput, String outputFileSuffix, int compressionLevel,
+			int fsyncBatchSize) throws ResourceInitializationException {
+		return AnalysisEngineFactory.createEngineDescription(DocumentTextSerializerAE.class, tsd,
+				PARAM_DOCUMENT_METADATA_HANDLER_CLASS, documentMetadataHandlerClass, PARAM_OUTPUT_DIRECTORY,
+				outputDirectory.getAbsolutePath(), PARAM_OUTPUT_VIEW_NAME, outputViewName, PARAM_COMPRESS_OUTPUT_FLAG,
+				compressOutput, PARAM_OUTPUT_FILE_SUFFIX, outputFileSuffix, PARAM_USE_NIO_OUTPUT, true,
+				PARAM_COMPRESSION_LEVEL, compressionLevel, PARAM_FSYNC_BATCH_SIZE, fsyncBatchSize);
+	}
+
 	public static AnalysisEngineDescription getDescription_SaveToSourceFileDirectory(TypeSystemDescription tsd,
 			Class<? extends DocumentMetadataHandler> documentMetadataHandlerClass, String sourceViewName,
 			String outputViewName, boolean compressOutput, String outputFileSuffix)
@@ -33,19 +33,33 @@ package edu.ucdenver.ccp.nlp.uima.serialization.xmi;
  * #L%
  */
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.zip.GZIPInputStream;
 
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+
 import org.apache.uima.UimaContext;
 import org.apache.uima.analysis_engine.AnalysisEngine;
 import org.apache.uima.analysis_engine.AnalysisEngineDescription;
 import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
+import org.apache.uima.cas.Type;
+import org.apache.uima.cas.TypeSystem;
 import org.apache.uima.cas.impl.XmiCasDeserializer;
 import org.apache.uima.cas.impl.XmiSerializationSharedData;
 import org.apache.uima.fit.component.JCasAnnotator_ImplBase;
@@ -159,6 +173,27 @@ public class XmiLoaderAE extends JCasAnnotator_ImplBase {
 	 */
 	private DocumentMetadataHandler documentMetaDataHandler;
 
+	/**
+	 * If set, only feature structures of these types (and their subtypes), the
+	 * feature structures they reference, and built-in UIMA types are loaded.
+	 * Unneeded XMI elements are dropped by an {@link XmiTypeFilter} before they
+	 * reach the deserializer.
+	 */
+	public static final String PARAM_TYPES_TO_LOAD = "typesToLoad";
+	@ConfigurationParameter(mandatory = false, description = "If set, only annotations of these types (and their subtypes), along with the "
+			+ "feature structures they reference, are loaded. If not set, all types are loaded.")
+	private String[] typesToLoad;
+
+	/**
+	 * If greater than 1, the XMI files for a document are read (and
+	 * decompressed) in parallel using a thread pool of this size. They are
+	 * always merged into the CAS sequentially, in the same order as when read
+	 * serially.
+	 */
+	public static final String PARAM_PREREAD_THREAD_COUNT = "prereadThreadCount";
+	@ConfigurationParameter(mandatory = false, description = "If greater than 1, the XMI files for a document are read and decompressed in parallel using this many threads", defaultValue = "1")
+	private int prereadThreadCount;
+
 	private Logger logger;
 
 	/**
@@ -167,6 +202,17 @@ public class XmiLoaderAE extends JCasAnnotator_ImplBase {
 	 */
 	boolean THROW_EXCEPTION_ON_UNKNOWN_TYPE_OBSERVATION = true;
 
+	private ExecutorService prereadExecutor;
+
+	private SAXParserFactory saxParserFactory;
+
+	/**
+	 * the types to load (including subtypes) for the type system they were
+	 * computed for
+	 */
+	private Set<Type> typesToLoadSet;
+	private TypeSystem typesToLoadTypeSystem;
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -180,6 +226,22 @@ public class XmiLoaderAE extends JCasAnnotator_ImplBase {
 		logger = aContext.getLogger();
 		documentMetaDataHandler = (DocumentMetadataHandler) ConstructorUtil
 				.invokeConstructor(documentMetadataHandlerClassName);
+		if (prereadThreadCount > 1) {
+			prereadExecutor = Executors.newFixedThreadPool(prereadThreadCount);
+		}
+		if (typesToLoad != null && typesToLoad.length > 0) {
+			saxParserFactory = SAXParserFactory.newInstance();
+			saxParserFactory.setNamespaceAware(true);
+		}
+	}
+
+	@Override
+	public void destroy() {
+		if (prereadExecutor != null) {
+			prereadExecutor.shutdownNow();
+			prereadExecutor = null;
+		}
+		super.destroy();
 	}
 
 	/*
@@ -226,21 +288,154 @@ public class XmiLoaderAE extends JCasAnnotator_ImplBase {
 			infixesToLoad.addAll(Arrays.asList(infixes));
 		}
 
-		for (String xmiPathBase : filePaths) {
-			for (String infix : infixesToLoad) {
-				InputStream xmiStream = initializeXmiInputStream(documentId, xmiPathBase, infix);
-				if (xmiStream != null) {
-					try {
-						XmiCasDeserializer.deserialize(xmiStream, jcas.getCas(),
-								!THROW_EXCEPTION_ON_UNKNOWN_TYPE_OBSERVATION, sharedData, sharedData.getMaxXmiId());
-						xmiStream.close();
-					} catch (IOException | SAXException e) {
-						logger.log(Level.SEVERE, "Error loading XMI file. Document Id: " + documentId + " xmi path: " + xmiPathBase + " infix: " + infix);
-						throw new AnalysisEngineProcessException(e);
+		if (prereadExecutor == null) {
+			for (String xmiPathBase : filePaths) {
+				for (String infix : infixesToLoad) {
+					InputStream xmiStream = initializeXmiInputStream(documentId, xmiPathBase, infix);
+					if (xmiStream != null) {
+						deserialize(xmiStream, jcas, sharedData, documentId, xmiPathBase, infix);
 					}
 				}
 			}
+		} else {
+			prereadAndDeserialize(jcas, sharedData, documentId, filePaths, infixesToLoad);
+		}
+	}
+
+	/**
+	 * Reads the XMI files for the document in parallel, then deserializes them
+	 * into the CAS one at a time in path/infix order
+	 */
+	private void prereadAndDeserialize(JCas jcas, XmiSerializationSharedData sharedData, final String documentId,
+			List<String> filePaths, List<String> infixesToLoad) throws AnalysisEngineProcessException {
+		List<Future<byte[]>> xmiFutures = new ArrayList<Future<byte[]>>();
+		for (final String xmiPathBase : filePaths) {
+			for (final String infix : infixesToLoad) {
+				xmiFutures.add(prereadExecutor.submit(new Callable<byte[]>() {
+					@Override
+					public byte[] call() throws Exception {
+						return readXmiBytes(documentId, xmiPathBase, infix);
+					}
+				}));
+			}
+		}
+		try {
+			int index = 0;
+			for (String xmiPathBase : filePaths) {
+				for (String infix : infixesToLoad) {
+					byte[] xmiBytes = getPrereadXmi(xmiFutures.get(index++));
+					if (xmiBytes != null) {
+						deserialize(new ByteArrayInputStream(xmiBytes), jcas, sharedData, documentId, xmiPathBase,
+								infix);
+					}
+				}
+			}
+		} finally {
+			for (Future<byte[]> xmiFuture : xmiFutures) {
+				xmiFuture.cancel(true);
+			}
+		}
+	}
+
+	private static byte[] getPrereadXmi(Future<byte[]> xmiFuture) throws AnalysisEngineProcessException {
+		try {
+			return xmiFuture.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new AnalysisEngineProcessException(e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof AnalysisEngineProcessException) {
+				throw (AnalysisEngineProcessException) e.getCause();
+			}
+			throw new AnalysisEngineProcessException(e.getCause());
+		}
+	}
+
+	/**
+	 * @return the (decompressed) contents of the XMI file, or null if it does
+	 *         not exist
+	 */
+	private byte[] readXmiBytes(String documentId, String xmiPathBase, String infix)
+			throws AnalysisEngineProcessException, IOException {
+		InputStream xmiStream = initializeXmiInputStream(documentId, xmiPathBase, infix);
+		if (xmiStream == null) {
+			return null;
+		}
+		try {
+			return toByteArray(xmiStream);
+		} finally {
+			xmiStream.close();
+		}
+	}
+
+	private static byte[] toByteArray(InputStream xmiStream) throws IOException {
+		if (xmiStream instanceof ByteArrayInputStream) {
+			byte[] xmiBytes = new byte[xmiStream.available()];
+			int offset = 0;
+			int read;
+			while (offset < xmiBytes.length && (read = xmiStream.read(xmiBytes, offset, xmiBytes.length - offset)) != -1) {
+				offset += read;
+			}
+			return xmiBytes;
+		}
+		ByteArrayOutputStream xmiBytes = new ByteArrayOutputStream();
+		byte[] buffer = new byte[64 * 1024];
+		int read;
+		while ((read = xmiStream.read(buffer)) != -1) {
+			xmiBytes.write(buffer, 0, read);
+		}
+		return xmiBytes.toByteArray();
+	}
+
+	/**
+	 * Deserializes the XMI into the CAS, merging with anything previously
+	 * loaded for this document, and closes the stream
+	 */
+	private void deserialize(InputStream xmiStream, JCas jcas, XmiSerializationSharedData sharedData,
+			String documentId, String xmiPathBase, String infix) throws AnalysisEngineProcessException {
+		try {
+			if (saxParserFactory == null) {
+				XmiCasDeserializer.deserialize(xmiStream, jcas.getCas(), !THROW_EXCEPTION_ON_UNKNOWN_TYPE_OBSERVATION,
+						sharedData, sharedData.getMaxXmiId());
+			} else {
+				/*
+				 * the filter parses the XMI twice to determine which feature
+				 * structures are referenced, so it is read into memory first
+				 */
+				XmiCasDeserializer deserializer = new XmiCasDeserializer(jcas.getTypeSystem());
+				XmiTypeFilter filter = new XmiTypeFilter(saxParserFactory.newSAXParser().getXMLReader(),
+						jcas.getTypeSystem(), getTypesToLoad(jcas.getTypeSystem()));
+				filter.setContentHandler(deserializer.getXmiCasHandler(jcas.getCas(),
+						!THROW_EXCEPTION_ON_UNKNOWN_TYPE_OBSERVATION, sharedData, sharedData.getMaxXmiId()));
+				filter.parse(toByteArray(xmiStream));
+			}
+			xmiStream.close();
+		} catch (IOException | SAXException | ParserConfigurationException e) {
+			logger.log(Level.SEVERE, "Error loading XMI file. Document Id: " + documentId + " xmi path: " + xmiPathBase + " infix: " + infix);
+			throw new AnalysisEngineProcessException(e);
+		}
+	}
+
+	/**
+	 * @param typeSystem
+	 * @return the configured types to load plus their subtypes
+	 */
+	private Set<Type> getTypesToLoad(TypeSystem typeSystem) {
+		if (typesToLoadSet == null || typeSystem != typesToLoadTypeSystem) {
+			typesToLoadSet = new HashSet<Type>();
+			for (String typeName : typesToLoad) {
+				Type type = typeSystem.getType(typeName);
+				if (type == null) {
+					logger.log(Level.WARNING, "Type to load is not part of the type system and will be ignored: "
+							+ typeName);
+				} else {
+					typesToLoadSet.add(type);
+					typesToLoadSet.addAll(typeSystem.getProperlySubsumedTypes(type));
+				}
+			}
+			typesToLoadTypeSystem = typeSystem;
 		}
+		return typesToLoadSet;
 	}
 
 	/**
@@ -257,7 +452,7 @@ public class XmiLoaderAE extends JCasAnnotator_ImplBase {
 		} else {
 			xmiStream = getStreamFromClasspath(documentId, xmiPathBase, infix);
 		}
-		if (xmiFileCompressionType.equals(XmiFileCompressionType.GZ)) {
+		if (xmiStream != null && xmiFileCompressionType.equals(XmiFileCompressionType.GZ)) {
 			try {
 				xmiStream = new GZIPInputStream(xmiStream);
 			} catch (IOException e) {
@@ -339,4 +534,27 @@ public class XmiLoaderAE extends JCasAnnotator_ImplBase {
 				XmiLoaderAE.PARAM_XMI_FILENAME_INFIXES, infixes);
 	}
 
+	/**
+	 * @param typesToLoad
+	 *            only annotations of these types (and their subtypes), along
+	 *            with the feature structures they reference, are loaded
+	 * @param prereadThreadCount
+	 *            if greater than 1, the XMI files for a document are read in
+	 *            parallel using this many threads
+	 * @return a description for an {@link XmiLoaderAE} that loads a subset of
+	 *         the serialized types
+	 * @throws ResourceInitializationException
+	 */
+	public static AnalysisEngineDescription createAnalysisEngineDescription_TypeFiltered(TypeSystemDescription tsd,
+			Class<? extends DocumentMetadataHandler> documentMetaDataHandlerClass, XmiPathType xmiPathType,
+			XmiFileCompressionType xmiCompressionType, List<String> infixes, String[] typesToLoad,
+			int prereadThreadCount, String... xmiPaths) throws ResourceInitializationException {
+		return AnalysisEngineFactory.createEngineDescription(XmiLoaderAE.class, tsd,
+				XmiLoaderAE.PARAM_DOCUMENT_METADATA_HANDLER_CLASS, documentMetaDataHandlerClass.getName(),
+				PARAM_XMI_PATH_TYPE, xmiPathType.name(), PARAM_XMI_FILE_COMPRESSION_TYPE, xmiCompressionType.name(),
+				XmiLoaderAE.PARAM_XMI_PATH_NAMES, xmiPaths, XmiLoaderAE.PARAM_XMI_FILENAME_INFIXES,
+				(infixes == null) ? null : infixes.toArray(new String[infixes.size()]), PARAM_TYPES_TO_LOAD,
+				typesToLoad, PARAM_PREREAD_THREAD_COUNT, prereadThreadCount);
+	}
+
 }
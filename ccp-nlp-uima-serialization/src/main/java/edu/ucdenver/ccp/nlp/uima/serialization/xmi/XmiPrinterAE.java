@@ -1,7 +1,5 @@
 package edu.ucdenver.ccp.nlp.uima.serialization.xmi;
 
-import java.io.BufferedWriter;
-
 /*
  * #%L
  * Colorado Computational Pharmacology's nlp module
@@ -35,24 +33,38 @@ import java.io.BufferedWriter;
  * #L%
  */
 
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
-import java.io.Writer;
-import java.util.zip.GZIPOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.Deflater;
 
 import org.apache.uima.UimaContext;
 import org.apache.uima.analysis_engine.AnalysisEngine;
 import org.apache.uima.analysis_engine.AnalysisEngineDescription;
 import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
+import org.apache.uima.cas.Type;
+import org.apache.uima.cas.TypeSystem;
 import org.apache.uima.cas.impl.XmiCasSerializer;
-import org.apache.uima.fit.component.JCasAnnotator_ImplBase;
 import org.apache.uima.fit.descriptor.ConfigurationParameter;
 import org.apache.uima.fit.factory.AnalysisEngineFactory;
 import org.apache.uima.jcas.JCas;
 import org.apache.uima.resource.ResourceInitializationException;
+import org.apache.uima.resource.metadata.FeatureDescription;
+import org.apache.uima.resource.metadata.TypeDescription;
 import org.apache.uima.resource.metadata.TypeSystemDescription;
+import org.apache.uima.resource.metadata.impl.TypeSystemDescription_impl;
+import org.apache.uima.util.CasCreationUtils;
+import org.apache.uima.util.Level;
+import org.apache.uima.util.TypeSystemUtil;
 import org.apache.uima.util.XMLSerializer;
 import org.joda.time.DateTime;
 import org.joda.time.format.DateTimeFormatter;
@@ -60,9 +72,12 @@ import org.joda.time.format.ISODateTimeFormat;
 import org.xml.sax.SAXException;
 
 import edu.ucdenver.ccp.common.file.FileUtil;
-import edu.ucdenver.ccp.common.file.FileWriterUtil;
 import edu.ucdenver.ccp.common.reflection.ConstructorUtil;
 import edu.ucdenver.ccp.nlp.pipelines.log.AnnotationOutputLog;
+import edu.ucdenver.ccp.nlp.uima.serialization.ReusableDeflaterGzipOutputStream;
+import edu.ucdenver.ccp.nlp.uima.serialization.archive.ArchiveEntry;
+import edu.ucdenver.ccp.nlp.uima.serialization.archive.ShardableSerializer_AE;
+import edu.ucdenver.ccp.nlp.uima.serialization.archive.ShardedArchiveWriter;
 import edu.ucdenver.ccp.nlp.uima.shims.ShimDefaults;
 import edu.ucdenver.ccp.uima.shims.document.DocumentMetadataHandler;
 
@@ -75,7 +90,7 @@ import edu.ucdenver.ccp.uima.shims.document.DocumentMetadataHandler;
  *         ccpsupport@ucdenver.edu
  * 
  */
-public class XmiPrinterAE extends JCasAnnotator_ImplBase {
+public class XmiPrinterAE extends ShardableSerializer_AE {
 	/**
 	 * File suffix appended to the XMI output files
 	 */
@@ -123,6 +138,38 @@ public class XmiPrinterAE extends JCasAnnotator_ImplBase {
 	@ConfigurationParameter(mandatory = false, description = "if true, the output XMI file will be compressed using gzip", defaultValue = "true")
 	private boolean compressOutput;
 
+	/**
+	 * If set, only feature structures of these types (and their subtypes) are
+	 * written to the XMI, along with any types they reference
+	 */
+	public static final String PARAM_TYPES_TO_SERIALIZE = "typesToSerialize";
+	@ConfigurationParameter(mandatory = false, description = "If set, only annotations of these types (and their subtypes) are serialized, "
+			+ "along with the types they reference. If not set, all types are serialized.")
+	private String[] typesToSerialize;
+
+	/**
+	 * The compression level (see {@link Deflater}) used when compressing
+	 * per-document output files
+	 */
+	public static final String PARAM_COMPRESSION_LEVEL = "compressionLevel";
+	@ConfigurationParameter(mandatory = false, description = "The compression level (0-9, or -1 for the default) used when compressing output files", defaultValue = "-1")
+	private int compressionLevel;
+
+	private static final int OUTPUT_BUFFER_SIZE = 256 * 1024;
+
+	/**
+	 * the serializer depends only on the type system (and the configured type
+	 * filter) so it is created once and reused for every CAS that shares the
+	 * same type system
+	 */
+	private XmiCasSerializer xmiCasSerializer;
+	private TypeSystem xmiCasSerializerTypeSystem;
+
+	/**
+	 * reused when compressing per-document output files
+	 */
+	private Deflater deflater;
+
 	/**
 	 * This method returns an initialized {@link AnalysisEngine} capable of
 	 * persisting a CAS as an XMI file
@@ -153,6 +200,20 @@ public class XmiPrinterAE extends JCasAnnotator_ImplBase {
 				compressOutput);
 	}
 
+	/**
+	 * @return a description for an engine that writes slim XMI containing only
+	 *         the specified types (and their subtypes), along with any types they
+	 *         reference
+	 */
+	public static AnalysisEngineDescription getDescription_TypeFiltered(TypeSystemDescription tsd,
+			Class<? extends DocumentMetadataHandler> documentMetaDataExtractorClass, File outputDirectory, String infix,
+			boolean compressOutput, String[] typesToSerialize) throws ResourceInitializationException {
+		return AnalysisEngineFactory.createEngineDescription(XmiPrinterAE.class, tsd,
+				PARAM_DOCUMENT_METADATA_HANDLER_CLASS, documentMetaDataExtractorClass.getName(), PARAM_OUTPUT_DIRECTORY,
+				outputDirectory.getAbsolutePath(), PARAM_OUTPUT_FILENAME_INFIX, infix, PARAM_COMPRESS_OUTPUT,
+				compressOutput, PARAM_TYPES_TO_SERIALIZE, typesToSerialize);
+	}
+
 	public static AnalysisEngine createAnalysisEngine(TypeSystemDescription tsd,
 			Class<? extends DocumentMetadataHandler> documentMetaDataExtractorClass, File outputDirectory, String infix,
 			boolean compressOutput) throws ResourceInitializationException {
@@ -179,6 +240,7 @@ public class XmiPrinterAE extends JCasAnnotator_ImplBase {
 		super.initialize(context);
 		documentMetaDataExtractor = (DocumentMetadataHandler) ConstructorUtil
 				.invokeConstructor(documentMetadataHandlerClassName);
+		checkShardedOutputDirectory(outputDirectory);
 		if (outputDirectory != null) {
 			FileUtil.mkdir(outputDirectory);
 		}
@@ -195,6 +257,18 @@ public class XmiPrinterAE extends JCasAnnotator_ImplBase {
 	public void process(JCas jcas) throws AnalysisEngineProcessException {
 		String documentId = documentMetaDataExtractor.extractDocumentId(jcas);
 
+		if (isShardedOutput()) {
+			try {
+				ArchiveEntry entry = archiveCasXmi(jcas, documentId);
+				logSerializedFile(jcas, entry.toString());
+			} catch (IOException e) {
+				throw new AnalysisEngineProcessException(e);
+			} catch (SAXException e) {
+				throw new AnalysisEngineProcessException(e);
+			}
+			return;
+		}
+
 		File xmiFile = null;
 		/*
 		 * if the outputDirectory variable is set, then use it as the location
@@ -222,7 +296,7 @@ public class XmiPrinterAE extends JCasAnnotator_ImplBase {
 		}
 		try {
 			serializeCasToXmi(jcas, xmiFile);
-			logSerializedFile(jcas, xmiFile);
+			logSerializedFile(jcas, xmiFile.getAbsolutePath());
 		} catch (IOException e) {
 			throw new AnalysisEngineProcessException(e);
 		} catch (SAXException e) {
@@ -232,10 +306,10 @@ public class XmiPrinterAE extends JCasAnnotator_ImplBase {
 
 	public static DateTimeFormatter DATE_FORMATTER = ISODateTimeFormat.dateTime();
 
-	private void logSerializedFile(JCas jcas, File xmiFile) {
+	private void logSerializedFile(JCas jcas, String xmiFileLocation) {
 		AnnotationOutputLog aoLog = new AnnotationOutputLog(jcas);
 		aoLog.setAnnotationCount(jcas.getAnnotationIndex().size());
-		aoLog.setLocalAnnotationFile(xmiFile.getAbsolutePath());
+		aoLog.setLocalAnnotationFile(xmiFileLocation);
 		aoLog.setRunDate(DATE_FORMATTER.print(new DateTime()));
 		aoLog.setRunKey(outputFilenameInfix);
 		aoLog.addToIndexes();
@@ -267,6 +341,31 @@ public class XmiPrinterAE extends JCasAnnotator_ImplBase {
 		}
 	}
 
+	/**
+	 * Serializes the CAS to XMI (encoded as UTF-8) into the document buffer
+	 * and appends it to the current shard
+	 * 
+	 * @return the location of the XMI in the archive
+	 */
+	private ArchiveEntry archiveCasXmi(JCas jcas, String documentId) throws IOException, SAXException,
+			AnalysisEngineProcessException {
+		String shardName = (outputFilenameInfix == null) ? "xmi" : outputFilenameInfix;
+		ShardedArchiveWriter archiveWriter = getArchiveWriter(outputDirectory, shardName, XMI_FILE_SUFFIX,
+				compressOutput);
+		XMLSerializer xmlSerializer = new XMLSerializer(openDocumentBuffer(), false);
+		getXmiCasSerializer(jcas).serialize(jcas.getCas(), xmlSerializer.getContentHandler());
+		return archiveDocumentBuffer(archiveWriter, documentId);
+	}
+
+	@Override
+	public void destroy() {
+		if (deflater != null) {
+			deflater.end();
+			deflater = null;
+		}
+		super.destroy();
+	}
+
 	/**
 	 * Utility method that handles the XMI serialization
 	 * 
@@ -278,16 +377,135 @@ public class XmiPrinterAE extends JCasAnnotator_ImplBase {
 	 *             if there's an issue writing to the output file
 	 * @throws SAXException
 	 *             if there's an issue serializing the CAS
+	 * @throws AnalysisEngineProcessException
+	 *             if the type filter cannot be created
 	 */
-	private void serializeCasToXmi(JCas jcas, File xmiFile) throws IOException, SAXException {
-		try (Writer writer = (compressOutput)
-				? new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(new FileOutputStream(xmiFile))))
-				: FileWriterUtil.initBufferedWriter(xmiFile)) {
-			XmiCasSerializer serializer = new XmiCasSerializer(jcas.getTypeSystem());
-			XMLSerializer xmlSerializer = new XMLSerializer(writer, false);
-			serializer.serialize(jcas.getCas(), xmlSerializer.getContentHandler());
+	private void serializeCasToXmi(JCas jcas, File xmiFile) throws IOException, SAXException,
+			AnalysisEngineProcessException {
+		try (OutputStream outputStream = openOutputStream(xmiFile)) {
+			XMLSerializer xmlSerializer = new XMLSerializer(outputStream, false);
+			getXmiCasSerializer(jcas).serialize(jcas.getCas(), xmlSerializer.getContentHandler());
 		}
+	}
 
+	/**
+	 * @param xmiFile
+	 * @return a buffered stream to the output file; gzip-compressed using the
+	 *         reusable {@link Deflater} if output compression is enabled
+	 * @throws IOException
+	 */
+	private OutputStream openOutputStream(File xmiFile) throws IOException {
+		OutputStream fileStream = new FileOutputStream(xmiFile);
+		if (!compressOutput) {
+			return new BufferedOutputStream(fileStream, OUTPUT_BUFFER_SIZE);
+		}
+		if (deflater == null) {
+			deflater = new Deflater(compressionLevel, true);
+		}
+		return new BufferedOutputStream(new ReusableDeflaterGzipOutputStream(fileStream, deflater,
+				OUTPUT_BUFFER_SIZE), OUTPUT_BUFFER_SIZE);
+	}
+
+	/**
+	 * @param jcas
+	 * @return the cached {@link XmiCasSerializer}, creating it if this is the
+	 *         first CAS or the type system has changed
+	 * @throws AnalysisEngineProcessException
+	 *             if the type filter cannot be created
+	 */
+	private XmiCasSerializer getXmiCasSerializer(JCas jcas) throws AnalysisEngineProcessException {
+		TypeSystem typeSystem = jcas.getTypeSystem();
+		if (xmiCasSerializer == null || typeSystem != xmiCasSerializerTypeSystem) {
+			TypeSystem filterTypeSystem = typeSystem;
+			if (typesToSerialize != null && typesToSerialize.length > 0) {
+				try {
+					filterTypeSystem = createFilterTypeSystem(typeSystem);
+				} catch (ResourceInitializationException e) {
+					throw new AnalysisEngineProcessException(e);
+				}
+			}
+			xmiCasSerializer = new XmiCasSerializer(filterTypeSystem);
+			xmiCasSerializerTypeSystem = typeSystem;
+		}
+		return xmiCasSerializer;
+	}
+
+	/**
+	 * Creates the type system used to filter the serialized output. It
+	 * contains the configured types and their subtypes, plus the supertypes of
+	 * those types and the types referenced by their features (along with the
+	 * subtypes of the referenced types, as e.g. the slot mentions of a class
+	 * mention are always instances of a subtype of the declared element type)
+	 * so that the retained annotations remain complete.
+	 * 
+	 * @param typeSystem
+	 *            the type system of the CAS being serialized
+	 * @return a type system containing only the types to serialize
+	 * @throws ResourceInitializationException
+	 */
+	private TypeSystem createFilterTypeSystem(TypeSystem typeSystem) throws ResourceInitializationException {
+		TypeSystemDescription fullTsd = TypeSystemUtil.typeSystem2TypeSystemDescription(typeSystem);
+		Map<String, TypeDescription> nameToTypeMap = new HashMap<String, TypeDescription>();
+		for (TypeDescription td : fullTsd.getTypes()) {
+			nameToTypeMap.put(td.getName(), td);
+		}
+
+		LinkedList<String> typesToVisit = new LinkedList<String>();
+		for (String typeName : typesToSerialize) {
+			Type type = typeSystem.getType(typeName);
+			if (type == null) {
+				getContext().getLogger().log(Level.WARNING,
+						"Type to serialize is not part of the type system and will be ignored: " + typeName);
+				continue;
+			}
+			typesToVisit.add(typeName);
+			for (Type subtype : typeSystem.getProperlySubsumedTypes(type)) {
+				typesToVisit.add(subtype.getName());
+			}
+		}
+
+		Set<String> retainedTypeNames = new HashSet<String>();
+		while (!typesToVisit.isEmpty()) {
+			String typeName = typesToVisit.removeFirst();
+			TypeDescription td = nameToTypeMap.get(typeName);
+			/* built-in types are not part of the description and are always retained */
+			if (td == null || !retainedTypeNames.add(typeName)) {
+				continue;
+			}
+			typesToVisit.add(td.getSupertypeName());
+			if (td.getFeatures() != null) {
+				for (FeatureDescription fd : td.getFeatures()) {
+					addTypeAndSubtypes(typeSystem, fd.getRangeTypeName(), typesToVisit);
+					if (fd.getElementType() != null) {
+						addTypeAndSubtypes(typeSystem, fd.getElementType(), typesToVisit);
+					}
+				}
+			}
+		}
+
+		List<TypeDescription> retainedTypes = new ArrayList<TypeDescription>();
+		for (TypeDescription td : fullTsd.getTypes()) {
+			if (retainedTypeNames.contains(td.getName())) {
+				retainedTypes.add(td);
+			}
+		}
+		TypeSystemDescription filterTsd = new TypeSystemDescription_impl();
+		filterTsd.setTypes(retainedTypes.toArray(new TypeDescription[retainedTypes.size()]));
+		return CasCreationUtils.createCas(filterTsd, null, null).getTypeSystem();
+	}
+
+	/**
+	 * Adds the named type and all of its subtypes to the list of types to
+	 * visit
+	 */
+	private static void addTypeAndSubtypes(TypeSystem typeSystem, String typeName, List<String> typesToVisit) {
+		typesToVisit.add(typeName);
+		Type type = typeSystem.getType(typeName);
+		if (type != null) {
+			for (Type subtype : typeSystem.getProperlySubsumedTypes(type)) {
+				typesToVisit.add(subtype.getName());
+			}
+		}
 	}
 
 }
@@ -0,0 +1,395 @@
+package edu.ucdenver.ccp.nlp.uima.serialization.xmi;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's nlp module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.Feature;
+import org.apache.uima.cas.Type;
+import org.apache.uima.cas.TypeSystem;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.AttributesImpl;
+import org.xml.sax.helpers.DefaultHandler;
+import org.xml.sax.helpers.XMLFilterImpl;
+
+/**
+ * A SAX filter placed in front of the XMI CAS deserializer that drops the XMI
+ * elements for feature structures that are not needed, so that they are never
+ * instantiated in the CAS. The XMI is parsed twice (see {@link #parse(byte[])}):
+ * the first pass records the type of each top-level feature structure and the
+ * identifiers it references, and the feature structures to load are computed
+ * as the closure, over those references, of
+ * <ul>
+ * <li>the feature structures whose type is one of the types to load (or a
+ * subtype thereof), and</li>
+ * <li>the feature structures of built-in UIMA types other than arrays and
+ * lists, e.g. the Sofa and the document annotation.</li>
+ * </ul>
+ * The result therefore does not depend on the order in which the feature
+ * structures were serialized, and arrays and lists are only loaded if they are
+ * referenced by a loaded feature structure. The second pass drops all other
+ * feature structures and removes their identifiers from the view membership
+ * lists. Elements whose type is not in the type system are passed through, so
+ * that the deserializer handles them according to its lenient setting.
+ * <p>
+ * A new instance must be used for each XMI document.
+ * 
+ * @author Colorado Computational Pharmacology, UC Denver;
+ *         ccpsupport@ucdenver.edu
+ * 
+ */
+public class XmiTypeFilter extends XMLFilterImpl {
+
+	private static final String XMI_NAMESPACE = "http://www.omg.org/XMI";
+	private static final String XMI_ID = "id";
+	private static final String TYPE_NAMESPACE_PREFIX = "http:///";
+	private static final String TYPE_NAMESPACE_SUFFIX = ".ecore";
+	private static final String CAS_NAMESPACE = "http:///uima/cas.ecore";
+	private static final String VIEW_ELEMENT = "View";
+	private static final String VIEW_MEMBERS_ATTRIBUTE = "members";
+	private static final String ARRAY_ELEMENTS_ATTRIBUTE = "elements";
+	private static final String BUILT_IN_TYPE_PREFIX = "uima.";
+
+	/**
+	 * depth of the top-level feature structure elements; the root element is at
+	 * depth 1
+	 */
+	private static final int FS_ELEMENT_DEPTH = 2;
+
+	private final TypeSystem typeSystem;
+
+	private final Set<Type> typesToLoad;
+
+	private final Type fsArrayType;
+
+	/**
+	 * built-in types whose values are never feature structure references
+	 */
+	private final List<Type> primitiveContainerTypes = new ArrayList<Type>();
+
+	private final Type listBaseType;
+
+	private final Map<String, Type> elementNameToTypeMap = new HashMap<String, Type>();
+
+	/**
+	 * the identifiers of the feature structures to load; null until the first
+	 * pass has completed
+	 */
+	private Set<String> idsToLoad;
+
+	private final Set<String> skippedIds = new HashSet<String>();
+
+	private int depth = 0;
+
+	private int skipDepth = -1;
+
+	/**
+	 * @param parent
+	 *            the namespace-aware {@link XMLReader} that parses the XMI
+	 * @param typeSystem
+	 *            the type system of the CAS being populated
+	 * @param typesToLoad
+	 *            the types to load, including any subtypes that should also be
+	 *            loaded
+	 */
+	public XmiTypeFilter(XMLReader parent, TypeSystem typeSystem, Set<Type> typesToLoad) {
+		super(parent);
+		this.typeSystem = typeSystem;
+		this.typesToLoad = typesToLoad;
+		this.fsArrayType = typeSystem.getType(CAS.TYPE_NAME_FS_ARRAY);
+		this.listBaseType = typeSystem.getType(CAS.TYPE_NAME_LIST_BASE);
+		for (String typeName : new String[] { CAS.TYPE_NAME_STRING_LIST, CAS.TYPE_NAME_INTEGER_LIST,
+				CAS.TYPE_NAME_FLOAT_LIST }) {
+			Type type = typeSystem.getType(typeName);
+			if (type != null) {
+				primitiveContainerTypes.add(type);
+			}
+		}
+	}
+
+	/**
+	 * Parses the XMI twice: once to determine which feature structures to load
+	 * and once to pass them to the content handler
+	 * 
+	 * @param xmi
+	 * @throws IOException
+	 * @throws SAXException
+	 */
+	public void parse(byte[] xmi) throws IOException, SAXException {
+		ReferenceCollector collector = new ReferenceCollector();
+		XMLReader parent = getParent();
+		parent.setContentHandler(collector);
+		parent.parse(new InputSource(new ByteArrayInputStream(xmi)));
+		idsToLoad = collector.computeIdsToLoad();
+		parse(new InputSource(new ByteArrayInputStream(xmi)));
+	}
+
+	@Override
+	public void parse(InputSource input) throws SAXException, IOException {
+		if (idsToLoad == null) {
+			throw new IllegalStateException("The feature structures to load have not been determined. "
+					+ "Use parse(byte[]) to parse the XMI.");
+		}
+		super.parse(input);
+	}
+
+	@Override
+	public void startElement(String uri, String localName, String qName, Attributes atts) throws SAXException {
+		depth++;
+		if (skipDepth != -1) {
+			return;
+		}
+		Attributes attributes = atts;
+		if (depth == FS_ELEMENT_DEPTH) {
+			if (CAS_NAMESPACE.equals(uri) && VIEW_ELEMENT.equals(localName)) {
+				attributes = removeSkippedViewMembers(atts);
+			} else if (getType(uri, localName) != null) {
+				String xmiId = atts.getValue(XMI_NAMESPACE, XMI_ID);
+				if (xmiId != null && !idsToLoad.contains(xmiId)) {
+					skippedIds.add(xmiId);
+					skipDepth = depth;
+					return;
+				}
+			}
+		}
+		super.startElement(uri, localName, qName, attributes);
+	}
+
+	@Override
+	public void endElement(String uri, String localName, String qName) throws SAXException {
+		if (skipDepth != -1) {
+			if (depth == skipDepth) {
+				skipDepth = -1;
+			}
+			depth--;
+			return;
+		}
+		depth--;
+		super.endElement(uri, localName, qName);
+	}
+
+	@Override
+	public void characters(char[] ch, int start, int length) throws SAXException {
+		if (skipDepth == -1) {
+			super.characters(ch, start, length);
+		}
+	}
+
+	@Override
+	public void ignorableWhitespace(char[] ch, int start, int length) throws SAXException {
+		if (skipDepth == -1) {
+			super.ignorableWhitespace(ch, start, length);
+		}
+	}
+
+	/**
+	 * @return true if feature structures of the type are loaded regardless of
+	 *         whether they are referenced
+	 */
+	private boolean isRootType(Type type) {
+		if (typesToLoad.contains(type)) {
+			return true;
+		}
+		return type.getName().startsWith(BUILT_IN_TYPE_PREFIX) && !type.isArray()
+				&& (listBaseType == null || !typeSystem.subsumes(listBaseType, type));
+	}
+
+	/**
+	 * @return true if values of the (feature range) type may be references to
+	 *         other feature structures
+	 */
+	private boolean isReferenceType(Type type) {
+		if (type.isPrimitive()) {
+			return false;
+		}
+		if (type.isArray()) {
+			return type.equals(fsArrayType);
+		}
+		for (Type primitiveContainerType : primitiveContainerTypes) {
+			if (typeSystem.subsumes(primitiveContainerType, type)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Adds the identifiers referenced by the FS-valued features of a feature
+	 * structure to the input list
+	 */
+	private void addReferences(Type type, Attributes atts, List<String> references) {
+		boolean isFsArray = type.equals(fsArrayType);
+		for (int i = 0; i < atts.getLength(); i++) {
+			String name = atts.getLocalName(i);
+			if (isFsArray) {
+				if (ARRAY_ELEMENTS_ATTRIBUTE.equals(name)) {
+					addIds(atts.getValue(i), references);
+				}
+			} else {
+				Feature feature = type.getFeatureByBaseName(name);
+				if (feature != null && isReferenceType(feature.getRange())) {
+					addIds(atts.getValue(i), references);
+				}
+			}
+		}
+	}
+
+	private Attributes removeSkippedViewMembers(Attributes atts) {
+		int index = atts.getIndex(VIEW_MEMBERS_ATTRIBUTE);
+		if (index == -1 || skippedIds.isEmpty()) {
+			return atts;
+		}
+		StringBuilder members = new StringBuilder();
+		for (String id : atts.getValue(index).split("\\s+")) {
+			if (!id.isEmpty() && !skippedIds.contains(id)) {
+				if (members.length() > 0) {
+					members.append(' ');
+				}
+				members.append(id);
+			}
+		}
+		AttributesImpl filteredAtts = new AttributesImpl(atts);
+		filteredAtts.setValue(index, members.toString());
+		return filteredAtts;
+	}
+
+	private static void addIds(String value, List<String> ids) {
+		int start = -1;
+		for (int i = 0; i <= value.length(); i++) {
+			boolean isSpace = (i == value.length()) || Character.isWhitespace(value.charAt(i));
+			if (isSpace) {
+				if (start != -1) {
+					ids.add(value.substring(start, i));
+					start = -1;
+				}
+			} else if (start == -1) {
+				start = i;
+			}
+		}
+	}
+
+	/**
+	 * @return the type for the element, e.g. the namespace
+	 *         http:///edu/ucdenver/ccp/nlp/core/uima/annotation.ecore and local
+	 *         name CCPTextAnnotation map to
+	 *         edu.ucdenver.ccp.nlp.core.uima.annotation.CCPTextAnnotation; null
+	 *         if the element does not represent a type in the type system
+	 */
+	private Type getType(String uri, String localName) {
+		String key = uri + '#' + localName;
+		if (elementNameToTypeMap.containsKey(key)) {
+			return elementNameToTypeMap.get(key);
+		}
+		Type type = null;
+		if (uri.startsWith(TYPE_NAMESPACE_PREFIX) && uri.endsWith(TYPE_NAMESPACE_SUFFIX)) {
+			String packageName = uri.substring(TYPE_NAMESPACE_PREFIX.length(),
+					uri.length() - TYPE_NAMESPACE_SUFFIX.length()).replace('/', '.');
+			type = typeSystem.getType(packageName + '.' + localName);
+		}
+		elementNameToTypeMap.put(key, type);
+		return type;
+	}
+
+	/**
+	 * First pass: records the references of each top-level feature structure
+	 * and which feature structures are loaded regardless of references
+	 */
+	private class ReferenceCollector extends DefaultHandler {
+
+		private final Map<String, List<String>> idToReferencesMap = new HashMap<String, List<String>>();
+
+		private final List<String> rootIds = new ArrayList<String>();
+
+		private int collectorDepth = 0;
+
+		@Override
+		public void startElement(String uri, String localName, String qName, Attributes atts) {
+			collectorDepth++;
+			if (collectorDepth != FS_ELEMENT_DEPTH
+					|| (CAS_NAMESPACE.equals(uri) && VIEW_ELEMENT.equals(localName))) {
+				return;
+			}
+			Type type = getType(uri, localName);
+			String xmiId = atts.getValue(XMI_NAMESPACE, XMI_ID);
+			if (type == null || xmiId == null) {
+				return;
+			}
+			List<String> references = new ArrayList<String>();
+			addReferences(type, atts, references);
+			idToReferencesMap.put(xmiId, references);
+			if (isRootType(type)) {
+				rootIds.add(xmiId);
+			}
+		}
+
+		@Override
+		public void endElement(String uri, String localName, String qName) {
+			collectorDepth--;
+		}
+
+		/**
+		 * @return the identifiers of the root feature structures and of all
+		 *         feature structures reachable from them
+		 */
+		private Set<String> computeIdsToLoad() {
+			Set<String> ids = new HashSet<String>(rootIds);
+			Deque<String> idsToVisit = new ArrayDeque<String>(rootIds);
+			while (!idsToVisit.isEmpty()) {
+				List<String> references = idToReferencesMap.get(idsToVisit.pop());
+				if (references != null) {
+					for (String reference : references) {
+						if (ids.add(reference)) {
+							idsToVisit.push(reference);
+						}
+					}
+				}
+			}
+			return ids;
+		}
+	}
+
+}
@@ -0,0 +1,117 @@
+package edu.ucdenver.ccp.nlp.uima.serialization;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's nlp module
+ * %%
+ * Copyright (C) 2012 - 2017 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.uima.UIMAException;
+import org.apache.uima.analysis_engine.AnalysisEngine;
+import org.apache.uima.fit.factory.AnalysisEngineFactory;
+import org.junit.Test;
+
+import edu.ucdenver.ccp.common.collections.CollectionsUtil;
+import edu.ucdenver.ccp.common.file.CharacterEncoding;
+import edu.ucdenver.ccp.common.file.FileWriterUtil;
+import edu.ucdenver.ccp.common.file.FileWriterUtil.FileSuffixEnforcement;
+import edu.ucdenver.ccp.common.file.FileWriterUtil.WriteMode;
+import edu.ucdenver.ccp.nlp.core.annotation.serialization.AnnotationFileIndex;
+import edu.ucdenver.ccp.nlp.core.uima.annotation.CCPTextAnnotation;
+import edu.ucdenver.ccp.nlp.uima.test.DefaultUIMATestCase;
+import edu.ucdenver.ccp.nlp.uima.util.UIMA_Util;
+
+/**
+ * @author Colorado Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class AnnotationFromFileLoader_AETest extends DefaultUIMATestCase {
+
+	private static final String DOCUMENT_TEXT = "abc-1 and def2";
+
+	@Override
+	protected void initJCas() throws UIMAException, IOException {
+		jcas.setDocumentText(DOCUMENT_TEXT);
+		UIMA_Util.setDocumentID(jcas, "doc1");
+	}
+
+	private File createAnnotationFile() throws IOException {
+		File annotationFile = folder.newFile("annotations.utf8");
+		FileWriterUtil.printLines(CollectionsUtil.createList("doc1|99|0 5|protein|abc-1", "doc2|33|10 14|gene|def2",
+				"doc1|99|10 14|gene|def2"), annotationFile, CharacterEncoding.UTF_8, WriteMode.OVERWRITE,
+				FileSuffixEnforcement.OFF);
+		return annotationFile;
+	}
+
+	private List<String> getClassMentionNames() {
+		List<String> classMentionNames = new ArrayList<String>();
+		for (Iterator<CCPTextAnnotation> annotIter = UIMA_Util.getTextAnnotationIterator(jcas); annotIter.hasNext();) {
+			classMentionNames.add(annotIter.next().getClassMention().getMentionName());
+		}
+		return classMentionNames;
+	}
+
+	@Test
+	public void testIndexedAnnotationLoading() throws UIMAException, IOException {
+		File annotationFile = createAnnotationFile();
+		AnalysisEngine engine = AnalysisEngineFactory.createEngine(AnnotationFromFileLoader_AE.class, tsd,
+				AnnotationFromFileLoader_AE.PARAM_ANNOTATION_FILE, annotationFile.getAbsolutePath(),
+				AnnotationFromFileLoader_AE.PARAM_USE_INDEX, true);
+		assertTrue(AnnotationFileIndex.getIndexFile(annotationFile).exists());
+
+		engine.process(jcas);
+		assertEquals(CollectionsUtil.createList("protein", "gene"), getClassMentionNames());
+
+		/* the annotations remain available to a later document with the same identifier */
+		jcas.reset();
+		initJCas();
+		engine.process(jcas);
+		assertEquals(CollectionsUtil.createList("protein", "gene"), getClassMentionNames());
+
+		/* a document that is not in the annotation file receives no annotations */
+		jcas.reset();
+		jcas.setDocumentText(DOCUMENT_TEXT);
+		UIMA_Util.setDocumentID(jcas, "doc3");
+		engine.process(jcas);
+		assertTrue(getClassMentionNames().isEmpty());
+
+		engine.destroy();
+	}
+
+}
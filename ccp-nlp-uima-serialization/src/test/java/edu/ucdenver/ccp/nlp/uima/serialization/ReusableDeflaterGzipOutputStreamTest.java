@@ -0,0 +1,93 @@
+package edu.ucdenver.ccp.nlp.uima.serialization;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's nlp module
+ * %%
+ * Copyright (C) 2012 - 2017 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.Test;
+
+/**
+ * @author Colorado Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class ReusableDeflaterGzipOutputStreamTest {
+
+	@Test
+	public void testReuseDeflater() throws IOException {
+		Random random = new Random(0);
+		Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+		try {
+			for (int i = 0; i < 5; i++) {
+				byte[] data = new byte[10000 + random.nextInt(100000)];
+				for (int j = 0; j < data.length; j++) {
+					data[j] = (byte) ('a' + random.nextInt(16));
+				}
+				ByteArrayOutputStream expected = new ByteArrayOutputStream();
+				try (OutputStream os = new GZIPOutputStream(expected)) {
+					os.write(data);
+				}
+				ByteArrayOutputStream observed = new ByteArrayOutputStream();
+				try (OutputStream os = new ReusableDeflaterGzipOutputStream(observed, deflater, 8192)) {
+					os.write(data);
+				}
+				/* the OS field of the gzip header (byte 9) varies by JDK version */
+				assertArrayEquals(Arrays.copyOfRange(expected.toByteArray(), 10, expected.size()),
+						Arrays.copyOfRange(observed.toByteArray(), 10, observed.size()));
+				assertArrayEquals(data, gunzip(observed.toByteArray(), data.length));
+			}
+		} finally {
+			deflater.end();
+		}
+	}
+
+	private static byte[] gunzip(byte[] compressed, int length) throws IOException {
+		try (DataInputStream in = new DataInputStream(new GZIPInputStream(new ByteArrayInputStream(compressed)))) {
+			byte[] data = new byte[length];
+			in.readFully(data);
+			return data;
+		}
+	}
+
+}
@@ -0,0 +1,246 @@
+package edu.ucdenver.ccp.nlp.uima.serialization.archive;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's nlp module
+ * %%
+ * Copyright (C) 2012 - 2017 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import edu.ucdenver.ccp.common.file.CharacterEncoding;
+import edu.ucdenver.ccp.common.file.FileReaderUtil;
+
+/**
+ * @author Colorado Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class ShardedArchiveWriterTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testWriteAndRead_compressed() throws IOException {
+		testWriteAndRead(true);
+	}
+
+	@Test
+	public void testWriteAndRead_uncompressed() throws IOException {
+		testWriteAndRead(false);
+	}
+
+	private void testWriteAndRead(boolean compress) throws IOException {
+		File directory = folder.newFolder("archive");
+		ShardedArchiveWriter writer = new ShardedArchiveWriter(directory, "text", ".txt", compress, 1024 * 1024, 2);
+		writer.write("doc1", "The first document.");
+		writer.write("doc2", "The second document.");
+		ArchiveEntry entry = writer.write("doc3", "The third document, with a non-ASCII character: é.");
+		writer.close();
+
+		String expectedShardName = "text-00001.txt" + (compress ? ".gz" : "");
+		assertEquals(expectedShardName, entry.getShardFile().getName());
+		assertTrue(new File(directory, expectedShardName + ShardedArchiveWriter.INDEX_FILE_SUFFIX).exists());
+
+		ShardedArchiveReader reader = new ShardedArchiveReader(directory, "text");
+		assertEquals(Arrays.asList("doc1", "doc2", "doc3"), new ArrayList<String>(reader.getDocumentIds()));
+		assertEquals("The second document.", reader.readString("doc2"));
+		assertEquals("The first document.", reader.readString("doc1"));
+		assertEquals("The third document, with a non-ASCII character: é.", reader.readString("doc3"));
+		assertNull(reader.readString("doc4"));
+	}
+
+	@Test
+	public void testShardRollsOnSize() throws IOException {
+		File directory = folder.newFolder("archive");
+		ShardedArchiveWriter writer = new ShardedArchiveWriter(directory, "text", ".txt", false, 10, 100);
+		ArchiveEntry entry1 = writer.write("doc1", "0123456789");
+		ArchiveEntry entry2 = writer.write("doc2", "0123456789");
+		writer.close();
+		assertEquals("text-00000.txt", entry1.getShardFile().getName());
+		assertEquals("text-00001.txt", entry2.getShardFile().getName());
+		assertEquals(0, entry2.getOffset());
+	}
+
+	@Test
+	public void testNumberingContinuesAfterExistingShards() throws IOException {
+		File directory = folder.newFolder("archive");
+		ShardedArchiveWriter writer = new ShardedArchiveWriter(directory, "text", ".txt", false, 1024, 100);
+		writer.write("doc1", "first run");
+		writer.close();
+
+		writer = new ShardedArchiveWriter(directory, "text", ".txt", false, 1024, 100);
+		ArchiveEntry entry = writer.write("doc1", "second run");
+		writer.close();
+		assertEquals("text-00001.txt", entry.getShardFile().getName());
+
+		ShardedArchiveReader reader = new ShardedArchiveReader(directory, "text");
+		assertEquals("second run", reader.readString("doc1"));
+	}
+
+	@Test
+	public void testSharedInstance() throws IOException {
+		File directory = folder.newFolder("archive");
+		ShardedArchiveWriter writer1 = ShardedArchiveWriter.getInstance(directory, "text", ".txt", true, 1024, 100);
+		ShardedArchiveWriter writer2 = ShardedArchiveWriter.getInstance(directory, "text", ".txt", true, 1024, 100);
+		assertTrue(writer1 == writer2);
+		writer1.write("doc1", "document one");
+		writer1.release();
+		/* still open for the second caller */
+		writer2.write("doc2", "document two");
+		writer2.release();
+
+		ShardedArchiveReader reader = new ShardedArchiveReader(directory, "text");
+		assertEquals("document one", reader.readString("doc1"));
+		assertEquals("document two", reader.readString("doc2"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testSharedInstanceWithDifferentSettings() throws IOException {
+		File directory = folder.newFolder("archive");
+		ShardedArchiveWriter writer = ShardedArchiveWriter.getInstance(directory, "text", ".txt", true, 1024, 100);
+		try {
+			ShardedArchiveWriter.getInstance(directory, "text", ".txt", true, 1024, 10);
+		} finally {
+			writer.release();
+		}
+	}
+
+	@Test
+	public void testStreamedDocuments_compressed() throws IOException {
+		testStreamedDocuments(true);
+	}
+
+	@Test
+	public void testStreamedDocuments_uncompressed() throws IOException {
+		testStreamedDocuments(false);
+	}
+
+	private void testStreamedDocuments(boolean compress) throws IOException {
+		File directory = folder.newFolder("archive");
+		ShardedArchiveWriter writer = new ShardedArchiveWriter(directory, "rdf", ".nt", compress, 1024 * 1024, 100);
+		writer.write("doc1", "The first document.");
+		ShardedArchiveWriter.DocumentOutputStream documentStream = writer.openDocument("doc2");
+		try (OutputStream os = documentStream) {
+			os.write("The second ".getBytes(Charset.forName("UTF-8")));
+			os.write("document, with a non-ASCII character: é.".getBytes(Charset.forName("UTF-8")));
+		}
+		writer.write("doc3", "The third document.");
+		writer.close();
+
+		ArchiveEntry entry = documentStream.getEntry();
+		assertEquals("doc2", entry.getDocumentId());
+		ShardedArchiveReader reader = new ShardedArchiveReader(directory, "rdf");
+		assertEquals(entry.getOffset(), reader.getEntry("doc2").getOffset());
+		assertEquals("The first document.", reader.readString("doc1"));
+		assertEquals("The second document, with a non-ASCII character: é.", reader.readString("doc2"));
+		assertEquals("The third document.", reader.readString("doc3"));
+	}
+
+	@Test
+	public void testAbortedDocument_compressed() throws IOException {
+		testAbortedDocument(true);
+	}
+
+	@Test
+	public void testAbortedDocument_uncompressed() throws IOException {
+		testAbortedDocument(false);
+	}
+
+	/**
+	 * An aborted document is removed from the shard and is not indexed, even though the stream is
+	 * closed afterwards
+	 */
+	private void testAbortedDocument(boolean compress) throws IOException {
+		File directory = folder.newFolder("archive");
+		ShardedArchiveWriter writer = new ShardedArchiveWriter(directory, "rdf", ".nt", compress, 1024 * 1024, 100);
+		writer.write("doc1", "The first document.");
+		ShardedArchiveWriter.DocumentOutputStream documentStream = writer.openDocument("doc2");
+		try {
+			documentStream.write("The partial second document".getBytes(Charset.forName("UTF-8")));
+			documentStream.abort();
+		} finally {
+			documentStream.close();
+		}
+		assertNull(documentStream.getEntry());
+		ArchiveEntry entry = writer.write("doc3", "The third document.");
+		writer.close();
+
+		assertEquals(entry.getOffset() + entry.getLength(), entry.getShardFile().length());
+		ShardedArchiveReader reader = new ShardedArchiveReader(directory, "rdf");
+		assertEquals("The first document.", reader.readString("doc1"));
+		assertNull(reader.readString("doc2"));
+		assertEquals("The third document.", reader.readString("doc3"));
+	}
+
+	@Test
+	public void testWritePartOfArray() throws IOException {
+		File directory = folder.newFolder("archive");
+		ShardedArchiveWriter writer = new ShardedArchiveWriter(directory, "text", ".txt", true, 1024 * 1024, 100);
+		byte[] buffer = "xxThe first document.xx".getBytes(Charset.forName("UTF-8"));
+		writer.write("doc1", buffer, 2, buffer.length - 4);
+		writer.close();
+
+		ShardedArchiveReader reader = new ShardedArchiveReader(directory, "text");
+		assertEquals("The first document.", reader.readString("doc1"));
+	}
+
+	@Test
+	public void testIndexIsFlushedWithEachDocument() throws IOException {
+		File directory = folder.newFolder("archive");
+		ShardedArchiveWriter writer = new ShardedArchiveWriter(directory, "text", ".txt", false, 1024, 100);
+		ArchiveEntry entry = writer.write("doc1", "document one");
+		try (OutputStream os = writer.openDocument("doc2")) {
+			os.write("document two".getBytes(Charset.forName("UTF-8")));
+		}
+		/* the shard is still open */
+		List<String> indexLines = FileReaderUtil.loadLinesFromFile(
+				new File(entry.getShardFile().getPath() + ShardedArchiveWriter.INDEX_FILE_SUFFIX),
+				CharacterEncoding.UTF_8);
+		assertEquals(Arrays.asList("doc1\t0\t12", "doc2\t12\t12"), indexLines);
+		assertEquals(24, entry.getShardFile().length());
+		writer.close();
+	}
+
+}
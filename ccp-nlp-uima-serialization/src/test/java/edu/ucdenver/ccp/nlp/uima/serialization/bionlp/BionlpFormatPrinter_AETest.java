@@ -0,0 +1,107 @@
+package edu.ucdenver.ccp.nlp.uima.serialization.bionlp;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's nlp module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.uima.UIMAException;
+import org.apache.uima.analysis_engine.AnalysisEngine;
+import org.apache.uima.fit.factory.AnalysisEngineFactory;
+import org.junit.Test;
+
+import edu.ucdenver.ccp.common.file.CharacterEncoding;
+import edu.ucdenver.ccp.common.file.FileUtil;
+import edu.ucdenver.ccp.nlp.uima.serialization.archive.ShardedArchiveReader;
+import edu.ucdenver.ccp.nlp.uima.test.DefaultUIMATestCase;
+import edu.ucdenver.ccp.nlp.uima.util.UIMA_Util;
+
+/**
+ * @author Colorado Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class BionlpFormatPrinter_AETest extends DefaultUIMATestCase {
+
+	private static final String DOCUMENT_TEXT = "The nucleus of P12345\ncells.";
+
+	private static final String LS = System.getProperty("line.separator");
+
+	private static final String EXPECTED_A1 = "T1\tcell_component 4 11\tnucleus" + LS
+			+ "T2\tprotein_UniProt 15 27\tP12345 cells" + LS;
+
+	@Override
+	protected void initJCas() throws UIMAException, IOException {
+		jcas.setDocumentText(DOCUMENT_TEXT);
+		UIMA_Util.setDocumentID(jcas, "12345.txt");
+		addTextAnnotationToJCas(4, 11, "GO:CC_0005634");
+		addTextAnnotationToJCas(15, 27, "P12345");
+	}
+
+	@Test
+	public void testGetBionlpClassName() {
+		assertEquals("protein", BionlpFormatPrinter_AE.getBionlpClassName("gene"));
+		assertEquals("protein_PR", BionlpFormatPrinter_AE.getBionlpClassName("PR:000000123"));
+		assertEquals("go_term", BionlpFormatPrinter_AE.getBionlpClassName("GO:0005634"));
+		assertEquals("cell_component", BionlpFormatPrinter_AE.getBionlpClassName("GO:CC_0005634"));
+		assertEquals("biological_process", BionlpFormatPrinter_AE.getBionlpClassName("GO:BP_0008150"));
+		assertEquals("protein_UniProt", BionlpFormatPrinter_AE.getBionlpClassName("P12345"));
+		assertEquals("protein_UniProt", BionlpFormatPrinter_AE.getBionlpClassName("ABC1_HUMAN"));
+		assertEquals("ontology_term", BionlpFormatPrinter_AE.getBionlpClassName("UBERON:0000955"));
+	}
+
+	@Test
+	public void testPerDocumentOutput() throws UIMAException, IOException {
+		File outputDirectory = folder.newFolder("a1");
+		AnalysisEngine ae = AnalysisEngineFactory.createEngine(BionlpFormatPrinter_AE.createAnalysisEngineDescription(
+				tsd, outputDirectory));
+		ae.process(jcas);
+		ae.collectionProcessComplete();
+		File a1File = new File(outputDirectory, "12345.a1");
+		assertEquals(EXPECTED_A1, FileUtil.copyToString(a1File, CharacterEncoding.UTF_8));
+	}
+
+	@Test
+	public void testShardedOutput() throws UIMAException, IOException {
+		File outputDirectory = folder.newFolder("a1-shards");
+		AnalysisEngine ae = AnalysisEngineFactory.createEngine(BionlpFormatPrinter_AE
+				.createAnalysisEngineDescription_Sharded(tsd, outputDirectory, false, 100, 10));
+		ae.process(jcas);
+		ae.collectionProcessComplete();
+		ShardedArchiveReader reader = new ShardedArchiveReader(outputDirectory, BionlpFormatPrinter_AE.SHARD_NAME);
+		assertEquals(EXPECTED_A1, reader.readString("12345"));
+	}
+
+}
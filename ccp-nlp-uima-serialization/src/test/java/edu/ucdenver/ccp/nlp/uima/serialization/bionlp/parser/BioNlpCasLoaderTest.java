@@ -0,0 +1,136 @@
+/**
+ * 
+ */
+package edu.ucdenver.ccp.nlp.uima.serialization.bionlp.parser;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's nlp module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.uima.UIMAException;
+import org.apache.uima.fit.util.JCasUtil;
+import org.junit.Test;
+
+import edu.ucdenver.ccp.common.collections.CollectionsUtil;
+import edu.ucdenver.ccp.common.file.CharacterEncoding;
+import edu.ucdenver.ccp.common.file.FileWriterUtil;
+import edu.ucdenver.ccp.common.file.FileWriterUtil.FileSuffixEnforcement;
+import edu.ucdenver.ccp.common.file.FileWriterUtil.WriteMode;
+import edu.ucdenver.ccp.nlp.core.uima.annotation.CCPTextAnnotation;
+import edu.ucdenver.ccp.nlp.core.uima.mention.CCPClassMention;
+import edu.ucdenver.ccp.nlp.core.uima.mention.CCPStringSlotMention;
+import edu.ucdenver.ccp.nlp.uima.test.DefaultUIMATestCase;
+import edu.ucdenver.ccp.nlp.uima.util.UIMA_Util;
+
+/**
+ * @author Colorado Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class BioNlpCasLoaderTest extends DefaultUIMATestCase {
+
+	private static final CharacterEncoding FILE_ENCODING = CharacterEncoding.UTF_8;
+
+	@Override
+	protected void initJCas() throws UIMAException, IOException {
+		jcas.setDocumentText("");
+	}
+
+	@Test
+	public void testParseEvent() {
+		BioNlpAnnotationFile.Event event = BioNlpAnnotationFile
+				.parseEvent("E13\tPositive_regulation:T36 Theme:E1 Theme:T3 Theme:E1 Cause:T5");
+		assertEquals("E13", event.getId());
+		assertEquals("positive_regulation", event.getType());
+		assertEquals("T36", event.getTriggerId());
+		assertEquals(Arrays.asList("E1", "T3"), Arrays.asList(event.getThemeIds()));
+		assertEquals("T5", event.getCauseId());
+		assertNull(BioNlpAnnotationFile.parseEvent("E1\tGene_expression:T30 Theme:T3").getCauseId());
+	}
+
+	@Test
+	public void testLoadEntitiesAndEvents() throws IOException {
+		File entityFile = writeFile("entities.a1", "T3\tProtein 81 90\tTGF-beta1", "T5\tProtein 206 216\tLTGF-beta1");
+		/* E13 references E1, which appears later in the file */
+		File eventFile = writeFile("events.a2", "T30\tGene_expression 62 72\texpression",
+				"T36\tPositive_regulation 798 811\tup-regulation", "T40\tEntity 900 905\tother",
+				"E13\tPositive_regulation:T36 Theme:E1 Cause:T40", "E1\tGene_expression:T30 Theme:T3");
+
+		int annotationCount = BioNlpCasLoader.load(jcas, BioNlpAnnotationFile.parse(entityFile, FILE_ENCODING),
+				BioNlpAnnotationFile.parse(eventFile, FILE_ENCODING));
+
+		/* the T30 and T36 triggers are not loaded as they are not themes or causes */
+		assertEquals(5, annotationCount);
+		Map<String, CCPTextAnnotation> idToAnnotationMap = new HashMap<String, CCPTextAnnotation>();
+		for (CCPTextAnnotation ccpTA : JCasUtil.select(jcas, CCPTextAnnotation.class)) {
+			String idSlotName = ccpTA.getClassMention().getMentionName().equals("protein")
+					|| ccpTA.getClassMention().getMentionName().equals("entity") ? BioNlpThemeFactory.THEME_ID_SLOT_NAME
+					: BioNlpEventFactory.EVENT_ID_SLOT_NAME;
+			idToAnnotationMap.put(UIMA_Util.getFirstSlotValue((CCPStringSlotMention) UIMA_Util.getSlotMentionByName(
+					ccpTA, idSlotName)), ccpTA);
+		}
+		assertEquals(CollectionsUtil.createSet("T3", "T5", "T40", "E1", "E13"), idToAnnotationMap.keySet());
+
+		CCPTextAnnotation e1 = idToAnnotationMap.get("E1");
+		assertEquals("gene_expression", e1.getClassMention().getMentionName());
+		assertEquals(62, e1.getBegin());
+		assertEquals(72, e1.getEnd());
+		List<CCPClassMention> e1Themes = UIMA_Util.getComplexSlotValues(e1, BioNlpEventFactory.THEME_SLOT_NAME);
+		assertEquals(1, e1Themes.size());
+		assertSame(idToAnnotationMap.get("T3").getClassMention(), e1Themes.get(0));
+
+		CCPTextAnnotation e13 = idToAnnotationMap.get("E13");
+		assertEquals(798, e13.getBegin());
+		assertEquals(811, e13.getEnd());
+		assertSame(e1.getClassMention(),
+				UIMA_Util.getComplexSlotValues(e13, BioNlpEventFactory.THEME_SLOT_NAME).get(0));
+		assertSame(idToAnnotationMap.get("T40").getClassMention(),
+				UIMA_Util.getComplexSlotValues(e13, BioNlpEventFactory.CAUSE_SLOT_NAME).get(0));
+	}
+
+	private File writeFile(String fileName, String... lines) throws IOException {
+		File file = folder.newFile(fileName);
+		FileWriterUtil.printLines(CollectionsUtil.createList(lines), file, FILE_ENCODING, WriteMode.OVERWRITE,
+				FileSuffixEnforcement.OFF);
+		return file;
+	}
+
+}
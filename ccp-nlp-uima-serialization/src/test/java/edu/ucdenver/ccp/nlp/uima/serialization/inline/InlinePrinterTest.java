@@ -40,6 +40,7 @@ import java.io.File;
 import java.io.IOException;
 import java.util.List;
 
+import org.apache.log4j.Logger;
 import org.apache.uima.UIMAException;
 import org.apache.uima.analysis_engine.AnalysisEngine;
 import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
@@ -74,6 +75,8 @@ import edu.ucdenver.ccp.nlp.uima.util.UIMA_Util;
  */
 public class InlinePrinterTest extends DefaultUIMATestCase {
 
+	private static final Logger logger = Logger.getLogger(InlinePrinterTest.class);
+
 	protected static final TypeSystemDescription TSD = TypeSystemDescriptionFactory
 			.createTypeSystemDescription("edu.ucdenver.ccp.nlp.core.uima.TypeSystem");
 
@@ -261,6 +264,58 @@ public class InlinePrinterTest extends DefaultUIMATestCase {
 		assertEquals(String.format("Inlined output should be as expected"), expectedOutput, inlinedAnnotationOutput);
 	}
 
+	/**
+	 * Benchmarks the {@link InlinePrinter} on a 1 MB document containing 100k inline tags (some
+	 * nested at shared offsets) and checks that the output is as expected.
+	 * 
+	 * @throws UIMAException
+	 * @throws IOException
+	 */
+	@Test
+	public void testInlinePrinter_LargeDocument() throws UIMAException, IOException {
+		String token = "abcdefghi ";
+		int tokenCount = 100000;
+		StringBuilder documentText = new StringBuilder(token.length() * tokenCount);
+		for (int k = 0; k < tokenCount; k++)
+			documentText.append(token);
+		jcas.reset();
+		jcas.setDocumentText(documentText.toString());
+		UIMA_Util.setDocumentID(jcas, SAMPLE_DOCUMENT_ID);
+		UIMA_Util.setDocumentEncoding(jcas, SAMPLE_DOCUMENT_ENCODING);
+
+		/*
+		 * every even token is annotated as "t"; every 1000th token is also covered by an outer "p"
+		 * annotation spanning it and the following token
+		 */
+		StringBuilder expectedOutput = new StringBuilder(documentText.length() * 2);
+		for (int k = 0; k < tokenCount; k++) {
+			int start = k * token.length();
+			if (k % 1000 == 0) {
+				addTextAnnotationToJCas(start, start + 19, "p");
+				expectedOutput.append("<p>");
+			}
+			if (k % 2 == 0) {
+				addTextAnnotationToJCas(start, start + 9, "t");
+				expectedOutput.append("<t>").append(token, 0, 9).append("</t>").append(' ');
+			} else if (k % 1000 == 1) {
+				expectedOutput.append(token, 0, 9).append("</p>").append(' ');
+			} else {
+				expectedOutput.append(token);
+			}
+		}
+
+		AnalysisEngine inlinePrinterAe = InlinePrinter.createAnalysisEngine(TSD, outputDirectory,
+				CAS.NAME_DEFAULT_SOFA, CcpDocumentMetadataHandler.class, SimpleInlineAnnotationExtractor.class);
+		long startTime = System.currentTimeMillis();
+		inlinePrinterAe.process(jcas);
+		logger.info("Inlined 1 MB document with " + (tokenCount + tokenCount / 500) + " tags in "
+				+ (System.currentTimeMillis() - startTime) + " ms");
+		File expectedOutputFile = new File(outputDirectory, SAMPLE_DOCUMENT_ID + InlinePrinter.OUTPUT_FILE_SUFFIX);
+		String inlinedAnnotationOutput = FileUtil.copyToString(expectedOutputFile, SAMPLE_DOCUMENT_ENCODING);
+		assertEquals(String.format("Inlined output should be as expected"), expectedOutput.toString(),
+				inlinedAnnotationOutput);
+	}
+
 	/**
 	 * A very straightforward extension of the {@link InlineTagExtractor_ImplBase}. This class
 	 * returns XML tags whose names are determined by the annotation class mention name.
@@ -286,7 +341,6 @@ public class InlinePrinterTest extends DefaultUIMATestCase {
 		 */
 		@Override
 		protected List<InlineTag> getInlineTags(Annotation annotation) {
-			System.err.println("IS CCPTEXTANNOTATION INSTANCE: " + (annotation instanceof CCPTextAnnotation));
 			CCPTextAnnotation ccpTa = (CCPTextAnnotation) annotation;
 			String type = ccpTa.getClassMention().getMentionName();
 			Span span = new Span(ccpTa.getBegin(), ccpTa.getEnd());
@@ -0,0 +1,116 @@
+package edu.ucdenver.ccp.nlp.uima.serialization.rdf;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's nlp module
+ * %%
+ * Copyright (C) 2012 - 2017 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.apache.uima.UIMAException;
+import org.apache.uima.jcas.tcas.Annotation;
+import org.junit.Test;
+import org.openrdf.model.URI;
+import org.openrdf.model.impl.URIImpl;
+
+import edu.ucdenver.ccp.nlp.core.uima.annotation.CCPTextAnnotation;
+import edu.ucdenver.ccp.nlp.uima.shims.annotation.impl.CcpAnnotationDataExtractor;
+import edu.ucdenver.ccp.nlp.uima.test.DefaultUIMATestCase;
+import edu.ucdenver.ccp.uima.shims.annotation.AnnotationDataExtractor;
+
+/**
+ * @author Colorado Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class CachingUriFactoryTest extends DefaultUIMATestCase {
+
+	private CCPTextAnnotation protein1;
+	private CCPTextAnnotation protein2;
+	private CCPTextAnnotation gene;
+
+	@Override
+	protected void initJCas() throws UIMAException {
+		jcas.setDocumentText("ABC1 and DEF2 bind GHI3.");
+		protein1 = addTextAnnotationToJCas(0, 4, "PR:000001");
+		protein2 = addTextAnnotationToJCas(9, 13, "PR:000001");
+		gene = addTextAnnotationToJCas(19, 23, "NCBIGene:123");
+	}
+
+	@Test
+	public void testRepeatedConceptIdsReturnSameUri() {
+		CountingUriFactory countingFactory = new CountingUriFactory();
+		CachingUriFactory uriFactory = new CachingUriFactory(countingFactory);
+		AnnotationDataExtractor extractor = new CcpAnnotationDataExtractor();
+
+		URI uri1 = uriFactory.getResourceUri(extractor, protein1);
+		URI uri2 = uriFactory.getResourceUri(extractor, protein2);
+		URI geneUri = uriFactory.getResourceUri(extractor, gene);
+		assertSame(uri1, uri2);
+		assertSame(uri1, uriFactory.getResourceUri(extractor, protein1));
+		assertNotSame(uri1, geneUri);
+		assertEquals("http://example/PR:000001", uri1.toString());
+		assertEquals("http://example/NCBIGene:123", geneUri.toString());
+		assertEquals(2, countingFactory.count);
+		assertEquals(2, uriFactory.getCachedUriCount());
+	}
+
+	@Test
+	public void testCacheIsBounded() {
+		CountingUriFactory countingFactory = new CountingUriFactory();
+		CachingUriFactory uriFactory = new CachingUriFactory(countingFactory, 1);
+		AnnotationDataExtractor extractor = new CcpAnnotationDataExtractor();
+
+		URI uri1 = uriFactory.getResourceUri(extractor, protein1);
+		uriFactory.getResourceUri(extractor, gene);
+		assertEquals(1, uriFactory.getCachedUriCount());
+		/* the protein URI has been evicted and is created again */
+		URI uri2 = uriFactory.getResourceUri(extractor, protein2);
+		assertNotSame(uri1, uri2);
+		assertEquals(uri1, uri2);
+		assertEquals(3, countingFactory.count);
+	}
+
+	/**
+	 * Creates a new {@link URI} instance for every call
+	 */
+	private static class CountingUriFactory implements UriFactory {
+		private int count;
+
+		@Override
+		public URI getResourceUri(AnnotationDataExtractor annotationDataExtractor, Annotation annotation) {
+			count++;
+			return new URIImpl("http://example/" + annotationDataExtractor.getAnnotationType(annotation));
+		}
+	}
+
+}
@@ -0,0 +1,81 @@
+package edu.ucdenver.ccp.nlp.uima.serialization.rdf;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's nlp module
+ * %%
+ * Copyright (C) 2012 - 2017 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.openrdf.model.Statement;
+import org.openrdf.model.impl.BNodeImpl;
+import org.openrdf.model.impl.LiteralImpl;
+import org.openrdf.model.impl.StatementImpl;
+import org.openrdf.model.impl.URIImpl;
+import org.openrdf.model.vocabulary.RDF;
+import org.openrdf.model.vocabulary.XMLSchema;
+import org.openrdf.rio.RDFHandler;
+import org.openrdf.rio.RDFHandlerException;
+import org.openrdf.rio.ntriples.NTriplesWriter;
+
+public class FastNTriplesWriterTest {
+
+	@Test
+	public void testOutputMatchesNTriplesWriter() throws RDFHandlerException {
+		List<Statement> stmts = new ArrayList<Statement>();
+		URIImpl subject = new URIImpl("http://example/annotation/A_1");
+		stmts.add(new StatementImpl(subject, RDF.TYPE, new URIImpl("http://www.w3.org/ns/oa#Annotation")));
+		stmts.add(new StatementImpl(subject, new URIImpl("http://www.w3.org/ns/oa#start"),
+				new LiteralImpl("42", XMLSchema.INT)));
+		stmts.add(new StatementImpl(subject, RDF.VALUE, new LiteralImpl("a \"quoted\"\tlabel\nwith é", "en")));
+		stmts.add(new StatementImpl(new BNodeImpl("b1"), RDF.VALUE, new LiteralImpl("plain")));
+
+		StringWriter expected = new StringWriter();
+		write(new NTriplesWriter(expected), stmts);
+		StringWriter observed = new StringWriter();
+		write(new FastNTriplesWriter(observed, false), stmts);
+		assertEquals(expected.toString(), observed.toString());
+	}
+
+	private static void write(RDFHandler handler, List<Statement> stmts) throws RDFHandlerException {
+		handler.startRDF();
+		for (Statement stmt : stmts) {
+			handler.handleStatement(stmt);
+		}
+		handler.endRDF();
+	}
+
+}
@@ -0,0 +1,73 @@
+package edu.ucdenver.ccp.nlp.uima.serialization.rdf;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's nlp module
+ * %%
+ * Copyright (C) 2012 - 2017 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import edu.ucdenver.ccp.common.digest.DigestUtil;
+
+public class Sha1DigestUtilTest {
+
+	@Test
+	public void testDigestMatchesDigestUtil() {
+		String[] inputs = new String[] { "", "a", "[0..9]", "[[12..18], [25..31]]",
+				"http://example/token_http://example/document/12345_[[0..4]]", "caf\u00e9 \u03b1-\u4e2d" };
+		for (String input : inputs) {
+			assertEquals(DigestUtil.getBase64Sha1Digest(input), Sha1DigestUtil.getBase64Sha1Digest(input));
+			/* repeated calls reuse the digest, so must not be affected by earlier input */
+			assertEquals(DigestUtil.getBase64Sha1Digest(input), Sha1DigestUtil.getBase64Sha1Digest(input));
+		}
+	}
+
+	/**
+	 * The Base64 alphabets differ only in the last two characters, so compare
+	 * enough digests to include them
+	 */
+	@Test
+	public void testEncodingMatchesDigestUtil() {
+		boolean observedAlphabetSpecificCharacter = false;
+		for (int i = 0; i < 256; i++) {
+			String input = "[" + i + ".." + (i * 31 + 7) + "]";
+			String digest = Sha1DigestUtil.getBase64Sha1Digest(input);
+			assertEquals(DigestUtil.getBase64Sha1Digest(input), digest);
+			assertTrue(digest, digest.matches("[A-Za-z0-9_-]{27}"));
+			observedAlphabetSpecificCharacter |= digest.indexOf('-') != -1 || digest.indexOf('_') != -1;
+		}
+		assertTrue(observedAlphabetSpecificCharacter);
+	}
+
+}
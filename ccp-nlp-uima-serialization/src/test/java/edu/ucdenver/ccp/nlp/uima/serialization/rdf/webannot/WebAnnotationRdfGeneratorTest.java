@@ -38,10 +38,13 @@ import static org.junit.Assert.assertTrue;
 
 import java.io.File;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 
+import org.apache.log4j.Logger;
 import org.apache.uima.UIMAException;
 import org.apache.uima.analysis_engine.AnalysisEngine;
 import org.apache.uima.analysis_engine.AnalysisEngineDescription;
@@ -76,6 +79,8 @@ import edu.ucdenver.ccp.uima.shims.document.DocumentMetadataHandler;
 
 public class WebAnnotationRdfGeneratorTest extends DefaultUIMATestCase {
 
+	private static final Logger logger = Logger.getLogger(WebAnnotationRdfGeneratorTest.class);
+
 	private final String DOC_ID = "12345";
 	private static final String DOCUMENT_TEXT = "This is some document text.";
 	private File sourceFile;
@@ -167,6 +172,73 @@ public class WebAnnotationRdfGeneratorTest extends DefaultUIMATestCase {
 
 	}
 
+	/**
+	 * Serializes a document with a CRAFT-like annotation density (tens of
+	 * thousands of concept annotations drawn from a few thousand concepts) and
+	 * logs the elapsed time and the bytes allocated by the serializing thread
+	 */
+	@Test
+	public void testAnnotationRdfGen_LargeDocument() throws UIMAException, IOException {
+		String token = "abcdefghi ";
+		int annotationCount = 20000;
+		int conceptCount = 2000;
+		StringBuilder documentText = new StringBuilder(token.length() * annotationCount);
+		for (int i = 0; i < annotationCount; i++) {
+			documentText.append(token);
+		}
+		jcas.reset();
+		UIMA_Util.setDocumentID(jcas, DOC_ID);
+		jcas.setDocumentText(documentText.toString());
+		Annotator annotator = new Annotator("-1", "annotator name", "");
+		for (int i = 0; i < annotationCount; i++) {
+			int start = i * token.length();
+			CCPTextAnnotation annot = UIMA_Annotation_Util.createCCPTextAnnotation(
+					"http://example/concept_" + (i % conceptCount), start, start + token.length() - 1, jcas);
+			UIMA_Annotation_Util.setAnnotator(annot, annotator, jcas);
+			annot.addToIndexes();
+		}
+
+		File outputDirectory = folder.newFolder("output");
+		AnalysisEngineDescription desc = RdfSerialization_AE.createDescription(getTypeSystem(), outputDirectory,
+				"all", RdfFormat.NTRIPLES, false, CcpDocumentMetadataHandler.class, CcpAnnotationDataExtractor.class,
+				WebAnnotationRdfGenerator.TextPositionWebAnnotationRdfGenerator.class,
+				SampleDocumentRdfGenerator.class, SampleUriFactory.class, View.DEFAULT.viewName(),
+				View.DEFAULT.viewName());
+		AnalysisEngine engine = AnalysisEngineFactory.createEngine(desc);
+
+		ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+		long allocatedBefore = getAllocatedBytes(threadBean);
+		long start = System.currentTimeMillis();
+		engine.process(jcas);
+		long elapsed = System.currentTimeMillis() - start;
+		long allocatedAfter = getAllocatedBytes(threadBean);
+		if (allocatedBefore >= 0 && allocatedAfter >= 0) {
+			logger.info("Serialized " + annotationCount + " annotations in " + elapsed + "ms, allocating "
+					+ ((allocatedAfter - allocatedBefore) / 1024) + "KB ("
+					+ ((allocatedAfter - allocatedBefore) / annotationCount) + " bytes per annotation)");
+		} else {
+			logger.info("Serialized " + annotationCount + " annotations in " + elapsed + "ms");
+		}
+
+		File expectedOutputFile = new File(outputDirectory, DOC_ID + "-all-annots.nt");
+		List<String> lines = FileReaderUtil.loadLinesFromFile(expectedOutputFile, CharacterEncoding.UTF_8);
+		assertEquals(9 * annotationCount, lines.size());
+	}
+
+	/**
+	 * @return the bytes allocated by the current thread, or -1 if the JVM does
+	 *         not support allocation measurement
+	 */
+	private static long getAllocatedBytes(ThreadMXBean threadBean) {
+		if (threadBean instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) threadBean;
+			if (allocationBean.isThreadAllocatedMemorySupported() && allocationBean.isThreadAllocatedMemoryEnabled()) {
+				return allocationBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+			}
+		}
+		return -1;
+	}
+
 	public static class SampleDocumentRdfGenerator implements DocumentRdfGenerator {
 
 		@Override
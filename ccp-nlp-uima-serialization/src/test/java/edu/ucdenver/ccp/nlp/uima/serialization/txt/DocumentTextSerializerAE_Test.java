@@ -121,4 +121,29 @@ public class DocumentTextSerializerAE_Test extends DefaultUIMATestCase {
 		assertEquals(DOCUMENT_TEXT, lines.get(0));
 	}
 
+	@Test
+	public void testSaveToOutputDirectory_Nio()
+			throws ResourceInitializationException, AnalysisEngineProcessException, FileNotFoundException, IOException {
+		File outputDirectory = folder.newFolder("output");
+
+		for (boolean compressOutput : new boolean[] { true, false }) {
+			AnalysisEngineDescription aeDesc = DocumentTextSerializerAE.getDescription_Nio(getTypeSystem(),
+					CcpDocumentMetadataHandler.class, outputDirectory, View.DEFAULT.viewName(), compressOutput,
+					".ttt", 6, 1);
+
+			AnalysisEngine engine = AnalysisEngineFactory.createEngine(aeDesc);
+			engine.process(jcas);
+			engine.collectionProcessComplete();
+
+			File expectedOutputFile = new File(outputDirectory, DOCUMENT_ID + ".ttt" + (compressOutput ? ".gz" : ""));
+			assertTrue(expectedOutputFile.exists());
+
+			List<String> lines = FileReaderUtil.loadLinesFromFile((compressOutput)
+					? new GZIPInputStream(new FileInputStream(expectedOutputFile))
+					: new FileInputStream(expectedOutputFile), CharacterEncoding.UTF_8);
+			assertEquals(1, lines.size());
+			assertEquals(DOCUMENT_TEXT, lines.get(0));
+		}
+	}
+
 }
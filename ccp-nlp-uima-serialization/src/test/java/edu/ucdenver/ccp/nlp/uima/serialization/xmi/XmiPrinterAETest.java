@@ -0,0 +1,129 @@
+package edu.ucdenver.ccp.nlp.uima.serialization.xmi;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's nlp module
+ * %%
+ * Copyright (C) 2012 - 2017 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.uima.UIMAException;
+import org.apache.uima.analysis_engine.AnalysisEngine;
+import org.apache.uima.cas.impl.XmiCasDeserializer;
+import org.apache.uima.fit.factory.AnalysisEngineFactory;
+import org.apache.uima.fit.factory.JCasFactory;
+import org.apache.uima.jcas.JCas;
+import org.junit.Test;
+import org.xml.sax.SAXException;
+
+import edu.ucdenver.ccp.nlp.core.mention.ClassMentionType;
+import edu.ucdenver.ccp.nlp.core.uima.annotation.CCPTextAnnotation;
+import edu.ucdenver.ccp.nlp.core.uima.mention.CCPClassMention;
+import edu.ucdenver.ccp.nlp.core.uima.mention.CCPPrimitiveSlotMention;
+import edu.ucdenver.ccp.nlp.core.uima.mention.CCPStringSlotMention;
+import edu.ucdenver.ccp.nlp.uima.shims.document.impl.CcpDocumentMetadataHandler;
+import edu.ucdenver.ccp.nlp.uima.test.DefaultUIMATestCase;
+import edu.ucdenver.ccp.nlp.uima.util.UIMA_Util;
+
+/**
+ * @author Colorado Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class XmiPrinterAETest extends DefaultUIMATestCase {
+
+	private static final String DOCUMENT_ID = "12345";
+	private static final int EG_ID = 6789;
+	private static final String HAS_GENE_SLOT_NAME = "has gene";
+
+	@Override
+	protected void initJCas() throws UIMAException, IOException {
+		jcas.setDocumentText("ABC1 is a gene.");
+		UIMA_Util.setDocumentID(jcas, DOCUMENT_ID);
+		CCPTextAnnotation gene = addGeneAnnotationToJCas(0, 4, EG_ID);
+		CCPTextAnnotation sentence = addSentenceAnnotationToJCas(0, 15);
+		UIMA_Util.addSlotValue(sentence.getClassMention(), HAS_GENE_SLOT_NAME, gene.getClassMention());
+	}
+
+	/**
+	 * The slot mentions of a class mention are instances of subtypes of the declared element type
+	 * (CCPSlotMention) and must be retained when only the text annotations are serialized
+	 */
+	@Test
+	public void testTypeFilteredOutputRetainsSlotMentions() throws UIMAException, IOException, SAXException {
+		File outputDirectory = folder.newFolder("output");
+		AnalysisEngine engine = AnalysisEngineFactory.createEngine(XmiPrinterAE.getDescription_TypeFiltered(
+				getTypeSystem(), CcpDocumentMetadataHandler.class, outputDirectory, "slim", false,
+				new String[] { CCPTextAnnotation.class.getName() }));
+		engine.process(jcas);
+		engine.collectionProcessComplete();
+
+		File xmiFile = new File(outputDirectory, XmiPrinterAE.getXmiFileName(DOCUMENT_ID, "slim", false));
+		assertTrue(xmiFile.exists());
+
+		JCas deserializedJcas = JCasFactory.createJCas(getTypeSystem());
+		try (InputStream xmiStream = new FileInputStream(xmiFile)) {
+			XmiCasDeserializer.deserialize(xmiStream, deserializedJcas.getCas());
+		}
+
+		CCPClassMention geneCm = null;
+		CCPClassMention sentenceCm = null;
+		for (Iterator<CCPTextAnnotation> annotIter = UIMA_Util.getTextAnnotationIterator(deserializedJcas); annotIter
+				.hasNext();) {
+			CCPClassMention cm = annotIter.next().getClassMention();
+			if (cm.getMentionName().equals(ClassMentionType.GENE.typeName())) {
+				geneCm = cm;
+			} else if (cm.getMentionName().equals(ClassMentionType.SENTENCE.typeName())) {
+				sentenceCm = cm;
+			}
+		}
+		assertNotNull(geneCm);
+		assertNotNull(sentenceCm);
+
+		CCPPrimitiveSlotMention egIdSlot = UIMA_Util.getPrimitiveSlotMentionByName(geneCm,
+				HAS_ENTREZ_GENE_ID_SLOT_NAME);
+		assertNotNull(egIdSlot);
+		assertEquals(Integer.toString(EG_ID), UIMA_Util.getFirstSlotValue((CCPStringSlotMention) egIdSlot));
+
+		List<CCPClassMention> geneSlotValues = UIMA_Util.getComplexSlotValues(sentenceCm, HAS_GENE_SLOT_NAME);
+		assertEquals(1, geneSlotValues.size());
+		assertEquals(ClassMentionType.GENE.typeName(), geneSlotValues.get(0).getMentionName());
+	}
+
+}
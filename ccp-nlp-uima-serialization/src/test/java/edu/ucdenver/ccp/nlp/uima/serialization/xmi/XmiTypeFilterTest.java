@@ -0,0 +1,197 @@
+package edu.ucdenver.ccp.nlp.uima.serialization.xmi;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's nlp module
+ * %%
+ * Copyright (C) 2012 - 2017 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+
+import org.apache.uima.UIMAException;
+import org.apache.uima.cas.FSIterator;
+import org.apache.uima.cas.FeatureStructure;
+import org.apache.uima.cas.Type;
+import org.apache.uima.cas.impl.XmiCasDeserializer;
+import org.apache.uima.cas.impl.XmiSerializationSharedData;
+import org.apache.uima.fit.factory.JCasFactory;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.jcas.cas.FSArray;
+import org.junit.Before;
+import org.junit.Test;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+import edu.ucdenver.ccp.common.file.CharacterEncoding;
+import edu.ucdenver.ccp.nlp.core.uima.annotation.CCPDocumentInformation;
+import edu.ucdenver.ccp.nlp.core.uima.annotation.CCPTextAnnotation;
+import edu.ucdenver.ccp.nlp.uima.util.TypeSystemUtil;
+
+/**
+ * @author Colorado Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class XmiTypeFilterTest {
+
+	private static final String XMI_START = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+			+ "<xmi:XMI xmlns:xmi=\"http://www.omg.org/XMI\" xmlns:cas=\"http:///uima/cas.ecore\" "
+			+ "xmlns:tcas=\"http:///uima/tcas.ecore\" "
+			+ "xmlns:annotation=\"http:///edu/ucdenver/ccp/nlp/core/uima/annotation.ecore\" "
+			+ "xmlns:unknown=\"http:///org/example/unknown.ecore\" xmi:version=\"2.0\">"
+			+ "<cas:NULL xmi:id=\"0\"/>"
+			+ "<cas:Sofa xmi:id=\"1\" sofaNum=\"1\" sofaID=\"_InitialView\" mimeType=\"text\" sofaString=\"Hello world\"/>"
+			+ "<tcas:DocumentAnnotation xmi:id=\"8\" sofa=\"1\" begin=\"0\" end=\"11\" language=\"x-unspecified\"/>";
+
+	private static final String XMI_END = "</xmi:XMI>";
+
+	/**
+	 * the annotator and span are serialized before the annotation that
+	 * references them
+	 */
+	private static final String ANNOTATION_XMI = "<annotation:CCPAnnotator xmi:id=\"20\" annotatorID=\"1\" name=\"annotator\" affiliation=\"ccp\"/>"
+			+ "<annotation:CCPSpan xmi:id=\"21\" spanStart=\"0\" spanEnd=\"5\"/>"
+			+ "<annotation:CCPTextAnnotation xmi:id=\"22\" sofa=\"1\" begin=\"0\" end=\"5\" annotator=\"20\" spans=\"21\"/>";
+
+	/**
+	 * the secondary document IDs are values of a string array, not references,
+	 * so they must not cause the feature structures with those identifiers to
+	 * be loaded
+	 */
+	private static final String DOCUMENT_INFORMATION_XMI = "<annotation:CCPDocumentInformation xmi:id=\"30\" documentID=\"doc\" secondaryDocumentIDs=\"20 22\"/>";
+
+	private JCas jcas;
+
+	@Before
+	public void setUp() throws UIMAException {
+		jcas = JCasFactory.createJCas(TypeSystemUtil.getCcpTypeSystem());
+	}
+
+	@Test
+	public void testReferencedFeatureStructureSerializedBeforeReferencerIsLoaded() throws Exception {
+		String xmi = XMI_START + ANNOTATION_XMI + DOCUMENT_INFORMATION_XMI
+				+ "<cas:View sofa=\"1\" members=\"8 22 30\"/>" + XMI_END;
+		deserialize(xmi, CCPTextAnnotation.type, true);
+
+		List<FeatureStructure> annotations = getIndexedFeatureStructures(CCPTextAnnotation.type);
+		assertEquals(1, annotations.size());
+		CCPTextAnnotation annotation = (CCPTextAnnotation) annotations.get(0);
+		assertEquals("annotator", annotation.getAnnotator().getName());
+		assertEquals(1, annotation.getSpans().size());
+		assertEquals(Collections.emptyList(), getIndexedFeatureStructures(CCPDocumentInformation.type));
+	}
+
+	@Test
+	public void testPrimitiveArrayValuesAreNotReferences() throws Exception {
+		String xmi = XMI_START + ANNOTATION_XMI + DOCUMENT_INFORMATION_XMI
+				+ "<cas:View sofa=\"1\" members=\"8 22 30\"/>" + XMI_END;
+		deserialize(xmi, CCPDocumentInformation.type, true);
+
+		List<FeatureStructure> documentInformation = getIndexedFeatureStructures(CCPDocumentInformation.type);
+		assertEquals(1, documentInformation.size());
+		assertEquals("22", ((CCPDocumentInformation) documentInformation.get(0)).getSecondaryDocumentIDs(1));
+		assertEquals(Collections.emptyList(), getIndexedFeatureStructures(CCPTextAnnotation.type));
+	}
+
+	@Test
+	public void testUnreferencedArrayAndItsElementsAreDropped() throws Exception {
+		/*
+		 * an indexed FSArray whose only element is an annotation that is not
+		 * loaded
+		 */
+		String xmi = XMI_START + ANNOTATION_XMI + DOCUMENT_INFORMATION_XMI
+				+ "<cas:FSArray xmi:id=\"40\" elements=\"22\"/>"
+				+ "<cas:View sofa=\"1\" members=\"8 22 30 40\"/>" + XMI_END;
+		deserialize(xmi, CCPDocumentInformation.type, true);
+
+		assertEquals(1, getIndexedFeatureStructures(CCPDocumentInformation.type).size());
+		assertEquals(Collections.emptyList(), getIndexedFeatureStructures(CCPTextAnnotation.type));
+		assertEquals(Collections.emptyList(), getIndexedFeatureStructures(FSArray.type));
+	}
+
+	@Test
+	public void testUnknownTypeIsIgnoredByLenientDeserializer() throws Exception {
+		String xmi = XMI_START + ANNOTATION_XMI + "<unknown:Thing xmi:id=\"50\" name=\"thing\"/>"
+				+ "<cas:View sofa=\"1\" members=\"8 22 50\"/>" + XMI_END;
+		deserialize(xmi, CCPTextAnnotation.type, true);
+
+		assertEquals(1, getIndexedFeatureStructures(CCPTextAnnotation.type).size());
+	}
+
+	@Test(expected = SAXException.class)
+	public void testUnknownTypeIsRejectedByStrictDeserializer() throws Exception {
+		String xmi = XMI_START + ANNOTATION_XMI + "<unknown:Thing xmi:id=\"50\" name=\"thing\"/>"
+				+ "<cas:View sofa=\"1\" members=\"8 22 50\"/>" + XMI_END;
+		deserialize(xmi, CCPTextAnnotation.type, false);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testSinglePassParseIsRejected() throws Exception {
+		XmiTypeFilter filter = new XmiTypeFilter(createXmlReaderFactory().newSAXParser().getXMLReader(),
+				jcas.getTypeSystem(), Collections.<Type> emptySet());
+		filter.parse(new InputSource(new StringReader(XMI_START + XMI_END)));
+	}
+
+	private void deserialize(String xmi, int typeToLoad, boolean lenient) throws IOException, SAXException,
+			ParserConfigurationException {
+		Set<Type> typesToLoad = Collections.singleton(jcas.getCasType(typeToLoad));
+		XmiTypeFilter filter = new XmiTypeFilter(createXmlReaderFactory().newSAXParser().getXMLReader(),
+				jcas.getTypeSystem(), typesToLoad);
+		XmiSerializationSharedData sharedData = new XmiSerializationSharedData();
+		filter.setContentHandler(new XmiCasDeserializer(jcas.getTypeSystem()).getXmiCasHandler(jcas.getCas(),
+				lenient, sharedData, sharedData.getMaxXmiId()));
+		filter.parse(xmi.getBytes(CharacterEncoding.UTF_8.getCharacterSetName()));
+	}
+
+	private static SAXParserFactory createXmlReaderFactory() {
+		SAXParserFactory factory = SAXParserFactory.newInstance();
+		factory.setNamespaceAware(true);
+		return factory;
+	}
+
+	private List<FeatureStructure> getIndexedFeatureStructures(int type) {
+		List<FeatureStructure> featureStructures = new ArrayList<FeatureStructure>();
+		FSIterator<FeatureStructure> iterator = jcas.getFSIndexRepository().getAllIndexedFS(jcas.getCasType(type));
+		while (iterator.hasNext()) {
+			featureStructures.add(iterator.next());
+		}
+		return featureStructures;
+	}
+
+}
@@ -0,0 +1,173 @@
+package edu.ucdenver.ccp.nlp.uima.annotation.impl;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's nlp module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.uima.jcas.JCas;
+
+import edu.ucdenver.ccp.nlp.core.annotation.TextAnnotation;
+import edu.ucdenver.ccp.nlp.core.mention.ClassMention;
+import edu.ucdenver.ccp.nlp.core.mention.ComplexSlotMention;
+import edu.ucdenver.ccp.nlp.core.uima.annotation.CCPTextAnnotation;
+import edu.ucdenver.ccp.nlp.core.uima.mention.CCPClassMention;
+import edu.ucdenver.ccp.nlp.core.uima.mention.CCPComplexSlotMention;
+import edu.ucdenver.ccp.nlp.uima.mention.impl.ReadOnlyCCPClassMention;
+import edu.ucdenver.ccp.nlp.uima.mention.impl.ReadOnlyCCPComplexSlotMention;
+import edu.ucdenver.ccp.nlp.uima.util.UIMA_Util;
+
+/**
+ * Creates and caches read-only {@link TextAnnotation}, {@link ClassMention}, and
+ * {@link ComplexSlotMention} views over the annotations in a single CAS. Each view is created at
+ * most once per feature structure (UIMA feature structures are equal if and only if they refer to
+ * the same CAS address), and the views memoize the values they read from the CAS. This makes them
+ * well suited to read-heavy operations, such as annotation comparison, that would otherwise
+ * re-wrap the same feature structures many times over.
+ * <p>
+ * Because the views memoize their content, a cache should only be used for as long as the
+ * underlying annotations are not modified, typically for the duration of a single call to
+ * process(). The views do not support modification and throw
+ * {@link UnsupportedOperationException} if a setter is called.
+ * 
+ * @author Colorado Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class CCPTextAnnotationViewCache {
+
+	private final JCas jcas;
+
+	private final Map<CCPTextAnnotation, ReadOnlyCCPTextAnnotation> textAnnotationViews = new HashMap<CCPTextAnnotation, ReadOnlyCCPTextAnnotation>();
+	private final Map<CCPClassMention, ReadOnlyCCPClassMention> classMentionViews = new HashMap<CCPClassMention, ReadOnlyCCPClassMention>();
+	private final Map<CCPComplexSlotMention, ReadOnlyCCPComplexSlotMention> complexSlotMentionViews = new HashMap<CCPComplexSlotMention, ReadOnlyCCPComplexSlotMention>();
+
+	private String documentID;
+	private Integer documentCollectionID;
+
+	public CCPTextAnnotationViewCache(JCas jcas) {
+		this.jcas = jcas;
+	}
+
+	/**
+	 * @param classTypes
+	 *            if specified, only annotations with these class mention names are returned
+	 * @return read-only views of the {@link CCPTextAnnotation} instances in the CAS
+	 * @see UIMA_Util#getAnnotationsFromCas(JCas, String...)
+	 */
+	public List<TextAnnotation> getAnnotations(String... classTypes) {
+		if (classTypes != null && classTypes.length == 0) {
+			classTypes = null;
+		}
+		List<TextAnnotation> annotationsToReturn = new ArrayList<TextAnnotation>();
+		for (Iterator<CCPTextAnnotation> annotIter = UIMA_Util.getTextAnnotationIterator(jcas, classTypes); annotIter
+				.hasNext();) {
+			annotationsToReturn.add(getTextAnnotation(annotIter.next()));
+		}
+		return annotationsToReturn;
+	}
+
+	/**
+	 * @param ccpTA
+	 * @return the read-only view of the input {@link CCPTextAnnotation}, or null if the input is
+	 *         null
+	 */
+	public TextAnnotation getTextAnnotation(CCPTextAnnotation ccpTA) {
+		if (ccpTA == null) {
+			return null;
+		}
+		ReadOnlyCCPTextAnnotation view = textAnnotationViews.get(ccpTA);
+		if (view == null) {
+			view = new ReadOnlyCCPTextAnnotation(ccpTA, this);
+			textAnnotationViews.put(ccpTA, view);
+		}
+		return view;
+	}
+
+	/**
+	 * @param ccpCM
+	 * @return the read-only view of the input {@link CCPClassMention}, or null if the input is null
+	 */
+	public ClassMention getClassMention(CCPClassMention ccpCM) {
+		if (ccpCM == null) {
+			return null;
+		}
+		ReadOnlyCCPClassMention view = classMentionViews.get(ccpCM);
+		if (view == null) {
+			view = new ReadOnlyCCPClassMention(ccpCM, this);
+			classMentionViews.put(ccpCM, view);
+		}
+		return view;
+	}
+
+	/**
+	 * @param ccpCSM
+	 * @return the read-only view of the input {@link CCPComplexSlotMention}, or null if the input
+	 *         is null
+	 */
+	public ComplexSlotMention getComplexSlotMention(CCPComplexSlotMention ccpCSM) {
+		if (ccpCSM == null) {
+			return null;
+		}
+		ReadOnlyCCPComplexSlotMention view = complexSlotMentionViews.get(ccpCSM);
+		if (view == null) {
+			view = new ReadOnlyCCPComplexSlotMention(ccpCSM, this);
+			complexSlotMentionViews.put(ccpCSM, view);
+		}
+		return view;
+	}
+
+	/**
+	 * @return the document ID for the CAS, looked up once
+	 */
+	public String getDocumentID() {
+		if (documentID == null) {
+			documentID = UIMA_Util.getDocumentID(jcas);
+		}
+		return documentID;
+	}
+
+	/**
+	 * @return the document collection ID for the CAS, looked up once
+	 */
+	public int getDocumentCollectionID() {
+		if (documentCollectionID == null) {
+			documentCollectionID = UIMA_Util.getDocumentCollectionID(jcas);
+		}
+		return documentCollectionID;
+	}
+
+}
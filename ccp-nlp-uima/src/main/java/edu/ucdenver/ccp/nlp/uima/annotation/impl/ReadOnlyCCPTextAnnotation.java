@@ -0,0 +1,235 @@
+package edu.ucdenver.ccp.nlp.uima.annotation.impl;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's nlp module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import edu.ucdenver.ccp.nlp.core.annotation.AnnotationSet;
+import edu.ucdenver.ccp.nlp.core.annotation.Annotator;
+import edu.ucdenver.ccp.nlp.core.annotation.Span;
+import edu.ucdenver.ccp.nlp.core.annotation.metadata.AnnotationMetadata;
+import edu.ucdenver.ccp.nlp.core.mention.ClassMention;
+import edu.ucdenver.ccp.nlp.core.uima.annotation.CCPTextAnnotation;
+
+/**
+ * Read-only, lazily memoizing view of a {@link CCPTextAnnotation}. Instances are obtained from a
+ * {@link CCPTextAnnotationViewCache} so that the linked class mention (and its slots) are shared
+ * among all views created by that cache. Any attempt to modify the annotation through this view
+ * results in an {@link UnsupportedOperationException}.
+ * 
+ * @author Colorado Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class ReadOnlyCCPTextAnnotation extends WrappedCCPTextAnnotation {
+
+	private final CCPTextAnnotationViewCache viewCache;
+
+	private List<Span> spans;
+	private boolean spansSorted;
+	private Annotator annotator;
+	private Set<AnnotationSet> annotationSets;
+	private AnnotationMetadata annotationMetadata;
+	private ClassMention classMention;
+	private String coveredText;
+	private Integer hashCode;
+
+	ReadOnlyCCPTextAnnotation(CCPTextAnnotation ccpTA, CCPTextAnnotationViewCache viewCache) {
+		super(ccpTA);
+		this.viewCache = viewCache;
+	}
+
+	/**
+	 * The returned list is shared by all callers. It may be re-ordered (the span comparators sort
+	 * span lists in place) but should otherwise not be modified.
+	 */
+	@Override
+	public List<Span> getSpans() {
+		if (spans == null) {
+			spans = super.getSpans();
+		}
+		return spans;
+	}
+
+	/**
+	 * Sorts (and removes duplicates from) the memoized span list without writing to the CAS
+	 */
+	@Override
+	protected void sortSpanList() {
+		List<Span> spanList = getSpans();
+		if (spanList != null && !spansSorted) {
+			List<Span> sortedSpans = new ArrayList<Span>(new HashSet<Span>(spanList));
+			Collections.sort(sortedSpans, Span.ASCENDING());
+			spans = sortedSpans;
+			spansSorted = true;
+		}
+	}
+
+	@Override
+	public Annotator getAnnotator() {
+		if (annotator == null) {
+			annotator = super.getAnnotator();
+		}
+		return annotator;
+	}
+
+	@Override
+	public Set<AnnotationSet> getAnnotationSets() {
+		if (annotationSets == null) {
+			annotationSets = Collections.unmodifiableSet(super.getAnnotationSets());
+		}
+		return annotationSets;
+	}
+
+	@Override
+	public AnnotationMetadata getAnnotationMetadata() {
+		if (annotationMetadata == null) {
+			annotationMetadata = super.getAnnotationMetadata();
+		}
+		return annotationMetadata;
+	}
+
+	@Override
+	public ClassMention getClassMention() {
+		if (classMention == null) {
+			classMention = viewCache.getClassMention(getWrappedObject().getClassMention());
+		}
+		return classMention;
+	}
+
+	@Override
+	public String getCoveredText() {
+		if (coveredText == null) {
+			coveredText = super.getCoveredText();
+		}
+		return coveredText;
+	}
+
+	@Override
+	public String getDocumentID() {
+		return viewCache.getDocumentID();
+	}
+
+	@Override
+	public int getDocumentCollectionID() {
+		return viewCache.getDocumentCollectionID();
+	}
+
+	@Override
+	public int hashCode() {
+		if (hashCode == null) {
+			hashCode = super.hashCode();
+		}
+		return hashCode;
+	}
+
+	@Override
+	public void addAnnotationSet(AnnotationSet annotationSet) {
+		throw new UnsupportedOperationException("Cannot modify a read-only TextAnnotation view.");
+	}
+
+	@Override
+	public void addSpan(Span span) {
+		throw new UnsupportedOperationException("Cannot modify a read-only TextAnnotation view.");
+	}
+
+	@Override
+	public ClassMention createClassMention(String classMentionName) {
+		throw new UnsupportedOperationException("Cannot modify a read-only TextAnnotation view.");
+	}
+
+	@Override
+	public void setAnnotationID(String annotationID) {
+		throw new UnsupportedOperationException("Cannot modify a read-only TextAnnotation view.");
+	}
+
+	@Override
+	public void setClassMention(ClassMention classMention) {
+		throw new UnsupportedOperationException("Cannot modify a read-only TextAnnotation view.");
+	}
+
+	@Override
+	public void offsetAnnotationSpans(int offset) {
+		throw new UnsupportedOperationException("Cannot modify a read-only TextAnnotation view.");
+	}
+
+	@Override
+	public void setAnnotationMetadata(AnnotationMetadata annotationMetadata) {
+		throw new UnsupportedOperationException("Cannot modify a read-only TextAnnotation view.");
+	}
+
+	@Override
+	public void setAnnotationSets(Set<AnnotationSet> annotationSets) {
+		throw new UnsupportedOperationException("Cannot modify a read-only TextAnnotation view.");
+	}
+
+	@Override
+	public void setAnnotationSpanEnd(int spanEnd) {
+		throw new UnsupportedOperationException("Cannot modify a read-only TextAnnotation view.");
+	}
+
+	@Override
+	public void setAnnotationSpanStart(int spanStart) {
+		throw new UnsupportedOperationException("Cannot modify a read-only TextAnnotation view.");
+	}
+
+	@Override
+	public void setAnnotator(Annotator annotator) {
+		throw new UnsupportedOperationException("Cannot modify a read-only TextAnnotation view.");
+	}
+
+	@Override
+	public void setDocumentSectionID(int documentSectionID) {
+		throw new UnsupportedOperationException("Cannot modify a read-only TextAnnotation view.");
+	}
+
+	@Override
+	public void setSpan(Span span) {
+		throw new UnsupportedOperationException("Cannot modify a read-only TextAnnotation view.");
+	}
+
+	@Override
+	public void setSpans(List<Span> spans) {
+		throw new UnsupportedOperationException("Cannot modify a read-only TextAnnotation view.");
+	}
+
+	@Override
+	public void setAnnotationComment(String comment) {
+		throw new UnsupportedOperationException("Cannot modify a read-only TextAnnotation view.");
+	}
+
+}
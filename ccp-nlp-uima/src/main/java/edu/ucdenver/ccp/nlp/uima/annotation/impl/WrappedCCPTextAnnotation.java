@@ -53,6 +53,7 @@ import edu.ucdenver.ccp.nlp.core.uima.annotation.CCPAnnotationSet;
 import edu.ucdenver.ccp.nlp.core.uima.annotation.CCPTextAnnotation;
 import edu.ucdenver.ccp.nlp.core.uima.mention.CCPClassMention;
 import edu.ucdenver.ccp.nlp.uima.mention.impl.WrappedCCPClassMention;
+import edu.ucdenver.ccp.nlp.uima.util.AnnotatorRegistry;
 import edu.ucdenver.ccp.nlp.uima.util.UIMA_Annotation_Util;
 import edu.ucdenver.ccp.nlp.uima.util.UIMA_Util;
 
@@ -96,8 +97,7 @@ public class WrappedCCPTextAnnotation extends TextAnnotation {
 
 	@Override
 	public void addAnnotationSet(AnnotationSet annotationSet) {
-		CCPAnnotationSet ccpAnnotationSet = new CCPAnnotationSet(jcas);
-		UIMA_Util.swapAnnotationSetInfo(annotationSet, ccpAnnotationSet);
+		CCPAnnotationSet ccpAnnotationSet = AnnotatorRegistry.getRegistry(jcas).getCCPAnnotationSet(annotationSet);
 		UIMA_Util.addAnnotationSet(wrappedCCPTextAnnotation, ccpAnnotationSet, jcas);
 	}
 
@@ -0,0 +1,268 @@
+package edu.ucdenver.ccp.nlp.uima.mention.impl;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's nlp module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.jcas.cas.FSArray;
+
+import edu.ucdenver.ccp.nlp.core.annotation.impl.KnowledgeRepresentationWrapperException;
+import edu.ucdenver.ccp.nlp.core.uima.mention.CCPBooleanSlotMention;
+import edu.ucdenver.ccp.nlp.core.uima.mention.CCPClassMention;
+import edu.ucdenver.ccp.nlp.core.uima.mention.CCPComplexSlotMention;
+import edu.ucdenver.ccp.nlp.core.uima.mention.CCPDoubleSlotMention;
+import edu.ucdenver.ccp.nlp.core.uima.mention.CCPFloatSlotMention;
+import edu.ucdenver.ccp.nlp.core.uima.mention.CCPIntegerSlotMention;
+import edu.ucdenver.ccp.nlp.core.uima.mention.CCPPrimitiveSlotMention;
+import edu.ucdenver.ccp.nlp.core.uima.mention.CCPSlotMention;
+import edu.ucdenver.ccp.nlp.core.uima.mention.CCPStringSlotMention;
+import edu.ucdenver.ccp.nlp.uima.util.UIMA_Util;
+
+/**
+ * Accumulates slots and slot values for a {@link CCPClassMention} in Java collections and
+ * materializes the CAS arrays backing the class mention exactly once, when {@link #build()} or
+ * {@link #addTo(CCPClassMention)} is called. Adding slots one at a time through the
+ * {@link WrappedCCPClassMention} or {@link UIMA_Util#addSlotValue(CCPClassMention, String, String)}
+ * allocates a new array for every addition; this class should be used instead when a class
+ * mention with more than a couple of slots (or slot values) is being constructed.
+ * <p>
+ * Slots are added to the class mention in the order in which they were first referenced.
+ * 
+ * @author Colorado Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class CCPClassMentionBuilder {
+
+	private final JCas jcas;
+	private final String mentionName;
+
+	/**
+	 * Maps from slot name to the primitive values (all of the same type) that will be used to fill
+	 * the slot
+	 */
+	private final Map<String, List<Object>> primitiveSlotNameToValuesMap = new LinkedHashMap<String, List<Object>>();
+
+	/**
+	 * Maps from slot name to the class mentions that will be used to fill the complex slot
+	 */
+	private final Map<String, List<CCPClassMention>> complexSlotNameToValuesMap = new LinkedHashMap<String, List<CCPClassMention>>();
+
+	/**
+	 * Slot mentions that were created elsewhere and are added as-is
+	 */
+	private final List<CCPSlotMention> slotMentions = new ArrayList<CCPSlotMention>();
+
+	/**
+	 * @param jcas
+	 * @param mentionName
+	 *            the name (type) of the class mention to build
+	 */
+	public CCPClassMentionBuilder(JCas jcas, String mentionName) {
+		this.jcas = jcas;
+		this.mentionName = mentionName;
+	}
+
+	/**
+	 * Adds a value to the named primitive slot. Supported value types are String, Integer, Float,
+	 * Double and Boolean. All values for a given slot must be of the same type.
+	 * 
+	 * @param slotName
+	 * @param slotValue
+	 * @return this builder
+	 * @throws KnowledgeRepresentationWrapperException
+	 *             if the slot value type is not supported or is different from the type of the
+	 *             values already added to the slot
+	 */
+	public CCPClassMentionBuilder addPrimitiveSlotValue(String slotName, Object slotValue) {
+		if (!(slotValue instanceof String || slotValue instanceof Integer || slotValue instanceof Float
+				|| slotValue instanceof Double || slotValue instanceof Boolean)) {
+			throw new KnowledgeRepresentationWrapperException(
+					"Cannot create a UIMA Primitive Slot Mention with a slot value of type: "
+							+ ((slotValue == null) ? "null" : slotValue.getClass().getName()));
+		}
+		if (complexSlotNameToValuesMap.containsKey(slotName)) {
+			throw new KnowledgeRepresentationWrapperException("Cannot add a primitive slot value to slot " + slotName
+					+ ". It has already been used as a complex slot.");
+		}
+		List<Object> slotValues = primitiveSlotNameToValuesMap.get(slotName);
+		if (slotValues == null) {
+			slotValues = new ArrayList<Object>();
+			primitiveSlotNameToValuesMap.put(slotName, slotValues);
+		} else if (!slotValues.get(0).getClass().equals(slotValue.getClass())) {
+			throw new KnowledgeRepresentationWrapperException("Cannot add a " + slotValue.getClass().getName()
+					+ " to slot " + slotName + ". It already stores values of type "
+					+ slotValues.get(0).getClass().getName());
+		} else if (slotValue instanceof Boolean) {
+			throw new KnowledgeRepresentationWrapperException(
+					"Boolean slot mentions can only store a single boolean value. Slot: " + slotName);
+		}
+		slotValues.add(slotValue);
+		return this;
+	}
+
+	/**
+	 * Adds multiple values to the named primitive slot
+	 * 
+	 * @param slotName
+	 * @param slotValues
+	 * @return this builder
+	 */
+	public CCPClassMentionBuilder addPrimitiveSlotValues(String slotName, Collection<?> slotValues) {
+		for (Object slotValue : slotValues) {
+			addPrimitiveSlotValue(slotName, slotValue);
+		}
+		return this;
+	}
+
+	/**
+	 * Adds a class mention as a filler for the named complex slot
+	 * 
+	 * @param slotName
+	 * @param slotFiller
+	 * @return this builder
+	 */
+	public CCPClassMentionBuilder addComplexSlotValue(String slotName, CCPClassMention slotFiller) {
+		if (primitiveSlotNameToValuesMap.containsKey(slotName)) {
+			throw new KnowledgeRepresentationWrapperException("Cannot add a complex slot value to slot " + slotName
+					+ ". It has already been used as a primitive slot.");
+		}
+		List<CCPClassMention> slotValues = complexSlotNameToValuesMap.get(slotName);
+		if (slotValues == null) {
+			slotValues = new ArrayList<CCPClassMention>();
+			complexSlotNameToValuesMap.put(slotName, slotValues);
+		}
+		slotValues.add(slotFiller);
+		return this;
+	}
+
+	/**
+	 * Adds a pre-existing slot mention to the class mention being built
+	 * 
+	 * @param slotMention
+	 * @return this builder
+	 */
+	public CCPClassMentionBuilder addSlotMention(CCPSlotMention slotMention) {
+		slotMentions.add(slotMention);
+		return this;
+	}
+
+	/**
+	 * @return a new {@link CCPClassMention} populated with the accumulated slots. Each CAS array
+	 *         is allocated once.
+	 */
+	public CCPClassMention build() {
+		CCPClassMention ccpCM = new CCPClassMention(jcas);
+		ccpCM.setMentionName(mentionName);
+		addTo(ccpCM);
+		if (ccpCM.getSlotMentions() == null) {
+			ccpCM.setSlotMentions(new FSArray(jcas, 0));
+		}
+		return ccpCM;
+	}
+
+	/**
+	 * Adds the accumulated slots to an existing {@link CCPClassMention}. Values for slots that
+	 * already exist on the class mention are appended to the existing slot (boolean slots are
+	 * overwritten); all new slot mentions are appended using a single new slot mention array.
+	 * 
+	 * @param ccpCM
+	 */
+	public void addTo(CCPClassMention ccpCM) {
+		List<CCPSlotMention> slotMentionsToAdd = new ArrayList<CCPSlotMention>(slotMentions);
+
+		for (Entry<String, List<Object>> entry : primitiveSlotNameToValuesMap.entrySet()) {
+			String slotName = entry.getKey();
+			List<Object> slotValues = entry.getValue();
+			CCPPrimitiveSlotMention existingSM = UIMA_Util.getPrimitiveSlotMentionByName(ccpCM, slotName);
+			if (existingSM == null) {
+				slotMentionsToAdd.add(CCPPrimitiveSlotMentionFactory.createCCPPrimitiveSlotMention(slotName,
+						slotValues, jcas));
+			} else {
+				appendSlotValues(existingSM, slotValues);
+			}
+		}
+
+		for (Entry<String, List<CCPClassMention>> entry : complexSlotNameToValuesMap.entrySet()) {
+			String slotName = entry.getKey();
+			List<CCPClassMention> slotValues = entry.getValue();
+			CCPComplexSlotMention existingCSM = UIMA_Util.getComplexSlotMentionByName(ccpCM, slotName);
+			if (existingCSM == null) {
+				CCPComplexSlotMention ccpCSM = new CCPComplexSlotMention(jcas);
+				ccpCSM.setMentionName(slotName);
+				ccpCSM.setClassMentions(UIMA_Util.addToFSArray(null, slotValues, jcas));
+				slotMentionsToAdd.add(ccpCSM);
+			} else {
+				existingCSM.setClassMentions(UIMA_Util.addToFSArray(existingCSM.getClassMentions(), slotValues, jcas));
+			}
+		}
+
+		if (!slotMentionsToAdd.isEmpty()) {
+			UIMA_Util.addSlotMentions(ccpCM, slotMentionsToAdd, jcas);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private void appendSlotValues(CCPPrimitiveSlotMention ccpPSM, List<Object> slotValues) {
+		Object firstValue = slotValues.get(0);
+		if (ccpPSM instanceof CCPStringSlotMention && firstValue instanceof String) {
+			CCPStringSlotMention ccpSSM = (CCPStringSlotMention) ccpPSM;
+			ccpSSM.setSlotValues(UIMA_Util.addToStringArray(ccpSSM.getSlotValues(),
+					(Collection<String>) (Collection<?>) slotValues, jcas));
+		} else if (ccpPSM instanceof CCPIntegerSlotMention && firstValue instanceof Integer) {
+			CCPIntegerSlotMention ccpISM = (CCPIntegerSlotMention) ccpPSM;
+			ccpISM.setSlotValues(UIMA_Util.addToIntegerArray(ccpISM.getSlotValues(),
+					(Collection<Integer>) (Collection<?>) slotValues, jcas));
+		} else if (ccpPSM instanceof CCPFloatSlotMention && firstValue instanceof Float) {
+			CCPFloatSlotMention ccpFSM = (CCPFloatSlotMention) ccpPSM;
+			ccpFSM.setSlotValues(UIMA_Util.addToFloatArray(ccpFSM.getSlotValues(),
+					(Collection<Float>) (Collection<?>) slotValues, jcas));
+		} else if (ccpPSM instanceof CCPDoubleSlotMention && firstValue instanceof Double) {
+			CCPDoubleSlotMention ccpDSM = (CCPDoubleSlotMention) ccpPSM;
+			ccpDSM.setSlotValues(UIMA_Util.addToDoubleArray(ccpDSM.getSlotValues(),
+					(Collection<Double>) (Collection<?>) slotValues, jcas));
+		} else if (ccpPSM instanceof CCPBooleanSlotMention && firstValue instanceof Boolean) {
+			((CCPBooleanSlotMention) ccpPSM).setSlotValue((Boolean) firstValue);
+		} else {
+			throw new KnowledgeRepresentationWrapperException("Cannot store a " + firstValue.getClass().getName()
+					+ " in a " + ccpPSM.getClass().getName());
+		}
+	}
+
+}
@@ -0,0 +1,212 @@
+package edu.ucdenver.ccp.nlp.uima.mention.impl;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's nlp module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import edu.ucdenver.ccp.nlp.core.annotation.TextAnnotation;
+import edu.ucdenver.ccp.nlp.core.mention.ComplexSlotMention;
+import edu.ucdenver.ccp.nlp.core.mention.PrimitiveSlotMention;
+import edu.ucdenver.ccp.nlp.core.uima.mention.CCPClassMention;
+import edu.ucdenver.ccp.nlp.core.uima.mention.CCPComplexSlotMention;
+import edu.ucdenver.ccp.nlp.core.uima.mention.CCPPrimitiveSlotMention;
+import edu.ucdenver.ccp.nlp.uima.annotation.impl.CCPTextAnnotationViewCache;
+import edu.ucdenver.ccp.nlp.uima.util.UIMA_Util;
+
+/**
+ * Read-only, lazily memoizing view of a {@link CCPClassMention}. The slot mentions are
+ * materialized once, on first access, and complex slot fillers and the referencing text
+ * annotation are obtained from the shared {@link CCPTextAnnotationViewCache}. Any attempt to
+ * modify the mention through this view results in an {@link UnsupportedOperationException}.
+ * 
+ * @author Colorado Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class ReadOnlyCCPClassMention extends WrappedCCPClassMention {
+
+	private final CCPTextAnnotationViewCache viewCache;
+
+	private List<ComplexSlotMention> complexSlotMentions;
+	private List<PrimitiveSlotMention> primitiveSlotMentions;
+	private Set<String> complexSlotMentionNames;
+	private Set<String> primitiveSlotMentionNames;
+	private TextAnnotation textAnnotation;
+	private String stringRepresentation;
+	private String documentLevelStringRepresentation;
+
+	public ReadOnlyCCPClassMention(CCPClassMention ccpCM, CCPTextAnnotationViewCache viewCache) {
+		super(ccpCM);
+		this.viewCache = viewCache;
+	}
+
+	@Override
+	public Collection<ComplexSlotMention> getComplexSlotMentions() {
+		if (complexSlotMentions == null) {
+			Collection<CCPComplexSlotMention> ccpCSMs = UIMA_Util.getComplexSlotMentions(getWrappedObject());
+			List<ComplexSlotMention> csms = new ArrayList<ComplexSlotMention>(ccpCSMs.size());
+			for (CCPComplexSlotMention ccpCSM : ccpCSMs) {
+				csms.add(viewCache.getComplexSlotMention(ccpCSM));
+			}
+			complexSlotMentions = Collections.unmodifiableList(csms);
+		}
+		return complexSlotMentions;
+	}
+
+	@Override
+	public ComplexSlotMention getComplexSlotMentionByName(String complexSlotMentionName) {
+		for (ComplexSlotMention csm : getComplexSlotMentions()) {
+			if (csm.getMentionName().equals(complexSlotMentionName)) {
+				return csm;
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public Collection<String> getComplexSlotMentionNames() {
+		if (complexSlotMentionNames == null) {
+			Set<String> names = new LinkedHashSet<String>();
+			for (ComplexSlotMention csm : getComplexSlotMentions()) {
+				names.add(csm.getMentionName());
+			}
+			complexSlotMentionNames = Collections.unmodifiableSet(names);
+		}
+		return complexSlotMentionNames;
+	}
+
+	@Override
+	public Collection<PrimitiveSlotMention> getPrimitiveSlotMentions() {
+		if (primitiveSlotMentions == null) {
+			Collection<CCPPrimitiveSlotMention> ccpPSMs = UIMA_Util.getPrimitiveSlotMentions(getWrappedObject());
+			List<PrimitiveSlotMention> psms = new ArrayList<PrimitiveSlotMention>(ccpPSMs.size());
+			for (CCPPrimitiveSlotMention ccpPSM : ccpPSMs) {
+				psms.add(CCPPrimitiveSlotMentionFactory.createPrimitiveSlotMention(ccpPSM));
+			}
+			primitiveSlotMentions = Collections.unmodifiableList(psms);
+		}
+		return primitiveSlotMentions;
+	}
+
+	@Override
+	public PrimitiveSlotMention getPrimitiveSlotMentionByName(String slotMentionName) {
+		for (PrimitiveSlotMention psm : getPrimitiveSlotMentions()) {
+			if (psm.getMentionName().equals(slotMentionName)) {
+				return psm;
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public Collection<String> getPrimitiveSlotMentionNames() {
+		if (primitiveSlotMentionNames == null) {
+			Set<String> names = new LinkedHashSet<String>();
+			for (PrimitiveSlotMention psm : getPrimitiveSlotMentions()) {
+				names.add(psm.getMentionName());
+			}
+			primitiveSlotMentionNames = Collections.unmodifiableSet(names);
+		}
+		return primitiveSlotMentionNames;
+	}
+
+	@Override
+	public TextAnnotation getTextAnnotation() {
+		if (textAnnotation == null) {
+			textAnnotation = viewCache.getTextAnnotation(getWrappedObject().getCcpTextAnnotation());
+		}
+		return textAnnotation;
+	}
+
+	@Override
+	public String toString() {
+		if (stringRepresentation == null) {
+			stringRepresentation = super.toString();
+		}
+		return stringRepresentation;
+	}
+
+	@Override
+	public String toDocumentLevelString() {
+		if (documentLevelStringRepresentation == null) {
+			documentLevelStringRepresentation = super.toDocumentLevelString();
+		}
+		return documentLevelStringRepresentation;
+	}
+
+	@Override
+	public void addComplexSlotMention(ComplexSlotMention csm) {
+		throw new UnsupportedOperationException("Cannot modify a read-only ClassMention view.");
+	}
+
+	@Override
+	public void addPrimitiveSlotMention(PrimitiveSlotMention sm) {
+		throw new UnsupportedOperationException("Cannot modify a read-only ClassMention view.");
+	}
+
+	@Override
+	public ComplexSlotMention createComplexSlotMention(String slotMentionName) {
+		throw new UnsupportedOperationException("Cannot modify a read-only ClassMention view.");
+	}
+
+	@Override
+	public void setComplexSlotMentions(Collection<ComplexSlotMention> complexSlotMentions) {
+		throw new UnsupportedOperationException("Cannot modify a read-only ClassMention view.");
+	}
+
+	@Override
+	public void setPrimitiveSlotMentions(Collection<PrimitiveSlotMention> primitiveSlotMentions) {
+		throw new UnsupportedOperationException("Cannot modify a read-only ClassMention view.");
+	}
+
+	@Override
+	public void setTextAnnotation(TextAnnotation textAnnotation) {
+		throw new UnsupportedOperationException("Cannot modify a read-only ClassMention view.");
+	}
+
+	@Override
+	public void setMentionID(long mentionID) {
+		throw new UnsupportedOperationException("Cannot modify a read-only ClassMention view.");
+	}
+
+	@Override
+	public void setMentionName(String mentionName) {
+		throw new UnsupportedOperationException("Cannot modify a read-only ClassMention view.");
+	}
+
+}
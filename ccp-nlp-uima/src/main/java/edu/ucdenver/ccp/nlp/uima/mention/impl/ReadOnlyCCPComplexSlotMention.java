@@ -0,0 +1,138 @@
+package edu.ucdenver.ccp.nlp.uima.mention.impl;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's nlp module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.uima.jcas.cas.FSArray;
+
+import edu.ucdenver.ccp.nlp.core.mention.ClassMention;
+import edu.ucdenver.ccp.nlp.core.uima.mention.CCPClassMention;
+import edu.ucdenver.ccp.nlp.core.uima.mention.CCPComplexSlotMention;
+import edu.ucdenver.ccp.nlp.uima.annotation.impl.CCPTextAnnotationViewCache;
+
+/**
+ * Read-only, lazily memoizing view of a {@link CCPComplexSlotMention}. The slot fillers are
+ * materialized once, on first access, using the shared {@link CCPTextAnnotationViewCache}. Any
+ * attempt to modify the mention through this view results in an
+ * {@link UnsupportedOperationException}.
+ * 
+ * @author Colorado Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class ReadOnlyCCPComplexSlotMention extends WrappedCCPComplexSlotMention {
+
+	private final CCPTextAnnotationViewCache viewCache;
+
+	private List<ClassMention> slotValues;
+	private String stringRepresentation;
+	private String documentLevelStringRepresentation;
+
+	public ReadOnlyCCPComplexSlotMention(CCPComplexSlotMention ccpCSM, CCPTextAnnotationViewCache viewCache) {
+		super(ccpCSM);
+		this.viewCache = viewCache;
+	}
+
+	@Override
+	public Collection<ClassMention> getSlotValues() {
+		if (slotValues == null) {
+			FSArray ccpClassMentions = getWrappedObject().getClassMentions();
+			if (ccpClassMentions == null) {
+				slotValues = Collections.emptyList();
+			} else {
+				List<ClassMention> classMentions = new ArrayList<ClassMention>(ccpClassMentions.size());
+				for (int i = 0; i < ccpClassMentions.size(); i++) {
+					classMentions.add(viewCache.getClassMention((CCPClassMention) ccpClassMentions.get(i)));
+				}
+				slotValues = Collections.unmodifiableList(classMentions);
+			}
+		}
+		return slotValues;
+	}
+
+	@Override
+	public String toString() {
+		if (stringRepresentation == null) {
+			stringRepresentation = super.toString();
+		}
+		return stringRepresentation;
+	}
+
+	@Override
+	public String toDocumentLevelString() {
+		if (documentLevelStringRepresentation == null) {
+			documentLevelStringRepresentation = super.toDocumentLevelString();
+		}
+		return documentLevelStringRepresentation;
+	}
+
+	@Override
+	public ClassMention createClassMention(String classMentionName) {
+		throw new UnsupportedOperationException("Cannot modify a read-only ComplexSlotMention view.");
+	}
+
+	@Override
+	public void addSlotValue(ClassMention slotValue) {
+		throw new UnsupportedOperationException("Cannot modify a read-only ComplexSlotMention view.");
+	}
+
+	@Override
+	public void addSlotValues(Collection<ClassMention> slotValues) {
+		throw new UnsupportedOperationException("Cannot modify a read-only ComplexSlotMention view.");
+	}
+
+	@Override
+	public void overwriteSlotValues(ClassMention slotValue) {
+		throw new UnsupportedOperationException("Cannot modify a read-only ComplexSlotMention view.");
+	}
+
+	@Override
+	public void setSlotValues(Collection<ClassMention> slotValues) {
+		throw new UnsupportedOperationException("Cannot modify a read-only ComplexSlotMention view.");
+	}
+
+	@Override
+	public void setMentionID(long mentionID) {
+		throw new UnsupportedOperationException("Cannot modify a read-only ComplexSlotMention view.");
+	}
+
+	@Override
+	public void setMentionName(String mentionName) {
+		throw new UnsupportedOperationException("Cannot modify a read-only ComplexSlotMention view.");
+	}
+
+}
@@ -97,9 +97,8 @@ public class WrappedCCPDoubleSlotMention extends DoubleSlotMention {
 	}
 
 	public void addSlotValues(Collection<Double> slotValues) throws InvalidInputException {
-		for (Double floatToAdd : slotValues) {
-			addSlotValue(floatToAdd);
-		}
+		DoubleArray updatedDoubleArray = UIMA_Util.addToDoubleArray(wrappedSM.getSlotValues(), slotValues, jcas);
+		wrappedSM.setSlotValues(updatedDoubleArray);
 	}
 
 	public Collection<Double> getSlotValues() {
@@ -0,0 +1,338 @@
+package edu.ucdenver.ccp.nlp.uima.util;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's nlp module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.uima.cas.FSIterator;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.jcas.cas.FSArray;
+import org.apache.uima.jcas.cas.TOP;
+
+import edu.ucdenver.ccp.nlp.core.uima.annotation.CCPAnnotationSet;
+import edu.ucdenver.ccp.nlp.core.uima.annotation.CCPTextAnnotation;
+
+/**
+ * Cache of annotation set membership for the {@link CCPTextAnnotation} instances in a CAS. For
+ * each annotation set id the cache holds a {@link BitSet} over the feature structure addresses of
+ * the member annotations, so that testing whether an annotation belongs to a set (or to any of
+ * several sets) is a bit lookup rather than a scan of the annotation's annotation-set
+ * {@link FSArray}.
+ * <p>
+ * An index is tied to the document currently held by the CAS and is shared by all components that
+ * process that document, so that the cache is built once per document rather than once per
+ * component. Obtain it at the start of process() via {@link #getIndex(JCas)} (or
+ * {@link UIMA_Util#getAnnotationSetMembershipIndex(JCas)}) and do not retain it once process()
+ * returns. As with {@link AnnotatorRegistry}, a reset of the CAS is detected via the JCas cover
+ * object of the document annotation, as feature structure addresses are reused once a CAS has been
+ * reset; the index of the previous document is then discarded. If the document text has not yet
+ * been set, a throw-away index is returned. The cache is built lazily on the first query.
+ * Annotations that were not in the CAS indexes when the cache was built, e.g. annotations added by
+ * a later component, are checked by scanning their annotation sets.
+ * <p>
+ * Changing the annotation sets of an annotation in place is not visible to the CAS indexes. The
+ * annotation-set mutators in {@link UIMA_Util} and {@link UIMA_Annotation_Util} (and therefore
+ * those of {@link edu.ucdenver.ccp.nlp.uima.annotation.impl.WrappedCCPTextAnnotation}) call
+ * {@link #invalidate(JCas)}, which causes all indexes over the CAS to be rebuilt on their next
+ * query; code that calls {@link CCPTextAnnotation#setAnnotationSets(FSArray)} directly on indexed
+ * annotations must do the same.
+ * 
+ * @author Colorado Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class AnnotationSetMembershipIndex {
+
+	/**
+	 * per-CAS count of in-place annotation set modifications. The JCas keys are weakly referenced
+	 * so that this map does not keep CASes alive.
+	 */
+	private static final Map<JCas, AtomicInteger> modificationCounts = Collections
+			.synchronizedMap(new WeakHashMap<JCas, AtomicInteger>());
+
+	private static final Map<JCas, AnnotationSetMembershipIndex> indexes = Collections
+			.synchronizedMap(new WeakHashMap<JCas, AnnotationSetMembershipIndex>());
+
+	private final WeakReference<JCas> jcasReference;
+
+	/**
+	 * the JCas cover object of the document annotation at the time this index was created; null
+	 * for a throw-away index
+	 */
+	private final WeakReference<TOP> documentToken;
+
+	private final AtomicInteger modificationCount;
+
+	/**
+	 * the modification count at the time the cache was built; -1 if the cache has not been built
+	 */
+	private int indexedModificationCount = -1;
+
+	/**
+	 * addresses of all annotations that were indexed when the cache was built
+	 */
+	private final BitSet indexedAnnotations = new BitSet();
+
+	private final Map<Integer, BitSet> setIdToMembersMap = new HashMap<Integer, BitSet>();
+
+	/**
+	 * a copy of the set ids most recently passed to isMemberOfAny(), and the union of their member
+	 * bitsets
+	 */
+	private int[] lastQueriedSetIDs;
+	private BitSet lastQueriedMembers;
+
+	private AnnotationSetMembershipIndex(JCas jcas, TOP documentAnnotation) {
+		this.jcasReference = new WeakReference<JCas>(jcas);
+		this.documentToken = (documentAnnotation == null) ? null : new WeakReference<TOP>(documentAnnotation);
+		synchronized (modificationCounts) {
+			AtomicInteger count = modificationCounts.get(jcas);
+			if (count == null) {
+				count = new AtomicInteger();
+				modificationCounts.put(jcas, count);
+			}
+			this.modificationCount = count;
+		}
+	}
+
+	/**
+	 * @param jcas
+	 * @return the index associated with the document currently held by the input {@link JCas}
+	 */
+	public static AnnotationSetMembershipIndex getIndex(JCas jcas) {
+		if (jcas.getDocumentText() == null) {
+			return new AnnotationSetMembershipIndex(jcas, null);
+		}
+		TOP documentAnnotation = jcas.getDocumentAnnotationFs();
+		synchronized (indexes) {
+			AnnotationSetMembershipIndex index = indexes.get(jcas);
+			if (index == null || index.documentToken.get() != documentAnnotation) {
+				index = new AnnotationSetMembershipIndex(jcas, documentAnnotation);
+				indexes.put(jcas, index);
+			}
+			return index;
+		}
+	}
+
+	/**
+	 * Forces all membership indexes over the input CAS to be rebuilt on their next query. Must be
+	 * called whenever the annotation sets of an indexed annotation are changed in place.
+	 * 
+	 * @param jcas
+	 */
+	public static void invalidate(JCas jcas) {
+		AtomicInteger count = modificationCounts.get(jcas);
+		if (count != null) {
+			count.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Forces the index to be rebuilt on the next query
+	 */
+	public void invalidate() {
+		indexedModificationCount = -1;
+	}
+
+	/**
+	 * @param ccpTA
+	 * @param annotationSetID
+	 * @return true if the annotation is a member of the annotation set with the specified id
+	 */
+	public boolean isMember(CCPTextAnnotation ccpTA, int annotationSetID) {
+		ensureIndexIsCurrent();
+		int address = ccpTA.getAddress();
+		if (!indexedAnnotations.get(address)) {
+			return UIMA_Util.hasAnnotationSet(ccpTA, annotationSetID);
+		}
+		BitSet members = setIdToMembersMap.get(annotationSetID);
+		return members != null && members.get(address);
+	}
+
+	/**
+	 * The union of the member sets is computed once for consecutive calls made with the same set
+	 * ids, so that filtering all annotations in a CAS against a fixed list of set ids costs one bit
+	 * lookup per annotation.
+	 * 
+	 * @param ccpTA
+	 * @param annotationSetIDs
+	 * @return true if the annotation is a member of any of the annotation sets with the specified
+	 *         ids
+	 */
+	public boolean isMemberOfAny(CCPTextAnnotation ccpTA, int[] annotationSetIDs) {
+		if (annotationSetIDs == null || annotationSetIDs.length == 0) {
+			return false;
+		}
+		ensureIndexIsCurrent();
+		int address = ccpTA.getAddress();
+		if (!indexedAnnotations.get(address)) {
+			for (int annotationSetID : annotationSetIDs) {
+				if (UIMA_Util.hasAnnotationSet(ccpTA, annotationSetID)) {
+					return true;
+				}
+			}
+			return false;
+		}
+		if (!Arrays.equals(lastQueriedSetIDs, annotationSetIDs)) {
+			computeUnion(annotationSetIDs.clone());
+		}
+		return lastQueriedMembers.get(address);
+	}
+
+	/**
+	 * The union of the member sets is computed once for consecutive calls made with the same set
+	 * ids (in the same iteration order), so that filtering all annotations in a CAS against a fixed
+	 * set of set ids costs one bit lookup per annotation.
+	 * 
+	 * @param ccpTA
+	 * @param annotationSetIDs
+	 * @return true if the annotation is a member of any of the annotation sets with the specified
+	 *         ids
+	 */
+	public boolean isMemberOfAny(CCPTextAnnotation ccpTA, Collection<Integer> annotationSetIDs) {
+		if (annotationSetIDs == null || annotationSetIDs.isEmpty()) {
+			return false;
+		}
+		ensureIndexIsCurrent();
+		int address = ccpTA.getAddress();
+		if (!indexedAnnotations.get(address)) {
+			for (int annotationSetID : annotationSetIDs) {
+				if (UIMA_Util.hasAnnotationSet(ccpTA, annotationSetID)) {
+					return true;
+				}
+			}
+			return false;
+		}
+		if (!isLastQueried(annotationSetIDs)) {
+			int[] setIDs = new int[annotationSetIDs.size()];
+			int index = 0;
+			for (int annotationSetID : annotationSetIDs) {
+				setIDs[index++] = annotationSetID;
+			}
+			computeUnion(setIDs);
+		}
+		return lastQueriedMembers.get(address);
+	}
+
+	/**
+	 * @param annotationSetIDs
+	 * @return true if the input set ids equal, in iteration order, those most recently queried
+	 */
+	private boolean isLastQueried(Collection<Integer> annotationSetIDs) {
+		if (lastQueriedSetIDs == null || lastQueriedSetIDs.length != annotationSetIDs.size()) {
+			return false;
+		}
+		Iterator<Integer> setIDIter = annotationSetIDs.iterator();
+		for (int i = 0; i < lastQueriedSetIDs.length; i++) {
+			Integer setID = setIDIter.next();
+			if (setID == null || setID != lastQueriedSetIDs[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @param setIDs
+	 *            a private copy of the queried set ids
+	 */
+	private void computeUnion(int[] setIDs) {
+		BitSet members = new BitSet();
+		for (int annotationSetID : setIDs) {
+			BitSet setMembers = setIdToMembersMap.get(annotationSetID);
+			if (setMembers != null) {
+				members.or(setMembers);
+			}
+		}
+		lastQueriedSetIDs = setIDs;
+		lastQueriedMembers = members;
+	}
+
+	/**
+	 * Builds the index if it has not yet been built, or rebuilds it if annotation sets have been
+	 * modified since it was built
+	 */
+	private void ensureIndexIsCurrent() {
+		int currentModificationCount = modificationCount.get();
+		if (indexedModificationCount == currentModificationCount) {
+			return;
+		}
+		indexedAnnotations.clear();
+		setIdToMembersMap.clear();
+		lastQueriedSetIDs = null;
+		lastQueriedMembers = null;
+
+		FSIterator<?> annotIter = getJCas().getAnnotationIndex(CCPTextAnnotation.type).iterator();
+		while (annotIter.hasNext()) {
+			CCPTextAnnotation ccpTA = (CCPTextAnnotation) annotIter.next();
+			int address = ccpTA.getAddress();
+			indexedAnnotations.set(address);
+			FSArray annotationSets = ccpTA.getAnnotationSets();
+			if (annotationSets != null) {
+				for (int i = 0; i < annotationSets.size(); i++) {
+					CCPAnnotationSet ccpAnnotationSet = (CCPAnnotationSet) annotationSets.get(i);
+					if (ccpAnnotationSet != null) {
+						BitSet members = setIdToMembersMap.get(ccpAnnotationSet.getAnnotationSetID());
+						if (members == null) {
+							members = new BitSet();
+							setIdToMembersMap.put(ccpAnnotationSet.getAnnotationSetID(), members);
+						}
+						members.set(address);
+					}
+				}
+			}
+		}
+		indexedModificationCount = currentModificationCount;
+	}
+
+	/**
+	 * @return the CAS of this index; callers hold a reference to it, so it has not been collected
+	 */
+	private JCas getJCas() {
+		JCas jcas = jcasReference.get();
+		if (jcas == null) {
+			throw new IllegalStateException("The CAS of this AnnotationSetMembershipIndex has been garbage collected.");
+		}
+		return jcas;
+	}
+
+}
@@ -0,0 +1,272 @@
+package edu.ucdenver.ccp.nlp.uima.util;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's nlp module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.jcas.cas.TOP;
+
+import edu.ucdenver.ccp.nlp.core.annotation.AnnotationSet;
+import edu.ucdenver.ccp.nlp.core.annotation.Annotator;
+import edu.ucdenver.ccp.nlp.core.uima.annotation.CCPAnnotationSet;
+import edu.ucdenver.ccp.nlp.core.uima.annotation.CCPAnnotator;
+
+/**
+ * Per-CAS registry that interns {@link CCPAnnotator} and {@link CCPAnnotationSet} feature
+ * structures so that annotations produced by the same annotator (and placed in the same annotation
+ * set) share a single feature structure instead of each carrying its own copy. Annotators are
+ * keyed by (id, name, affiliation); annotation sets by (id, name, description).
+ * <p>
+ * The registry also maps interned feature structures back to shared {@link Annotator} and
+ * {@link AnnotationSet} instances. These instances are shared by every caller that requests them
+ * and must therefore be treated as read-only.
+ * <p>
+ * A registry is tied to the document currently held by the CAS. CAS instances are typically
+ * reset and reused by the framework, and feature structure addresses are reused after a reset, so
+ * a registry is discarded as soon as its CAS is reset. A reset is detected via the JCas cover
+ * object of the document annotation, which is recreated after every reset (the JCas cover object
+ * cache is cleared when a CAS is reset) even if the new document has the same text and the
+ * document annotation occupies the same address. If the document text has not yet been set, a
+ * throw-away registry is returned and nothing is cached between calls.
+ * <p>
+ * Registries reference their CAS, the document annotation, and the interned feature structures
+ * only weakly (the latter by address), so the registry map does not keep CAS instances alive.
+ * 
+ * @author Colorado Computational Pharmacology, UC Denver;
+ *         ccpsupport@ucdenver.edu
+ * 
+ */
+public class AnnotatorRegistry {
+
+	public static final String DEFAULT_ANNOTATOR_ID = "-1";
+	public static final String DEFAULT_ANNOTATOR_NAME = "Default Annotator";
+	public static final String DEFAULT_ANNOTATOR_AFFILIATION = "N/A";
+	public static final String DEFAULT_ANNOTATION_SET_NAME = "Default Set";
+	public static final String DEFAULT_ANNOTATION_SET_DESCRIPTION = "";
+
+	private static final Map<JCas, AnnotatorRegistry> registries = Collections
+			.synchronizedMap(new WeakHashMap<JCas, AnnotatorRegistry>());
+
+	private final WeakReference<JCas> jcasReference;
+
+	/**
+	 * the JCas cover object of the document annotation at the time this registry was created;
+	 * null for a throw-away registry
+	 */
+	private final WeakReference<TOP> documentToken;
+
+	/**
+	 * interned feature structures, stored by address
+	 */
+	private final Map<List<Object>, Integer> keyToCcpAnnotatorMap = new HashMap<List<Object>, Integer>();
+	private final Map<List<Object>, Integer> keyToCcpAnnotationSetMap = new HashMap<List<Object>, Integer>();
+	private final Map<List<Object>, Annotator> keyToAnnotatorMap = new HashMap<List<Object>, Annotator>();
+	private final Map<List<Object>, AnnotationSet> keyToAnnotationSetMap = new HashMap<List<Object>, AnnotationSet>();
+
+	private AnnotatorRegistry(JCas jcas, TOP documentAnnotation) {
+		this.jcasReference = new WeakReference<JCas>(jcas);
+		this.documentToken = (documentAnnotation == null) ? null : new WeakReference<TOP>(documentAnnotation);
+	}
+
+	/**
+	 * @param jcas
+	 * @return the registry associated with the document currently held by the input {@link JCas}
+	 */
+	public static AnnotatorRegistry getRegistry(JCas jcas) {
+		if (jcas.getDocumentText() == null) {
+			return new AnnotatorRegistry(jcas, null);
+		}
+		TOP documentAnnotation = jcas.getDocumentAnnotationFs();
+		synchronized (registries) {
+			AnnotatorRegistry registry = registries.get(jcas);
+			if (registry == null || registry.documentToken.get() != documentAnnotation) {
+				registry = new AnnotatorRegistry(jcas, documentAnnotation);
+				registries.put(jcas, registry);
+			}
+			return registry;
+		}
+	}
+
+	/**
+	 * Discards any registry associated with the input {@link JCas}
+	 * 
+	 * @param jcas
+	 */
+	public static void clear(JCas jcas) {
+		registries.remove(jcas);
+	}
+
+	/**
+	 * @return the interned {@link CCPAnnotator} with the specified id, name, and affiliation
+	 */
+	public CCPAnnotator getCCPAnnotator(String annotatorID, String name, String affiliation) {
+		List<Object> key = getKey(annotatorID, name, affiliation);
+		JCas jcas = getJCas();
+		Integer address = keyToCcpAnnotatorMap.get(key);
+		if (address != null) {
+			return jcas.getLowLevelCas().ll_getFSForRef(address);
+		}
+		CCPAnnotator ccpAnnotator = new CCPAnnotator(jcas);
+		ccpAnnotator.setAnnotatorID(annotatorID);
+		ccpAnnotator.setName(name);
+		ccpAnnotator.setAffiliation(affiliation);
+		keyToCcpAnnotatorMap.put(key, ccpAnnotator.getAddress());
+		return ccpAnnotator;
+	}
+
+	/**
+	 * @param annotator
+	 * @return the interned {@link CCPAnnotator} equivalent to the input {@link Annotator}. If the
+	 *         input is null, an annotator with all fields unset is returned.
+	 */
+	public CCPAnnotator getCCPAnnotator(Annotator annotator) {
+		if (annotator == null) {
+			return getCCPAnnotator(null, null, null);
+		}
+		return getCCPAnnotator(annotator.getAnnotatorID(), annotator.getName(), annotator.getAffiliation());
+	}
+
+	/**
+	 * @return the interned default {@link CCPAnnotator}
+	 */
+	public CCPAnnotator getDefaultCCPAnnotator() {
+		return getCCPAnnotator(DEFAULT_ANNOTATOR_ID, DEFAULT_ANNOTATOR_NAME, DEFAULT_ANNOTATOR_AFFILIATION);
+	}
+
+	/**
+	 * @return the interned {@link CCPAnnotationSet} with the specified id, name, and description
+	 */
+	public CCPAnnotationSet getCCPAnnotationSet(int annotationSetID, String name, String description) {
+		List<Object> key = getKey(annotationSetID, name, description);
+		JCas jcas = getJCas();
+		Integer address = keyToCcpAnnotationSetMap.get(key);
+		if (address != null) {
+			return jcas.getLowLevelCas().ll_getFSForRef(address);
+		}
+		CCPAnnotationSet ccpAnnotationSet = new CCPAnnotationSet(jcas);
+		ccpAnnotationSet.setAnnotationSetID(annotationSetID);
+		ccpAnnotationSet.setAnnotationSetName(name);
+		ccpAnnotationSet.setAnnotationSetDescription(description);
+		keyToCcpAnnotationSetMap.put(key, ccpAnnotationSet.getAddress());
+		return ccpAnnotationSet;
+	}
+
+	/**
+	 * @param annotationSet
+	 * @return the interned {@link CCPAnnotationSet} equivalent to the input {@link AnnotationSet}
+	 */
+	public CCPAnnotationSet getCCPAnnotationSet(AnnotationSet annotationSet) {
+		return getCCPAnnotationSet(annotationSet.getAnnotationSetID().intValue(), annotationSet.getAnnotationSetName(),
+				annotationSet.getAnnotationSetDescription());
+	}
+
+	/**
+	 * @return the interned default {@link CCPAnnotationSet}
+	 */
+	public CCPAnnotationSet getDefaultCCPAnnotationSet() {
+		return getCCPAnnotationSet(AnnotationSet.DEFAULT_ANNOTATION_SET_ID, DEFAULT_ANNOTATION_SET_NAME,
+				DEFAULT_ANNOTATION_SET_DESCRIPTION);
+	}
+
+	/**
+	 * @param ccpAnnotator
+	 * @return a shared, read-only {@link Annotator} equivalent to the input {@link CCPAnnotator}
+	 */
+	public Annotator getAnnotator(CCPAnnotator ccpAnnotator) {
+		List<Object> key = getKey(ccpAnnotator.getAnnotatorID(), ccpAnnotator.getName(), ccpAnnotator.getAffiliation());
+		Annotator annotator = keyToAnnotatorMap.get(key);
+		if (annotator == null) {
+			annotator = new Annotator("1", "", "");
+			UIMA_Util.swapAnnotatorInfo(ccpAnnotator, annotator);
+			keyToAnnotatorMap.put(key, annotator);
+		}
+		return annotator;
+	}
+
+	/**
+	 * @param ccpAnnotationSet
+	 * @return a shared, read-only {@link AnnotationSet} equivalent to the input
+	 *         {@link CCPAnnotationSet}
+	 */
+	public AnnotationSet getAnnotationSet(CCPAnnotationSet ccpAnnotationSet) {
+		List<Object> key = getKey(ccpAnnotationSet.getAnnotationSetID(), ccpAnnotationSet.getAnnotationSetName(),
+				ccpAnnotationSet.getAnnotationSetDescription());
+		AnnotationSet annotationSet = keyToAnnotationSetMap.get(key);
+		if (annotationSet == null) {
+			annotationSet = new AnnotationSet();
+			UIMA_Util.swapAnnotationSetInfo(ccpAnnotationSet, annotationSet);
+			keyToAnnotationSetMap.put(key, annotationSet);
+		}
+		return annotationSet;
+	}
+
+	/**
+	 * @return the number of distinct {@link CCPAnnotator} feature structures held by this registry
+	 */
+	public int getCCPAnnotatorCount() {
+		return keyToCcpAnnotatorMap.size();
+	}
+
+	/**
+	 * @return the number of distinct {@link CCPAnnotationSet} feature structures held by this
+	 *         registry
+	 */
+	public int getCCPAnnotationSetCount() {
+		return keyToCcpAnnotationSetMap.size();
+	}
+
+	/**
+	 * @return the CAS of this registry; callers hold a reference to it, so it has not been
+	 *         collected
+	 */
+	private JCas getJCas() {
+		JCas jcas = jcasReference.get();
+		if (jcas == null) {
+			throw new IllegalStateException("The CAS of this AnnotatorRegistry has been garbage collected.");
+		}
+		return jcas;
+	}
+
+	private static List<Object> getKey(Object id, String name, String description) {
+		return Arrays.<Object> asList(id, name, description);
+	}
+
+}
@@ -0,0 +1,389 @@
+package edu.ucdenver.ccp.nlp.uima.util;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's nlp module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.uima.cas.FSIterator;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.jcas.cas.FSArray;
+
+import edu.ucdenver.ccp.nlp.core.uima.annotation.CCPAnnotationSet;
+import edu.ucdenver.ccp.nlp.core.uima.annotation.CCPTextAnnotation;
+import edu.ucdenver.ccp.nlp.core.uima.mention.CCPClassMention;
+
+/**
+ * Secondary index over the {@link CCPTextAnnotation} instances in a CAS, keyed by class mention
+ * name (and optionally annotation set id). For each mention name the index holds the matching
+ * annotations in annotation index order, i.e. sorted by span begin, so that retrieving all
+ * annotations of a given type, or all annotations of a given type within a span, costs a hash
+ * lookup plus a binary search rather than a scan of the full annotation index.
+ * <p>
+ * An index is intended to be created and used within a single call to an annotator's process()
+ * method and must not be retained across documents. It is built on the first query and reflects
+ * the {@link CCPTextAnnotation}s in the CAS at that time; it is not rebuilt automatically. Code
+ * that adds or removes {@link CCPTextAnnotation}s, or renames class mentions, and then wishes to
+ * query the updated CAS must call {@link #invalidate()}. As a safeguard, annotations whose class
+ * mention has been renamed (e.g. via {@link CCPClassMention#setMentionName(String)}) since the
+ * index was built are excluded from query results. Lists returned by the index are snapshots and
+ * are therefore safe to iterate while modifying the CAS.
+ * 
+ * @author Colorado Computational Pharmacology, UC Denver;
+ *         ccpsupport@ucdenver.edu
+ * 
+ */
+public class MentionNameIndex {
+
+	private final JCas jcas;
+
+	/**
+	 * true once the index has been built; reset by {@link #invalidate()}
+	 */
+	private boolean built;
+
+	/**
+	 * all indexed annotations in annotation index order, and the mention name of each at the time
+	 * the index was built
+	 */
+	private final List<CCPTextAnnotation> annotations = new ArrayList<CCPTextAnnotation>();
+	private final List<String> indexedMentionNames = new ArrayList<String>();
+
+	private final Map<String, NameEntry> mentionNameToEntryMap = new HashMap<String, NameEntry>();
+	private final Map<List<Object>, List<CCPTextAnnotation>> nameAndSetIdToAnnotationsMap = new HashMap<List<Object>, List<CCPTextAnnotation>>();
+
+	/**
+	 * @param jcas
+	 *            the CAS to index. No work is done until the first query.
+	 */
+	public MentionNameIndex(JCas jcas) {
+		this.jcas = jcas;
+	}
+
+	/**
+	 * Forces the index to be rebuilt on the next query. Must be called after adding or removing
+	 * {@link CCPTextAnnotation}s, or renaming class mentions, if subsequent queries should reflect
+	 * the change.
+	 */
+	public void invalidate() {
+		built = false;
+	}
+
+	/**
+	 * @return the set of class mention names present in the CAS when the index was last built
+	 */
+	public Set<String> getMentionNames() {
+		ensureIndexIsBuilt();
+		return Collections.unmodifiableSet(new HashSet<String>(mentionNameToEntryMap.keySet()));
+	}
+
+	/**
+	 * @param mentionName
+	 * @return all annotations with the specified class mention name, in annotation index order
+	 */
+	public List<CCPTextAnnotation> getAnnotations(String mentionName) {
+		ensureIndexIsBuilt();
+		NameEntry entry = mentionNameToEntryMap.get(mentionName);
+		if (entry == null) {
+			return Collections.emptyList();
+		}
+		return collect(entry, 0, entry.positions.length, -1, -1, false);
+	}
+
+	/**
+	 * @param mentionNames
+	 * @return all annotations having any of the specified class mention names, in annotation
+	 *         index order
+	 */
+	public List<CCPTextAnnotation> getAnnotations(Collection<String> mentionNames) {
+		ensureIndexIsBuilt();
+		if (mentionNames.size() == 1) {
+			return getAnnotations(mentionNames.iterator().next());
+		}
+		int count = 0;
+		List<NameEntry> entries = new ArrayList<NameEntry>();
+		for (String mentionName : new HashSet<String>(mentionNames)) {
+			NameEntry entry = mentionNameToEntryMap.get(mentionName);
+			if (entry != null) {
+				entries.add(entry);
+				count += entry.positions.length;
+			}
+		}
+		int[] positions = new int[count];
+		int offset = 0;
+		for (NameEntry entry : entries) {
+			System.arraycopy(entry.positions, 0, positions, offset, entry.positions.length);
+			offset += entry.positions.length;
+		}
+		Arrays.sort(positions);
+		List<CCPTextAnnotation> annotationsToReturn = new ArrayList<CCPTextAnnotation>(count);
+		for (int position : positions) {
+			if (isCurrent(position)) {
+				annotationsToReturn.add(annotations.get(position));
+			}
+		}
+		return annotationsToReturn;
+	}
+
+	/**
+	 * @param mentionName
+	 * @param annotationSetID
+	 * @return all annotations with the specified class mention name that are members of the
+	 *         annotation set with the specified id, in annotation index order
+	 */
+	public List<CCPTextAnnotation> getAnnotations(String mentionName, int annotationSetID) {
+		ensureIndexIsBuilt();
+		List<Object> key = Arrays.<Object> asList(mentionName, annotationSetID);
+		List<CCPTextAnnotation> annotationsInSet = nameAndSetIdToAnnotationsMap.get(key);
+		if (annotationsInSet == null) {
+			annotationsInSet = new ArrayList<CCPTextAnnotation>();
+			for (CCPTextAnnotation ccpTA : getAnnotations(mentionName)) {
+				if (isMemberOfAnnotationSet(ccpTA, annotationSetID)) {
+					annotationsInSet.add(ccpTA);
+				}
+			}
+			annotationsInSet = Collections.unmodifiableList(annotationsInSet);
+			nameAndSetIdToAnnotationsMap.put(key, annotationsInSet);
+		}
+		return annotationsInSet;
+	}
+
+	/**
+	 * @param mentionName
+	 * @param spanStart
+	 * @param spanEnd
+	 * @return annotations with the specified class mention name that lie within the specified
+	 *         span (begin &gt;= spanStart and end &lt;= spanEnd), in annotation index order
+	 */
+	public List<CCPTextAnnotation> getAnnotationsWithinSpan(String mentionName, int spanStart, int spanEnd) {
+		ensureIndexIsBuilt();
+		NameEntry entry = mentionNameToEntryMap.get(mentionName);
+		if (entry == null) {
+			return Collections.emptyList();
+		}
+		int from = entry.firstPositionWithBeginAtLeast(spanStart);
+		int to = entry.firstPositionWithBeginAtLeast(spanEnd + 1);
+		return collect(entry, from, to, spanStart, spanEnd, true);
+	}
+
+	/**
+	 * @param mentionName
+	 * @param spanStart
+	 * @param spanEnd
+	 * @return annotations with the specified class mention name that overlap the specified span
+	 *         by at least one character, in annotation index order
+	 */
+	public List<CCPTextAnnotation> getOverlappingAnnotations(String mentionName, int spanStart, int spanEnd) {
+		ensureIndexIsBuilt();
+		NameEntry entry = mentionNameToEntryMap.get(mentionName);
+		if (entry == null) {
+			return Collections.emptyList();
+		}
+		/*
+		 * no annotation is longer than maxLength, so nothing beginning before spanStart - maxLength
+		 * can reach the span
+		 */
+		int from = entry.firstPositionWithBeginAtLeast(spanStart - entry.maxLength);
+		int to = entry.firstPositionWithBeginAtLeast(spanEnd);
+		return collect(entry, from, to, spanStart, spanEnd, false);
+	}
+
+	/**
+	 * @param mentionName
+	 * @param spanStart
+	 * @param spanEnd
+	 * @return annotations with the specified class mention name that encompass the specified span
+	 *         (begin &lt;= spanStart and end &gt;= spanEnd), in annotation index order
+	 */
+	public List<CCPTextAnnotation> getAnnotationsEncompassingSpan(String mentionName, int spanStart, int spanEnd) {
+		ensureIndexIsBuilt();
+		NameEntry entry = mentionNameToEntryMap.get(mentionName);
+		if (entry == null) {
+			return Collections.emptyList();
+		}
+		int from = entry.firstPositionWithBeginAtLeast(spanEnd - entry.maxLength);
+		int to = entry.firstPositionWithBeginAtLeast(spanStart + 1);
+		List<CCPTextAnnotation> annotationsToReturn = new ArrayList<CCPTextAnnotation>();
+		for (int i = from; i < to; i++) {
+			int position = entry.positions[i];
+			if (isCurrent(position)) {
+				CCPTextAnnotation ccpTA = annotations.get(position);
+				if (ccpTA.getEnd() >= spanEnd) {
+					annotationsToReturn.add(ccpTA);
+				}
+			}
+		}
+		return annotationsToReturn;
+	}
+
+	/**
+	 * Collects the annotations at positions [from, to) of the specified entry. If spanStart is
+	 * non-negative, only annotations ending after spanStart (or, if checkWithin is true, ending at
+	 * or before spanEnd) are retained.
+	 */
+	private List<CCPTextAnnotation> collect(NameEntry entry, int from, int to, int spanStart, int spanEnd,
+			boolean checkWithin) {
+		List<CCPTextAnnotation> annotationsToReturn = new ArrayList<CCPTextAnnotation>(Math.max(0, to - from));
+		for (int i = from; i < to; i++) {
+			int position = entry.positions[i];
+			if (isCurrent(position)) {
+				CCPTextAnnotation ccpTA = annotations.get(position);
+				if (spanStart >= 0) {
+					if (checkWithin ? ccpTA.getEnd() > spanEnd : ccpTA.getEnd() <= spanStart) {
+						continue;
+					}
+				}
+				annotationsToReturn.add(ccpTA);
+			}
+		}
+		return annotationsToReturn;
+	}
+
+	/**
+	 * @return true if the annotation at the specified position still carries the mention name it
+	 *         was indexed under
+	 */
+	private boolean isCurrent(int position) {
+		CCPClassMention ccpCM = annotations.get(position).getClassMention();
+		String indexedMentionName = indexedMentionNames.get(position);
+		return ccpCM != null && indexedMentionName.equals(ccpCM.getMentionName());
+	}
+
+	private static boolean isMemberOfAnnotationSet(CCPTextAnnotation ccpTA, int annotationSetID) {
+		FSArray annotationSets = ccpTA.getAnnotationSets();
+		if (annotationSets != null) {
+			for (int i = 0; i < annotationSets.size(); i++) {
+				CCPAnnotationSet ccpAnnotationSet = (CCPAnnotationSet) annotationSets.get(i);
+				if (ccpAnnotationSet != null && ccpAnnotationSet.getAnnotationSetID() == annotationSetID) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Builds the index if it has not been built since it was created or last invalidated
+	 */
+	private void ensureIndexIsBuilt() {
+		if (built) {
+			return;
+		}
+		annotations.clear();
+		indexedMentionNames.clear();
+		mentionNameToEntryMap.clear();
+		nameAndSetIdToAnnotationsMap.clear();
+
+		Map<String, List<Integer>> mentionNameToPositionsMap = new HashMap<String, List<Integer>>();
+		Map<String, Integer> mentionNameToMaxLengthMap = new HashMap<String, Integer>();
+		FSIterator<?> annotIter = jcas.getAnnotationIndex(CCPTextAnnotation.type).iterator();
+		while (annotIter.hasNext()) {
+			CCPTextAnnotation ccpTA = (CCPTextAnnotation) annotIter.next();
+			CCPClassMention ccpCM = ccpTA.getClassMention();
+			if (ccpCM == null || ccpCM.getMentionName() == null) {
+				continue;
+			}
+			String mentionName = ccpCM.getMentionName();
+			int position = annotations.size();
+			annotations.add(ccpTA);
+			indexedMentionNames.add(mentionName);
+			List<Integer> positions = mentionNameToPositionsMap.get(mentionName);
+			if (positions == null) {
+				positions = new ArrayList<Integer>();
+				mentionNameToPositionsMap.put(mentionName, positions);
+				mentionNameToMaxLengthMap.put(mentionName, 0);
+			}
+			positions.add(position);
+			int length = ccpTA.getEnd() - ccpTA.getBegin();
+			if (length > mentionNameToMaxLengthMap.get(mentionName)) {
+				mentionNameToMaxLengthMap.put(mentionName, length);
+			}
+		}
+		for (Map.Entry<String, List<Integer>> entry : mentionNameToPositionsMap.entrySet()) {
+			List<Integer> positionList = entry.getValue();
+			int[] positions = new int[positionList.size()];
+			int[] begins = new int[positionList.size()];
+			for (int i = 0; i < positions.length; i++) {
+				positions[i] = positionList.get(i);
+				begins[i] = annotations.get(positions[i]).getBegin();
+			}
+			mentionNameToEntryMap.put(entry.getKey(),
+					new NameEntry(positions, begins, mentionNameToMaxLengthMap.get(entry.getKey())));
+		}
+		built = true;
+	}
+
+	/**
+	 * The positions (into the list of all indexed annotations) and span begins of the annotations
+	 * having a single mention name, in annotation index order, along with the length of the
+	 * longest such annotation
+	 */
+	private static class NameEntry {
+		private final int[] positions;
+		private final int[] begins;
+		private final int maxLength;
+
+		public NameEntry(int[] positions, int[] begins, int maxLength) {
+			this.positions = positions;
+			this.begins = begins;
+			this.maxLength = maxLength;
+		}
+
+		/**
+		 * @return the index of the first entry whose begin is &gt;= the input offset, or the number
+		 *         of entries if there is none
+		 */
+		private int firstPositionWithBeginAtLeast(int offset) {
+			int low = 0;
+			int high = begins.length;
+			while (low < high) {
+				int mid = (low + high) >>> 1;
+				if (begins[mid] < offset) {
+					low = mid + 1;
+				} else {
+					high = mid;
+				}
+			}
+			return low;
+		}
+	}
+
+}
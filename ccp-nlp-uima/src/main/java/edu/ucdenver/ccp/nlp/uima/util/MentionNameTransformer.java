@@ -0,0 +1,197 @@
+package edu.ucdenver.ccp.nlp.uima.util;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's nlp module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.uima.util.Level;
+import org.apache.uima.util.Logger;
+
+import edu.ucdenver.ccp.nlp.core.uima.mention.CCPClassMention;
+
+/**
+ * Bounded, memoizing wrapper around a {@link Transformation} of class mention names. The set of
+ * distinct mention names seen in a corpus is typically small compared to the number of
+ * annotations, so components that rename every {@link CCPClassMention} in a CAS can use this class
+ * to compute the transformation once per distinct name rather than once per annotation. Results
+ * (including the absence of a transformation) are cached in a least-recently-used map holding at
+ * most the configured number of names, and the cache persists across the CASes processed by the
+ * owning component.
+ * <p>
+ * The cache is keyed by mention name. Mention names read from a CAS commonly share a single
+ * (interned) String instance, in which case the key comparison reduces to an identity check and
+ * the hash code of the name is computed only once.
+ * <p>
+ * The number of cache hits and misses is counted and can be written to the UIMA logger using
+ * {@link #logStatistics(Logger)}, e.g. from the collectionProcessComplete() method of the owning
+ * component. Instances are not thread-safe; each annotator instance is expected to create its own.
+ * 
+ * @author Colorado Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class MentionNameTransformer {
+
+	/**
+	 * The default maximum number of distinct mention names whose transformations are cached
+	 */
+	public static final int DEFAULT_MAX_CACHE_SIZE = 10000;
+
+	/**
+	 * A transformation of class mention names
+	 */
+	public interface Transformation {
+		/**
+		 * @param mentionName
+		 * @return the transformed mention name, or null if the transformation does not apply to the
+		 *         input mention name
+		 */
+		public String transform(String mentionName);
+	}
+
+	/**
+	 * cached in place of a null transformation result
+	 */
+	private static final String NO_TRANSFORMATION = new String("");
+
+	private final String name;
+	private final Transformation transformation;
+	private final Map<String, String> cache;
+
+	private long hitCount = 0;
+	private long missCount = 0;
+
+	/**
+	 * @param name
+	 *            used to identify this transformer in logged statistics
+	 * @param transformation
+	 * @param maxCacheSize
+	 *            the maximum number of distinct mention names whose transformations are cached
+	 */
+	public MentionNameTransformer(String name, Transformation transformation, final int maxCacheSize) {
+		if (maxCacheSize < 1) {
+			throw new IllegalArgumentException("The maximum cache size must be positive: " + maxCacheSize);
+		}
+		this.name = name;
+		this.transformation = transformation;
+		this.cache = new LinkedHashMap<String, String>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+				return size() > maxCacheSize;
+			}
+		};
+	}
+
+	/**
+	 * @param name
+	 *            used to identify this transformer in logged statistics
+	 * @param transformation
+	 */
+	public MentionNameTransformer(String name, Transformation transformation) {
+		this(name, transformation, DEFAULT_MAX_CACHE_SIZE);
+	}
+
+	/**
+	 * @param mentionName
+	 * @return the (possibly cached) transformed mention name, or null if the transformation does not
+	 *         apply to the input mention name
+	 */
+	public String transform(String mentionName) {
+		String transformed = cache.get(mentionName);
+		if (transformed != null) {
+			hitCount++;
+		} else {
+			missCount++;
+			transformed = transformation.transform(mentionName);
+			if (transformed == null) {
+				transformed = NO_TRANSFORMATION;
+			}
+			cache.put(mentionName, transformed);
+		}
+		return (transformed == NO_TRANSFORMATION) ? null : transformed;
+	}
+
+	/**
+	 * Transforms the mention name of the input class mention in place
+	 * 
+	 * @param ccpCM
+	 * @return true if the mention name was changed
+	 */
+	public boolean transform(CCPClassMention ccpCM) {
+		String mentionName = ccpCM.getMentionName();
+		String transformed = transform(mentionName);
+		if (transformed != null && !transformed.equals(mentionName)) {
+			ccpCM.setMentionName(transformed);
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * @return the number of transformations served from the cache
+	 */
+	public long getHitCount() {
+		return hitCount;
+	}
+
+	/**
+	 * @return the number of transformations that were computed
+	 */
+	public long getMissCount() {
+		return missCount;
+	}
+
+	/**
+	 * @return the number of mention names currently cached
+	 */
+	public int getCacheSize() {
+		return cache.size();
+	}
+
+	/**
+	 * Logs the cache hit and miss counts at {@link Level#INFO}
+	 * 
+	 * @param logger
+	 *            commonly the logger of the UIMA context of the owning component
+	 */
+	public void logStatistics(Logger logger) {
+		long total = hitCount + missCount;
+		String hitRate = (total == 0) ? "n/a" : String.format("%.1f%%", 100.0 * hitCount / total);
+		logger.log(Level.INFO, "Mention name transformer <" + name + ">: " + hitCount + " cache hits, " + missCount
+				+ " cache misses (hit rate " + hitRate + "), " + cache.size() + " names cached.");
+	}
+
+}
@@ -34,6 +34,7 @@ package edu.ucdenver.ccp.nlp.uima.util;
  */
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
@@ -55,6 +56,7 @@ import edu.ucdenver.ccp.nlp.core.annotation.AnnotationSet;
 import edu.ucdenver.ccp.nlp.core.annotation.Annotator;
 import edu.ucdenver.ccp.nlp.core.annotation.InvalidSpanException;
 import edu.ucdenver.ccp.nlp.core.annotation.Span;
+import edu.ucdenver.ccp.nlp.core.annotation.SpanUtils;
 import edu.ucdenver.ccp.nlp.core.annotation.TextAnnotation;
 import edu.ucdenver.ccp.nlp.core.annotation.TextAnnotationUtil;
 import edu.ucdenver.ccp.nlp.core.annotation.impl.KnowledgeRepresentationWrapperException;
@@ -108,14 +110,9 @@ public class UIMA_Annotation_Util {
 		ccpSpans.set(0, ccpSpan);
 		ccpTA.setSpans(ccpSpans);
 		/* set annotator and annotation set */
-		CCPAnnotator ccpAnnotator = new CCPAnnotator(jcas);
-		ccpAnnotator.setAffiliation("N/A");
-		ccpAnnotator.setName("Default Annotator");
-		ccpAnnotator.setAnnotatorID("-1");
-		CCPAnnotationSet ccpAnnotationSet = new CCPAnnotationSet(jcas);
-		ccpAnnotationSet.setAnnotationSetID(-1);
-		ccpAnnotationSet.setAnnotationSetName("Default Set");
-		ccpAnnotationSet.setAnnotationSetDescription("");
+		AnnotatorRegistry registry = AnnotatorRegistry.getRegistry(jcas);
+		CCPAnnotator ccpAnnotator = registry.getDefaultCCPAnnotator();
+		CCPAnnotationSet ccpAnnotationSet = registry.getDefaultCCPAnnotationSet();
 		ccpTA.setAnnotator(ccpAnnotator);
 		FSArray asets = new FSArray(jcas, 1);
 		asets.set(0, ccpAnnotationSet);
@@ -141,9 +138,7 @@ public class UIMA_Annotation_Util {
 		int[] span = new int[2];
 		span[0] = start;
 		span[1] = end;
-		CCPAnnotator annotator = new CCPAnnotator(jcas);
-		annotator.setName(annotatorName);
-		annotator.setAffiliation("");
+		CCPAnnotator annotator = AnnotatorRegistry.getRegistry(jcas).getCCPAnnotator(null, annotatorName, "");
 		CCPTextAnnotation ccpTA = createCCPTextAnnotation(mentionType, span, jcas, annotator, null);
 		return ccpTA;
 	}
@@ -477,6 +472,42 @@ public class UIMA_Annotation_Util {
 		}
 	}
 
+	/**
+	 * Returns the union of the spans covered by the input annotations, e.g. the annotations of a
+	 * CAS annotation index. The spans of {@link CCPTextAnnotation}s are taken from their span
+	 * lists; other annotations contribute their begin/end offsets. The offsets are gathered into
+	 * primitive arrays and merged by {@link SpanUtils#unionSpans(int[], int[], int)}.
+	 * 
+	 * @param annotations
+	 * @return the sorted, non-overlapping spans covered by the annotations
+	 */
+	public static ArrayList<Span> getCoveredSpanUnion(Iterable<? extends Annotation> annotations) {
+		int[] starts = new int[256];
+		int[] ends = new int[256];
+		int count = 0;
+		for (Annotation annotation : annotations) {
+			FSArray spanList = (annotation instanceof CCPTextAnnotation) ? ((CCPTextAnnotation) annotation).getSpans()
+					: null;
+			int spanCount = (spanList == null || spanList.size() == 0) ? 1 : spanList.size();
+			if (count + spanCount > starts.length) {
+				int length = Math.max(starts.length * 2, count + spanCount);
+				starts = Arrays.copyOf(starts, length);
+				ends = Arrays.copyOf(ends, length);
+			}
+			if (spanList == null || spanList.size() == 0) {
+				starts[count] = annotation.getBegin();
+				ends[count++] = annotation.getEnd();
+			} else {
+				for (int i = 0; i < spanList.size(); i++) {
+					CCPSpan ccpSpan = getExpectedSpan(spanList.get(i));
+					starts[count] = ccpSpan.getSpanStart();
+					ends[count++] = ccpSpan.getSpanEnd();
+				}
+			}
+		}
+		return SpanUtils.unionSpans(starts, ends, count);
+	}
+
 	/**
 	 * 
 	 * Returns the Span equivalent of a CCPSpan
@@ -542,13 +573,13 @@ public class UIMA_Annotation_Util {
 	 */
 	public static void setAnnotationSets(CCPTextAnnotation ccpTA, Set<AnnotationSet> annotationSets, JCas jcas) {
 		FSArray updatedAnnotationSets = new FSArray(jcas, annotationSets.size());
+		AnnotatorRegistry registry = AnnotatorRegistry.getRegistry(jcas);
 		int index = 0;
 		for (AnnotationSet aSet : annotationSets) {
-			CCPAnnotationSet ccpAnnotationSet = new CCPAnnotationSet(jcas);
-			UIMA_Util.swapAnnotationSetInfo(aSet, ccpAnnotationSet);
-			updatedAnnotationSets.set(index++, ccpAnnotationSet);
+			updatedAnnotationSets.set(index++, registry.getCCPAnnotationSet(aSet));
 		}
 		ccpTA.setAnnotationSets(updatedAnnotationSets);
+		AnnotationSetMembershipIndex.invalidate(jcas);
 	}
 
 	/**
@@ -564,9 +595,7 @@ public class UIMA_Annotation_Util {
 	 * @param jcas
 	 */
 	public static void setAnnotator(CCPTextAnnotation ccpTA, Annotator annotator, JCas jcas) {
-		CCPAnnotator ccpAnnotator = new CCPAnnotator(jcas);
-		UIMA_Util.swapAnnotatorInfo(annotator, ccpAnnotator);
-		ccpTA.setAnnotator(ccpAnnotator);
+		ccpTA.setAnnotator(AnnotatorRegistry.getRegistry(jcas).getCCPAnnotator(annotator));
 	}
 
 	/**
@@ -926,7 +955,8 @@ public class UIMA_Annotation_Util {
 	/**
 	 * 
 	 * Returns the Annotator equivalent of the CCPAnnotator for the input
-	 * CCPTextAnnotation
+	 * CCPTextAnnotation. The returned Annotator is shared via the
+	 * {@link AnnotatorRegistry} and should be treated as read-only.
 	 * 
 	 * 
 	 * 
@@ -935,14 +965,18 @@ public class UIMA_Annotation_Util {
 	 * @return
 	 */
 	public static Annotator getAnnotator(CCPTextAnnotation ccpTA) {
-		Annotator annotator = new Annotator("1", "", "");
-		UIMA_Util.swapAnnotatorInfo(ccpTA.getAnnotator(), annotator);
-		return annotator;
+		CCPAnnotator ccpAnnotator = ccpTA.getAnnotator();
+		if (ccpAnnotator == null) {
+			return new Annotator("1", "", "");
+		}
+		return getRegistry(ccpTA).getAnnotator(ccpAnnotator);
 	}
 
 	/**
 	 * 
-	 * Returns a Set of AnnotationSet objects for the input CCPTextAnnotation
+	 * Returns a Set of AnnotationSet objects for the input CCPTextAnnotation.
+	 * The AnnotationSet objects are shared via the {@link AnnotatorRegistry}
+	 * and should be treated as read-only.
 	 * 
 	 * 
 	 * 
@@ -954,19 +988,34 @@ public class UIMA_Annotation_Util {
 		Set<AnnotationSet> annotationSetsToReturn = new HashSet<AnnotationSet>();
 		FSArray ccpAnnotationSets = ccpTA.getAnnotationSets();
 		if (ccpAnnotationSets != null) {
+			AnnotatorRegistry registry = getRegistry(ccpTA);
 			for (int i = 0; i < ccpAnnotationSets.size(); i++) {
-				AnnotationSet aSet = new AnnotationSet();
 				try {
-					UIMA_Util.swapAnnotationSetInfo(getExpectedAnnotationSet(ccpAnnotationSets.get(i)), aSet);
+					annotationSetsToReturn.add(registry.getAnnotationSet(getExpectedAnnotationSet(ccpAnnotationSets
+							.get(i))));
 				} catch (KnowledgeRepresentationWrapperException e) {
 					e.printStackTrace();
+					annotationSetsToReturn.add(new AnnotationSet());
 				}
-				annotationSetsToReturn.add(aSet);
 			}
 		}
 		return annotationSetsToReturn;
 	}
 
+	/**
+	 * @param ccpTA
+	 * @return the {@link AnnotatorRegistry} for the CAS holding the input
+	 *         CCPTextAnnotation
+	 */
+	private static AnnotatorRegistry getRegistry(CCPTextAnnotation ccpTA) {
+		try {
+			return AnnotatorRegistry.getRegistry(ccpTA.getCAS().getJCas());
+		} catch (CASException e) {
+			throw new KnowledgeRepresentationWrapperException("Unable to retrieve JCas for annotation: "
+					+ e.getMessage());
+		}
+	}
+
 	/**
 	 * 
 	 * Checks to see if a FeatureStructure that is expected to be a
@@ -1083,14 +1132,9 @@ public class UIMA_Annotation_Util {
 		ccpSpans.set(0, ccpSpan);
 		ccpTA.setSpans(ccpSpans);
 		/* set annotator and annotation set */
-		CCPAnnotator ccpAnnotator = new CCPAnnotator(jcas);
-		ccpAnnotator.setAffiliation("N/A");
-		ccpAnnotator.setName("Default Annotator");
-		ccpAnnotator.setAnnotatorID("-1");
-		CCPAnnotationSet ccpAnnotationSet = new CCPAnnotationSet(jcas);
-		ccpAnnotationSet.setAnnotationSetID(-1);
-		ccpAnnotationSet.setAnnotationSetName("Default Set");
-		ccpAnnotationSet.setAnnotationSetDescription("");
+		AnnotatorRegistry registry = AnnotatorRegistry.getRegistry(jcas);
+		CCPAnnotator ccpAnnotator = registry.getDefaultCCPAnnotator();
+		CCPAnnotationSet ccpAnnotationSet = registry.getDefaultCCPAnnotationSet();
 		ccpTA.setAnnotator(ccpAnnotator);
 		FSArray asets = new FSArray(jcas, 1);
 		asets.set(0, ccpAnnotationSet);
@@ -374,7 +374,9 @@ public class UIMA_Util {
 
 	/**
 	 * Returns an Iterator over CCPTextAnnotations that have a give class type
-	 * (class mention name).
+	 * (class mention name). Each call scans the full annotation index; code
+	 * that retrieves annotations by class type repeatedly (e.g. once per
+	 * sentence) should use a {@link MentionNameIndex} instead.
 	 * 
 	 * @param jcas
 	 * @param classType
@@ -394,19 +396,13 @@ public class UIMA_Util {
 			private CCPTextAnnotation nextAnnot = null;
 
 			public boolean hasNext() {
-				if (nextAnnot == null) {
-					if (annotIter.hasNext()) {
-						CCPTextAnnotation ccpTA = (CCPTextAnnotation) annotIter.next();
-						if (checkForCorrectClassType(ccpTA)) {
-							nextAnnot = ccpTA;
-						} else {
-							return hasNext();
-						}
-					} else {
-						return false;
+				while (nextAnnot == null && annotIter.hasNext()) {
+					CCPTextAnnotation ccpTA = (CCPTextAnnotation) annotIter.next();
+					if (checkForCorrectClassType(ccpTA)) {
+						nextAnnot = ccpTA;
 					}
 				}
-				return true;
+				return nextAnnot != null;
 			}
 
 			public CCPTextAnnotation next() {
@@ -523,16 +519,14 @@ public class UIMA_Util {
 		// set the Annotation Sets
 		Set<AnnotationSet> annotationSets = fromTA.getAnnotationSets();
 		FSArray ccpAnnotationSets = new FSArray(jcas, annotationSets.size());
+		AnnotatorRegistry registry = AnnotatorRegistry.getRegistry(jcas);
 		int index = 0;
 		for (AnnotationSet aSet : annotationSets) {
-			CCPAnnotationSet ccpAnnotationSet = new CCPAnnotationSet(jcas);
-			UIMA_Util.swapAnnotationSetInfo(aSet, ccpAnnotationSet);
-			ccpAnnotationSets.set(index++, ccpAnnotationSet);
+			ccpAnnotationSets.set(index++, registry.getCCPAnnotationSet(aSet));
 		}
 		toUIMA.setAnnotationSets(ccpAnnotationSets);
-		CCPAnnotator ccpAnnotator = new CCPAnnotator(jcas);
-		UIMA_Util.swapAnnotatorInfo(fromTA.getAnnotator(), ccpAnnotator);
-		toUIMA.setAnnotator(ccpAnnotator);
+		AnnotationSetMembershipIndex.invalidate(jcas);
+		toUIMA.setAnnotator(registry.getCCPAnnotator(fromTA.getAnnotator()));
 
 		/* Swap metadata info */
 		edu.ucdenver.ccp.nlp.core.annotation.metadata.AnnotationMetadata annotationMetadata = fromTA
@@ -600,20 +594,26 @@ public class UIMA_Util {
 
 		FSArray ccpAnnotationSets = fromUIMA.getAnnotationSets();
 		Set<AnnotationSet> annotationSets = new HashSet<AnnotationSet>();
+		AnnotatorRegistry registry = AnnotatorRegistry.getRegistry(jcas);
 		if (ccpAnnotationSets != null) {
 			for (int i = 0; i < ccpAnnotationSets.size(); i++) {
-				AnnotationSet annotationSet = new AnnotationSet(new Integer(-1), "", "");
-				UIMA_Util.swapAnnotationSetInfo((CCPAnnotationSet) ccpAnnotationSets.get(i), annotationSet);
-				annotationSets.add(annotationSet);
+				CCPAnnotationSet ccpAnnotationSet = (CCPAnnotationSet) ccpAnnotationSets.get(i);
+				if (ccpAnnotationSet != null) {
+					annotationSets.add(registry.getAnnotationSet(ccpAnnotationSet));
+				} else {
+					annotationSets.add(new AnnotationSet(new Integer(-1), "", ""));
+				}
 			}
 		}
 		toTA.setAnnotationSets(annotationSets);
 
 		// set the Annotator ID
 		CCPAnnotator ccpAnnotator = fromUIMA.getAnnotator();
-		Annotator annotator = new Annotator( "-1", "", "");
-		UIMA_Util.swapAnnotatorInfo(ccpAnnotator, annotator);
-		toTA.setAnnotator(annotator);
+		if (ccpAnnotator != null) {
+			toTA.setAnnotator(registry.getAnnotator(ccpAnnotator));
+		} else {
+			toTA.setAnnotator(new Annotator("-1", "", ""));
+		}
 
 		/* swap metadata */
 		edu.ucdenver.ccp.nlp.core.annotation.metadata.AnnotationMetadata annotationMetadata = new edu.ucdenver.ccp.nlp.core.annotation.metadata.AnnotationMetadata();
@@ -943,6 +943,7 @@ public class UIMA_Util {
 
 		updatedAnnotationSets.set(updatedAnnotationSets.size() - 1, annotationSet);
 		ccpTA.setAnnotationSets(updatedAnnotationSets);
+		AnnotationSetMembershipIndex.invalidate(jcas);
 	}
 
 	/**
@@ -964,6 +965,20 @@ public class UIMA_Util {
 		return false;
 	}
 
+	/**
+	 * Components that test the annotation set membership of every annotation in a CAS should use
+	 * the {@link AnnotationSetMembershipIndex} returned by this method, which answers each
+	 * membership query with a bit lookup rather than a scan of the annotation's annotation sets.
+	 * The index is shared by all components processing the current document. It should be
+	 * obtained at the start of process() and not retained once process() returns.
+	 * 
+	 * @param jcas
+	 * @return the annotation set membership index for the document held by the input CAS
+	 */
+	public static AnnotationSetMembershipIndex getAnnotationSetMembershipIndex(JCas jcas) {
+		return AnnotationSetMembershipIndex.getIndex(jcas);
+	}
+
 	/**
 	 * Removes the annotation set identified by the setIdToRemove identifier
 	 * from the input {@link CCPTextAnnotation} if that set is present
@@ -986,6 +1001,7 @@ public class UIMA_Util {
 					}
 				}
 				ccpTa.setAnnotationSets(updatedAnnotationSets);
+				AnnotationSetMembershipIndex.invalidate(jcas);
 			}
 		}
 	}
@@ -1280,12 +1296,9 @@ public class UIMA_Util {
 		ccpCM.setSlotMentions(updatedSlotMentions);
 	}
 
-	public static void addSlotMentions(CCPClassMention ccpCM, Collection<CCPSlotMention> slotMentions, JCas jcas) {
-		FSArray updatedSlotMentions = ccpCM.getSlotMentions();
-		for (CCPSlotMention ccpSM : slotMentions) {
-			updatedSlotMentions = addToFSArray(updatedSlotMentions, ccpSM, jcas);
-		}
-		ccpCM.setSlotMentions(updatedSlotMentions);
+	public static void addSlotMentions(CCPClassMention ccpCM, Collection<? extends CCPSlotMention> slotMentions,
+			JCas jcas) {
+		ccpCM.setSlotMentions(addToFSArray(ccpCM.getSlotMentions(), slotMentions, jcas));
 	}
 
 	/**
@@ -1394,14 +1407,16 @@ public class UIMA_Util {
 
 	/**
 	 * Returns a new FSArray consisting of the contents of the input FSArray and
-	 * the Collection of FeatureStructure objects
+	 * the Collection of FeatureStructure objects. The returned FSArray is
+	 * allocated once, so adding k feature structures via this method is
+	 * preferable to k calls to {@link #addToFSArray(FSArray, TOP, JCas)}.
 	 * 
 	 * @param fsArray
 	 * @param featureStructuresToAdd
 	 * @return
 	 * @throws CASException
 	 */
-	public static FSArray addToFSArray(FSArray fsArray, Collection<TOP> featureStructuresToAdd, JCas jcas) {
+	public static FSArray addToFSArray(FSArray fsArray, Collection<? extends TOP> featureStructuresToAdd, JCas jcas) {
 		if (fsArray == null) {
 			fsArray = new FSArray(jcas, 0);
 		}
@@ -1496,6 +1511,99 @@ public class UIMA_Util {
 		return doubleArrayToReturn;
 	}
 
+	/**
+	 * Returns a new StringArray consisting of the contents of the input
+	 * StringArray followed by the input strings. The returned array is
+	 * allocated once regardless of the number of strings added.
+	 * 
+	 * @param stringArray
+	 * @param stringsToAdd
+	 * @param jcas
+	 * @return
+	 */
+	public static StringArray addToStringArray(StringArray stringArray, Collection<String> stringsToAdd, JCas jcas) {
+		int size = (stringArray == null) ? 0 : stringArray.size();
+		StringArray stringArrayToReturn = new StringArray(jcas, size + stringsToAdd.size());
+		for (int i = 0; i < size; i++) {
+			stringArrayToReturn.set(i, stringArray.get(i));
+		}
+		int index = size;
+		for (String s : stringsToAdd) {
+			stringArrayToReturn.set(index++, s);
+		}
+		return stringArrayToReturn;
+	}
+
+	/**
+	 * Returns a new IntegerArray consisting of the contents of the input
+	 * IntegerArray followed by the input integers. The returned array is
+	 * allocated once regardless of the number of integers added.
+	 * 
+	 * @param integerArray
+	 * @param integersToAdd
+	 * @param jcas
+	 * @return
+	 */
+	public static IntegerArray addToIntegerArray(IntegerArray integerArray, Collection<Integer> integersToAdd,
+			JCas jcas) {
+		int size = (integerArray == null) ? 0 : integerArray.size();
+		IntegerArray integerArrayToReturn = new IntegerArray(jcas, size + integersToAdd.size());
+		for (int i = 0; i < size; i++) {
+			integerArrayToReturn.set(i, integerArray.get(i));
+		}
+		int index = size;
+		for (Integer i : integersToAdd) {
+			integerArrayToReturn.set(index++, i);
+		}
+		return integerArrayToReturn;
+	}
+
+	/**
+	 * Returns a new FloatArray consisting of the contents of the input
+	 * FloatArray followed by the input floats. The returned array is allocated
+	 * once regardless of the number of floats added.
+	 * 
+	 * @param floatArray
+	 * @param floatsToAdd
+	 * @param jcas
+	 * @return
+	 */
+	public static FloatArray addToFloatArray(FloatArray floatArray, Collection<Float> floatsToAdd, JCas jcas) {
+		int size = (floatArray == null) ? 0 : floatArray.size();
+		FloatArray floatArrayToReturn = new FloatArray(jcas, size + floatsToAdd.size());
+		for (int i = 0; i < size; i++) {
+			floatArrayToReturn.set(i, floatArray.get(i));
+		}
+		int index = size;
+		for (Float f : floatsToAdd) {
+			floatArrayToReturn.set(index++, f);
+		}
+		return floatArrayToReturn;
+	}
+
+	/**
+	 * Returns a new DoubleArray consisting of the contents of the input
+	 * DoubleArray followed by the input doubles. The returned array is
+	 * allocated once regardless of the number of doubles added.
+	 * 
+	 * @param doubleArray
+	 * @param doublesToAdd
+	 * @param jcas
+	 * @return
+	 */
+	public static DoubleArray addToDoubleArray(DoubleArray doubleArray, Collection<Double> doublesToAdd, JCas jcas) {
+		int size = (doubleArray == null) ? 0 : doubleArray.size();
+		DoubleArray doubleArrayToReturn = new DoubleArray(jcas, size + doublesToAdd.size());
+		for (int i = 0; i < size; i++) {
+			doubleArrayToReturn.set(i, doubleArray.get(i));
+		}
+		int index = size;
+		for (Double d : doublesToAdd) {
+			doubleArrayToReturn.set(index++, d);
+		}
+		return doubleArrayToReturn;
+	}
+
 	public static int indexOf(IntegerArray intArray, Integer intValue) {
 		if (intArray == null) {
 			return -1;
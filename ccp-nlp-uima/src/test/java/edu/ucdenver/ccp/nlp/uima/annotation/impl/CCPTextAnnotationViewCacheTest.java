@@ -0,0 +1,116 @@
+package edu.ucdenver.ccp.nlp.uima.annotation.impl;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's nlp module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.List;
+
+import org.apache.uima.UIMAException;
+import org.junit.Test;
+
+import edu.ucdenver.ccp.nlp.core.annotation.TextAnnotation;
+import edu.ucdenver.ccp.nlp.core.annotation.comparison.AnnotationComparator;
+import edu.ucdenver.ccp.nlp.core.annotation.comparison.PRFResult;
+import edu.ucdenver.ccp.nlp.core.mention.ClassMention;
+import edu.ucdenver.ccp.nlp.core.mention.ComplexSlotMention;
+import edu.ucdenver.ccp.nlp.core.uima.annotation.CCPTextAnnotation;
+import edu.ucdenver.ccp.nlp.uima.test.DefaultUIMATestCase;
+import edu.ucdenver.ccp.nlp.uima.util.UIMA_Util;
+
+/**
+ * @author Colorado Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class CCPTextAnnotationViewCacheTest extends DefaultUIMATestCase {
+
+	private CCPTextAnnotation geneTA;
+	private CCPTextAnnotation proteinTA;
+
+	@Override
+	protected void initJCas() throws UIMAException {
+		jcas.setDocumentText("ABC1 encodes the ABC1 protein.");
+		geneTA = addTextAnnotationToJCas(0, 4, "gene");
+		proteinTA = addTextAnnotationToJCas(17, 21, "protein");
+		try {
+			UIMA_Util.addSlotValue(proteinTA.getClassMention(), "encoded by", geneTA.getClassMention());
+		} catch (Exception e) {
+			throw new UIMAException(e);
+		}
+	}
+
+	@Test
+	public void testViewsAreCreatedOncePerFeatureStructure() {
+		CCPTextAnnotationViewCache viewCache = new CCPTextAnnotationViewCache(jcas);
+		List<TextAnnotation> annotations = viewCache.getAnnotations();
+		assertEquals(2, annotations.size());
+		TextAnnotation proteinView = viewCache.getTextAnnotation(proteinTA);
+		assertSame(proteinView, viewCache.getTextAnnotation(proteinTA));
+		assertSame(proteinView.getClassMention(), proteinView.getClassMention());
+
+		ComplexSlotMention encodedBy = proteinView.getClassMention().getComplexSlotMentionByName("encoded by");
+		assertSame(encodedBy, proteinView.getClassMention().getComplexSlotMentions().iterator().next());
+		ClassMention geneCM = encodedBy.getClassMentions().iterator().next();
+		assertSame(viewCache.getTextAnnotation(geneTA).getClassMention(), geneCM);
+		assertSame(viewCache.getTextAnnotation(geneTA), geneCM.getTextAnnotation());
+	}
+
+	@Test
+	public void testViewsMatchWrappedAnnotations() {
+		CCPTextAnnotationViewCache viewCache = new CCPTextAnnotationViewCache(jcas);
+		for (CCPTextAnnotation ccpTA : new CCPTextAnnotation[] { geneTA, proteinTA }) {
+			TextAnnotation wrapped = new WrappedCCPTextAnnotation(ccpTA);
+			TextAnnotation view = viewCache.getTextAnnotation(ccpTA);
+			assertEquals(wrapped.getSingleLineRepresentation(), view.getSingleLineRepresentation());
+			assertEquals(wrapped.hashCode(), view.hashCode());
+			assertEquals(0, wrapped.compareTo(view));
+		}
+	}
+
+	@Test
+	public void testComparison() {
+		List<TextAnnotation> annotations = new CCPTextAnnotationViewCache(jcas).getAnnotations();
+		PRFResult prf = new AnnotationComparator().compare(annotations, annotations);
+		assertEquals(2, prf.getTruePositiveCount());
+		assertEquals(0, prf.getFalsePositiveCount());
+		assertEquals(0, prf.getFalseNegativeCount());
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testViewIsReadOnly() {
+		new CCPTextAnnotationViewCache(jcas).getTextAnnotation(geneTA).setDocumentSectionID(5);
+	}
+
+}
@@ -0,0 +1,111 @@
+package edu.ucdenver.ccp.nlp.uima.mention.impl;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's nlp module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+
+import org.apache.uima.UIMAException;
+import org.junit.Test;
+
+import edu.ucdenver.ccp.common.collections.CollectionsUtil;
+import edu.ucdenver.ccp.nlp.core.annotation.impl.KnowledgeRepresentationWrapperException;
+import edu.ucdenver.ccp.nlp.core.uima.mention.CCPClassMention;
+import edu.ucdenver.ccp.nlp.core.uima.mention.CCPComplexSlotMention;
+import edu.ucdenver.ccp.nlp.core.uima.mention.CCPIntegerSlotMention;
+import edu.ucdenver.ccp.nlp.core.uima.mention.CCPStringSlotMention;
+import edu.ucdenver.ccp.nlp.uima.test.DefaultUIMATestCase;
+import edu.ucdenver.ccp.nlp.uima.util.UIMA_Util;
+
+/**
+ * @author Colorado Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class CCPClassMentionBuilderTest extends DefaultUIMATestCase {
+
+	@Override
+	protected void initJCas() throws UIMAException {
+		jcas.setDocumentText("blahblahblahblahblahblahblahblahblahblahblahblahblahblahblahblah");
+	}
+
+	@Test
+	public void testBuild() throws Exception {
+		CCPClassMention geneCM = new CCPClassMentionBuilder(jcas, "gene").build();
+		CCPClassMention proteinCM = new CCPClassMentionBuilder(jcas, "protein")
+				.addPrimitiveSlotValue("name", "p53").addPrimitiveSlotValue("name", "TP53")
+				.addPrimitiveSlotValue("entrez id", 7157).addComplexSlotValue("encoded by", geneCM).build();
+
+		assertEquals("protein", proteinCM.getMentionName());
+		assertEquals(3, proteinCM.getSlotMentions().size());
+		assertEquals(0, geneCM.getSlotMentions().size());
+
+		CCPStringSlotMention nameSM = (CCPStringSlotMention) UIMA_Util.getSlotMentionByName(proteinCM, "name");
+		assertEquals(CollectionsUtil.createList("p53", "TP53"),
+				CollectionsUtil.createList(nameSM.getSlotValues().toArray()));
+		CCPIntegerSlotMention idSM = (CCPIntegerSlotMention) UIMA_Util.getSlotMentionByName(proteinCM, "entrez id");
+		assertEquals(1, idSM.getSlotValues().size());
+		assertEquals(7157, idSM.getSlotValues().get(0));
+		CCPComplexSlotMention encodedBySM = UIMA_Util.getComplexSlotMentionByName(proteinCM, "encoded by");
+		assertEquals(geneCM, encodedBySM.getClassMentions().get(0));
+	}
+
+	@Test
+	public void testAddToExistingClassMention() throws Exception {
+		CCPClassMention proteinCM = new CCPClassMentionBuilder(jcas, "protein").addPrimitiveSlotValue("name", "p53")
+				.build();
+		new CCPClassMentionBuilder(jcas, "protein").addPrimitiveSlotValue("name", "TP53")
+				.addPrimitiveSlotValue("synonym", "tumor protein p53").addTo(proteinCM);
+
+		assertEquals(2, proteinCM.getSlotMentions().size());
+		CCPStringSlotMention nameSM = (CCPStringSlotMention) UIMA_Util.getSlotMentionByName(proteinCM, "name");
+		assertEquals(2, nameSM.getSlotValues().size());
+		assertEquals("TP53", nameSM.getSlotValues().get(1));
+	}
+
+	@Test(expected = KnowledgeRepresentationWrapperException.class)
+	public void testMixedSlotValueTypes() throws Exception {
+		new CCPClassMentionBuilder(jcas, "protein").addPrimitiveSlotValue("id", "p53").addPrimitiveSlotValue("id", 7157);
+	}
+
+	@Test
+	public void testAddToStringArray_Bulk() throws Exception {
+		CCPClassMention proteinCM = new CCPClassMentionBuilder(jcas, "protein").addPrimitiveSlotValue("name", "a")
+				.build();
+		CCPStringSlotMention nameSM = (CCPStringSlotMention) UIMA_Util.getSlotMentionByName(proteinCM, "name");
+		nameSM.setSlotValues(UIMA_Util.addToStringArray(nameSM.getSlotValues(),
+				CollectionsUtil.createList("b", "c", "d"), jcas));
+		assertEquals(4, nameSM.getSlotValues().size());
+		assertEquals("d", nameSM.getSlotValues().get(3));
+	}
+
+}
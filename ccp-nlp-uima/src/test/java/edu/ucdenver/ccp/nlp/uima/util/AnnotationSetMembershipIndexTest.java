@@ -0,0 +1,182 @@
+package edu.ucdenver.ccp.nlp.uima.util;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's nlp module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.uima.UIMAException;
+import org.junit.Test;
+
+import edu.ucdenver.ccp.common.collections.CollectionsUtil;
+import edu.ucdenver.ccp.nlp.core.annotation.AnnotationSet;
+import edu.ucdenver.ccp.nlp.core.uima.annotation.CCPTextAnnotation;
+import edu.ucdenver.ccp.nlp.uima.annotation.impl.WrappedCCPTextAnnotation;
+import edu.ucdenver.ccp.nlp.uima.test.DefaultUIMATestCase;
+
+/**
+ * @author Colorado Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class AnnotationSetMembershipIndexTest extends DefaultUIMATestCase {
+
+	private static final int SET_ID = 99;
+
+	private CCPTextAnnotation protein1;
+	private CCPTextAnnotation protein2;
+
+	@Override
+	protected void initJCas() throws UIMAException {
+		jcas.setDocumentText("blahblahblahblahblahblahblahblahblahblahblahblahblahblahblahblah");
+		protein1 = addTextAnnotationToJCas(4, 8, "protein");
+		protein2 = addTextAnnotationToJCas(28, 36, "protein");
+	}
+
+	@Test
+	public void testMembership() {
+		AnnotationSetMembershipIndex index = UIMA_Util.getAnnotationSetMembershipIndex(jcas);
+		assertTrue(index.isMember(protein1, -1));
+		assertFalse(index.isMember(protein1, SET_ID));
+
+		/* the index is invalidated when a set is added via UIMA_Util */
+		UIMA_Util.addAnnotationSet(protein2, AnnotatorRegistry.getRegistry(jcas).getCCPAnnotationSet(SET_ID, "set", ""),
+				jcas);
+		assertTrue(index.isMember(protein2, SET_ID));
+		assertFalse(index.isMember(protein1, SET_ID));
+
+		int[] setIds = new int[] { 5, SET_ID };
+		assertTrue(index.isMemberOfAny(protein2, setIds));
+		assertFalse(index.isMemberOfAny(protein1, setIds));
+		Set<Integer> setIdSet = new HashSet<Integer>(Arrays.asList(5, SET_ID));
+		assertTrue(index.isMemberOfAny(protein2, setIdSet));
+		assertFalse(index.isMemberOfAny(protein1, setIdSet));
+		assertFalse(index.isMemberOfAny(protein1, (int[]) null));
+		assertFalse(index.isMemberOfAny(protein1, new int[0]));
+
+		UIMA_Util.removeAnnotationSet(protein2, SET_ID, jcas);
+		assertFalse(index.isMember(protein2, SET_ID));
+		assertFalse(index.isMemberOfAny(protein2, setIds));
+	}
+
+	@Test
+	public void testIndexIsRebuiltWhenAnnotationsAreAdded() {
+		AnnotationSetMembershipIndex index = UIMA_Util.getAnnotationSetMembershipIndex(jcas);
+		int[] setIds = new int[] { -1, SET_ID };
+		assertTrue(index.isMemberOfAny(protein1, setIds));
+		CCPTextAnnotation protein3 = addTextAnnotationToJCas(50, 54, "protein");
+		assertTrue(index.isMemberOfAny(protein3, setIds));
+		assertTrue(index.isMember(protein3, -1));
+	}
+
+	@Test
+	public void testUnindexedAnnotation() {
+		AnnotationSetMembershipIndex index = UIMA_Util.getAnnotationSetMembershipIndex(jcas);
+		assertTrue(index.isMember(protein1, -1));
+		CCPTextAnnotation unindexed = UIMA_Annotation_Util.createCCPTextAnnotationNotIndexed("protein", new int[] {
+				10, 12 }, jcas);
+		assertTrue(index.isMember(unindexed, -1));
+		assertTrue(index.isMemberOfAny(unindexed, new int[] { -1 }));
+		assertFalse(index.isMember(unindexed, SET_ID));
+	}
+
+	@Test
+	public void testInvalidationReachesAllIndexesOverTheCas() {
+		AnnotationSetMembershipIndex index1 = UIMA_Util.getAnnotationSetMembershipIndex(jcas);
+		AnnotationSetMembershipIndex index2 = UIMA_Util.getAnnotationSetMembershipIndex(jcas);
+		assertFalse(index1.isMember(protein1, SET_ID));
+		assertFalse(index2.isMember(protein1, SET_ID));
+
+		/* the wrapper mutators invalidate the indexes */
+		WrappedCCPTextAnnotation wrappedTA = new WrappedCCPTextAnnotation(protein1);
+		wrappedTA.setAnnotationSets(CollectionsUtil.createSet(new AnnotationSet(SET_ID, "set", "")));
+		assertTrue(index1.isMember(protein1, SET_ID));
+		assertTrue(index2.isMember(protein1, SET_ID));
+		assertFalse(index1.isMember(protein1, -1));
+
+		wrappedTA.addAnnotationSet(new AnnotationSet(-1, "default", ""));
+		assertTrue(index1.isMember(protein1, -1));
+	}
+
+	@Test
+	public void testSetIdArrayModifiedInPlace() {
+		AnnotationSetMembershipIndex index = UIMA_Util.getAnnotationSetMembershipIndex(jcas);
+		int[] setIds = new int[] { SET_ID };
+		assertFalse(index.isMemberOfAny(protein1, setIds));
+		setIds[0] = -1;
+		assertTrue(index.isMemberOfAny(protein1, setIds));
+	}
+
+	@Test
+	public void testNewDocumentWithSameTextInstance() {
+		String documentText = jcas.getDocumentText();
+		AnnotationSetMembershipIndex index = UIMA_Util.getAnnotationSetMembershipIndex(jcas);
+		assertTrue(index.isMember(protein1, -1));
+
+		/*
+		 * the same text instance and the same number of annotations, at the same addresses, but in
+		 * a different annotation set
+		 */
+		jcas.reset();
+		jcas.setDocumentText(documentText);
+		CCPTextAnnotation protein3 = addTextAnnotationToJCas(4, 8, "protein");
+		CCPTextAnnotation protein4 = addTextAnnotationToJCas(28, 36, "protein");
+		UIMA_Util.removeAnnotationSet(protein3, -1, jcas);
+		UIMA_Util.addAnnotationSet(protein3, AnnotatorRegistry.getRegistry(jcas).getCCPAnnotationSet(SET_ID, "set", ""),
+				jcas);
+		index = UIMA_Util.getAnnotationSetMembershipIndex(jcas);
+		assertTrue(index.isMember(protein3, SET_ID));
+		assertFalse(index.isMember(protein3, -1));
+		assertTrue(index.isMember(protein4, -1));
+	}
+
+	@Test
+	public void testIndexIsSharedUntilTheCasIsReset() {
+		String documentText = jcas.getDocumentText();
+		AnnotationSetMembershipIndex index = UIMA_Util.getAnnotationSetMembershipIndex(jcas);
+		assertSame(index, UIMA_Util.getAnnotationSetMembershipIndex(jcas));
+
+		jcas.reset();
+		jcas.setDocumentText(documentText);
+		AnnotationSetMembershipIndex newIndex = UIMA_Util.getAnnotationSetMembershipIndex(jcas);
+		assertNotSame(index, newIndex);
+		assertSame(newIndex, UIMA_Util.getAnnotationSetMembershipIndex(jcas));
+	}
+
+}
@@ -0,0 +1,130 @@
+package edu.ucdenver.ccp.nlp.uima.util;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's nlp module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.Set;
+
+import org.apache.uima.UIMAException;
+import org.junit.Test;
+
+import edu.ucdenver.ccp.nlp.core.annotation.AnnotationSet;
+import edu.ucdenver.ccp.nlp.core.annotation.Annotator;
+import edu.ucdenver.ccp.nlp.core.uima.annotation.CCPAnnotationSet;
+import edu.ucdenver.ccp.nlp.core.uima.annotation.CCPTextAnnotation;
+import edu.ucdenver.ccp.nlp.uima.test.DefaultUIMATestCase;
+
+/**
+ * @author Colorado Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class AnnotatorRegistryTest extends DefaultUIMATestCase {
+
+	@Override
+	protected void initJCas() throws UIMAException {
+		jcas.setDocumentText("blahblahblahblahblahblahblahblahblahblahblahblahblahblahblahblah");
+	}
+
+	@Test
+	public void testDefaultAnnotatorIsShared() throws Exception {
+		CCPTextAnnotation ccpTA1 = addTextAnnotationToJCas(0, 4, "protein");
+		CCPTextAnnotation ccpTA2 = addTextAnnotationToJCas(4, 8, "gene");
+		assertSame(ccpTA1.getAnnotator(), ccpTA2.getAnnotator());
+		assertSame(ccpTA1.getAnnotationSets().get(0), ccpTA2.getAnnotationSets().get(0));
+		assertEquals("Default Annotator", ccpTA1.getAnnotator().getName());
+		assertEquals(-1, ((CCPAnnotationSet) ccpTA1.getAnnotationSets().get(0)).getAnnotationSetID());
+	}
+
+	@Test
+	public void testInterning() throws Exception {
+		AnnotatorRegistry registry = AnnotatorRegistry.getRegistry(jcas);
+		assertSame(registry, AnnotatorRegistry.getRegistry(jcas));
+		assertSame(registry.getCCPAnnotator("1", "annotator", "CCP"),
+				registry.getCCPAnnotator(new Annotator("1", "annotator", "CCP")));
+		assertNotSame(registry.getCCPAnnotator("1", "annotator", "CCP"), registry.getCCPAnnotator("2", "annotator",
+				"CCP"));
+		assertSame(registry.getCCPAnnotationSet(5, "set", "description"),
+				registry.getCCPAnnotationSet(new AnnotationSet(5, "set", "description")));
+		assertEquals(2, registry.getCCPAnnotatorCount());
+		assertEquals(1, registry.getCCPAnnotationSetCount());
+	}
+
+	@Test
+	public void testPojoRoundTrip() throws Exception {
+		CCPTextAnnotation ccpTA1 = addTextAnnotationToJCas(0, 4, "protein");
+		CCPTextAnnotation ccpTA2 = addTextAnnotationToJCas(4, 8, "gene");
+		Annotator annotator = new Annotator("7", "annotator", "CCP");
+		UIMA_Annotation_Util.setAnnotator(ccpTA1, annotator, jcas);
+		UIMA_Annotation_Util.setAnnotator(ccpTA2, annotator, jcas);
+		assertSame(ccpTA1.getAnnotator(), ccpTA2.getAnnotator());
+
+		Annotator annotator1 = UIMA_Annotation_Util.getAnnotator(ccpTA1);
+		assertSame(annotator1, UIMA_Annotation_Util.getAnnotator(ccpTA2));
+		assertEquals("7", annotator1.getAnnotatorID());
+		assertEquals("annotator", annotator1.getName());
+
+		Set<AnnotationSet> annotationSets = UIMA_Annotation_Util.getAnnotationSets(ccpTA1);
+		assertEquals(1, annotationSets.size());
+		assertSame(annotationSets.iterator().next(), UIMA_Annotation_Util.getAnnotationSets(ccpTA2).iterator()
+				.next());
+	}
+
+	@Test
+	public void testRegistryIsDiscardedWhenDocumentChanges() throws Exception {
+		AnnotatorRegistry registry = AnnotatorRegistry.getRegistry(jcas);
+		jcas.reset();
+		jcas.setDocumentText("a new document");
+		assertNotSame(registry, AnnotatorRegistry.getRegistry(jcas));
+	}
+
+	@Test
+	public void testRegistryIsDiscardedWhenCasIsResetWithSameText() throws Exception {
+		String documentText = jcas.getDocumentText();
+		AnnotatorRegistry registry = AnnotatorRegistry.getRegistry(jcas);
+		registry.getCCPAnnotator("1", "annotator", "CCP");
+		assertEquals(1, registry.getCCPAnnotatorCount());
+
+		jcas.reset();
+		jcas.setDocumentText(documentText);
+		AnnotatorRegistry newRegistry = AnnotatorRegistry.getRegistry(jcas);
+		assertNotSame(registry, newRegistry);
+		assertEquals(0, newRegistry.getCCPAnnotatorCount());
+		assertSame(newRegistry, AnnotatorRegistry.getRegistry(jcas));
+		assertEquals("annotator", newRegistry.getCCPAnnotator("1", "annotator", "CCP").getName());
+	}
+
+}
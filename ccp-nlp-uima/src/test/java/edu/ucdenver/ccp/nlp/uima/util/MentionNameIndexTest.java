@@ -0,0 +1,128 @@
+package edu.ucdenver.ccp.nlp.uima.util;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's nlp module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.uima.UIMAException;
+import org.junit.Test;
+
+import edu.ucdenver.ccp.nlp.core.uima.annotation.CCPTextAnnotation;
+import edu.ucdenver.ccp.nlp.uima.test.DefaultUIMATestCase;
+
+/**
+ * @author Colorado Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class MentionNameIndexTest extends DefaultUIMATestCase {
+
+	private CCPTextAnnotation sentence1;
+	private CCPTextAnnotation sentence2;
+	private CCPTextAnnotation protein1;
+	private CCPTextAnnotation protein2;
+	private CCPTextAnnotation protein3;
+	private CCPTextAnnotation gene1;
+
+	@Override
+	protected void initJCas() throws UIMAException {
+		jcas.setDocumentText("blahblahblahblahblahblahblahblahblahblahblahblahblahblahblahblah");
+		sentence1 = addTextAnnotationToJCas(0, 32, "sentence");
+		sentence2 = addTextAnnotationToJCas(32, 64, "sentence");
+		protein1 = addTextAnnotationToJCas(4, 8, "protein");
+		protein2 = addTextAnnotationToJCas(28, 36, "protein");
+		protein3 = addTextAnnotationToJCas(40, 44, "protein");
+		gene1 = addTextAnnotationToJCas(12, 16, "gene");
+	}
+
+	@Test
+	public void testGetAnnotations() {
+		MentionNameIndex index = new MentionNameIndex(jcas);
+		assertEquals(Arrays.asList(sentence1, sentence2), index.getAnnotations("sentence"));
+		assertEquals(Arrays.asList(protein1, protein2, protein3), index.getAnnotations("protein"));
+		assertTrue(index.getAnnotations("token").isEmpty());
+		assertEquals(Arrays.asList(protein1, gene1, protein2, protein3),
+				index.getAnnotations(Arrays.asList("protein", "gene")));
+		assertEquals(Arrays.asList(protein1, protein2, protein3), index.getAnnotations("protein", -1));
+		assertTrue(index.getAnnotations("protein", 99).isEmpty());
+	}
+
+	@Test
+	public void testSpanQueries() {
+		MentionNameIndex index = new MentionNameIndex(jcas);
+		assertEquals(Arrays.asList(protein1), index.getAnnotationsWithinSpan("protein", 0, 32));
+		assertEquals(Arrays.asList(protein3), index.getAnnotationsWithinSpan("protein", 32, 64));
+		assertEquals(Arrays.asList(protein2, protein3), index.getOverlappingAnnotations("protein", 32, 64));
+		assertEquals(Arrays.asList(sentence1, sentence2), index.getOverlappingAnnotations("sentence", 28, 36));
+		assertEquals(Arrays.asList(sentence1), index.getAnnotationsEncompassingSpan("sentence", 4, 8));
+		assertTrue(index.getAnnotationsEncompassingSpan("sentence", 28, 36).isEmpty());
+	}
+
+	@Test
+	public void testIndexIsRebuiltAfterInvalidateWhenAnnotationsAreAdded() {
+		MentionNameIndex index = new MentionNameIndex(jcas);
+		assertEquals(3, index.getAnnotations("protein").size());
+		CCPTextAnnotation protein4 = addTextAnnotationToJCas(50, 54, "protein");
+		/* the index reflects the CAS at the time it was built */
+		assertEquals(Arrays.asList(protein1, protein2, protein3), index.getAnnotations("protein"));
+		index.invalidate();
+		List<CCPTextAnnotation> proteins = index.getAnnotations("protein");
+		assertEquals(Arrays.asList(protein1, protein2, protein3, protein4), proteins);
+	}
+
+	@Test
+	public void testIndexIsRebuiltAfterInvalidateWhenAnnotationsAreReplaced() {
+		MentionNameIndex index = new MentionNameIndex(jcas);
+		assertEquals(3, index.getAnnotations("protein").size());
+		/* removing one annotation and adding another leaves the annotation count unchanged */
+		protein1.removeFromIndexes();
+		CCPTextAnnotation protein4 = addTextAnnotationToJCas(50, 54, "protein");
+		index.invalidate();
+		assertEquals(Arrays.asList(protein2, protein3, protein4), index.getAnnotations("protein"));
+	}
+
+	@Test
+	public void testRenamedAnnotationsAreExcluded() {
+		MentionNameIndex index = new MentionNameIndex(jcas);
+		assertEquals(3, index.getAnnotations("protein").size());
+		protein2.getClassMention().setMentionName("gene");
+		assertEquals(Arrays.asList(protein1, protein3), index.getAnnotations("protein"));
+		index.invalidate();
+		assertEquals(Arrays.asList(gene1, protein2), index.getAnnotations("gene"));
+	}
+
+}
@@ -0,0 +1,111 @@
+package edu.ucdenver.ccp.nlp.uima.util;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's nlp module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.uima.UIMAException;
+import org.junit.Test;
+
+import edu.ucdenver.ccp.nlp.core.uima.annotation.CCPTextAnnotation;
+import edu.ucdenver.ccp.nlp.uima.test.DefaultUIMATestCase;
+
+/**
+ * @author Colorado Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class MentionNameTransformerTest extends DefaultUIMATestCase {
+
+	@Override
+	protected void initJCas() throws UIMAException {
+		jcas.setDocumentText("blahblahblahblahblahblahblahblahblahblahblahblahblahblahblahblah");
+	}
+
+	private static class UpperCaseGeneTransformation implements MentionNameTransformer.Transformation {
+		private final List<String> transformedNames = new ArrayList<String>();
+
+		@Override
+		public String transform(String mentionName) {
+			transformedNames.add(mentionName);
+			return mentionName.startsWith("gene") ? mentionName.toUpperCase() : null;
+		}
+	}
+
+	@Test
+	public void testTransformIsMemoized() {
+		UpperCaseGeneTransformation transformation = new UpperCaseGeneTransformation();
+		MentionNameTransformer transformer = new MentionNameTransformer("test", transformation);
+		assertEquals("GENE", transformer.transform("gene"));
+		assertNull(transformer.transform("protein"));
+		assertEquals("GENE", transformer.transform("gene"));
+		assertNull(transformer.transform("protein"));
+		assertEquals(2, transformation.transformedNames.size());
+		assertEquals(2, transformer.getHitCount());
+		assertEquals(2, transformer.getMissCount());
+	}
+
+	@Test
+	public void testCacheIsBounded() {
+		UpperCaseGeneTransformation transformation = new UpperCaseGeneTransformation();
+		MentionNameTransformer transformer = new MentionNameTransformer("test", transformation, 2);
+		transformer.transform("gene1");
+		transformer.transform("gene2");
+		transformer.transform("gene1");
+		/* evicts gene2, the least recently used name */
+		transformer.transform("gene3");
+		assertEquals(2, transformer.getCacheSize());
+		transformer.transform("gene1");
+		transformer.transform("gene2");
+		assertEquals(2, transformer.getHitCount());
+		assertEquals(4, transformer.getMissCount());
+	}
+
+	@Test
+	public void testTransformClassMention() throws Exception {
+		MentionNameTransformer transformer = new MentionNameTransformer("test", new UpperCaseGeneTransformation());
+		CCPTextAnnotation geneTA = addTextAnnotationToJCas(0, 4, "gene");
+		CCPTextAnnotation proteinTA = addTextAnnotationToJCas(4, 8, "protein");
+		assertTrue(transformer.transform(geneTA.getClassMention()));
+		assertFalse(transformer.transform(proteinTA.getClassMention()));
+		assertEquals("GENE", geneTA.getClassMention().getMentionName());
+		assertEquals("protein", proteinTA.getClassMention().getMentionName());
+	}
+
+}
@@ -104,6 +104,28 @@ public class UIMA_Annotation_UtilTest {
 		assertEquals(66, ((CCPSpan) ccpTA.getSpans().get(0)).getSpanEnd());
 	}
 
+	@Test
+	public void testGetCoveredSpanUnion() throws Exception {
+		UIMA_Annotation_Util.createCCPTextAnnotation("protein", new int[] { 20, 25 }, jcas);
+		UIMA_Annotation_Util.createCCPTextAnnotation("protein", new int[] { 5, 10 }, jcas);
+		CCPTextAnnotation discontinuousTA = UIMA_Annotation_Util.createCCPTextAnnotation("protein", new int[] {
+				8, 12 }, jcas);
+		UIMA_Annotation_Util.addSpan(discontinuousTA, new Span(30, 35), jcas);
+		UIMA_Annotation_Util.createCCPTextAnnotation("protein", new int[] { 25, 27 }, jcas);
+
+		List<Span> expectedSpans = new ArrayList<Span>();
+		expectedSpans.add(new Span(5, 12));
+		expectedSpans.add(new Span(20, 27));
+		expectedSpans.add(new Span(30, 35));
+		assertEquals(expectedSpans,
+				UIMA_Annotation_Util.getCoveredSpanUnion(jcas.getAnnotationIndex(CCPTextAnnotation.type)));
+
+		/* plain annotations contribute their begin/end offsets */
+		expectedSpans = new ArrayList<Span>();
+		expectedSpans.add(new Span(0, testAnnotation.getEnd()));
+		assertEquals(expectedSpans, UIMA_Annotation_Util.getCoveredSpanUnion(jcas.getAnnotationIndex()));
+	}
+
 	/* Test the removal of blank lines from the start and end of an annotation */
 	@Test
 	public void testRemoveLeadingAndTrailingBlankLines() {
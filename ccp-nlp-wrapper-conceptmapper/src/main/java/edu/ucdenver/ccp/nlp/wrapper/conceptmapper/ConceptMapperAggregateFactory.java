@@ -38,6 +38,7 @@ package edu.ucdenver.ccp.nlp.wrapper.conceptmapper;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Map;
 
 import org.apache.uima.UIMAException;
 import org.apache.uima.analysis_engine.AnalysisEngineDescription;
@@ -49,6 +50,7 @@ import org.apache.uima.resource.metadata.TypeSystemDescription;
 
 import edu.ucdenver.ccp.nlp.wrapper.conceptmapper.ConceptMapperFactory.SearchStrategyParamValue;
 import edu.ucdenver.ccp.nlp.wrapper.conceptmapper.ConceptMapperFactory.TokenNormalizerConfigParam.CaseMatchParamValue;
+import edu.ucdenver.ccp.nlp.wrapper.conceptmapper.dictionary.ConceptMapperDictionaryBuilder;
 import edu.ucdenver.ccp.nlp.wrapper.conceptmapper.tokenizer.OffsetTokenizerFactory;
 
 /**
@@ -82,16 +84,45 @@ public class ConceptMapperAggregateFactory {
 			SearchStrategyParamValue searchStrategyParamValue, Class<? extends Annotation> spanFeatureStructureClass,
 			Class<? extends Stemmer> stemmerClass, String[] stopwordList, boolean orderIndependentLookup,
 			boolean findAllMatches, boolean replaceCommaWithAnd) throws UIMAException, IOException {
+		return getOffsetTokenizerConceptMapperAggregateDescription(tsd, dictionaryFile, caseMatchParamValue,
+				searchStrategyParamValue, spanFeatureStructureClass, stemmerClass, stopwordList,
+				orderIndependentLookup, findAllMatches, replaceCommaWithAnd, false);
+	}
+
+	/**
+	 * Returns an aggregate description for a UIMA pipeline containing the OffsetTokenizer followed
+	 * by the ConceptMapper. If the dictionary is source-tagged, e.g. merged from several ontologies
+	 * using {@link ConceptMapperDictionaryBuilder#mergeDictionaries(Map, File)}, all ontologies are
+	 * matched in a single pass and the source of each match is recorded in the Source feature of
+	 * the resulting OntologyTerm annotations.
+	 * 
+	 * @param tsd
+	 * @param dictionaryFile
+	 * @param caseMatchParamValue
+	 * @param searchStrategyParamValue
+	 * @param spanFeatureStructureClass
+	 *            commonly edu.ucdenver.ccp.nlp.ext.uima.types.Sentence
+	 * @param stemmerClass
+	 *            optional, leave null if not desired
+	 * @param stopwordList
+	 * @param orderIndependentLookup
+	 * @param findAllMatches
+	 * @param replaceCommaWithAnd
+	 * @param sourceTaggedDictionary
+	 * @return
+	 * @throws UIMAException
+	 * @throws IOException
+	 */
+	public static AnalysisEngineDescription getOffsetTokenizerConceptMapperAggregateDescription(
+			TypeSystemDescription tsd, File dictionaryFile, CaseMatchParamValue caseMatchParamValue,
+			SearchStrategyParamValue searchStrategyParamValue, Class<? extends Annotation> spanFeatureStructureClass,
+			Class<? extends Stemmer> stemmerClass, String[] stopwordList, boolean orderIndependentLookup,
+			boolean findAllMatches, boolean replaceCommaWithAnd, boolean sourceTaggedDictionary)
+			throws UIMAException, IOException {
 
 		/* Init the tokenizer */
-		Object[] tokenizerConfigData = null;
-		if (stemmerClass == null) {
-			tokenizerConfigData = OffsetTokenizerFactory.buildConfigurationData(caseMatchParamValue);
-		} else {
-			tokenizerConfigData = OffsetTokenizerFactory.buildConfigurationData(caseMatchParamValue, stemmerClass);
-		}
-		AnalysisEngineDescription offsetTokenizerDescription = OffsetTokenizerFactory.buildOffsetTokenizerDescription(
-				tsd, tokenizerConfigData);
+		AnalysisEngineDescription offsetTokenizerDescription = getOffsetTokenizerDescription(tsd, caseMatchParamValue,
+				stemmerClass);
 
 		OperationalProperties operationalProperties = offsetTokenizerDescription.getAnalysisEngineMetaData()
 				.getOperationalProperties();
@@ -103,7 +134,7 @@ public class ConceptMapperAggregateFactory {
 		AnalysisEngineDescription conceptMapperDescription = ConceptMapperFactory.buildConceptMapperDescription(tsd,
 				dictionaryFile, caseMatchParamValue, searchStrategyParamValue, stemmerClass, stopwordList,
 				orderIndependentLookup, findAllMatches, replaceCommaWithAnd, spanFeatureStructureClass,
-				offsetTokenizerDescription);
+				offsetTokenizerDescription, sourceTaggedDictionary);
 
 		if (offsetTokenizerDescription.getAnalysisEngineMetaData().getOperationalProperties() == null) {
 			offsetTokenizerDescription.getAnalysisEngineMetaData().setOperationalProperties(operationalProperties);
@@ -112,4 +143,29 @@ public class ConceptMapperAggregateFactory {
 		return AnalysisEngineFactory.createAggregateDescription(offsetTokenizerDescription, conceptMapperDescription);
 	}
 
+	/**
+	 * Returns a description for the OffsetTokenizer configured with the input case-match setting and
+	 * (optional) stemmer. The same tokenizer configuration must be supplied to the ConceptMapper so
+	 * that dictionary entries are tokenized in the same way as the document text.
+	 * 
+	 * @param tsd
+	 * @param caseMatchParamValue
+	 * @param stemmerClass
+	 *            optional, leave null if not desired
+	 * @return
+	 * @throws UIMAException
+	 * @throws IOException
+	 */
+	public static AnalysisEngineDescription getOffsetTokenizerDescription(TypeSystemDescription tsd,
+			CaseMatchParamValue caseMatchParamValue, Class<? extends Stemmer> stemmerClass) throws UIMAException,
+			IOException {
+		Object[] tokenizerConfigData = null;
+		if (stemmerClass == null) {
+			tokenizerConfigData = OffsetTokenizerFactory.buildConfigurationData(caseMatchParamValue);
+		} else {
+			tokenizerConfigData = OffsetTokenizerFactory.buildConfigurationData(caseMatchParamValue, stemmerClass);
+		}
+		return OffsetTokenizerFactory.buildOffsetTokenizerDescription(tsd, tokenizerConfigData);
+	}
+
 }
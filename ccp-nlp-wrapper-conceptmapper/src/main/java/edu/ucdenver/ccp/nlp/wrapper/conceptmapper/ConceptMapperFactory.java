@@ -70,6 +70,7 @@ import edu.ucdenver.ccp.common.file.FileWriterUtil;
 import edu.ucdenver.ccp.common.file.FileWriterUtil.FileSuffixEnforcement;
 import edu.ucdenver.ccp.common.file.FileWriterUtil.WriteMode;
 import edu.ucdenver.ccp.nlp.wrapper.conceptmapper.ConceptMapperFactory.TokenNormalizerConfigParam.CaseMatchParamValue;
+import edu.ucdenver.ccp.nlp.wrapper.conceptmapper.dictionary.ConceptMapperDictionaryBuilder;
 import uima.tt.TokenAnnotation;
 
 /* (non javadoc) 
@@ -533,9 +534,47 @@ public class ConceptMapperFactory {
 			String[] stopwords, boolean orderIndependentLookup, boolean findAllMatches, boolean replaceCommaWithAnd,
 			Class<? extends Annotation> spanFeatureStructureClass, AnalysisEngineDescription tokenizerDescription)
 			throws UIMAException, IOException {
+		return buildConceptMapperDescription(tsd, dictionaryFile, caseMatchParamValue, searchStrategyParamValue,
+				stemmerClass, stopwords, orderIndependentLookup, findAllMatches, replaceCommaWithAnd,
+				spanFeatureStructureClass, tokenizerDescription, false);
+	}
+
+	/**
+	 * @param tsd
+	 * @param dictionaryFile
+	 * @param caseMatchParamValue
+	 * @param searchStrategyParamValue
+	 * @param stemmerClass
+	 *            is optional, leave null if none desired
+	 * @param stopwords
+	 * @param orderIndependentLookup
+	 * @param findAllMatches
+	 * @param replaceCommaWithAnd
+	 * @param spanFeatureStructureClass
+	 *            commonly edu.ucdenver.ccp.nlp.ext.uima.types.Sentence
+	 * @param tokenizerDescription
+	 * @param sourceTaggedDictionary
+	 *            if true, the source attribute of the dictionary entries (see
+	 *            {@link ConceptMapperDictionaryBuilder#SOURCE_ATTRIBUTE_NAME}) is copied to the
+	 *            Source feature of the resulting OntologyTerm annotations, e.g. when using a
+	 *            dictionary merged from several ontologies
+	 * @return
+	 * @throws UIMAException
+	 * @throws IOException
+	 */
+	public static AnalysisEngineDescription buildConceptMapperDescription(TypeSystemDescription tsd,
+			File dictionaryFile, CaseMatchParamValue caseMatchParamValue,
+			SearchStrategyParamValue searchStrategyParamValue, Class<? extends Stemmer> stemmerClass,
+			String[] stopwords, boolean orderIndependentLookup, boolean findAllMatches, boolean replaceCommaWithAnd,
+			Class<? extends Annotation> spanFeatureStructureClass, AnalysisEngineDescription tokenizerDescription,
+			boolean sourceTaggedDictionary) throws UIMAException, IOException {
 
 		String[] attributeList = new String[] { "canonical", "id" };
 		String[] featureList = new String[] { "DictCanon", "ID" };
+		if (sourceTaggedDictionary) {
+			attributeList = new String[] { "canonical", "id", ConceptMapperDictionaryBuilder.SOURCE_ATTRIBUTE_NAME };
+			featureList = new String[] { "DictCanon", "ID", "Source" };
+		}
 		String matchedTokensFeatureName = "matchedTokens";
 		String resultingAnnotationMatchedTextFeature = "matchedText";
 		Class<? extends Annotation> resultingAnnotationClass = OntologyTerm.class;
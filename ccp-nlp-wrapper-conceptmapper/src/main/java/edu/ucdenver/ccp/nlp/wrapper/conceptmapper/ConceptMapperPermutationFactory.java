@@ -346,6 +346,61 @@ public class ConceptMapperPermutationFactory {
 		return buildConceptMapperAggregate(params, tsd, dictionaryFile, spanFeatureStructureClass);
 	}
 
+	/**
+	 * Returns the tokenization signature of a permutation, i.e. the case-match, stemmer and stop
+	 * word settings. Permutations sharing a signature tokenize documents identically and compile the
+	 * dictionary identically; they differ only in how the dictionary is searched (search strategy,
+	 * order-independent lookup and find-all-matches), so the tokenization and the loaded dictionary
+	 * can be shared among them.
+	 * 
+	 * @param conceptMapperPermutationNumber
+	 * @return the case-match, stemmer and stop word parameter values of the permutation
+	 */
+	public static List<String> getTokenizationSignature(int conceptMapperPermutationNumber) {
+		List<String> params = PARAM_COMBINATIONS.get(conceptMapperPermutationNumber);
+		return CollectionsUtil.createList(params.get(1), params.get(2), params.get(3));
+	}
+
+	/**
+	 * @param conceptMapperPermutationNumber
+	 * @param tsd
+	 * @return a description of the OffsetTokenizer configured for the specified permutation
+	 * @throws UIMAException
+	 * @throws IOException
+	 */
+	public static AnalysisEngineDescription buildOffsetTokenizerPermutation(int conceptMapperPermutationNumber,
+			TypeSystemDescription tsd) throws UIMAException, IOException {
+		List<String> params = PARAM_COMBINATIONS.get(conceptMapperPermutationNumber);
+		return ConceptMapperAggregateFactory.getOffsetTokenizerDescription(tsd, getCaseMatchParamValue(params),
+				getStemmerClass(params));
+	}
+
+	/**
+	 * Returns a description of the ConceptMapper (without the tokenizer) configured for the
+	 * specified permutation. The ConceptMapper expects the document to have been tokenized by the
+	 * input tokenizer, e.g. as returned by {@link #buildOffsetTokenizerPermutation(int, TypeSystemDescription)}
+	 * for a permutation with the same tokenization signature.
+	 * 
+	 * @param conceptMapperPermutationNumber
+	 * @param tsd
+	 * @param dictionaryFile
+	 * @param spanFeatureStructureClass
+	 * @param tokenizerDescription
+	 * @return
+	 * @throws UIMAException
+	 * @throws IOException
+	 */
+	public static AnalysisEngineDescription buildConceptMapperPermutation(int conceptMapperPermutationNumber,
+			TypeSystemDescription tsd, File dictionaryFile, Class<? extends Annotation> spanFeatureStructureClass,
+			AnalysisEngineDescription tokenizerDescription) throws UIMAException, IOException {
+		List<String> paramValues = PARAM_COMBINATIONS.get(conceptMapperPermutationNumber);
+		boolean replaceCommaWithAnd = false;
+		return ConceptMapperFactory.buildConceptMapperDescription(tsd, dictionaryFile,
+				getCaseMatchParamValue(paramValues), getSearchStrategyParamValue(paramValues),
+				getStemmerClass(paramValues), getStopWordList(paramValues), getOrderIndependentLookup(paramValues),
+				getFindAllMatches(paramValues), replaceCommaWithAnd, spanFeatureStructureClass, tokenizerDescription);
+	}
+
 	private static AnalysisEngineDescription buildConceptMapperAggregate(List<String> paramValues,
 			TypeSystemDescription tsd, File dictionaryFile, Class<? extends Annotation> spanFeatureStructureClass)
 			throws UIMAException, IOException {
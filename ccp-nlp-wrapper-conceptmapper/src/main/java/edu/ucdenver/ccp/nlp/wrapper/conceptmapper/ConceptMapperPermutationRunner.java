@@ -0,0 +1,425 @@
+/**
+ * 
+ */
+package edu.ucdenver.ccp.nlp.wrapper.conceptmapper;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's nlp module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.log4j.Logger;
+import org.apache.uima.UIMAException;
+import org.apache.uima.UIMAFramework;
+import org.apache.uima.analysis_engine.AnalysisEngine;
+import org.apache.uima.analysis_engine.AnalysisEngineDescription;
+import org.apache.uima.cas.CAS;
+import org.apache.uima.collection.CollectionReader;
+import org.apache.uima.collection.CollectionReaderDescription;
+import org.apache.uima.jcas.tcas.Annotation;
+import org.apache.uima.resource.ResourceManager;
+import org.apache.uima.resource.ResourceSpecifier;
+import org.apache.uima.resource.metadata.OperationalProperties;
+import org.apache.uima.resource.metadata.TypeSystemDescription;
+import org.apache.uima.util.CasCopier;
+import org.apache.uima.util.CasCreationUtils;
+
+/**
+ * Runs a set of ConceptMapper permutations (see {@link ConceptMapperPermutationFactory}) over a
+ * corpus in a single pass. Rather than building a separate tokenizer/ConceptMapper aggregate for
+ * each permutation and re-reading the corpus once per permutation, the permutations are grouped by
+ * their tokenization signature (case-match, stemmer and stop word settings):
+ * <ul>
+ * <li>each document is read (and optionally pre-processed, e.g. sentence-split) once,</li>
+ * <li>each document is tokenized and stemmed once per signature,</li>
+ * <li>the ConceptMapper instances of a signature share a single {@link ResourceManager} so that the
+ * dictionary is loaded and compiled once per signature and shared by the permutations that differ
+ * only in search strategy, order-independent lookup or find-all-matches,</li>
+ * <li>each permutation runs on its own copy of the tokenized CAS; the permutations of different
+ * signatures run concurrently, while the ConceptMapper instances of a single signature take turns
+ * as the shared dictionary resource is not guaranteed to be thread-safe. The output engines are
+ * not serialized.</li>
+ * <li>as reading a CAS is not thread-safe, the copies of the source CAS (one per signature) and of
+ * each tokenized CAS (one per permutation) are made on the calling thread before the tasks that
+ * process them are started.</li>
+ * </ul>
+ * The results of each permutation are handed to an optional per-permutation output engine (e.g. a
+ * type system converter followed by a serializer) so that they can be scored separately.
+ * 
+ * @author Colorado Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class ConceptMapperPermutationRunner {
+
+	private static final Logger logger = Logger.getLogger(ConceptMapperPermutationRunner.class);
+
+	/**
+	 * Supplies the engine that receives the ConceptMapper output of a single permutation
+	 */
+	public interface PermutationOutputFactory {
+		/**
+		 * @param conceptMapperPermutationNumber
+		 * @return the description of the engine to run on each CAS after the ConceptMapper of the
+		 *         specified permutation, or null if no output is required
+		 * @throws UIMAException
+		 * @throws IOException
+		 */
+		public AnalysisEngineDescription createOutputDescription(int conceptMapperPermutationNumber)
+				throws UIMAException, IOException;
+	}
+
+	private final TypeSystemDescription tsd;
+	private final File dictionaryFile;
+	private final Class<? extends Annotation> spanFeatureStructureClass;
+	private final Map<List<String>, List<Integer>> signatureToPermutationsMap;
+	private final PermutationOutputFactory outputFactory;
+	private final int threadCount;
+
+	/**
+	 * @param tsd
+	 * @param dictionaryFile
+	 * @param spanFeatureStructureClass
+	 *            commonly edu.ucdenver.ccp.nlp.ext.uima.types.Sentence
+	 * @param conceptMapperPermutationNumbers
+	 *            the permutations to run, see {@link ConceptMapperPermutationFactory#PARAM_COMBINATIONS}
+	 * @param outputFactory
+	 *            supplies the output engine for each permutation, may be null
+	 * @param threadCount
+	 *            the number of threads used to run the dictionary lookups
+	 */
+	public ConceptMapperPermutationRunner(TypeSystemDescription tsd, File dictionaryFile,
+			Class<? extends Annotation> spanFeatureStructureClass, Collection<Integer> conceptMapperPermutationNumbers,
+			PermutationOutputFactory outputFactory, int threadCount) {
+		this.tsd = tsd;
+		this.dictionaryFile = dictionaryFile;
+		this.spanFeatureStructureClass = spanFeatureStructureClass;
+		this.signatureToPermutationsMap = groupByTokenizationSignature(conceptMapperPermutationNumbers);
+		this.outputFactory = outputFactory;
+		this.threadCount = Math.max(1, threadCount);
+	}
+
+	/**
+	 * @param conceptMapperPermutationNumbers
+	 * @return the permutations grouped by tokenization signature, in order of first appearance
+	 */
+	static Map<List<String>, List<Integer>> groupByTokenizationSignature(
+			Collection<Integer> conceptMapperPermutationNumbers) {
+		Map<List<String>, List<Integer>> signatureToPermutationsMap = new LinkedHashMap<List<String>, List<Integer>>();
+		for (int permutationNumber : conceptMapperPermutationNumbers) {
+			List<String> signature = ConceptMapperPermutationFactory.getTokenizationSignature(permutationNumber);
+			List<Integer> permutations = signatureToPermutationsMap.get(signature);
+			if (permutations == null) {
+				permutations = new ArrayList<Integer>();
+				signatureToPermutationsMap.put(signature, permutations);
+			}
+			if (!permutations.contains(permutationNumber)) {
+				permutations.add(permutationNumber);
+			}
+		}
+		return signatureToPermutationsMap;
+	}
+
+	/**
+	 * Processes every document returned by the collection reader with all permutations
+	 * 
+	 * @param readerDescription
+	 * @param preprocessingDescription
+	 *            run once on each document before tokenization, e.g. to add the span annotations
+	 *            searched by the ConceptMapper; may be null
+	 * @return the number of documents processed
+	 * @throws UIMAException
+	 * @throws IOException
+	 */
+	public int run(CollectionReaderDescription readerDescription, AnalysisEngineDescription preprocessingDescription)
+			throws UIMAException, IOException {
+		List<ResourceSpecifier> specifiers = new ArrayList<ResourceSpecifier>();
+		specifiers.add(readerDescription);
+		if (preprocessingDescription != null) {
+			specifiers.add(preprocessingDescription);
+		}
+
+		List<SignatureGroup> groups = new ArrayList<SignatureGroup>();
+		List<PermutationEngine> permutationEngines = new ArrayList<PermutationEngine>();
+		for (List<Integer> permutationNumbers : signatureToPermutationsMap.values()) {
+			SignatureGroup group = new SignatureGroup(permutationNumbers, specifiers);
+			groups.add(group);
+			permutationEngines.addAll(group.permutationEngines);
+		}
+
+		CollectionReader reader = UIMAFramework.produceCollectionReader(readerDescription);
+		AnalysisEngine preprocessingEngine = (preprocessingDescription == null) ? null : UIMAFramework
+				.produceAnalysisEngine(preprocessingDescription);
+		CAS sourceCas = CasCreationUtils.createCas(specifiers, null, null);
+		for (SignatureGroup group : groups) {
+			group.createCases(specifiers);
+		}
+
+		logger.info("Running " + permutationEngines.size() + " ConceptMapper permutations using " + groups.size()
+				+ " tokenization signature(s) and " + threadCount + " thread(s)");
+		ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+		int documentCount = 0;
+		try {
+			while (reader.hasNext()) {
+				sourceCas.reset();
+				reader.getNext(sourceCas);
+				if (preprocessingEngine != null) {
+					preprocessingEngine.process(sourceCas);
+				}
+				for (SignatureGroup group : groups) {
+					group.copyDocument(sourceCas);
+				}
+				invokeAll(executor, groups);
+				for (PermutationEngine permutationEngine : permutationEngines) {
+					permutationEngine.copyDocument();
+				}
+				invokeAll(executor, permutationEngines);
+				documentCount++;
+				if (documentCount % 100 == 0) {
+					logger.info("Processed " + documentCount + " documents");
+				}
+			}
+			for (PermutationEngine permutationEngine : permutationEngines) {
+				permutationEngine.collectionProcessComplete();
+			}
+		} finally {
+			executor.shutdownNow();
+			reader.close();
+			if (preprocessingEngine != null) {
+				preprocessingEngine.destroy();
+			}
+			for (SignatureGroup group : groups) {
+				group.destroy();
+			}
+		}
+		logger.info("Processed " + documentCount + " documents with " + permutationEngines.size()
+				+ " ConceptMapper permutations");
+		return documentCount;
+	}
+
+	/**
+	 * Runs the input tasks on the executor and waits for all of them to complete, rethrowing the
+	 * first failure
+	 */
+	private static void invokeAll(ExecutorService executor, List<? extends CasTask> tasks) throws UIMAException {
+		List<Future<Void>> futures = new ArrayList<Future<Void>>(tasks.size());
+		for (final CasTask task : tasks) {
+			futures.add(executor.submit(new Callable<Void>() {
+				@Override
+				public Void call() throws Exception {
+					task.process();
+					return null;
+				}
+			}));
+		}
+		for (Future<Void> future : futures) {
+			try {
+				future.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new UIMAException(e);
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof UIMAException) {
+					throw (UIMAException) e.getCause();
+				}
+				throw new UIMAException(e.getCause());
+			}
+		}
+	}
+
+	/**
+	 * Processes a CAS owned by the task; a task never reads a CAS owned by another task while it
+	 * runs
+	 */
+	private interface CasTask {
+		void process() throws UIMAException;
+	}
+
+	/**
+	 * The tokenizer and ConceptMapper permutations sharing a tokenization signature
+	 */
+	private class SignatureGroup implements CasTask {
+		private final AnalysisEngine tokenizerEngine;
+		private final List<PermutationEngine> permutationEngines = new ArrayList<PermutationEngine>();
+		private CAS tokenizedCas;
+
+		/**
+		 * guards the dictionary resource shared by the ConceptMapper instances of this signature
+		 */
+		private final Object dictionaryLock = new Object();
+
+		public SignatureGroup(List<Integer> permutationNumbers, List<ResourceSpecifier> specifiers)
+				throws UIMAException, IOException {
+			AnalysisEngineDescription tokenizerDescription = ConceptMapperPermutationFactory
+					.buildOffsetTokenizerPermutation(permutationNumbers.get(0), tsd);
+			OperationalProperties operationalProperties = tokenizerDescription.getAnalysisEngineMetaData()
+					.getOperationalProperties();
+			/*
+			 * the ConceptMapper instances share a resource manager so that the dictionary resource is
+			 * loaded (and tokenized) only once for this signature; their lookups are serialized on
+			 * the dictionaryLock
+			 */
+			ResourceManager resourceManager = UIMAFramework.newDefaultResourceManager();
+			for (int permutationNumber : permutationNumbers) {
+				AnalysisEngineDescription conceptMapperDescription = ConceptMapperPermutationFactory
+						.buildConceptMapperPermutation(permutationNumber, tsd, dictionaryFile,
+								spanFeatureStructureClass, tokenizerDescription);
+				AnalysisEngineDescription outputDescription = (outputFactory == null) ? null : outputFactory
+						.createOutputDescription(permutationNumber);
+				permutationEngines.add(new PermutationEngine(permutationNumber, conceptMapperDescription,
+						outputDescription, resourceManager, dictionaryLock, specifiers));
+			}
+			if (tokenizerDescription.getAnalysisEngineMetaData().getOperationalProperties() == null) {
+				tokenizerDescription.getAnalysisEngineMetaData().setOperationalProperties(operationalProperties);
+			}
+			specifiers.add(tokenizerDescription);
+			tokenizerEngine = UIMAFramework.produceAnalysisEngine(tokenizerDescription);
+			logger.info("Initialized tokenization signature " + ConceptMapperPermutationFactory
+					.getTokenizationSignature(permutationNumbers.get(0)) + " for permutations " + permutationNumbers);
+		}
+
+		public void createCases(List<ResourceSpecifier> specifiers) throws UIMAException {
+			tokenizedCas = CasCreationUtils.createCas(specifiers, null, null);
+			for (PermutationEngine permutationEngine : permutationEngines) {
+				permutationEngine.cas = CasCreationUtils.createCas(specifiers, null, null);
+				permutationEngine.tokenizedCas = tokenizedCas;
+			}
+		}
+
+		/**
+		 * Copies the source document into the CAS of this signature; must be called on the
+		 * driver thread
+		 */
+		public void copyDocument(CAS sourceCas) {
+			tokenizedCas.reset();
+			CasCopier.copyCas(sourceCas, tokenizedCas, true);
+		}
+
+		/**
+		 * Tokenizes the copied document
+		 */
+		@Override
+		public void process() throws UIMAException {
+			tokenizerEngine.process(tokenizedCas);
+		}
+
+		public void destroy() {
+			tokenizerEngine.destroy();
+			for (PermutationEngine permutationEngine : permutationEngines) {
+				permutationEngine.destroy();
+			}
+		}
+	}
+
+	/**
+	 * The ConceptMapper and (optional) output engine of a single permutation, along with the CAS
+	 * it processes
+	 */
+	private static class PermutationEngine implements CasTask {
+		private final int permutationNumber;
+		private final AnalysisEngine conceptMapperEngine;
+		private final AnalysisEngine outputEngine;
+		private final Object dictionaryLock;
+		private CAS cas;
+		private CAS tokenizedCas;
+
+		public PermutationEngine(int permutationNumber, AnalysisEngineDescription conceptMapperDescription,
+				AnalysisEngineDescription outputDescription, ResourceManager resourceManager, Object dictionaryLock,
+				List<ResourceSpecifier> specifiers) throws UIMAException {
+			this.permutationNumber = permutationNumber;
+			this.dictionaryLock = dictionaryLock;
+			this.conceptMapperEngine = UIMAFramework.produceAnalysisEngine(conceptMapperDescription, resourceManager,
+					null);
+			specifiers.add(conceptMapperDescription);
+			if (outputDescription != null) {
+				this.outputEngine = UIMAFramework.produceAnalysisEngine(outputDescription);
+				specifiers.add(outputDescription);
+			} else {
+				this.outputEngine = null;
+			}
+		}
+
+		/**
+		 * Copies the tokenized document of the signature into the CAS of this permutation; must be
+		 * called on the driver thread
+		 */
+		public void copyDocument() {
+			cas.reset();
+			CasCopier.copyCas(tokenizedCas, cas, true);
+		}
+
+		/**
+		 * Runs the ConceptMapper and output engine over the copied document. Only one ConceptMapper
+		 * of a signature accesses the shared dictionary resource at a time.
+		 */
+		@Override
+		public void process() throws UIMAException {
+			synchronized (dictionaryLock) {
+				conceptMapperEngine.process(cas);
+			}
+			if (outputEngine != null) {
+				outputEngine.process(cas);
+			}
+		}
+
+		public void collectionProcessComplete() throws UIMAException {
+			conceptMapperEngine.collectionProcessComplete();
+			if (outputEngine != null) {
+				outputEngine.collectionProcessComplete();
+			}
+		}
+
+		public void destroy() {
+			conceptMapperEngine.destroy();
+			if (outputEngine != null) {
+				outputEngine.destroy();
+			}
+		}
+
+		@Override
+		public String toString() {
+			return "ConceptMapper permutation " + permutationNumber;
+		}
+	}
+
+}
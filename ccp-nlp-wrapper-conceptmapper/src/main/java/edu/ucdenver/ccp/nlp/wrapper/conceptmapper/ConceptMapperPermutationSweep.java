@@ -0,0 +1,361 @@
+/**
+ * 
+ */
+package edu.ucdenver.ccp.nlp.wrapper.conceptmapper;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's nlp module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.log4j.Logger;
+import org.apache.uima.UIMAException;
+import org.apache.uima.UIMAFramework;
+import org.apache.uima.analysis_engine.AnalysisEngine;
+import org.apache.uima.analysis_engine.AnalysisEngineDescription;
+import org.apache.uima.cas.CAS;
+import org.apache.uima.collection.CollectionReader;
+import org.apache.uima.collection.CollectionReaderDescription;
+import org.apache.uima.fit.factory.AnalysisEngineFactory;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.jcas.tcas.Annotation;
+import org.apache.uima.resource.CasDefinition;
+import org.apache.uima.resource.metadata.ProcessingResourceMetaData;
+import org.apache.uima.resource.metadata.TypeSystemDescription;
+import org.apache.uima.util.CasPool;
+
+import edu.ucdenver.ccp.nlp.core.annotation.TextAnnotation;
+import edu.ucdenver.ccp.nlp.core.annotation.comparison.AnnotationComparator;
+import edu.ucdenver.ccp.nlp.core.annotation.comparison.PRFResult;
+import edu.ucdenver.ccp.nlp.core.annotation.comparison.SpanComparator;
+import edu.ucdenver.ccp.nlp.core.annotation.comparison.StrictSpanComparator;
+import edu.ucdenver.ccp.nlp.core.mention.comparison.IdenticalMentionComparator;
+import edu.ucdenver.ccp.nlp.core.mention.comparison.MentionComparator;
+import edu.ucdenver.ccp.nlp.core.uima.annotation.CCPAnnotationSet;
+import edu.ucdenver.ccp.nlp.core.uima.annotation.CCPTextAnnotation;
+import edu.ucdenver.ccp.nlp.uima.annotation.impl.CCPTextAnnotationViewCache;
+import edu.ucdenver.ccp.nlp.uima.util.AnnotatorRegistry;
+import edu.ucdenver.ccp.nlp.uima.util.UIMA_Util;
+import edu.ucdenver.ccp.nlp.wrapper.conceptmapper.typesystem.CCPConceptMapperTypeSystemConverter_Util;
+import edu.ucdenver.ccp.nlp.wrapper.conceptmapper.typesystem.ConceptMapper2CCPTypeSystemConverter_AE;
+
+/**
+ * Evaluates a set of ConceptMapper permutations (see {@link ConceptMapperPermutationFactory})
+ * against a gold standard in a single JVM. Each permutation is run as an independent job on a
+ * bounded worker pool; a job owns its reader, pipeline and {@link CasPool}, and tags the
+ * ConceptMapper annotations it produces with its own annotation set (see
+ * {@link #getAnnotationSetID(int)}). After each document the annotations are compared to the
+ * gold standard and the resulting TP/FP/FN counts are added to a shared
+ * {@link PermutationLeaderboard}, so memory use does not grow with the size of the corpus beyond
+ * the (cached) gold standard annotations.
+ * 
+ * @author Colorado Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class ConceptMapperPermutationSweep {
+
+	private static final Logger logger = Logger.getLogger(ConceptMapperPermutationSweep.class);
+
+	public static final int DEFAULT_ANNOTATION_SET_ID_OFFSET = 1000;
+
+	/**
+	 * Supplies the gold standard annotations for a document
+	 */
+	public interface GoldStandardLoader {
+		/**
+		 * Called at most once per document (barring concurrent first requests) and from multiple
+		 * threads, so implementations must be thread-safe.
+		 * 
+		 * @param documentID
+		 * @param documentText
+		 * @return the gold standard annotations for the specified document. The annotations must
+		 *         carry the same document ID and document collection ID as the CAS in which the
+		 *         document is processed, otherwise they will not match.
+		 * @throws IOException
+		 */
+		public Collection<TextAnnotation> loadGoldStandard(String documentID, String documentText)
+				throws IOException;
+	}
+
+	private final TypeSystemDescription tsd;
+	private final File dictionaryFile;
+	private final Class<? extends Annotation> spanFeatureStructureClass;
+	private final GoldStandardLoader goldStandardLoader;
+	private final SpanComparator spanComparator;
+	private final MentionComparator mentionComparator;
+	private final int threadCount;
+	private final int annotationSetIDOffset;
+
+	private final ConcurrentMap<String, Collection<TextAnnotation>> documentIDToGoldStandardMap = new ConcurrentHashMap<String, Collection<TextAnnotation>>();
+
+	/**
+	 * Compares annotations using the {@link StrictSpanComparator} and
+	 * {@link IdenticalMentionComparator}
+	 * 
+	 * @param tsd
+	 * @param dictionaryFile
+	 * @param spanFeatureStructureClass
+	 *            commonly edu.ucdenver.ccp.nlp.ext.uima.types.Sentence
+	 * @param goldStandardLoader
+	 * @param threadCount
+	 *            the number of permutations evaluated concurrently
+	 */
+	public ConceptMapperPermutationSweep(TypeSystemDescription tsd, File dictionaryFile,
+			Class<? extends Annotation> spanFeatureStructureClass, GoldStandardLoader goldStandardLoader,
+			int threadCount) {
+		this(tsd, dictionaryFile, spanFeatureStructureClass, goldStandardLoader, new StrictSpanComparator(),
+				new IdenticalMentionComparator(), threadCount, DEFAULT_ANNOTATION_SET_ID_OFFSET);
+	}
+
+	/**
+	 * @param tsd
+	 * @param dictionaryFile
+	 * @param spanFeatureStructureClass
+	 *            commonly edu.ucdenver.ccp.nlp.ext.uima.types.Sentence
+	 * @param goldStandardLoader
+	 * @param spanComparator
+	 * @param mentionComparator
+	 * @param threadCount
+	 *            the number of permutations evaluated concurrently
+	 * @param annotationSetIDOffset
+	 *            the annotation set ID assigned to the output of a permutation is this offset plus
+	 *            the permutation number
+	 */
+	public ConceptMapperPermutationSweep(TypeSystemDescription tsd, File dictionaryFile,
+			Class<? extends Annotation> spanFeatureStructureClass, GoldStandardLoader goldStandardLoader,
+			SpanComparator spanComparator, MentionComparator mentionComparator, int threadCount,
+			int annotationSetIDOffset) {
+		this.tsd = tsd;
+		this.dictionaryFile = dictionaryFile;
+		this.spanFeatureStructureClass = spanFeatureStructureClass;
+		this.goldStandardLoader = goldStandardLoader;
+		this.spanComparator = spanComparator;
+		this.mentionComparator = mentionComparator;
+		this.threadCount = Math.max(1, threadCount);
+		this.annotationSetIDOffset = annotationSetIDOffset;
+	}
+
+	/**
+	 * @param conceptMapperPermutationNumber
+	 * @return the ID of the annotation set assigned to the annotations produced by the specified
+	 *         permutation
+	 */
+	public int getAnnotationSetID(int conceptMapperPermutationNumber) {
+		return annotationSetIDOffset + conceptMapperPermutationNumber;
+	}
+
+	/**
+	 * Evaluates the permutations and writes the resulting leaderboard to the specified file
+	 * 
+	 * @see #run(CollectionReaderDescription, AnalysisEngineDescription, Collection)
+	 * @see PermutationLeaderboard#writeTsv(File)
+	 */
+	public PermutationLeaderboard run(CollectionReaderDescription readerDescription,
+			AnalysisEngineDescription preprocessingDescription, Collection<Integer> conceptMapperPermutationNumbers,
+			File leaderboardFile) throws UIMAException, IOException {
+		PermutationLeaderboard leaderboard = run(readerDescription, preprocessingDescription,
+				conceptMapperPermutationNumbers);
+		leaderboard.writeTsv(leaderboardFile);
+		return leaderboard;
+	}
+
+	/**
+	 * Evaluates the permutations over the documents returned by the collection reader. Each
+	 * permutation reads the corpus independently, so the reader must return the same documents
+	 * each time it is instantiated.
+	 * 
+	 * @param readerDescription
+	 * @param preprocessingDescription
+	 *            run on each document before the ConceptMapper, e.g. to add the span annotations
+	 *            searched by the ConceptMapper; may be null
+	 * @param conceptMapperPermutationNumbers
+	 * @return the leaderboard of the evaluated permutations
+	 * @throws UIMAException
+	 * @throws IOException
+	 */
+	public PermutationLeaderboard run(CollectionReaderDescription readerDescription,
+			AnalysisEngineDescription preprocessingDescription, Collection<Integer> conceptMapperPermutationNumbers)
+			throws UIMAException, IOException {
+		PermutationLeaderboard leaderboard = new PermutationLeaderboard();
+		Collection<Integer> permutationNumbers = new LinkedHashSet<Integer>(conceptMapperPermutationNumbers);
+		for (int permutationNumber : permutationNumbers) {
+			leaderboard.register(permutationNumber);
+		}
+
+		logger.info("Evaluating " + permutationNumbers.size() + " ConceptMapper permutations using " + threadCount
+				+ " thread(s)");
+		ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+		try {
+			List<Future<Void>> futures = new ArrayList<Future<Void>>(permutationNumbers.size());
+			for (int permutationNumber : permutationNumbers) {
+				futures.add(executor.submit(new PermutationJob(permutationNumber, readerDescription,
+						preprocessingDescription, leaderboard)));
+			}
+			for (Future<Void> future : futures) {
+				try {
+					future.get();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new UIMAException(e);
+				} catch (ExecutionException e) {
+					if (e.getCause() instanceof UIMAException) {
+						throw (UIMAException) e.getCause();
+					}
+					if (e.getCause() instanceof IOException) {
+						throw (IOException) e.getCause();
+					}
+					throw new UIMAException(e.getCause());
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+			documentIDToGoldStandardMap.clear();
+		}
+		return leaderboard;
+	}
+
+	/**
+	 * @param jcas
+	 * @return the gold standard annotations for the document in the input CAS, loading them if
+	 *         this is the first request for the document
+	 * @throws IOException
+	 */
+	private Collection<TextAnnotation> getGoldStandard(JCas jcas) throws IOException {
+		String documentID = UIMA_Util.getDocumentID(jcas);
+		Collection<TextAnnotation> goldStandard = documentIDToGoldStandardMap.get(documentID);
+		if (goldStandard == null) {
+			goldStandard = goldStandardLoader.loadGoldStandard(documentID, jcas.getDocumentText());
+			Collection<TextAnnotation> previous = documentIDToGoldStandardMap.putIfAbsent(documentID, goldStandard);
+			if (previous != null) {
+				goldStandard = previous;
+			}
+		}
+		return goldStandard;
+	}
+
+	/**
+	 * Runs a single permutation over the corpus, scoring each document as it is processed
+	 */
+	private class PermutationJob implements Callable<Void> {
+		private final int permutationNumber;
+		private final CollectionReaderDescription readerDescription;
+		private final AnalysisEngineDescription preprocessingDescription;
+		private final PermutationLeaderboard leaderboard;
+		private final AnnotationComparator annotationComparator = new AnnotationComparator();
+
+		public PermutationJob(int permutationNumber, CollectionReaderDescription readerDescription,
+				AnalysisEngineDescription preprocessingDescription, PermutationLeaderboard leaderboard) {
+			this.permutationNumber = permutationNumber;
+			this.readerDescription = readerDescription;
+			this.preprocessingDescription = preprocessingDescription;
+			this.leaderboard = leaderboard;
+		}
+
+		@Override
+		public Void call() throws UIMAException, IOException {
+			List<AnalysisEngineDescription> descriptions = new ArrayList<AnalysisEngineDescription>();
+			if (preprocessingDescription != null) {
+				descriptions.add(preprocessingDescription);
+			}
+			descriptions.add(ConceptMapperPermutationFactory.buildConceptMapperAggregatePermutation(
+					permutationNumber, tsd, dictionaryFile, spanFeatureStructureClass));
+			descriptions.add(ConceptMapper2CCPTypeSystemConverter_AE.createAnalysisEngineDescription(tsd));
+			AnalysisEngine engine = UIMAFramework.produceAnalysisEngine(AnalysisEngineFactory
+					.createAggregateDescription(descriptions.toArray(new AnalysisEngineDescription[descriptions
+							.size()])));
+			CollectionReader reader = UIMAFramework.produceCollectionReader(readerDescription);
+			try {
+				List<ProcessingResourceMetaData> metaData = new ArrayList<ProcessingResourceMetaData>();
+				metaData.add(reader.getProcessingResourceMetaData());
+				metaData.add(engine.getProcessingResourceMetaData());
+				CasPool casPool = new CasPool(1, new CasDefinition(metaData, engine.getResourceManager()), null);
+				int documentCount = 0;
+				while (reader.hasNext()) {
+					CAS cas = casPool.getCas(0);
+					try {
+						reader.getNext(cas);
+						engine.process(cas);
+						leaderboard.add(permutationNumber, score(cas.getJCas()));
+					} finally {
+						casPool.releaseCas(cas);
+					}
+					documentCount++;
+				}
+				engine.collectionProcessComplete();
+				logger.info("Permutation " + permutationNumber + " (" + documentCount + " documents): "
+						+ leaderboard.getResult(permutationNumber).getStatsString());
+			} finally {
+				reader.close();
+				engine.destroy();
+			}
+			return null;
+		}
+
+		/**
+		 * Assigns the ConceptMapper annotations in the CAS to the annotation set of this
+		 * permutation and compares them to the gold standard
+		 */
+		private PRFResult score(JCas jcas) throws IOException {
+			CCPAnnotationSet annotationSet = AnnotatorRegistry.getRegistry(jcas).getCCPAnnotationSet(
+					getAnnotationSetID(permutationNumber), "ConceptMapper permutation " + permutationNumber,
+					ConceptMapperPermutationFactory.PARAM_COMBINATIONS.get(permutationNumber).toString());
+			CCPTextAnnotationViewCache viewCache = new CCPTextAnnotationViewCache(jcas);
+			List<TextAnnotation> annotations = new ArrayList<TextAnnotation>();
+			for (Iterator<CCPTextAnnotation> annotIter = UIMA_Util.getTextAnnotationIterator(jcas); annotIter
+					.hasNext();) {
+				CCPTextAnnotation ccpTA = annotIter.next();
+				if (ccpTA.getAnnotator() != null
+						&& CCPConceptMapperTypeSystemConverter_Util.CONCEPTMAPPER_ANNOTATOR_ID.equals(ccpTA
+								.getAnnotator().getAnnotatorID())) {
+					UIMA_Util.addAnnotationSet(ccpTA, annotationSet, jcas);
+					annotations.add(viewCache.getTextAnnotation(ccpTA));
+				}
+			}
+			return annotationComparator.compare(getGoldStandard(jcas), annotations, spanComparator, mentionComparator);
+		}
+	}
+
+}
@@ -33,7 +33,6 @@ package edu.ucdenver.ccp.nlp.wrapper.conceptmapper;
  * #L%
  */
 
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.apache.log4j.Logger;
@@ -42,7 +41,6 @@ import org.apache.uima.analysis_engine.AnalysisEngine;
 import org.apache.uima.analysis_engine.AnalysisEngineDescription;
 import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
 import org.apache.uima.cas.CASException;
-import org.apache.uima.cas.FSIterator;
 import org.apache.uima.fit.component.JCasAnnotator_ImplBase;
 import org.apache.uima.fit.factory.AnalysisEngineFactory;
 import org.apache.uima.jcas.JCas;
@@ -51,6 +49,8 @@ import org.apache.uima.resource.metadata.TypeSystemDescription;
 
 import edu.ucdenver.ccp.nlp.core.uima.annotation.CCPTextAnnotation;
 import edu.ucdenver.ccp.nlp.core.uima.mention.CCPClassMention;
+import edu.ucdenver.ccp.nlp.uima.util.MentionNameIndex;
+import edu.ucdenver.ccp.nlp.uima.util.MentionNameTransformer;
 import edu.ucdenver.ccp.nlp.uima.util.UIMA_Util;
 
 /**
@@ -69,6 +69,7 @@ public class MapNameToIDSlot_AE extends JCasAnnotator_ImplBase {
 	
 	Pattern mentionTypeInPattern;
 	String mentionTypeOut;
+	MentionNameTransformer mentionNameTransformer;
 	
 	@Override	
 	public void initialize(UimaContext context) 
@@ -81,21 +82,31 @@ public class MapNameToIDSlot_AE extends JCasAnnotator_ImplBase {
 				throw new ResourceInitializationException(new RuntimeException("MapNameToIDSlot_AE error: pattern \"" + mentionTypeIn + "\" doesn't compile. "));
 			}
 			mentionTypeOut = (String) context.getConfigParameterValue(PARAM_MENTION_TYPE);
+			/* the result of matching each distinct mention name is memoized across CASes */
+			mentionNameTransformer = new MentionNameTransformer(MapNameToIDSlot_AE.class.getSimpleName(),
+					new MentionNameTransformer.Transformation() {
+						@Override
+						public String transform(String mentionName) {
+							return mentionTypeInPattern.matcher(mentionName).matches() ? mentionTypeOut : null;
+						}
+					});
 	}
 
 	@Override	
 	public void process(JCas jcas)
 	throws AnalysisEngineProcessException {
 		try {
-			FSIterator ccptaIterator = jcas.getAnnotationIndex(CCPTextAnnotation.type).iterator();
-			while (ccptaIterator.hasNext()) {
-					CCPTextAnnotation ccpta = (CCPTextAnnotation) ccptaIterator.next();
-				String ccptaMentionName = ccpta.getClassMention().getMentionName();
-				if (ccptaMentionName != null) {
-					Matcher m = mentionTypeInPattern.matcher(ccptaMentionName);
-					if ( m.matches() ) {
+			/*
+			 * the pattern is matched once per distinct mention name rather than once per
+			 * annotation
+			 */
+			MentionNameIndex mentionNameIndex = new MentionNameIndex(jcas);
+			for (String ccptaMentionName : mentionNameIndex.getMentionNames()) {
+				String newMentionName = mentionNameTransformer.transform(ccptaMentionName);
+				if (newMentionName != null) {
+					for (CCPTextAnnotation ccpta : mentionNameIndex.getAnnotations(ccptaMentionName)) {
 						CCPClassMention ccpcm = ccpta.getClassMention();
-						ccpcm.setMentionName(mentionTypeOut);
+						ccpcm.setMentionName(newMentionName);
 						UIMA_Util.addSlotValue(ccpcm, "ID", ccptaMentionName);
 					}
 				}
@@ -106,6 +117,12 @@ public class MapNameToIDSlot_AE extends JCasAnnotator_ImplBase {
 		}
 	}
 
+	@Override
+	public void collectionProcessComplete() throws AnalysisEngineProcessException {
+		super.collectionProcessComplete();
+		mentionNameTransformer.logStatistics(getContext().getLogger());
+	}
+
 
 	public static AnalysisEngine createAnalysisEngine(
 		TypeSystemDescription tsd,
@@ -0,0 +1,206 @@
+/**
+ * 
+ */
+package edu.ucdenver.ccp.nlp.wrapper.conceptmapper;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's nlp module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.ucdenver.ccp.common.file.CharacterEncoding;
+import edu.ucdenver.ccp.common.file.FileWriterUtil;
+import edu.ucdenver.ccp.common.file.FileWriterUtil.FileSuffixEnforcement;
+import edu.ucdenver.ccp.common.file.FileWriterUtil.WriteMode;
+import edu.ucdenver.ccp.common.string.StringConstants;
+import edu.ucdenver.ccp.nlp.core.annotation.comparison.PRFResult;
+
+/**
+ * A thread-safe, in-memory tally of the TP/FP/FN counts observed for each ConceptMapper
+ * permutation. Counts are streamed in one document at a time as the permutations are evaluated;
+ * only the counts (not the annotations) are retained. Permutations are ranked by F-measure, then
+ * precision, then permutation number.
+ * 
+ * @author Colorado Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class PermutationLeaderboard {
+
+	public static final String TSV_HEADER = "rank" + StringConstants.TAB + "permutation" + StringConstants.TAB
+			+ "TP" + StringConstants.TAB + "FP" + StringConstants.TAB + "FN" + StringConstants.TAB + "P"
+			+ StringConstants.TAB + "R" + StringConstants.TAB + "F" + StringConstants.TAB + "parameters";
+
+	private final Map<Integer, PRFResult> permutationNumberToResultMap = new HashMap<Integer, PRFResult>();
+
+	/**
+	 * Adds the counts of the input result to the running total for the specified permutation
+	 * 
+	 * @param conceptMapperPermutationNumber
+	 * @param prf
+	 */
+	public void add(int conceptMapperPermutationNumber, PRFResult prf) {
+		synchronized (permutationNumberToResultMap) {
+			PRFResult total = getOrCreateResult(conceptMapperPermutationNumber);
+			total.add(prf);
+		}
+	}
+
+	/**
+	 * Registers a permutation so that it is reported even if no counts are added for it
+	 * 
+	 * @param conceptMapperPermutationNumber
+	 */
+	public void register(int conceptMapperPermutationNumber) {
+		synchronized (permutationNumberToResultMap) {
+			getOrCreateResult(conceptMapperPermutationNumber);
+		}
+	}
+
+	private PRFResult getOrCreateResult(int conceptMapperPermutationNumber) {
+		PRFResult total = permutationNumberToResultMap.get(conceptMapperPermutationNumber);
+		if (total == null) {
+			total = new PRFResult(0, 0, 0, Integer.toString(conceptMapperPermutationNumber));
+			permutationNumberToResultMap.put(conceptMapperPermutationNumber, total);
+		}
+		return total;
+	}
+
+	/**
+	 * @param conceptMapperPermutationNumber
+	 * @return a copy of the counts accumulated so far for the specified permutation, or null if the
+	 *         permutation is not on the leaderboard
+	 */
+	public PRFResult getResult(int conceptMapperPermutationNumber) {
+		synchronized (permutationNumberToResultMap) {
+			PRFResult total = permutationNumberToResultMap.get(conceptMapperPermutationNumber);
+			if (total == null) {
+				return null;
+			}
+			return new PRFResult(total.getTruePositiveCount(), total.getFalsePositiveCount(),
+					total.getFalseNegativeCount(), total.getTitle());
+		}
+	}
+
+	/**
+	 * @return the permutation numbers on the leaderboard, best first
+	 */
+	public List<Integer> getRankedPermutationNumbers() {
+		final Map<Integer, PRFResult> snapshot = new HashMap<Integer, PRFResult>();
+		synchronized (permutationNumberToResultMap) {
+			for (Integer permutationNumber : permutationNumberToResultMap.keySet()) {
+				snapshot.put(permutationNumber, getResult(permutationNumber));
+			}
+		}
+		List<Integer> permutationNumbers = new ArrayList<Integer>(snapshot.keySet());
+		Collections.sort(permutationNumbers, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer p1, Integer p2) {
+				PRFResult prf1 = snapshot.get(p1);
+				PRFResult prf2 = snapshot.get(p2);
+				int result = Double.compare(rankingScore(prf2.getFmeasure()), rankingScore(prf1.getFmeasure()));
+				if (result == 0) {
+					result = Double.compare(rankingScore(prf2.getPrecision()), rankingScore(prf1.getPrecision()));
+				}
+				if (result == 0) {
+					result = p1.compareTo(p2);
+				}
+				return result;
+			}
+		});
+		return permutationNumbers;
+	}
+
+	/**
+	 * P/R/F are undefined (NaN) when their denominators are zero, e.g. for a permutation that has
+	 * produced no annotations; such permutations are ranked last.
+	 */
+	private static double rankingScore(double score) {
+		return Double.isNaN(score) ? -1.0 : score;
+	}
+
+	/**
+	 * Writes the leaderboard, best permutation first, as tab-separated lines preceded by
+	 * {@link #TSV_HEADER}
+	 * 
+	 * @param outputFile
+	 * @throws IOException
+	 */
+	public void writeTsv(File outputFile) throws IOException {
+		DecimalFormat decimalFormatter = new DecimalFormat("0.0000");
+		BufferedWriter writer = FileWriterUtil.initBufferedWriter(outputFile, CharacterEncoding.UTF_8,
+				WriteMode.OVERWRITE, FileSuffixEnforcement.OFF);
+		try {
+			writer.write(TSV_HEADER);
+			writer.newLine();
+			int rank = 1;
+			for (int permutationNumber : getRankedPermutationNumbers()) {
+				PRFResult prf = getResult(permutationNumber);
+				writer.write(rank++ + StringConstants.TAB + permutationNumber + StringConstants.TAB
+						+ prf.getTruePositiveCount() + StringConstants.TAB + prf.getFalsePositiveCount()
+						+ StringConstants.TAB + prf.getFalseNegativeCount() + StringConstants.TAB
+						+ decimalFormatter.format(prf.getPrecision()) + StringConstants.TAB
+						+ decimalFormatter.format(prf.getRecall()) + StringConstants.TAB
+						+ decimalFormatter.format(prf.getFmeasure()) + StringConstants.TAB
+						+ getParameterString(permutationNumber));
+				writer.newLine();
+			}
+		} finally {
+			writer.close();
+		}
+	}
+
+	private static String getParameterString(int conceptMapperPermutationNumber) {
+		if (conceptMapperPermutationNumber < 0
+				|| conceptMapperPermutationNumber >= ConceptMapperPermutationFactory.PARAM_COMBINATIONS.size()) {
+			return "";
+		}
+		StringBuilder sb = new StringBuilder();
+		for (String param : ConceptMapperPermutationFactory.PARAM_COMBINATIONS.get(conceptMapperPermutationNumber)) {
+			if (sb.length() > 0) {
+				sb.append(' ');
+			}
+			sb.append(param);
+		}
+		return sb.toString();
+	}
+
+}
@@ -38,9 +38,18 @@ package edu.ucdenver.ccp.nlp.wrapper.conceptmapper.dictionary;
 
 import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 import edu.ucdenver.ccp.common.file.CharacterEncoding;
 import edu.ucdenver.ccp.common.file.FileWriterUtil;
@@ -56,6 +65,15 @@ import edu.ucdenver.ccp.common.xml.XmlUtil;
  */
 public class ConceptMapperDictionaryBuilder {
 
+	/**
+	 * The dictionary entry attribute used to record the source (e.g. ontology) of an entry in a
+	 * dictionary that combines several sources
+	 */
+	public static final String SOURCE_ATTRIBUTE_NAME = "source";
+
+	private static final String TOKEN_TAG = "token";
+	private static final String VARIANT_TAG = "variant";
+
 	private final BufferedWriter writer;
 	private final int minimumTermLength;
 
@@ -82,11 +100,27 @@ public class ConceptMapperDictionaryBuilder {
 	 * @throws IOException
 	 */
 	public void addEntry(String termIdentifier, List<String> synonyms) throws IOException {
+		addEntry(termIdentifier, synonyms, null);
+	}
+
+	/**
+	 * @param termIdentifier
+	 * @param synonyms
+	 *            - first term in the list is treated as the canonical name
+	 * @param source
+	 *            the source of the entry, e.g. the ontology name, recorded using the
+	 *            {@link #SOURCE_ATTRIBUTE_NAME} attribute; optional, leave null if not desired
+	 * @throws IOException
+	 */
+	public void addEntry(String termIdentifier, List<String> synonyms, String source) throws IOException {
 		List<String> filteredSynonyms = filterTerms(synonyms);
 		if (filteredSynonyms.size() == 0)
 			return;
 
-		writer.write("<token id=\"" + termIdentifier + "\" canonical=\"" + transformTerm(filteredSynonyms.get(0)) + "\">");
+		String sourceAttribute = (source == null) ? "" : " " + SOURCE_ATTRIBUTE_NAME + "=\""
+				+ XmlUtil.convertXmlEscapeCharacters(source) + "\"";
+		writer.write("<token id=\"" + termIdentifier + "\" canonical=\"" + transformTerm(filteredSynonyms.get(0)) + "\""
+				+ sourceAttribute + ">");
 		writer.newLine();
 		for (String syn : filteredSynonyms) {
 			writer.write("<variant base=\"" + transformTerm(syn) + "\"/>");
@@ -96,6 +130,90 @@ public class ConceptMapperDictionaryBuilder {
 		writer.newLine();
 	}
 
+	/**
+	 * Copies the entries of an existing ConceptMapper dictionary, e.g. one produced by
+	 * {@link edu.ucdenver.ccp.nlp.wrapper.conceptmapper.dictionary.obo.OboToDictionary}, to this
+	 * dictionary, tagging each entry with the specified source. Entries are copied as-is, i.e. the
+	 * minimum term length is not applied. Any existing source attribute is replaced.
+	 * 
+	 * @param dictionaryFile
+	 * @param source
+	 * @throws IOException
+	 */
+	public void addDictionary(File dictionaryFile, String source) throws IOException {
+		String escapedSource = XmlUtil.convertXmlEscapeCharacters(source);
+		InputStream stream = new FileInputStream(dictionaryFile);
+		try {
+			XMLStreamReader reader = XMLInputFactory.newInstance().createXMLStreamReader(stream,
+					CharacterEncoding.UTF_8.getCharacterSetName());
+			try {
+				while (reader.hasNext()) {
+					int event = reader.next();
+					if (event == XMLStreamConstants.START_ELEMENT) {
+						if (reader.getLocalName().equals(TOKEN_TAG)) {
+							writer.write("<" + TOKEN_TAG + serializeAttributes(reader) + " " + SOURCE_ATTRIBUTE_NAME
+									+ "=\"" + escapedSource + "\">");
+							writer.newLine();
+						} else if (reader.getLocalName().equals(VARIANT_TAG)) {
+							writer.write("<" + VARIANT_TAG + serializeAttributes(reader) + "/>");
+							writer.newLine();
+						}
+					} else if (event == XMLStreamConstants.END_ELEMENT && reader.getLocalName().equals(TOKEN_TAG)) {
+						writer.write("</" + TOKEN_TAG + ">");
+						writer.newLine();
+					}
+				}
+			} finally {
+				reader.close();
+			}
+		} catch (XMLStreamException e) {
+			throw new IOException("Error while reading dictionary file: " + dictionaryFile.getAbsolutePath(), e);
+		} finally {
+			stream.close();
+		}
+	}
+
+	/**
+	 * @return the attributes of the current element, other than the source attribute, in the form
+	 *         [ name="value"]*
+	 */
+	private static String serializeAttributes(XMLStreamReader reader) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < reader.getAttributeCount(); i++) {
+			String name = reader.getAttributeLocalName(i);
+			if (!name.equals(SOURCE_ATTRIBUTE_NAME)) {
+				sb.append(" " + name + "=\"" + XmlUtil.convertXmlEscapeCharacters(reader.getAttributeValue(i)) + "\"");
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Merges several ConceptMapper dictionaries into a single dictionary in which each entry is
+	 * tagged with its source (see {@link #SOURCE_ATTRIBUTE_NAME}). A single ConceptMapper using the
+	 * merged dictionary (see
+	 * {@link edu.ucdenver.ccp.nlp.wrapper.conceptmapper.ConceptMapperAggregateFactory}) finds the
+	 * terms of all sources with one tokenization and one dictionary traversal per document.
+	 * 
+	 * @param sourceToDictionaryFileMap
+	 *            maps from the source name, e.g. GO or CHEBI, to the dictionary file for that source
+	 * @param mergedDictionaryFile
+	 * @return the merged dictionary file
+	 * @throws IOException
+	 */
+	public static File mergeDictionaries(Map<String, File> sourceToDictionaryFileMap, File mergedDictionaryFile)
+			throws IOException {
+		ConceptMapperDictionaryBuilder builder = new ConceptMapperDictionaryBuilder(mergedDictionaryFile, 0);
+		try {
+			for (Entry<String, File> entry : sourceToDictionaryFileMap.entrySet()) {
+				builder.addDictionary(entry.getValue(), entry.getKey());
+			}
+		} finally {
+			builder.close();
+		}
+		return mergedDictionaryFile;
+	}
+
 	/**
 	 * Escapes XML-specific characters and replaces underscores with spaces
 	 * 
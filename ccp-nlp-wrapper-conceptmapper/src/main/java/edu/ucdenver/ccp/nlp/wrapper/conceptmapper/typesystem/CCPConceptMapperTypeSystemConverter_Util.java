@@ -33,6 +33,10 @@ package edu.ucdenver.ccp.nlp.wrapper.conceptmapper.typesystem;
  * #L%
  */
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
 import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
 import org.apache.uima.cas.CASException;
 import org.apache.uima.conceptMapper.support.tokenizer.TokenAnnotation;
@@ -49,6 +53,7 @@ import edu.ucdenver.ccp.nlp.core.uima.annotation.CCPTextAnnotation;
 import edu.ucdenver.ccp.nlp.core.uima.mention.CCPClassMention;
 import edu.ucdenver.ccp.nlp.core.uima.mention.CCPIntegerSlotMention;
 import edu.ucdenver.ccp.nlp.core.uima.mention.CCPStringSlotMention;
+import edu.ucdenver.ccp.nlp.uima.util.AnnotatorRegistry;
 import edu.ucdenver.ccp.nlp.uima.util.UIMA_Util;
 import edu.ucdenver.ccp.nlp.wrapper.conceptmapper.OntologyTerm;
 
@@ -63,12 +68,101 @@ import edu.ucdenver.ccp.nlp.wrapper.conceptmapper.OntologyTerm;
  */
 public class CCPConceptMapperTypeSystemConverter_Util {
 
+	/**
+	 * The annotator ID assigned to annotations converted from ConceptMapper OntologyTerms
+	 */
+	public static final String CONCEPTMAPPER_ANNOTATOR_ID = "999";
+
+	/**
+	 * The annotator ID assigned to annotations converted from ConceptMapper TokenAnnotations
+	 */
+	public static final String CONCEPTMAPPER_TOKENIZER_ANNOTATOR_ID = "990";
+
 	public static CCPTextAnnotation convertOntologyTerm(OntologyTerm ot, JCas jcas) throws AnalysisEngineProcessException {
 		return convertOntologyTerm(ot, jcas, false); 
 	}
 
 	public static CCPTextAnnotation convertOntologyTerm(OntologyTerm ot, JCas jcas, boolean addSlotForCanonicalName) 
 	throws AnalysisEngineProcessException {
+		return convertOntologyTerm(ot, jcas, getConceptMapperAnnotator(jcas), addSlotForCanonicalName, false);
+	}
+
+	public static CCPTextAnnotation convertToken(TokenAnnotation token, JCas jcas, int tokenNumber)
+			throws AnalysisEngineProcessException {
+		return convertToken(token, jcas, getTokenizerAnnotator(jcas), tokenNumber, true);
+	}
+
+	/**
+	 * Converts all of the input OntologyTerms. The annotator is looked up once and shared by all
+	 * of the resulting annotations. The results are not added to the CAS indexes.
+	 * 
+	 * @param ontologyTerms
+	 * @param jcas
+	 * @param addSlotForCanonicalName
+	 * @param omitRedundantCanonicalSlot
+	 *            if true, the canonical name slot is not added when the canonical name is identical
+	 *            to the mention name
+	 * @return the converted annotations, in the same order as the input OntologyTerms
+	 * @throws AnalysisEngineProcessException
+	 */
+	public static List<CCPTextAnnotation> convertOntologyTerms(Collection<OntologyTerm> ontologyTerms, JCas jcas,
+			boolean addSlotForCanonicalName, boolean omitRedundantCanonicalSlot) throws AnalysisEngineProcessException {
+		CCPAnnotator annotator = getConceptMapperAnnotator(jcas);
+		List<CCPTextAnnotation> annotations = new ArrayList<CCPTextAnnotation>(ontologyTerms.size());
+		for (OntologyTerm ot : ontologyTerms) {
+			annotations.add(convertOntologyTerm(ot, jcas, annotator, addSlotForCanonicalName,
+					omitRedundantCanonicalSlot));
+		}
+		return annotations;
+	}
+
+	/**
+	 * Converts all of the input TokenAnnotations, numbering them consecutively starting at 0. The
+	 * annotator is looked up once and shared by all of the resulting annotations. The results are
+	 * not added to the CAS indexes.
+	 * <p>
+	 * Each converted token requires 4 feature structures (annotation, class mention, span array
+	 * and span). The token number slot requires 3 more (slot mention, value array and slot
+	 * array); when it is omitted the token number can be recovered from the position of the token
+	 * in the annotation index.
+	 * 
+	 * @param tokens
+	 * @param jcas
+	 * @param addTokenNumberSlot
+	 * @return the converted annotations, in the same order as the input tokens
+	 * @throws AnalysisEngineProcessException
+	 */
+	public static List<CCPTextAnnotation> convertTokens(Collection<TokenAnnotation> tokens, JCas jcas,
+			boolean addTokenNumberSlot) throws AnalysisEngineProcessException {
+		CCPAnnotator annotator = getTokenizerAnnotator(jcas);
+		List<CCPTextAnnotation> annotations = new ArrayList<CCPTextAnnotation>(tokens.size());
+		int tokenNumber = 0;
+		for (TokenAnnotation token : tokens) {
+			annotations.add(convertToken(token, jcas, annotator, tokenNumber++, addTokenNumberSlot));
+		}
+		return annotations;
+	}
+
+	/**
+	 * @param jcas
+	 * @return the interned annotator assigned to converted OntologyTerms
+	 */
+	public static CCPAnnotator getConceptMapperAnnotator(JCas jcas) {
+		return AnnotatorRegistry.getRegistry(jcas).getCCPAnnotator(CONCEPTMAPPER_ANNOTATOR_ID, "ConceptMapper",
+				"UIMA Sandbox");
+	}
+
+	/**
+	 * @param jcas
+	 * @return the interned annotator assigned to converted TokenAnnotations
+	 */
+	public static CCPAnnotator getTokenizerAnnotator(JCas jcas) {
+		return AnnotatorRegistry.getRegistry(jcas).getCCPAnnotator(CONCEPTMAPPER_TOKENIZER_ANNOTATOR_ID,
+				"ConceptMapper-Tokenizer", "UIMA Sandbox");
+	}
+
+	private static CCPTextAnnotation convertOntologyTerm(OntologyTerm ot, JCas jcas, CCPAnnotator annotator,
+			boolean addSlotForCanonicalName, boolean omitRedundantCanonicalSlot) throws AnalysisEngineProcessException {
 
 		String type = ot.getDictCanon(); // canonical name
 		String id = ot.getID();
@@ -79,14 +173,10 @@ public class CCPConceptMapperTypeSystemConverter_Util {
 		CCPClassMention ccpCM = new CCPClassMention(jcas);
 		ccpCM.setMentionName(id);
 
-		CCPAnnotator annotator = new CCPAnnotator(jcas);
-		annotator.setAffiliation("UIMA Sandbox");
-		annotator.setName("ConceptMapper");
-		annotator.setAnnotatorID("999");
 		ccpTA.setAnnotator(annotator);
 
 		/* Add a slot for the type */
-		if (addSlotForCanonicalName) {
+		if (addSlotForCanonicalName && !(omitRedundantCanonicalSlot && type != null && type.equals(id))) {
 			CCPStringSlotMention slot = new CCPStringSlotMention(jcas);
 			slot.setMentionName(SlotMentionType.CANONICAL_NAME.typeName());
 			StringArray slotValues = new StringArray(jcas,1);
@@ -104,18 +194,13 @@ public class CCPConceptMapperTypeSystemConverter_Util {
 			throw new AnalysisEngineProcessException(e);
 		}
 
-		FSArray spans = new FSArray(jcas, 1);
-		CCPSpan ccpSpan = new CCPSpan(jcas);
-		ccpSpan.setSpanStart(ot.getBegin());
-		ccpSpan.setSpanEnd(ot.getEnd());
-		spans.set(0, ccpSpan);
-		ccpTA.setSpans(spans);
+		setSpan(ccpTA, ot.getBegin(), ot.getEnd(), jcas);
 
 		return ccpTA;
 	}
 
-	public static CCPTextAnnotation convertToken(TokenAnnotation token, JCas jcas, int tokenNumber)
-			throws AnalysisEngineProcessException {
+	private static CCPTextAnnotation convertToken(TokenAnnotation token, JCas jcas, CCPAnnotator annotator,
+			int tokenNumber, boolean addTokenNumberSlot) throws AnalysisEngineProcessException {
 
 		CCPTextAnnotation ccpTA = new CCPTextAnnotation(jcas);
 		ccpTA.setBegin(token.getBegin());
@@ -124,16 +209,17 @@ public class CCPConceptMapperTypeSystemConverter_Util {
 		CCPClassMention ccpCM = new CCPClassMention(jcas);
 		ccpCM.setMentionName(ClassMentionType.TOKEN.typeName());
 
-		CCPIntegerSlotMention ccpSM = new CCPIntegerSlotMention(jcas);
-		ccpSM.setMentionName(SlotMentionType.TOKEN_NUMBER.typeName());
-		IntegerArray slotValues = new IntegerArray(jcas, 1);
-		slotValues.set(0, tokenNumber);
-		ccpSM.setSlotValues(slotValues);
+		if (addTokenNumberSlot) {
+			CCPIntegerSlotMention ccpSM = new CCPIntegerSlotMention(jcas);
+			ccpSM.setMentionName(SlotMentionType.TOKEN_NUMBER.typeName());
+			IntegerArray slotValues = new IntegerArray(jcas, 1);
+			slotValues.set(0, tokenNumber);
+			ccpSM.setSlotValues(slotValues);
 
-		FSArray ccpSlotMentions = new FSArray(jcas, 1);
-		ccpSlotMentions.set(0, ccpSM);
-		ccpCM.setSlotMentions(ccpSlotMentions);
-		ccpTA.setClassMention(ccpCM);
+			FSArray ccpSlotMentions = new FSArray(jcas, 1);
+			ccpSlotMentions.set(0, ccpSM);
+			ccpCM.setSlotMentions(ccpSlotMentions);
+		}
 
 		try {
 			UIMA_Util.setCCPClassMentionForCCPTextAnnotation(ccpTA, ccpCM);
@@ -141,20 +227,20 @@ public class CCPConceptMapperTypeSystemConverter_Util {
 			throw new AnalysisEngineProcessException(e);
 		}
 
-		FSArray spans = new FSArray(jcas, 1);
-		CCPSpan ccpSpan = new CCPSpan(jcas);
-		ccpSpan.setSpanStart(token.getBegin());
-		ccpSpan.setSpanEnd(token.getEnd());
-		spans.set(0, ccpSpan);
-		ccpTA.setSpans(spans);
+		setSpan(ccpTA, token.getBegin(), token.getEnd(), jcas);
 
-		CCPAnnotator annotator = new CCPAnnotator(jcas);
-		annotator.setAffiliation("UIMA Sandbox");
-		annotator.setName("ConceptMapper-Tokenizer");
-		annotator.setAnnotatorID("990");
 		ccpTA.setAnnotator(annotator);
 
 		return ccpTA;
 	}
 
+	private static void setSpan(CCPTextAnnotation ccpTA, int spanStart, int spanEnd, JCas jcas) {
+		FSArray spans = new FSArray(jcas, 1);
+		CCPSpan ccpSpan = new CCPSpan(jcas);
+		ccpSpan.setSpanStart(spanStart);
+		ccpSpan.setSpanEnd(spanEnd);
+		spans.set(0, ccpSpan);
+		ccpTA.setSpans(spans);
+	}
+
 }
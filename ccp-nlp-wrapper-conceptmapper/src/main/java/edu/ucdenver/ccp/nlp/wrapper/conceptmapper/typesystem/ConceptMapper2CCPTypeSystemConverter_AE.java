@@ -54,21 +54,25 @@ package edu.ucdenver.ccp.nlp.wrapper.conceptmapper.typesystem;
  */
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
+import org.apache.uima.UimaContext;
 import org.apache.uima.analysis_engine.AnalysisEngineDescription;
 import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
-import org.apache.uima.cas.FSIterator;
 import org.apache.uima.conceptMapper.support.tokenizer.TokenAnnotation;
 import org.apache.uima.fit.component.JCasAnnotator_ImplBase;
 import org.apache.uima.fit.descriptor.ConfigurationParameter;
 import org.apache.uima.fit.factory.AnalysisEngineFactory;
+import org.apache.uima.fit.util.JCasUtil;
 import org.apache.uima.jcas.JCas;
-import org.apache.uima.jcas.tcas.Annotation;
 import org.apache.uima.resource.ResourceInitializationException;
 import org.apache.uima.resource.metadata.TypeSystemDescription;
 
 import edu.ucdenver.ccp.nlp.core.uima.annotation.CCPTextAnnotation;
+import edu.ucdenver.ccp.nlp.uima.util.AnnotatorRegistry;
+import edu.ucdenver.ccp.nlp.uima.util.UIMA_Util;
 import edu.ucdenver.ccp.nlp.wrapper.conceptmapper.OntologyTerm;
 
 /**
@@ -85,46 +89,106 @@ public class ConceptMapper2CCPTypeSystemConverter_AE extends JCasAnnotator_ImplB
 	private boolean addCanonSlot = false;
 
 	/**
-	 * Cycle through all OntologyTerms and TokenAnnotations and converts to
-	 * CCPTextAnnotations. OntologyTerm and TokenAnnotation annotations are
-	 * removed from the CAS once converted.
+	 * If true (the default), each converted token is given a slot storing its token number. With
+	 * the slot each token still requires 7 feature structures; setting this to false reduces that
+	 * to 4 (annotation, class mention, span array and span).
 	 */
+	public final static String PARAM_ADD_TOKEN_NUMBER_SLOT = "addTokenNumberSlot";
+	@ConfigurationParameter(mandatory = false, description = "False if the token number slot should be omitted from converted tokens", defaultValue = "true")
+	private boolean addTokenNumberSlot = true;
+
+	/**
+	 * If true, the canonical name slot is omitted when the canonical name is identical to the
+	 * mention name
+	 */
+	public final static String PARAM_OMIT_REDUNDANT_CANON_SLOT = "omitRedundantCanonSlot";
+	@ConfigurationParameter(mandatory = false, description = "True if the canonical name slot should be omitted when it is identical to the mention name", defaultValue = "false")
+	private boolean omitRedundantCanonSlot = false;
+
+	/**
+	 * Used with source-tagged dictionaries (see ConceptMapperDictionaryBuilder.mergeDictionaries())
+	 * to route the annotations of each source to their own annotator and annotation set. Each
+	 * route has the form source|annotatorID|annotationSetID, e.g. GO|101|1. Annotations from
+	 * sources without a route keep the default ConceptMapper annotator.
+	 */
+	public final static String PARAM_SOURCE_ROUTES = "sourceRoutes";
+	@ConfigurationParameter(mandatory = false, description = "source|annotatorID|annotationSetID routes for the annotations from a source-tagged dictionary")
+	private String[] sourceRoutes;
+
+	private static final String ROUTE_DELIMITER_REGEX = "\\|";
+
+	private Map<String, SourceRoute> sourceToRouteMap;
+
 	@Override
-	public void process(JCas jcas) throws AnalysisEngineProcessException {
-		/* Convert OntologyTerm annotations */
-		List<CCPTextAnnotation> annotations2add = new ArrayList<CCPTextAnnotation>();
-		List<Annotation> annotations2remove = new ArrayList<Annotation>();
-		for (FSIterator<Annotation> annotIter = jcas.getJFSIndexRepository().getAnnotationIndex(OntologyTerm.type)
-				.iterator(); annotIter.hasNext();) {
-			OntologyTerm ot = (OntologyTerm) annotIter.next();
-			CCPTextAnnotation ccpTA = CCPConceptMapperTypeSystemConverter_Util.convertOntologyTerm(ot, jcas,
-					addCanonSlot);
-			if (ccpTA != null) {
-				annotations2add.add(ccpTA);
-				annotations2remove.add(ot);
+	public void initialize(UimaContext context) throws ResourceInitializationException {
+		super.initialize(context);
+		sourceToRouteMap = new HashMap<String, SourceRoute>();
+		if (sourceRoutes != null) {
+			for (String route : sourceRoutes) {
+				String[] toks = route.split(ROUTE_DELIMITER_REGEX);
+				if (toks.length != 3) {
+					throw new ResourceInitializationException(new IllegalArgumentException(
+							"Invalid source route, expected source|annotatorID|annotationSetID but observed: "
+									+ route));
+				}
+				try {
+					sourceToRouteMap.put(toks[0], new SourceRoute(toks[1], Integer.parseInt(toks[2])));
+				} catch (NumberFormatException e) {
+					throw new ResourceInitializationException(e);
+				}
 			}
 		}
+	}
+
+	/**
+	 * Converts all OntologyTerms and TokenAnnotations to CCPTextAnnotations in one batch per
+	 * type. The converted annotations are added to the CAS indexes in a single pass and the
+	 * OntologyTerm and TokenAnnotation annotations are removed from the CAS.
+	 */
+	@Override
+	public void process(JCas jcas) throws AnalysisEngineProcessException {
+		List<OntologyTerm> ontologyTerms = new ArrayList<OntologyTerm>(JCasUtil.select(jcas, OntologyTerm.class));
+		List<TokenAnnotation> tokens = new ArrayList<TokenAnnotation>(JCasUtil.select(jcas, TokenAnnotation.class));
 
-		/* Now convert token annotations */
-		int tokenNumber = 0;
-		for (FSIterator<Annotation> annotIter = jcas.getJFSIndexRepository().getAnnotationIndex(TokenAnnotation.type)
-				.iterator(); annotIter.hasNext();) {
-			TokenAnnotation token = (TokenAnnotation) annotIter.next();
-			CCPTextAnnotation ccpToken = CCPConceptMapperTypeSystemConverter_Util.convertToken(token, jcas,
-					tokenNumber);
-			tokenNumber++;
-			if (ccpToken != null) {
-				annotations2add.add(ccpToken);
-				annotations2remove.add(token);
+		List<CCPTextAnnotation> annotations2add = CCPConceptMapperTypeSystemConverter_Util.convertOntologyTerms(
+				ontologyTerms, jcas, addCanonSlot, omitRedundantCanonSlot);
+		if (!sourceToRouteMap.isEmpty()) {
+			for (int i = 0; i < ontologyTerms.size(); i++) {
+				route(annotations2add.get(i), ontologyTerms.get(i).getSource(), jcas);
 			}
 		}
+		annotations2add.addAll(CCPConceptMapperTypeSystemConverter_Util.convertTokens(tokens, jcas,
+				addTokenNumberSlot));
 
 		for (CCPTextAnnotation ccpTA : annotations2add) {
 			ccpTA.addToIndexes();
 		}
 
-		for (Annotation annot : annotations2remove) {
-			annot.removeFromIndexes();
+		jcas.removeAllIncludingSubtypes(OntologyTerm.type);
+		jcas.removeAllIncludingSubtypes(TokenAnnotation.type);
+	}
+
+	/**
+	 * Assigns the annotator and annotation set configured for the input source to the annotation
+	 */
+	private void route(CCPTextAnnotation ccpTA, String source, JCas jcas) {
+		SourceRoute route = sourceToRouteMap.get(source);
+		if (route != null) {
+			AnnotatorRegistry registry = AnnotatorRegistry.getRegistry(jcas);
+			ccpTA.setAnnotator(registry.getCCPAnnotator(route.annotatorID, "ConceptMapper-" + source,
+					"UIMA Sandbox"));
+			UIMA_Util.addAnnotationSet(ccpTA, registry.getCCPAnnotationSet(route.annotationSetID, source,
+					"ConceptMapper " + source + " annotations"), jcas);
+		}
+	}
+
+	private static class SourceRoute {
+		private final String annotatorID;
+		private final int annotationSetID;
+
+		public SourceRoute(String annotatorID, int annotationSetID) {
+			this.annotatorID = annotatorID;
+			this.annotationSetID = annotationSetID;
 		}
 	}
 
@@ -139,4 +203,19 @@ public class ConceptMapper2CCPTypeSystemConverter_AE extends JCasAnnotator_ImplB
 		return AnalysisEngineFactory.createPrimitiveDescription(ConceptMapper2CCPTypeSystemConverter_AE.class, tsd,
 				PARAM_ADD_CANON_SLOT, addCanonicalSlot);
 	}
+
+	/**
+	 * @param tsd
+	 * @param addCanonicalSlot
+	 * @param sourceRoutes
+	 *            routes of the form source|annotatorID|annotationSetID, see
+	 *            {@link #PARAM_SOURCE_ROUTES}
+	 * @return
+	 * @throws ResourceInitializationException
+	 */
+	public static AnalysisEngineDescription createAnalysisEngineDescription(TypeSystemDescription tsd,
+			boolean addCanonicalSlot, String... sourceRoutes) throws ResourceInitializationException {
+		return AnalysisEngineFactory.createPrimitiveDescription(ConceptMapper2CCPTypeSystemConverter_AE.class, tsd,
+				PARAM_ADD_CANON_SLOT, addCanonicalSlot, PARAM_SOURCE_ROUTES, sourceRoutes);
+	}
 }
@@ -0,0 +1,101 @@
+package edu.ucdenver.ccp.nlp.wrapper.conceptmapper;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's nlp module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.junit.Test;
+
+import edu.ucdenver.ccp.common.collections.CollectionsUtil;
+
+/**
+ * @author Colorado Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class ConceptMapperPermutationRunnerTest {
+
+	@Test
+	public void testGroupByTokenizationSignature() {
+		List<Integer> permutationNumbers = new ArrayList<Integer>();
+		Set<List<String>> signatures = new HashSet<List<String>>();
+		for (int i = 0; i < ConceptMapperPermutationFactory.PARAM_COMBINATIONS.size(); i++) {
+			permutationNumbers.add(i);
+			signatures.add(ConceptMapperPermutationFactory.getTokenizationSignature(i));
+		}
+		/* duplicate permutation numbers are only run once */
+		permutationNumbers.add(0);
+
+		Map<List<String>, List<Integer>> signatureToPermutationsMap = ConceptMapperPermutationRunner
+				.groupByTokenizationSignature(permutationNumbers);
+		assertEquals(signatures, signatureToPermutationsMap.keySet());
+
+		int permutationCount = 0;
+		for (Entry<List<String>, List<Integer>> entry : signatureToPermutationsMap.entrySet()) {
+			assertFalse(entry.getValue().isEmpty());
+			for (int permutationNumber : entry.getValue()) {
+				assertEquals(entry.getKey(), ConceptMapperPermutationFactory.getTokenizationSignature(permutationNumber));
+				permutationCount++;
+			}
+		}
+		assertEquals(ConceptMapperPermutationFactory.PARAM_COMBINATIONS.size(), permutationCount);
+	}
+
+	@Test
+	public void testGroupByTokenizationSignature_FirstAppearanceOrder() {
+		List<String> params = ConceptMapperPermutationFactory.PARAM_COMBINATIONS.get(0);
+		int samePermutation = -1;
+		for (int i = 1; i < ConceptMapperPermutationFactory.PARAM_COMBINATIONS.size() && samePermutation < 0; i++) {
+			if (ConceptMapperPermutationFactory.getTokenizationSignature(i).equals(
+					ConceptMapperPermutationFactory.getTokenizationSignature(0))
+					&& !ConceptMapperPermutationFactory.PARAM_COMBINATIONS.get(i).equals(params)) {
+				samePermutation = i;
+			}
+		}
+		Map<List<String>, List<Integer>> signatureToPermutationsMap = ConceptMapperPermutationRunner
+				.groupByTokenizationSignature(CollectionsUtil.createList(samePermutation, 0));
+		assertEquals(1, signatureToPermutationsMap.size());
+		assertEquals(CollectionsUtil.createList(samePermutation, 0), signatureToPermutationsMap.values().iterator()
+				.next());
+	}
+
+}
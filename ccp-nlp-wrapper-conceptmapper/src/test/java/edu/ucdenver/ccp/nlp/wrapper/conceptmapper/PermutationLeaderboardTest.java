@@ -0,0 +1,103 @@
+package edu.ucdenver.ccp.nlp.wrapper.conceptmapper;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's nlp module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.util.List;
+
+import org.junit.Test;
+
+import edu.ucdenver.ccp.common.collections.CollectionsUtil;
+import edu.ucdenver.ccp.common.file.CharacterEncoding;
+import edu.ucdenver.ccp.common.file.FileReaderUtil;
+import edu.ucdenver.ccp.common.test.DefaultTestCase;
+import edu.ucdenver.ccp.nlp.core.annotation.comparison.PRFResult;
+
+/**
+ * @author Colorado Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class PermutationLeaderboardTest extends DefaultTestCase {
+
+	@Test
+	public void testCountsAreAccumulated() {
+		PermutationLeaderboard leaderboard = new PermutationLeaderboard();
+		assertNull(leaderboard.getResult(3));
+		leaderboard.add(3, new PRFResult(2, 1, 0));
+		leaderboard.add(3, new PRFResult(1, 0, 4));
+		PRFResult prf = leaderboard.getResult(3);
+		assertEquals(3, prf.getTruePositiveCount());
+		assertEquals(1, prf.getFalsePositiveCount());
+		assertEquals(4, prf.getFalseNegativeCount());
+	}
+
+	@Test
+	public void testRanking() {
+		PermutationLeaderboard leaderboard = new PermutationLeaderboard();
+		/* no annotations produced, P/R/F are undefined so it is ranked last */
+		leaderboard.register(0);
+		/* F = 0.5 */
+		leaderboard.add(1, new PRFResult(1, 1, 1));
+		/* F = 0.8 */
+		leaderboard.add(2, new PRFResult(4, 1, 1));
+		/* F = 0.5, higher precision than permutation 1 */
+		leaderboard.add(3, new PRFResult(1, 0, 2));
+		assertEquals(CollectionsUtil.createList(2, 3, 1, 0), leaderboard.getRankedPermutationNumbers());
+	}
+
+	@Test
+	public void testWriteTsv() throws Exception {
+		PermutationLeaderboard leaderboard = new PermutationLeaderboard();
+		leaderboard.add(1, new PRFResult(1, 1, 1));
+		leaderboard.add(2, new PRFResult(4, 1, 1));
+		File tsvFile = folder.newFile("leaderboard.tsv");
+		leaderboard.writeTsv(tsvFile);
+
+		List<String> lines = FileReaderUtil.loadLinesFromFile(tsvFile, CharacterEncoding.UTF_8);
+		assertEquals(3, lines.size());
+		assertEquals(PermutationLeaderboard.TSV_HEADER, lines.get(0));
+		/* the trailing column lists the parameters of the permutation */
+		assertEquals("1\t2\t4\t1\t1\t0.8000\t0.8000\t0.8000", removeLastColumn(lines.get(1)));
+		assertEquals("2\t1\t1\t1\t1\t0.5000\t0.5000\t0.5000", removeLastColumn(lines.get(2)));
+	}
+
+	private static String removeLastColumn(String line) {
+		return line.substring(0, line.lastIndexOf('\t'));
+	}
+
+}
@@ -0,0 +1,121 @@
+package edu.ucdenver.ccp.nlp.wrapper.conceptmapper.dictionary;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's nlp module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import edu.ucdenver.ccp.common.collections.CollectionsUtil;
+import edu.ucdenver.ccp.common.file.CharacterEncoding;
+import edu.ucdenver.ccp.common.file.FileComparisonUtil;
+import edu.ucdenver.ccp.common.file.FileComparisonUtil.ColumnOrder;
+import edu.ucdenver.ccp.common.file.FileComparisonUtil.LineOrder;
+import edu.ucdenver.ccp.common.file.FileComparisonUtil.LineTrim;
+import edu.ucdenver.ccp.common.file.FileComparisonUtil.ShowWhiteSpace;
+import edu.ucdenver.ccp.common.test.DefaultTestCase;
+
+/**
+ * @author Colorado Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class ConceptMapperDictionaryBuilderTest extends DefaultTestCase {
+
+	@Test
+	public void testAddEntryWithSource() throws IOException {
+		File dictionaryFile = folder.newFile("dict.xml");
+		ConceptMapperDictionaryBuilder builder = new ConceptMapperDictionaryBuilder(dictionaryFile, 3);
+		builder.addEntry("GO:0000110", CollectionsUtil.createList("NEF1 complex", "NEF1"), "GO");
+		builder.addEntry("GO:0000109", CollectionsUtil.createList("nucleotide-excision repair complex"));
+		builder.close();
+		/* @formatter:off */
+		List<String> expectedLines = CollectionsUtil.createList(
+				"<?xml version=\"1.0\" encoding=\"UTF-8\" ?>",
+				"<synonym>",
+				"<token id=\"GO:0000110\" canonical=\"NEF1 complex\" source=\"GO\">",
+				"<variant base=\"NEF1 complex\"/>",
+				"<variant base=\"NEF1\"/>",
+				"</token>",
+				"<token id=\"GO:0000109\" canonical=\"nucleotide-excision repair complex\">",
+				"<variant base=\"nucleotide-excision repair complex\"/>",
+				"</token>",
+				"</synonym>");
+		/* @formatter:on */
+		assertTrue(FileComparisonUtil.hasExpectedLines(dictionaryFile, CharacterEncoding.UTF_8, expectedLines, null,
+				LineOrder.AS_IN_FILE, ColumnOrder.AS_IN_FILE, LineTrim.ON, ShowWhiteSpace.ON));
+	}
+
+	@Test
+	public void testMergeDictionaries() throws IOException {
+		File goDictionaryFile = folder.newFile("go-dict.xml");
+		ConceptMapperDictionaryBuilder builder = new ConceptMapperDictionaryBuilder(goDictionaryFile, 3);
+		builder.addEntry("GO:0000110", CollectionsUtil.createList("NEF1 complex", "NEF1"));
+		builder.close();
+
+		File chebiDictionaryFile = folder.newFile("chebi-dict.xml");
+		builder = new ConceptMapperDictionaryBuilder(chebiDictionaryFile, 3);
+		/* an existing source attribute is replaced */
+		builder.addEntry("CHEBI:15377", CollectionsUtil.createList("water", "H2O & oxidane"), "unknown");
+		builder.close();
+
+		Map<String, File> sourceToDictionaryFileMap = new LinkedHashMap<String, File>();
+		sourceToDictionaryFileMap.put("GO", goDictionaryFile);
+		sourceToDictionaryFileMap.put("CHEBI", chebiDictionaryFile);
+		File mergedDictionaryFile = ConceptMapperDictionaryBuilder.mergeDictionaries(sourceToDictionaryFileMap,
+				folder.newFile("merged-dict.xml"));
+		/* @formatter:off */
+		List<String> expectedLines = CollectionsUtil.createList(
+				"<?xml version=\"1.0\" encoding=\"UTF-8\" ?>",
+				"<synonym>",
+				"<token id=\"GO:0000110\" canonical=\"NEF1 complex\" source=\"GO\">",
+				"<variant base=\"NEF1 complex\"/>",
+				"<variant base=\"NEF1\"/>",
+				"</token>",
+				"<token id=\"CHEBI:15377\" canonical=\"water\" source=\"CHEBI\">",
+				"<variant base=\"water\"/>",
+				"<variant base=\"H2O &amp; oxidane\"/>",
+				"</token>",
+				"</synonym>");
+		/* @formatter:on */
+		assertTrue(FileComparisonUtil.hasExpectedLines(mergedDictionaryFile, CharacterEncoding.UTF_8, expectedLines,
+				null, LineOrder.AS_IN_FILE, ColumnOrder.AS_IN_FILE, LineTrim.ON, ShowWhiteSpace.ON));
+	}
+
+}
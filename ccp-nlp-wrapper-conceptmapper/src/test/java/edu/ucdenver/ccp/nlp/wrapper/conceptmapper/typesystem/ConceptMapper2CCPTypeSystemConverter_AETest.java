@@ -0,0 +1,310 @@
+package edu.ucdenver.ccp.nlp.wrapper.conceptmapper.typesystem;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's nlp module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.uima.UIMAException;
+import org.apache.uima.analysis_engine.AnalysisEngine;
+import org.apache.uima.cas.ArrayFS;
+import org.apache.uima.cas.Feature;
+import org.apache.uima.cas.FeatureStructure;
+import org.apache.uima.cas.impl.CASImpl;
+import org.apache.uima.cas.impl.LowLevelCAS;
+import org.apache.uima.conceptMapper.support.tokenizer.TokenAnnotation;
+import org.apache.uima.fit.factory.AnalysisEngineFactory;
+import org.apache.uima.fit.factory.TypeSystemDescriptionFactory;
+import org.apache.uima.fit.util.JCasUtil;
+import org.apache.uima.jcas.cas.FSArray;
+import org.apache.uima.jcas.cas.IntegerArray;
+import org.apache.uima.resource.metadata.TypeSystemDescription;
+import org.junit.Test;
+
+import edu.ucdenver.ccp.nlp.core.mention.ClassMentionType;
+import edu.ucdenver.ccp.nlp.core.mention.SlotMentionType;
+import edu.ucdenver.ccp.nlp.core.uima.annotation.CCPAnnotator;
+import edu.ucdenver.ccp.nlp.core.uima.annotation.CCPSpan;
+import edu.ucdenver.ccp.nlp.core.uima.annotation.CCPTextAnnotation;
+import edu.ucdenver.ccp.nlp.core.uima.mention.CCPClassMention;
+import edu.ucdenver.ccp.nlp.core.uima.mention.CCPIntegerSlotMention;
+import edu.ucdenver.ccp.nlp.uima.test.DefaultUIMATestCase;
+import edu.ucdenver.ccp.nlp.uima.util.UIMA_Util;
+import edu.ucdenver.ccp.nlp.wrapper.conceptmapper.OntologyTerm;
+
+/**
+ * @author Colorado Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class ConceptMapper2CCPTypeSystemConverter_AETest extends DefaultUIMATestCase {
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see edu.ucdenver.ccp.nlp.core.uima.test.DefaultUIMATestCase#getTypeSystem()
+	 */
+	@Override
+	protected TypeSystemDescription getTypeSystem() {
+		return TypeSystemDescriptionFactory.createTypeSystemDescription("edu.ucdenver.ccp.nlp.core.uima.TypeSystem",
+				"edu.ucdenver.ccp.nlp.wrapper.conceptmapper.TypeSystem", "analysis_engine.primitive.DictTerm",
+				"org.apache.uima.conceptMapper.support.tokenizer.TokenAnnotation", "uima.tt.TokenAnnotation");
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see edu.ucdenver.ccp.nlp.core.uima.test.DefaultUIMATestCase#initJCas()
+	 */
+	@Override
+	protected void initJCas() throws UIMAException {
+		jcas.setDocumentText("The NEF1 complex binds water.");
+		addOntologyTerm(4, 16, "GO:0000110", "NEF1 complex", "GO");
+		addOntologyTerm(23, 28, "CHEBI:15377", "water", "CHEBI");
+	}
+
+	private void addOntologyTerm(int begin, int end, String id, String canonicalName, String source) {
+		OntologyTerm ot = new OntologyTerm(jcas, begin, end);
+		ot.setID(id);
+		ot.setDictCanon(canonicalName);
+		ot.setSource(source);
+		ot.addToIndexes();
+	}
+
+	@Test
+	public void testSourceRouting() throws Exception {
+		AnalysisEngine ae = AnalysisEngineFactory.createPrimitive(ConceptMapper2CCPTypeSystemConverter_AE
+				.createAnalysisEngineDescription(tsd, false, "GO|101|1"));
+		ae.process(jcas);
+
+		Iterator<CCPTextAnnotation> annotIter = UIMA_Util.getTextAnnotationIterator(jcas);
+		CCPTextAnnotation goAnnot = annotIter.next();
+		assertEquals("GO:0000110", goAnnot.getClassMention().getMentionName());
+		assertEquals("101", goAnnot.getAnnotator().getAnnotatorID());
+		assertTrue(UIMA_Util.hasAnnotationSet(goAnnot, 1));
+
+		/* there is no route for CHEBI so the default ConceptMapper annotator is used */
+		CCPTextAnnotation chebiAnnot = annotIter.next();
+		assertEquals("CHEBI:15377", chebiAnnot.getClassMention().getMentionName());
+		assertEquals(CCPConceptMapperTypeSystemConverter_Util.CONCEPTMAPPER_ANNOTATOR_ID, chebiAnnot.getAnnotator()
+				.getAnnotatorID());
+		assertFalse(UIMA_Util.hasAnnotationSet(chebiAnnot, 1));
+		assertFalse(annotIter.hasNext());
+	}
+
+	@Test
+	public void testNoRoutes() throws Exception {
+		AnalysisEngine ae = AnalysisEngineFactory.createPrimitive(ConceptMapper2CCPTypeSystemConverter_AE
+				.createAnalysisEngineDescription(tsd));
+		ae.process(jcas);
+
+		int count = 0;
+		for (Iterator<CCPTextAnnotation> annotIter = UIMA_Util.getTextAnnotationIterator(jcas); annotIter.hasNext();) {
+			assertEquals(CCPConceptMapperTypeSystemConverter_Util.CONCEPTMAPPER_ANNOTATOR_ID, annotIter.next()
+					.getAnnotator().getAnnotatorID());
+			count++;
+		}
+		assertEquals(2, count);
+	}
+
+	@Test
+	public void testConvertTokens() throws Exception {
+		jcas.reset();
+		jcas.setDocumentText("one two");
+		new TokenAnnotation(jcas, 0, 3).addToIndexes();
+		new TokenAnnotation(jcas, 4, 7).addToIndexes();
+		List<TokenAnnotation> tokens = new ArrayList<TokenAnnotation>(JCasUtil.select(jcas, TokenAnnotation.class));
+
+		List<CCPTextAnnotation> withSlot = CCPConceptMapperTypeSystemConverter_Util.convertTokens(tokens, jcas, true);
+		assertEquals(2, withSlot.size());
+		assertEquals(4, withSlot.get(1).getBegin());
+		assertNotNull(withSlot.get(1).getClassMention().getSlotMentions());
+		/* the annotator feature structure is shared */
+		assertTrue(withSlot.get(0).getAnnotator() == withSlot.get(1).getAnnotator());
+
+		List<CCPTextAnnotation> withoutSlot = CCPConceptMapperTypeSystemConverter_Util.convertTokens(tokens, jcas,
+				false);
+		assertNull(withoutSlot.get(1).getClassMention().getSlotMentions());
+		assertEquals(1, withoutSlot.get(1).getSpans().size());
+	}
+
+	/**
+	 * Before the annotator was interned, each converted token required 8 feature structures
+	 * (annotation, class mention, slot mention, slot value array, slot array, span array, span and
+	 * annotator). Omitting the token number slot must at least halve that; the heap cells do not
+	 * halve because the annotation itself accounts for most of them.
+	 */
+	@Test
+	public void testTokenConversionHeapUsage() throws Exception {
+		int baselineCellCount = getTokenConversionHeapCellCount(null);
+		int baselineFsCount = countNewFeatureStructures(convertTokensAsBeforeInterning(createTokens()));
+		int withSlotCellCount = getTokenConversionHeapCellCount(true);
+		int withSlotFsCount = countNewFeatureStructures(CCPConceptMapperTypeSystemConverter_Util.convertTokens(
+				createTokens(), jcas, true));
+		int withoutSlotCellCount = getTokenConversionHeapCellCount(false);
+		int withoutSlotFsCount = countNewFeatureStructures(CCPConceptMapperTypeSystemConverter_Util.convertTokens(
+				createTokens(), jcas, false));
+
+		assertEquals(8 * TOKEN_COUNT, baselineFsCount);
+		assertEquals(7 * TOKEN_COUNT, withSlotFsCount);
+		assertEquals(4 * TOKEN_COUNT, withoutSlotFsCount);
+		assertTrue("baseline: " + baselineFsCount + " without slot: " + withoutSlotFsCount,
+				withoutSlotFsCount * 2 <= baselineFsCount);
+
+		assertTrue("baseline: " + baselineCellCount + " with slot: " + withSlotCellCount,
+				withSlotCellCount < baselineCellCount);
+		assertTrue("with slot: " + withSlotCellCount + " without slot: " + withoutSlotCellCount,
+				withoutSlotCellCount < withSlotCellCount);
+	}
+
+	private static final int TOKEN_COUNT = 1000;
+
+	/**
+	 * @param addTokenNumberSlot
+	 *            null to measure the conversion as it was before the annotator was interned
+	 * @return the number of heap cells used to convert {@link #TOKEN_COUNT} tokens
+	 */
+	private int getTokenConversionHeapCellCount(Boolean addTokenNumberSlot) throws Exception {
+		List<TokenAnnotation> tokens = createTokens();
+		CASImpl cas = (CASImpl) jcas.getCas();
+		int cellsUsed = cas.getHeap().getCellsUsed();
+		if (addTokenNumberSlot == null) {
+			convertTokensAsBeforeInterning(tokens);
+		} else {
+			CCPConceptMapperTypeSystemConverter_Util.convertTokens(tokens, jcas, addTokenNumberSlot);
+		}
+		return cas.getHeap().getCellsUsed() - cellsUsed;
+	}
+
+	private List<TokenAnnotation> createTokens() {
+		jcas.reset();
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < TOKEN_COUNT; i++) {
+			sb.append("tok ");
+		}
+		jcas.setDocumentText(sb.toString());
+		for (int i = 0; i < TOKEN_COUNT; i++) {
+			new TokenAnnotation(jcas, i * 4, i * 4 + 3).addToIndexes();
+		}
+		return new ArrayList<TokenAnnotation>(JCasUtil.select(jcas, TokenAnnotation.class));
+	}
+
+	/**
+	 * Reproduces the token conversion as it was before the annotator was interned and the token
+	 * number slot was made optional
+	 */
+	private List<CCPTextAnnotation> convertTokensAsBeforeInterning(List<TokenAnnotation> tokens) throws Exception {
+		List<CCPTextAnnotation> annotations = new ArrayList<CCPTextAnnotation>(tokens.size());
+		int tokenNumber = 0;
+		for (TokenAnnotation token : tokens) {
+			CCPTextAnnotation ccpTA = new CCPTextAnnotation(jcas);
+			ccpTA.setBegin(token.getBegin());
+			ccpTA.setEnd(token.getEnd());
+
+			CCPClassMention ccpCM = new CCPClassMention(jcas);
+			ccpCM.setMentionName(ClassMentionType.TOKEN.typeName());
+
+			CCPIntegerSlotMention ccpSM = new CCPIntegerSlotMention(jcas);
+			ccpSM.setMentionName(SlotMentionType.TOKEN_NUMBER.typeName());
+			IntegerArray slotValues = new IntegerArray(jcas, 1);
+			slotValues.set(0, tokenNumber++);
+			ccpSM.setSlotValues(slotValues);
+
+			FSArray ccpSlotMentions = new FSArray(jcas, 1);
+			ccpSlotMentions.set(0, ccpSM);
+			ccpCM.setSlotMentions(ccpSlotMentions);
+			UIMA_Util.setCCPClassMentionForCCPTextAnnotation(ccpTA, ccpCM);
+
+			FSArray spans = new FSArray(jcas, 1);
+			CCPSpan ccpSpan = new CCPSpan(jcas);
+			ccpSpan.setSpanStart(token.getBegin());
+			ccpSpan.setSpanEnd(token.getEnd());
+			spans.set(0, ccpSpan);
+			ccpTA.setSpans(spans);
+
+			CCPAnnotator annotator = new CCPAnnotator(jcas);
+			annotator.setAffiliation("UIMA Sandbox");
+			annotator.setName("ConceptMapper-Tokenizer");
+			annotator.setAnnotatorID("990");
+			ccpTA.setAnnotator(annotator);
+
+			annotations.add(ccpTA);
+		}
+		return annotations;
+	}
+
+	/**
+	 * @return the number of distinct feature structures reachable from the annotations, excluding
+	 *         the sofa and the interned tokenizer annotator, which exist independently of the
+	 *         conversion
+	 */
+	private int countNewFeatureStructures(List<CCPTextAnnotation> annotations) {
+		LowLevelCAS cas = jcas.getLowLevelCas();
+		Set<Integer> existingRefs = new HashSet<Integer>();
+		existingRefs.add(cas.ll_getFSRef(jcas.getSofa()));
+		existingRefs.add(cas.ll_getFSRef(CCPConceptMapperTypeSystemConverter_Util.getTokenizerAnnotator(jcas)));
+		Set<Integer> refs = new HashSet<Integer>(existingRefs);
+		for (CCPTextAnnotation annotation : annotations) {
+			collectFeatureStructureRefs(annotation, cas, refs);
+		}
+		return refs.size() - existingRefs.size();
+	}
+
+	private static void collectFeatureStructureRefs(FeatureStructure fs, LowLevelCAS cas, Set<Integer> refs) {
+		if (fs == null || !refs.add(cas.ll_getFSRef(fs))) {
+			return;
+		}
+		if (fs instanceof ArrayFS) {
+			ArrayFS array = (ArrayFS) fs;
+			for (int i = 0; i < array.size(); i++) {
+				collectFeatureStructureRefs(array.get(i), cas, refs);
+			}
+		}
+		for (Feature feature : fs.getType().getFeatures()) {
+			if (!feature.getRange().isPrimitive()) {
+				collectFeatureStructureRefs(fs.getFeatureValue(feature), cas, refs);
+			}
+		}
+	}
+
+}